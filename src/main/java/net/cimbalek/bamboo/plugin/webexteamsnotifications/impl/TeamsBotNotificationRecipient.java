@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -15,8 +16,11 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.atlassian.bamboo.notification.NotificationRecipient;
 import com.atlassian.bamboo.notification.NotificationTransport;
 import com.atlassian.bamboo.notification.recipients.AbstractNotificationRecipient;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
 import com.atlassian.bamboo.template.TemplateRenderer;
 import com.atlassian.bamboo.utils.error.ErrorCollection;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
@@ -24,10 +28,15 @@ import com.atlassian.sal.api.message.I18nResolver;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.BufferedNotificationTransport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event.DirectRecipientIndex;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
 
 import static java.util.Objects.requireNonNull;
 
@@ -35,12 +44,15 @@ import static java.util.Objects.requireNonNull;
  * Recipient plugin
  */
 @Named("teamsBotNotificationRecipient")
-public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient {
+public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient implements NotificationRecipient.RequiresResultSummary {
 
     private static final Logger logger = LoggerFactory.getLogger(TeamsBotNotificationRecipient.class);
 
     public static final String BOT_ACCESS_TOKEN_KEY = "botAccessToken";
     public static final String ROOM_IDENTIFIER_KEY = "roomIdentifier";
+    public static final String DELIVERY_TIMEOUT_KEY = "deliveryTimeoutSeconds";
+    public static final String EDIT_IN_PLACE_KEY = "editInPlace";
+    public static final String RECIPIENT_BROKEN_KEY = "recipientBroken";
     private static final String PLUGIN_DESCRIPTION_KEY = "nofification.recipient.webexTeamsNotifications.description";
     public static final String ERROR_MESSAGE_CANNOT_OBTAIN_ROOM = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.cannotFindInApi";
 
@@ -50,8 +62,15 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
     private final TeamsRoomService teamsRoomService;
     private final TeamsBotNotificationRecipientValidator teamsBotNotificationRecipientValidator;
     private final TeamsMessageService teamsMessageService;
+    private final DeliveryBuffer deliveryBuffer;
+    private final DeliveryTracer deliveryTracer;
+    private final TeamsNotificationsConfiguration configuration;
+    private final DirectRecipientIndex directRecipientIndex;
 
     private TeamsBotNotificationSettings teamsBotNotificationSettings;
+    private String configurationData;
+    private PlanKey planKey;
+    private long settingsParsingMicros;
 
     @Inject
     public TeamsBotNotificationRecipient(
@@ -59,7 +78,11 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
             @NotNull @ComponentImport final I18nResolver i18nResolver,
             @NotNull final TeamsMessageService teamsMessageService,
             @NotNull final TeamsRoomService teamsRoomService,
-            @NotNull final TeamsBotNotificationRecipientValidator teamsBotNotificationRecipientValidator) {
+            @NotNull final TeamsBotNotificationRecipientValidator teamsBotNotificationRecipientValidator,
+            @NotNull final DeliveryBuffer deliveryBuffer,
+            @NotNull final DeliveryTracer deliveryTracer,
+            @NotNull final TeamsNotificationsConfiguration configuration,
+            @NotNull final DirectRecipientIndex directRecipientIndex) {
         this.templateRenderer = requireNonNull(templateRenderer, "'templateRenderer' cannot be null");
         this.i18nResolver = requireNonNull(i18nResolver, "'i18nResolver' cannot be null");
         this.teamsMessageService = requireNonNull(teamsMessageService, "'teamsMessageService' cannot be null");
@@ -67,11 +90,17 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
         this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
         this.teamsBotNotificationRecipientValidator = requireNonNull(teamsBotNotificationRecipientValidator, "'teamsBotNotificationRecipientValidator' "
                 + "cannot be null");
+        this.deliveryBuffer = requireNonNull(deliveryBuffer, "'deliveryBuffer' cannot be null");
+        this.deliveryTracer = requireNonNull(deliveryTracer, "'deliveryTracer' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+        this.directRecipientIndex = requireNonNull(directRecipientIndex, "'directRecipientIndex' cannot be null");
     }
 
     @Override
     public void init(@Nullable final String configurationData) {
-        logger.debug("action = init '{}'", configurationData);
+        logger.debug("action = init");
+        final long start = System.nanoTime();
+        this.configurationData = configurationData;
         try {
             if (configurationData != null) {
                 teamsBotNotificationSettings = objectMapper.readValue(configurationData, TeamsBotNotificationSettings.class);
@@ -82,15 +111,25 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
             teamsBotNotificationSettings = new TeamsBotNotificationSettings();
             logger.error("Cannot load settings", e);
         }
+        settingsParsingMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    @Override
+    public void setResultSummary(@Nullable final ResultsSummary resultsSummary) {
+        planKey = resultsSummary == null || resultsSummary.getPlanResultKey() == null ? null : resultsSummary.getPlanResultKey().getPlanKey();
     }
 
     @NotNull
     @Override
     public List<NotificationTransport> getTransports() {
         logger.debug("action = getTransports");
-        if (isSettingsFilled(teamsBotNotificationSettings)) {
-            return Collections.singletonList(
-                    new TeamsBotNotificationTransport(teamsBotNotificationSettings, teamsRoomService, teamsMessageService));
+        if (directRecipientIndex.isDeliveredDirectly(planKey, configurationData)) {
+            logger.debug("Notification for recipient '{}' is delivered directly from build completion event.", teamsBotNotificationSettings);
+            return Collections.emptyList();
+        } else if (isSettingsFilled(teamsBotNotificationSettings)) {
+            final TeamsBotNotificationTransport transport = new TeamsBotNotificationTransport(teamsBotNotificationSettings, teamsRoomService,
+                    teamsMessageService, deliveryTracer, configuration, settingsParsingMicros);
+            return Collections.singletonList(deliveryBuffer.isEnabled() ? new BufferedNotificationTransport(transport, deliveryBuffer) : transport);
         } else {
             return Collections.emptyList();
         }
@@ -119,10 +158,16 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
     public void populate(@NotNull final Map<String, String[]> params) {
         requireNonNull(params, "'params' cannot be null");
 
-        logger.debug("action = populate {}", params);
+        logger.debug("action = populate {}", params.keySet());
         teamsBotNotificationSettings = new TeamsBotNotificationSettings();
         teamsBotNotificationSettings.setBotAccessToken(this.getParam(BOT_ACCESS_TOKEN_KEY, params));
         teamsBotNotificationSettings.setRoomIdentifier(this.getParam(ROOM_IDENTIFIER_KEY, params));
+        if (params.containsKey(DELIVERY_TIMEOUT_KEY)) {
+            teamsBotNotificationSettings.setDeliveryTimeoutSeconds(parseDeliveryTimeout(this.getParam(DELIVERY_TIMEOUT_KEY, params)));
+        }
+        if (params.containsKey(EDIT_IN_PLACE_KEY) && Boolean.parseBoolean(this.getParam(EDIT_IN_PLACE_KEY, params))) {
+            teamsBotNotificationSettings.setEditInPlace(true);
+        }
     }
 
     @Override
@@ -130,7 +175,7 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
         requireNonNull(key, "'key' cannot be null");
         requireNonNull(params, "'params' cannot be null");
 
-        logger.debug("action = getParam key {}, params {}", key, params);
+        logger.debug("action = getParam key {}", key);
         return super.getParam(key, params);
     }
 
@@ -157,7 +202,7 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
     public ErrorCollection validate(@NotNull final Map<String, String[]> params) {
         requireNonNull(params, "'params' cannot be null");
 
-        logger.debug("action = validate, params {}", params);
+        logger.debug("action = validate, params {}", params.keySet());
         populate(params);
         return teamsBotNotificationRecipientValidator.validate(teamsBotNotificationSettings);
     }
@@ -172,6 +217,12 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
         if (teamsBotNotificationSettings != null) {
             context.put(BOT_ACCESS_TOKEN_KEY, teamsBotNotificationSettings.getBotAccessToken());
             context.put(ROOM_IDENTIFIER_KEY, teamsBotNotificationSettings.getRoomIdentifier());
+            if (teamsBotNotificationSettings.getDeliveryTimeoutSeconds() != null) {
+                context.put(DELIVERY_TIMEOUT_KEY, teamsBotNotificationSettings.getDeliveryTimeoutSeconds());
+            }
+            if (Boolean.TRUE.equals(teamsBotNotificationSettings.getEditInPlace())) {
+                context.put(EDIT_IN_PLACE_KEY, true);
+            }
         }
         return context;
     }
@@ -182,6 +233,10 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
                 .map(Room::getTitle)
                 .orElse(i18nResolver.getText(ERROR_MESSAGE_CANNOT_OBTAIN_ROOM));
         context.put(ROOM_IDENTIFIER_KEY, roomName);
+        if (isSettingsFilled(teamsBotNotificationSettings) && teamsRoomService.isBroken(teamsBotNotificationSettings.getBotAccessToken(),
+                teamsBotNotificationSettings.getRoomIdentifier())) {
+            context.put(RECIPIENT_BROKEN_KEY, true);
+        }
         return context;
     }
 
@@ -196,6 +251,20 @@ public class TeamsBotNotificationRecipient extends AbstractNotificationRecipient
         return result;
     }
 
+    /**
+     * Blank value means the global timeout, value which is not a number is kept as invalid (zero) one to be reported by validation
+     */
+    private Integer parseDeliveryTimeout(final String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private boolean isSettingsFilled(final TeamsBotNotificationSettings teamsBotNotificationSettings) {
         return teamsBotNotificationSettings != null &&
                 teamsBotNotificationSettings.getBotAccessToken() != null &&
@@ -1,7 +1,5 @@
 package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl;
 
-import java.util.Optional;
-
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,32 +10,35 @@ import com.atlassian.bamboo.utils.error.SimpleErrorCollection;
 import com.atlassian.sal.api.message.I18nResolver;
 
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
-import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
-import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientCheckStatus;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientValidationCache;
 
 import static java.util.Objects.requireNonNull;
 
 import static net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient.BOT_ACCESS_TOKEN_KEY;
+import static net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient.DELIVERY_TIMEOUT_KEY;
 import static net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient.ROOM_IDENTIFIER_KEY;
 
 /**
- * Business validator for Webex Teams recipient settings {@link TeamsBotNotificationSettings}
+ * Business validator for Webex Teams recipient settings {@link TeamsBotNotificationSettings}, the room is checked through
+ * {@link RecipientValidationCache} so the check already made by the form while user typed is reused
  */
 @Component
 public class TeamsBotNotificationRecipientValidator {
 
     private static final int INPUT_MAX_LENGTH = 256;
+    private static final int MAX_DELIVERY_TIMEOUT_SECONDS = 3600;
 
-    private final TeamsRoomService teamsRoomService;
+    private final RecipientValidationCache recipientValidationCache;
     private final I18nResolver i18nResolver;
 
     /**
      * Constructs new instance of {@link TeamsBotNotificationRecipientValidator}
      */
     @Autowired
-    public TeamsBotNotificationRecipientValidator(@NotNull final TeamsRoomService teamsRoomService,
+    public TeamsBotNotificationRecipientValidator(@NotNull final RecipientValidationCache recipientValidationCache,
                                                   @NotNull final I18nResolver i18nResolver) {
-        this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
+        this.recipientValidationCache = requireNonNull(recipientValidationCache, "'recipientValidationCache' cannot be null");
         this.i18nResolver = requireNonNull(i18nResolver, "'i18nResolver' cannot be null");
     }
 
@@ -57,6 +58,7 @@ public class TeamsBotNotificationRecipientValidator {
         final String roomIdentifier = teamsBotNotificationSettings.getRoomIdentifier();
         validateRequiredInput(i18nResolver.getText(ErrorMessageKeys.BOT_ACCESS_TOKEN_LABEL), BOT_ACCESS_TOKEN_KEY, botAccessToken, errorCollection);
         validateRequiredInput(i18nResolver.getText(ErrorMessageKeys.ROOM_IDENTIFIER_LABEL), ROOM_IDENTIFIER_KEY, roomIdentifier, errorCollection);
+        validateDeliveryTimeout(teamsBotNotificationSettings.getDeliveryTimeoutSeconds(), errorCollection);
         if (!errorCollection.hasAnyErrors()) {
             validateRoomByIdentifierExists(botAccessToken, roomIdentifier, errorCollection);
         }
@@ -72,17 +74,51 @@ public class TeamsBotNotificationRecipientValidator {
         }
     }
 
+    private void validateDeliveryTimeout(final Integer deliveryTimeoutSeconds, final ErrorCollection errorCollection) {
+        if (deliveryTimeoutSeconds != null && (deliveryTimeoutSeconds < 1 || deliveryTimeoutSeconds > MAX_DELIVERY_TIMEOUT_SECONDS)) {
+            errorCollection.addError(DELIVERY_TIMEOUT_KEY, i18nResolver.getText(ErrorMessageKeys.DELIVERY_TIMEOUT_OUT_OF_RANGE,
+                    MAX_DELIVERY_TIMEOUT_SECONDS));
+        }
+    }
+
     private void validateRoomByIdentifierExists(final String botAccessToken, final String roomIdentifier, final ErrorCollection errorCollection) {
-        final Optional<Room> roomByIdentifierOrName = teamsRoomService.findByIdentifierOrName(botAccessToken, roomIdentifier);
-        if (!roomByIdentifierOrName.isPresent()) {
-            errorCollection.addError(ROOM_IDENTIFIER_KEY, i18nResolver.getText(ErrorMessageKeys.ROOM_NOT_FOUND));
+        final RecipientCheckStatus status = recipientValidationCache.check(botAccessToken, roomIdentifier);
+        if (status != RecipientCheckStatus.OK) {
+            errorCollection.addError(ROOM_IDENTIFIER_KEY, i18nResolver.getText(messageKey(status)));
+        }
+    }
+
+    /**
+     * Room which could not be verified (throttled, unreachable or slow API) blocks saving as well, its message asks to try again;
+     * recipient saved unverified could fail every notification unnoticed
+     */
+    private static String messageKey(final RecipientCheckStatus status) {
+        switch (status) {
+            case TOKEN_REFUSED:
+                return ErrorMessageKeys.TOKEN_REFUSED;
+            case ACCESS_DENIED:
+                return ErrorMessageKeys.ACCESS_DENIED;
+            case THROTTLED:
+                return ErrorMessageKeys.THROTTLED;
+            case UNREACHABLE:
+                return ErrorMessageKeys.UNREACHABLE;
+            case TIMED_OUT:
+                return ErrorMessageKeys.TIMED_OUT;
+            default:
+                return ErrorMessageKeys.ROOM_NOT_FOUND;
         }
     }
 
     private final class ErrorMessageKeys {
         private static final String ROOM_NOT_FOUND = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.notFound";
+        private static final String TOKEN_REFUSED = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.tokenRefused";
+        private static final String ACCESS_DENIED = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.accessDenied";
+        private static final String THROTTLED = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.throttled";
+        private static final String UNREACHABLE = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.unreachable";
+        private static final String TIMED_OUT = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error.timedOut";
         private static final String NOT_BLANK = "nofification.recipient.webexTeamsNotifications.error.notBlank";
         private static final String TOO_LONG = "nofification.recipient.webexTeamsNotifications.error.tooLong";
+        private static final String DELIVERY_TIMEOUT_OUT_OF_RANGE = "nofification.recipient.webexTeamsNotifications.deliveryTimeout.error.outOfRange";
         private static final String BOT_ACCESS_TOKEN_LABEL = "nofification.recipient.webexTeamsNotifications.accessToken.label";
         private static final String ROOM_IDENTIFIER_LABEL = "nofification.recipient.webexTeamsNotifications.roomIdentifier.label";
     }
@@ -3,19 +3,33 @@ package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.atlassian.bamboo.notification.Notification;
 import com.atlassian.bamboo.notification.NotificationTransport;
 
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.NotificationKeys;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.format.ImContentMarkdownFormatter;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.InFlightCalls;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.BuildMessageRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.SendResult;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
 
 import static java.util.Objects.requireNonNull;
 
@@ -24,10 +38,23 @@ import static java.util.Objects.requireNonNull;
  */
 public class TeamsBotNotificationTransport implements NotificationTransport {
     private static final Logger logger = LoggerFactory.getLogger(TeamsBotNotificationTransport.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
+
+    public static final String OUTCOME_SENT = "SENT";
+    public static final String OUTCOME_CLAIMED_ELSEWHERE = "CLAIMED_ELSEWHERE";
+    public static final String OUTCOME_ROOM_NOT_FOUND = "ROOM_NOT_FOUND";
+    public static final String OUTCOME_SEND_FAILED = "SEND_FAILED";
+    public static final String OUTCOME_DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+    public static final String OUTCOME_ERROR = "ERROR";
+
+    private static final long NOT_MEASURED = -1L;
 
     private final TeamsBotNotificationSettings teamsBotNotificationSettings;
     private final TeamsRoomService teamsRoomService;
     private final TeamsMessageService teamsMessageService;
+    private final DeliveryTracer deliveryTracer;
+    private final TeamsNotificationsConfiguration configuration;
+    private final long settingsParsingMicros;
 
     /**
      * Constructs new instance of {@link TeamsBotNotificationTransport}
@@ -38,13 +65,39 @@ public class TeamsBotNotificationTransport implements NotificationTransport {
      *         service taking care of Webex Teams Rooms
      * @param teamsMessageService
      *         Service taking care of delivering messages to Webex Teams API
+     * @param deliveryTracer
+     *         tracer recording timing of deliveries
+     * @param configuration
+     *         global configuration of the plugin
+     */
+    public TeamsBotNotificationTransport(@NotNull final TeamsBotNotificationSettings teamsBotNotificationSettings,
+                                         @NotNull final TeamsRoomService teamsRoomService,
+                                         @NotNull final TeamsMessageService teamsMessageService,
+                                         @NotNull final DeliveryTracer deliveryTracer,
+                                         @NotNull final TeamsNotificationsConfiguration configuration) {
+        this(teamsBotNotificationSettings, teamsRoomService, teamsMessageService, deliveryTracer, configuration, NOT_MEASURED);
+    }
+
+    /**
+     * Constructs new instance of {@link TeamsBotNotificationTransport} whose traces start with parsing of the recipient settings
+     *
+     * @param settingsParsingMicros
+     *         how long parsing of the recipient settings took
+     * @see #TeamsBotNotificationTransport(TeamsBotNotificationSettings, TeamsRoomService, TeamsMessageService, DeliveryTracer,
+     * TeamsNotificationsConfiguration)
      */
     public TeamsBotNotificationTransport(@NotNull final TeamsBotNotificationSettings teamsBotNotificationSettings,
                                          @NotNull final TeamsRoomService teamsRoomService,
-                                         @NotNull final TeamsMessageService teamsMessageService) {
+                                         @NotNull final TeamsMessageService teamsMessageService,
+                                         @NotNull final DeliveryTracer deliveryTracer,
+                                         @NotNull final TeamsNotificationsConfiguration configuration,
+                                         final long settingsParsingMicros) {
+        this.settingsParsingMicros = settingsParsingMicros;
         this.teamsBotNotificationSettings = requireNonNull(teamsBotNotificationSettings, "'teamsBotNotificationSettings' cannot be null");
         this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
         this.teamsMessageService = requireNonNull(teamsMessageService, "'teamsMessageService' cannot be null");
+        this.deliveryTracer = requireNonNull(deliveryTracer, "'deliveryTracer' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
     }
 
     @Override
@@ -52,46 +105,148 @@ public class TeamsBotNotificationTransport implements NotificationTransport {
         requireNonNull(notification, "'notification' cannot be null");
         logger.debug("Sending notification '{}' for recipient '{}'.", notification, teamsBotNotificationSettings);
         logNotificationDetail(notification);
-        sendNotificationForRoom(notification, teamsBotNotificationSettings.getBotAccessToken(), teamsBotNotificationSettings.getRoomIdentifier());
+        final DeliveryTrace trace = startTrace();
+        final long renderingStart = System.nanoTime();
+        final String content = notification.getIMContent();
+        trace.addSpan("rendering", renderingStart);
+        deliver(content, NotificationKeys.of(notification, content).orElse(null), trace);
     }
 
-    private void sendNotificationForRoom(@NotNull final Notification notification, final String botAccessToken, final String roomIdentifier) {
-        final Optional<Room> destinationRoom = teamsRoomService.findByIdentifierOrName(botAccessToken, roomIdentifier);
+    /**
+     * Delivers already rendered notification content to the recipient's room, the whole delivery has to fit into the recipient's (or
+     * global) delivery timeout
+     *
+     * @param content
+     *         rendered notification content
+     * @param notificationKey
+     *         key of the notification ({@link NotificationKeys}), its message is claimed for this delivery only when it is known
+     * @param trace
+     *         trace of the delivery, it is finished when the delivery ends
+     */
+    public void deliver(@NotNull final String content, @Nullable final String notificationKey, @NotNull final DeliveryTrace trace) {
+        requireNonNull(content, "'content' cannot be null");
+        requireNonNull(trace, "'trace' cannot be null");
+
+        trace.attach();
+        final Deadline deadline = Deadline.after(getDeliveryTimeoutMillis());
+        final long previousStart = InFlightCalls.startNotification(teamsBotNotificationSettings.getBotAccessToken(),
+                teamsBotNotificationSettings.getRoomIdentifier());
+        String outcome = OUTCOME_ERROR;
+        try {
+            outcome = sendNotificationForRoom(content, notificationKey, teamsBotNotificationSettings.getBotAccessToken(),
+                    teamsBotNotificationSettings.getRoomIdentifier(), deadline);
+        } finally {
+            InFlightCalls.finishNotification(previousStart);
+            deliveryTracer.finish(trace, outcome);
+        }
+    }
+
+    /**
+     * @return new trace of delivery to the recipient
+     */
+    @NotNull
+    public DeliveryTrace startTrace() {
+        final DeliveryTrace trace = deliveryTracer.start(teamsBotNotificationSettings);
+        if (settingsParsingMicros != NOT_MEASURED) {
+            trace.addSpanMicros("settingsParsing", settingsParsingMicros);
+        }
+        return trace;
+    }
+
+    /**
+     * @return settings of notification recipient
+     */
+    @NotNull
+    public TeamsBotNotificationSettings getTeamsBotNotificationSettings() {
+        return teamsBotNotificationSettings;
+    }
+
+    /**
+     * @return time budget of the delivery
+     */
+    public long getDeliveryTimeoutMillis() {
+        final Integer recipientTimeout = teamsBotNotificationSettings.getDeliveryTimeoutSeconds();
+        return TimeUnit.SECONDS.toMillis(recipientTimeout != null ? recipientTimeout : configuration.getDeliveryTimeoutSeconds());
+    }
+
+    private String sendNotificationForRoom(final String content, final String notificationKey, final String botAccessToken,
+                                           final String roomIdentifier, final Deadline deadline) {
+        final long roomResolutionStart = System.nanoTime();
+        final Optional<Room> destinationRoom = teamsRoomService.findByIdentifierOrName(botAccessToken, roomIdentifier, deadline);
+        DeliveryTrace.recordSpan("roomResolution", roomResolutionStart);
         if (destinationRoom.isPresent()) {
-            sendNotificationMessage(notification, botAccessToken, destinationRoom.get().getId());
+            return sendNotificationMessage(content, notificationKey, botAccessToken, destinationRoom.get().getId(), deadline);
+        } else if (deadline.isExpired()) {
+            rateLimitedLog.warn(recipientKey(botAccessToken, roomIdentifier),
+                    "Notification for room '{}' abandoned, delivery timeout exceeded while looking for the room.", roomIdentifier);
+            return OUTCOME_DEADLINE_EXCEEDED;
         } else {
-            logger.error("Cannot send notification to room '{}' because this probably doesn't exist.", roomIdentifier);
+            rateLimitedLog.error(recipientKey(botAccessToken, roomIdentifier),
+                    "Cannot send notification to room '{}' because this probably doesn't exist.", roomIdentifier);
+            return OUTCOME_ROOM_NOT_FOUND;
         }
     }
 
-    private void sendNotificationMessage(final Notification notification, final String botAccessToken, final String roomIdentifier) {
-        final Message message = buildMessage(notification, roomIdentifier);
-        logger.debug("Sending notification message request '{}' for bot '{}'.", message, botAccessToken);
+    private String sendNotificationMessage(final String content, final String notificationKey, final String botAccessToken,
+                                           final String roomId, final Deadline deadline) {
+        final long formattingStart = System.nanoTime();
+        final Message message = buildMessage(configuration.isMarkdownFormattingEnabled() ? ImContentMarkdownFormatter.format(content) : content,
+                roomId);
+        DeliveryTrace.recordSpan("formatting", formattingStart);
+        logger.debug("Sending notification message request '{}' for bot '{}'.", LogValues.capped(message), LogValues.token(botAccessToken));
 
-        final boolean sent = teamsMessageService.sendMessage(botAccessToken, message);
-        if (sent) {
-            logger.info("Notification message '{}' was successfully sent.", message);
+        final long sendingStart = System.nanoTime();
+        final Optional<String> buildKey = Boolean.TRUE.equals(teamsBotNotificationSettings.getEditInPlace())
+                ? BuildMessageRegistry.findBuildKey(content)
+                : Optional.empty();
+        final SendResult result = buildKey.isPresent()
+                ? teamsMessageService.sendOrEditMessage(botAccessToken, message, buildKey.get(), notificationKey, deadline)
+                : teamsMessageService.sendMessage(botAccessToken, message, notificationKey, deadline);
+        DeliveryTrace.recordSpan("messageSending", sendingStart);
+        if (result == SendResult.SENT) {
+            logger.debug("Notification message '{}' was successfully sent.", LogValues.capped(message));
+            return OUTCOME_SENT;
+        } else if (result == SendResult.CLAIMED_ELSEWHERE) {
+            logger.debug("Notification message '{}' is delivered by another delivery.", LogValues.capped(message));
+            return OUTCOME_CLAIMED_ELSEWHERE;
+        } else if (deadline.isExpired()) {
+            rateLimitedLog.warn(recipientKey(botAccessToken, roomId), "Notification message '{}' abandoned, delivery timeout exceeded.",
+                    LogValues.capped(message));
+            return OUTCOME_DEADLINE_EXCEEDED;
         } else {
-            logger.error("Sending of notification message '{}' was not successful", message);
+            rateLimitedLog.error(recipientKey(botAccessToken, roomId), "Sending of notification message '{}' was not successful",
+                    LogValues.capped(message));
+            return OUTCOME_SEND_FAILED;
         }
     }
 
-    private Message buildMessage(final Notification notification, final String roomIdentifier) {
+    /**
+     * @return key of repeating log messages of the recipient, the same room configured differently (identifier or title) shares it once
+     *         the room is resolved
+     */
+    private static String recipientKey(final String botAccessToken, final String room) {
+        return BotTokens.fingerprint(botAccessToken) + ':' + room;
+    }
+
+    private Message buildMessage(final String content, final String roomIdentifier) {
         final Message message = new Message();
         message.setRoomId(roomIdentifier);
-        message.setMarkdown(notification.getIMContent());
+        message.setMarkdown(content);
         return message;
     }
 
     private void logNotificationDetail(final Notification notification) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         try {
             logger.debug("Notification description '{}', email subject '{}', htmlemailcontent '{}', imcontent '{}', textemailcontent '{}', "
                             + "notificationrecipients '{}', excludedrecipients '{}'.",
-                    notification.getDescription(),
-                    notification.getEmailSubject(),
-                    notification.getHtmlEmailContent(),
-                    notification.getIMContent(),
-                    notification.getTextEmailContent(),
+                    LogValues.capped(notification.getDescription()),
+                    LogValues.capped(notification.getEmailSubject()),
+                    LogValues.capped(notification.getHtmlEmailContent()),
+                    LogValues.capped(notification.getIMContent()),
+                    LogValues.capped(notification.getTextEmailContent()),
                     notification.getNotificationRecipients(),
                     notification.getExcludedNotificationRecipients()
             );
@@ -0,0 +1,55 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.admin;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.atlassian.bamboo.ww2.BambooActionSupport;
+import com.atlassian.bamboo.ww2.aware.permissions.GlobalAdminSecurityAware;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.HealthCheckScan;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthCheck;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Administration page starting bulk health check of all configured recipients and showing its results as they come
+ */
+public class RecipientHealthCheckAction extends BambooActionSupport implements GlobalAdminSecurityAware {
+
+    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private final RecipientHealthCheck recipientHealthCheck;
+
+    /**
+     * Constructs new instance of {@link RecipientHealthCheckAction}
+     */
+    @Autowired
+    public RecipientHealthCheckAction(@NotNull final RecipientHealthCheck recipientHealthCheck) {
+        this.recipientHealthCheck = requireNonNull(recipientHealthCheck, "'recipientHealthCheck' cannot be null");
+    }
+
+    /**
+     * Starts new health check unless one is already running
+     */
+    public String doStart() {
+        recipientHealthCheck.start();
+        return SUCCESS;
+    }
+
+    @Nullable
+    public HealthCheckScan getScan() {
+        return recipientHealthCheck.getLastScan().orElse(null);
+    }
+
+    /**
+     * @return given epoch milliseconds formatted for the page
+     */
+    @NotNull
+    public String formatTime(final long epochMillis) {
+        return new SimpleDateFormat(TIME_FORMAT).format(new Date(epochMillis));
+    }
+}
@@ -0,0 +1,94 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.admin;
+
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.atlassian.bamboo.ww2.BambooActionSupport;
+import com.atlassian.bamboo.ww2.aware.permissions.GlobalAdminSecurityAware;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.BrokenRecipient;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.ConcurrencyLimiterMXBean;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Administration page showing the last notification deliveries with their timing, state of the delivery buffer, concurrency limit of
+ * API requests and broken recipients
+ */
+public class ViewDeliveryTracesAction extends BambooActionSupport implements GlobalAdminSecurityAware {
+
+    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    private final DeliveryTracer deliveryTracer;
+    private final DeliveryBuffer deliveryBuffer;
+    private final RecipientHealthRegistry recipientHealthRegistry;
+    private final TeamsRestHttpClient teamsRestHttpClient;
+
+    /**
+     * Constructs new instance of {@link ViewDeliveryTracesAction}
+     */
+    @Autowired
+    public ViewDeliveryTracesAction(@NotNull final DeliveryTracer deliveryTracer,
+                                    @NotNull final DeliveryBuffer deliveryBuffer,
+                                    @NotNull final RecipientHealthRegistry recipientHealthRegistry,
+                                    @NotNull final TeamsRestHttpClient teamsRestHttpClient) {
+        this.deliveryTracer = requireNonNull(deliveryTracer, "'deliveryTracer' cannot be null");
+        this.deliveryBuffer = requireNonNull(deliveryBuffer, "'deliveryBuffer' cannot be null");
+        this.recipientHealthRegistry = requireNonNull(recipientHealthRegistry, "'recipientHealthRegistry' cannot be null");
+        this.teamsRestHttpClient = requireNonNull(teamsRestHttpClient, "'teamsRestHttpClient' cannot be null");
+    }
+
+    @NotNull
+    public List<DeliveryTrace> getRecentTraces() {
+        return deliveryTracer.getRecentTraces();
+    }
+
+    @NotNull
+    public DeliveryBuffer getDeliveryBuffer() {
+        return deliveryBuffer;
+    }
+
+    @NotNull
+    public ConcurrencyLimiterMXBean getConcurrencyLimiter() {
+        return teamsRestHttpClient.getConcurrencyLimiter();
+    }
+
+    public long getBulkheadRejectedCount() {
+        return teamsRestHttpClient.getRejectedRequestCount();
+    }
+
+    public long getHedgedRequestCount() {
+        return teamsRestHttpClient.getHedgedRequestCount();
+    }
+
+    @NotNull
+    public Collection<BrokenRecipient> getBrokenRecipients() {
+        return recipientHealthRegistry.getBrokenRecipients();
+    }
+
+    /**
+     * @return given epoch milliseconds formatted for the page
+     */
+    @NotNull
+    public String formatTime(final long epochMillis) {
+        return new SimpleDateFormat(TIME_FORMAT).format(new Date(epochMillis));
+    }
+
+    /**
+     * @return given microseconds formatted as milliseconds for the page
+     */
+    @NotNull
+    public String formatMicros(final long micros) {
+        return micros < 0 ? "-" : String.format("%.1f ms", micros / 1000.0);
+    }
+}
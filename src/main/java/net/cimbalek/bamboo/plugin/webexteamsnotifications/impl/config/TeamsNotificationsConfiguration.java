@@ -0,0 +1,467 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.OverflowPolicy;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Global (plugin wide) configuration read from JVM system properties prefixed with {@value #PREFIX}
+ */
+@Component
+public class TeamsNotificationsConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamsNotificationsConfiguration.class);
+
+    public static final String PREFIX = "webexteams.";
+
+    private static final String DEFAULT_API_BASE_URL = "https://api.ciscospark.com/v1/";
+
+    private final Properties properties;
+
+    /**
+     * Constructs new instance of {@link TeamsNotificationsConfiguration} backed by JVM system properties
+     */
+    @Autowired
+    public TeamsNotificationsConfiguration() {
+        this(System.getProperties());
+    }
+
+    /**
+     * Constructs new instance of {@link TeamsNotificationsConfiguration} backed by given properties
+     *
+     * @param properties
+     *         source of configuration values
+     */
+    public TeamsNotificationsConfiguration(@NotNull final Properties properties) {
+        this.properties = requireNonNull(properties, "'properties' cannot be null");
+    }
+
+    /**
+     * @return true if outgoing notifications are passed through the bounded delivery buffer
+     */
+    public boolean isDeliveryBufferEnabled() {
+        return getBoolean("delivery.buffer.enabled", false);
+    }
+
+    /**
+     * @return maximal number of notifications waiting in memory for delivery
+     */
+    public int getDeliveryBufferCapacity() {
+        return getInt("delivery.buffer.capacity", 1000);
+    }
+
+    /**
+     * @return policy applied when the delivery buffer is full
+     */
+    @NotNull
+    public OverflowPolicy getDeliveryOverflowPolicy() {
+        final String value = getString("delivery.buffer.overflowPolicy", OverflowPolicy.BLOCK.name());
+        try {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase());
+        } catch (final IllegalArgumentException e) {
+            logger.warn("Unknown overflow policy '{}', using '{}'.", value, OverflowPolicy.BLOCK);
+            return OverflowPolicy.BLOCK;
+        }
+    }
+
+    /**
+     * @return how long {@link OverflowPolicy#BLOCK} waits for free space before the notification is dropped
+     */
+    public long getDeliveryBlockTimeoutMillis() {
+        return getLong("delivery.buffer.blockTimeoutMillis", 5000L);
+    }
+
+    /**
+     * @return directory used by {@link OverflowPolicy#SPILL_TO_DISK}
+     */
+    @NotNull
+    public File getDeliverySpillDirectory() {
+        return new File(getString("delivery.buffer.spillDirectory",
+                new File(System.getProperty("java.io.tmpdir"), "webexteams-spill").getPath()));
+    }
+
+    /**
+     * @return number of 401/403/404 responses in a row after which recipient is considered broken
+     */
+    public int getNegativeCacheFailureThreshold() {
+        return getInt("negativeCache.failureThreshold", 3);
+    }
+
+    /**
+     * @return how long a recipient which failed with 401/403/404 is not contacted before first re-check
+     */
+    public long getNegativeCacheInitialRecheckMillis() {
+        return getLong("negativeCache.initialRecheckMillis", 60_000L);
+    }
+
+    /**
+     * @return upper bound of exponentially growing re-check interval of broken recipient
+     */
+    public long getNegativeCacheMaxRecheckMillis() {
+        return getLong("negativeCache.maxRecheckMillis", 3_600_000L);
+    }
+
+    /**
+     * @return true if connections to Webex Teams API are warmed up in background when the plugin starts
+     */
+    public boolean isWarmUpEnabled() {
+        return getBoolean("warmUp.enabled", true);
+    }
+
+    /**
+     * @return time budget of the whole warm-up
+     */
+    public long getWarmUpTimeoutMillis() {
+        return getLong("warmUp.timeoutMillis", 10_000L);
+    }
+
+    /**
+     * @return number of the last delivery traces kept in memory
+     */
+    public int getTraceHistorySize() {
+        return getInt("trace.historySize", 200);
+    }
+
+    /**
+     * @return maximal number of concurrent requests to Webex Teams API of all bot tokens together
+     */
+    public int getBulkheadMaxConcurrentGlobal() {
+        return getInt("bulkhead.global.maxConcurrent", 20);
+    }
+
+    /**
+     * @return maximal number of concurrent requests to Webex Teams API of single bot token
+     */
+    public int getBulkheadMaxConcurrentPerToken() {
+        return getInt("bulkhead.perToken.maxConcurrent", 4);
+    }
+
+    /**
+     * @return maximal number of requests of single bot token waiting for free slot, further requests are rejected immediately
+     */
+    public int getBulkheadMaxQueuedPerToken() {
+        return getInt("bulkhead.perToken.maxQueued", 16);
+    }
+
+    /**
+     * @return how long a request waits for free slot before it is rejected
+     */
+    public long getBulkheadAcquireTimeoutMillis() {
+        return getLong("bulkhead.acquireTimeoutMillis", 10_000L);
+    }
+
+    /**
+     * @return true if the number of requests in flight to Webex Teams API adapts to observed latency and throttling
+     */
+    public boolean isAdaptiveConcurrencyEnabled() {
+        return getBoolean("concurrency.adaptive.enabled", true);
+    }
+
+    /**
+     * @return number of requests in flight permitted before the adaptive limit is learned
+     */
+    public int getAdaptiveConcurrencyInitialLimit() {
+        return getInt("concurrency.adaptive.initialLimit", 4);
+    }
+
+    /**
+     * @return the adaptive limit never drops below this value
+     */
+    public int getAdaptiveConcurrencyMinLimit() {
+        return getInt("concurrency.adaptive.minLimit", 1);
+    }
+
+    /**
+     * @return true if slow GET requests are hedged by second identical request
+     */
+    public boolean isHedgingEnabled() {
+        return getBoolean("hedging.enabled", false);
+    }
+
+    /**
+     * @return percentile of recent GET latencies after which the hedged request is sent
+     */
+    public int getHedgingPercentile() {
+        return getInt("hedging.percentile", 95);
+    }
+
+    /**
+     * @return maximal number of hedged requests in percents of all GET requests
+     */
+    public int getHedgingBudgetPercent() {
+        return getInt("hedging.budgetPercent", 5);
+    }
+
+    /**
+     * @return the hedged request is never sent sooner than this
+     */
+    public long getHedgingMinDelayMillis() {
+        return getLong("hedging.minDelayMillis", 50L);
+    }
+
+    /**
+     * @return time budget of delivery of single notification used when recipient does not specify its own
+     */
+    public int getDeliveryTimeoutSeconds() {
+        return getInt("delivery.timeoutSeconds", 60);
+    }
+
+    /**
+     * @return maximal number of buffered deliveries in flight when they run on virtual threads (Java 21+)
+     */
+    public int getDeliveryMaxInFlight() {
+        return getInt("delivery.maxInFlight", 1000);
+    }
+
+    /**
+     * @return number of platform threads running buffered deliveries on runtimes without virtual threads
+     */
+    public int getDeliveryPlatformThreads() {
+        return getInt("delivery.platformThreads", 8);
+    }
+
+    /**
+     * @return base URLs of Webex Teams API ending with slash in order of preference, e.g. URL of a local stub of the API in load tests
+     */
+    public List<String> getApiBaseUrls() {
+        final String baseUrls = getString("api.baseUrls", getString("api.baseUrl", DEFAULT_API_BASE_URL));
+        final List<String> result = new ArrayList<>();
+        for (final String baseUrl : baseUrls.split(",")) {
+            final String trimmed = baseUrl.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed.endsWith("/") ? trimmed : trimmed + "/");
+            }
+        }
+        if (result.isEmpty()) {
+            logger.warn("No base URL of Webex Teams API configured, using '{}'.", DEFAULT_API_BASE_URL);
+            result.add(DEFAULT_API_BASE_URL);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of failures in a row after which base URL of Webex Teams API is not used until it responds again
+     */
+    public int getApiFailureThreshold() {
+        return getInt("api.failureThreshold", 3);
+    }
+
+    /**
+     * @return how often base URL of Webex Teams API which is not used because of failures is probed
+     */
+    public long getApiProbeIntervalMillis() {
+        return getLong("api.probeIntervalMillis", 30000L);
+    }
+
+    /**
+     * @return timeout of establishing connection to Webex Teams API
+     */
+    public int getHttpConnectTimeoutMillis() {
+        return getInt("http.connectTimeoutMillis", 10_000);
+    }
+
+    /**
+     * @return maximal inactivity while waiting for data from Webex Teams API
+     */
+    public int getHttpSocketTimeoutMillis() {
+        return getInt("http.socketTimeoutMillis", 30_000);
+    }
+
+    /**
+     * @return maximal number of builds whose status message can be edited in place
+     */
+    public int getEditInPlaceMaxBuilds() {
+        return getInt("editInPlace.maxBuilds", 1000);
+    }
+
+    /**
+     * @return how long after the first message of a build its status message is edited instead of posting a new one
+     */
+    public long getEditInPlaceTtlMinutes() {
+        return getLong("editInPlace.ttlMinutes", 720L);
+    }
+
+    /**
+     * @return true if IM content of notifications is formatted as markdown (bold status, linked build keys, collapsed lists)
+     */
+    public boolean isMarkdownFormattingEnabled() {
+        return getBoolean("markdown.enabled", true);
+    }
+
+    /**
+     * @return true if plan notifications are delivered directly from build completion events instead of Bamboo notification dispatcher
+     */
+    public boolean isDirectDeliveryEnabled() {
+        return getBoolean("directDelivery.enabled", false);
+    }
+
+    /**
+     * @return how long recipients indexed for direct delivery are used before they are read from notification rules again
+     */
+    public long getDirectDeliveryIndexRefreshSeconds() {
+        return getLong("directDelivery.indexRefreshSeconds", 60L);
+    }
+
+    /**
+     * @return maximal number of concurrent requests of the bulk health check of all recipients
+     */
+    public int getHealthCheckParallelism() {
+        return getInt("healthCheck.parallelism", 8);
+    }
+
+    /**
+     * @return time budget of the bulk health check of all recipients
+     */
+    public long getHealthCheckTimeoutSeconds() {
+        return getLong("healthCheck.timeoutSeconds", 300L);
+    }
+
+    /**
+     * @return how long rooms of a bot are suggested from memory before they are listed from Webex Teams API again
+     */
+    public long getRoomSuggestionsTtlSeconds() {
+        return getLong("roomSuggestions.ttlSeconds", 300L);
+    }
+
+    /**
+     * @return maximal number of bot tokens whose rooms are kept in memory for suggestions
+     */
+    public int getRoomSuggestionsMaxTokens() {
+        return getInt("roomSuggestions.maxTokens", 100);
+    }
+
+    /**
+     * @return maximal number of rooms returned by single suggestion
+     */
+    public int getRoomSuggestionsMaxResults() {
+        return getInt("roomSuggestions.maxResults", 20);
+    }
+
+    /**
+     * @return how long result of room check made by the recipient edit form is reused, e.g. when the form is saved
+     */
+    public long getValidationCacheTtlSeconds() {
+        return getLong("validation.cacheTtlSeconds", 30L);
+    }
+
+    /**
+     * @return true if rooms resolved from recipients are stored in the database shared by all Bamboo nodes
+     */
+    public boolean isRoomResolutionStoreEnabled() {
+        return getBoolean("roomResolution.enabled", true);
+    }
+
+    /**
+     * @return how long a stored room resolution is used before the room is looked up in Webex Teams API again
+     */
+    public long getRoomResolutionTtlHours() {
+        return getLong("roomResolution.ttlHours", 24L);
+    }
+
+    /**
+     * @return how long a room resolution read from the database is kept in memory of the node
+     */
+    public long getRoomResolutionLocalTtlSeconds() {
+        return getLong("roomResolution.localTtlSeconds", 60L);
+    }
+
+    /**
+     * @return true if messages are claimed in the database shared by all Bamboo nodes before they are posted, so each is posted once
+     */
+    public boolean isDeliveryClaimsEnabled() {
+        return getBoolean("deliveryClaims.enabled", false);
+    }
+
+    /**
+     * @return how long claim of posted message is held, the same message is not posted again within this time
+     */
+    public long getDeliveryClaimsLeaseSeconds() {
+        return getLong("deliveryClaims.leaseSeconds", 300L);
+    }
+
+    /**
+     * @return true if notifications and requests to Webex Teams API in progress are watched for stalls
+     */
+    public boolean isWatchdogEnabled() {
+        return getBoolean("watchdog.enabled", true);
+    }
+
+    /**
+     * @return how long a notification or request may be in progress before it is reported as stalled
+     */
+    public long getWatchdogStallThresholdMillis() {
+        return getLong("watchdog.stallThresholdMillis", 20000L);
+    }
+
+    /**
+     * @return how often calls in progress are checked for stalls
+     */
+    public long getWatchdogCheckIntervalMillis() {
+        return getLong("watchdog.checkIntervalMillis", 5000L);
+    }
+
+    /**
+     * @return maximal number of stack frames logged for stalled call
+     */
+    public int getWatchdogMaxStackFrames() {
+        return getInt("watchdog.maxStackFrames", 12);
+    }
+
+    /**
+     * @return true if messages are marked so message whose sending failed ambiguously can be found in the room before it is sent again
+     */
+    public boolean isReconciliationEnabled() {
+        return getBoolean("reconciliation.enabled", false);
+    }
+
+    /**
+     * @return maximal number of times message not found in the room after ambiguous failure is sent again
+     */
+    public int getReconciliationMaxRetries() {
+        return getInt("reconciliation.maxRetries", 1);
+    }
+
+    /**
+     * @return number of recent messages of the room searched for the message whose sending failed ambiguously
+     */
+    public int getReconciliationLookbackMessages() {
+        return getInt("reconciliation.lookbackMessages", 20);
+    }
+
+    private String getString(final String key, final String defaultValue) {
+        final String value = properties.getProperty(PREFIX + key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private boolean getBoolean(final String key, final boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, String.valueOf(defaultValue)));
+    }
+
+    private int getInt(final String key, final int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    private long getLong(final String key, final long defaultValue) {
+        final String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            logger.warn("Invalid value '{}' of property '{}{}', using '{}'.", value, PREFIX, key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.atlassian.bamboo.notification.Notification;
+import com.atlassian.bamboo.notification.NotificationTransport;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationTransport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.InFlightCalls;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Transport rendering notification on the caller thread and handing it over to {@link DeliveryBuffer} for asynchronous delivery by
+ * wrapped {@link TeamsBotNotificationTransport}
+ */
+public class BufferedNotificationTransport implements NotificationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(BufferedNotificationTransport.class);
+
+    private final TeamsBotNotificationTransport teamsBotNotificationTransport;
+    private final DeliveryBuffer deliveryBuffer;
+
+    /**
+     * Constructs new instance of {@link BufferedNotificationTransport}
+     *
+     * @param teamsBotNotificationTransport
+     *         transport doing the actual delivery
+     * @param deliveryBuffer
+     *         buffer holding notifications waiting for delivery
+     */
+    public BufferedNotificationTransport(@NotNull final TeamsBotNotificationTransport teamsBotNotificationTransport,
+                                         @NotNull final DeliveryBuffer deliveryBuffer) {
+        this.teamsBotNotificationTransport = requireNonNull(teamsBotNotificationTransport, "'teamsBotNotificationTransport' cannot be null");
+        this.deliveryBuffer = requireNonNull(deliveryBuffer, "'deliveryBuffer' cannot be null");
+    }
+
+    @Override
+    public void sendNotification(@NotNull final Notification notification) {
+        requireNonNull(notification, "'notification' cannot be null");
+
+        final TeamsBotNotificationSettings settings = teamsBotNotificationTransport.getTeamsBotNotificationSettings();
+        final long previousStart = InFlightCalls.startNotification(settings.getBotAccessToken(), settings.getRoomIdentifier());
+        try {
+            final DeliveryTrace trace = teamsBotNotificationTransport.startTrace();
+            final long renderingStart = System.nanoTime();
+            final String content = notification.getIMContent();
+            trace.addSpan("rendering", renderingStart);
+            final PendingDelivery pendingDelivery = new PendingDelivery();
+            pendingDelivery.setSettings(settings);
+            pendingDelivery.setContent(content);
+            pendingDelivery.setNotificationKey(NotificationKeys.of(notification, content).orElse(null));
+            pendingDelivery.setPriority(DeliveryPriority.of(content));
+            pendingDelivery.setCreatedAt(System.currentTimeMillis());
+            pendingDelivery.setTrace(trace);
+            if (!deliveryBuffer.offer(pendingDelivery)) {
+                logger.error("Notification '{}' was dropped by the delivery buffer.", pendingDelivery);
+            }
+        } finally {
+            InFlightCalls.finishNotification(previousStart);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final BufferedNotificationTransport that = (BufferedNotificationTransport) o;
+        return Objects.equals(teamsBotNotificationTransport, that.teamsBotNotificationTransport);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(teamsBotNotificationTransport);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "BufferedNotificationTransport{", "}")
+                .add("teamsBotNotificationTransport=" + teamsBotNotificationTransport)
+                .toString();
+    }
+}
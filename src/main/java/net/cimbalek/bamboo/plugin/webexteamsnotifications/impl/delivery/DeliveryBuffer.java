@@ -0,0 +1,437 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationTransport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.JmxSupport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded buffer of outgoing notifications drained by single background worker.
+ * <p>
+ * Memory used by the buffer is limited by its capacity, on overflow the configured {@link OverflowPolicy} is applied and every dropped or
+ * spilled notification is counted.
+ * <p>
+ * The worker hands notifications over to {@link DeliveryExecutors} (virtual threads on Java 21+, bounded platform pool otherwise), so
+ * deliveries to different recipients run in parallel. Deliveries to the same recipient keep their order. The number of deliveries in
+ * flight is limited, a delivery takes its permit only when it starts, so deliveries waiting for a slow recipient do not hold permits
+ * needed by other recipients. Notifications taken from the buffer and not delivered yet are limited by the buffer capacity too, when the
+ * limit is reached notifications wait in the buffer.
+ * <p>
+ * Notifications spilled to disk keep only fingerprint of the bot token, the token is looked up among tokens spilled since the plugin
+ * started and then among configured recipients ({@link RecipientSettingsRepository}). Notifications left on disk by previous run are
+ * delivered when the plugin starts.
+ */
+@Component
+public class DeliveryBuffer implements DeliveryBufferMXBean, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryBuffer.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
+
+    private static final String MBEAN_TYPE = "DeliveryBuffer";
+    private static final String SPILL_FILE_NAME = "pending-deliveries.jsonl";
+    private static final long POLL_TIMEOUT_SECONDS = 1L;
+
+    public static final String OUTCOME_DROPPED = "DROPPED";
+    public static final String OUTCOME_SPILLED = "SPILLED";
+
+    private final TeamsRoomService teamsRoomService;
+    private final TeamsMessageService teamsMessageService;
+    private final TeamsNotificationsConfiguration configuration;
+    private final DeliveryTracer deliveryTracer;
+    private final RecipientSettingsRepository recipientSettingsRepository;
+    private final int capacity;
+    private final BlockingDeque<PendingDelivery> queue;
+    private final SpillFile spillFile;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Semaphore inFlight;
+    private final Semaphore dispatched;
+    private final Queue<Runnable> waitingForPermit = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, CompletableFuture<Void>> recipientTails = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> spilledTokens = new ConcurrentHashMap<>();
+
+    private volatile Thread worker;
+    private volatile ExecutorService executor;
+
+    /**
+     * Constructs new instance of {@link DeliveryBuffer}, the worker is started with the first buffered notification or when spilled
+     * notifications are found on start
+     */
+    @Autowired
+    public DeliveryBuffer(@NotNull final TeamsRoomService teamsRoomService,
+                          @NotNull final TeamsMessageService teamsMessageService,
+                          @NotNull final TeamsNotificationsConfiguration configuration,
+                          @NotNull final DeliveryTracer deliveryTracer,
+                          @NotNull final RecipientSettingsRepository recipientSettingsRepository) {
+        this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
+        this.teamsMessageService = requireNonNull(teamsMessageService, "'teamsMessageService' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+        this.deliveryTracer = requireNonNull(deliveryTracer, "'deliveryTracer' cannot be null");
+        this.recipientSettingsRepository = requireNonNull(recipientSettingsRepository, "'recipientSettingsRepository' cannot be null");
+        this.capacity = Math.max(1, configuration.getDeliveryBufferCapacity());
+        this.queue = new LinkedBlockingDeque<>(capacity);
+        this.spillFile = new SpillFile(new File(configuration.getDeliverySpillDirectory(), SPILL_FILE_NAME));
+        this.inFlight = new Semaphore(Math.max(1, DeliveryExecutors.isVirtual()
+                ? configuration.getDeliveryMaxInFlight()
+                : configuration.getDeliveryPlatformThreads()));
+        this.dispatched = new Semaphore(capacity);
+        JmxSupport.register(MBEAN_TYPE, this);
+    }
+
+    /**
+     * @return true if notifications should be delivered through this buffer
+     */
+    public boolean isEnabled() {
+        return configuration.isDeliveryBufferEnabled();
+    }
+
+    /**
+     * Enqueues notification for delivery, applies overflow policy when buffer is full
+     *
+     * @param pendingDelivery
+     *         notification to deliver
+     * @return true if notification was accepted (either to memory or to disk), false if it was dropped
+     */
+    public boolean offer(@NotNull final PendingDelivery pendingDelivery) {
+        requireNonNull(pendingDelivery, "'pendingDelivery' cannot be null");
+
+        ensureWorkerStarted();
+        final OverflowPolicy overflowPolicy = configuration.getDeliveryOverflowPolicy();
+        if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK && spillFile.getPendingCount() > 0) {
+            // keep FIFO order, older notifications are still waiting on disk
+            return spill(pendingDelivery);
+        }
+        if (queue.offerLast(pendingDelivery)) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                return offerBlocking(pendingDelivery);
+            case SPILL_TO_DISK:
+                return spill(pendingDelivery);
+            case DROP_OLDEST:
+            default:
+                return offerDroppingOldest(pendingDelivery);
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    @Override
+    public long getSpilledPendingCount() {
+        return spillFile.getPendingCount();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (spillFile.getPendingCount() > 0) {
+            logger.info("{} notifications spilled to disk before the plugin stopped will be delivered.", spillFile.getPendingCount());
+            ensureWorkerStarted();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        final Thread currentWorker = worker;
+        if (currentWorker != null) {
+            currentWorker.interrupt();
+        }
+        final ExecutorService currentExecutor = executor;
+        if (currentExecutor != null) {
+            currentExecutor.shutdownNow();
+        }
+        JmxSupport.unregister(MBEAN_TYPE);
+        if (configuration.getDeliveryOverflowPolicy() == OverflowPolicy.SPILL_TO_DISK) {
+            PendingDelivery pendingDelivery;
+            while ((pendingDelivery = queue.pollFirst()) != null) {
+                spill(pendingDelivery);
+            }
+        } else {
+            int dropped = 0;
+            PendingDelivery pendingDelivery;
+            while ((pendingDelivery = queue.pollFirst()) != null) {
+                droppedCount.incrementAndGet();
+                finishTrace(pendingDelivery, OUTCOME_DROPPED);
+                dropped++;
+            }
+            if (dropped > 0) {
+                logger.warn("Plugin is stopping, {} buffered notifications were dropped without delivery.", dropped);
+            }
+        }
+    }
+
+    private boolean offerBlocking(final PendingDelivery pendingDelivery) {
+        try {
+            if (queue.offerLast(pendingDelivery, configuration.getDeliveryBlockTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drop(pendingDelivery);
+        return false;
+    }
+
+    private boolean offerDroppingOldest(final PendingDelivery pendingDelivery) {
+        while (!queue.offerLast(pendingDelivery)) {
+            final PendingDelivery victim = removeOldestDroppable(pendingDelivery.getPriority());
+            if (victim == null) {
+                drop(pendingDelivery);
+                return false;
+            }
+            drop(victim);
+        }
+        return true;
+    }
+
+    @Nullable
+    private PendingDelivery removeOldestDroppable(final DeliveryPriority incomingPriority) {
+        final Iterator<PendingDelivery> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            final PendingDelivery candidate = iterator.next();
+            if (candidate.getPriority() != DeliveryPriority.HIGH) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return incomingPriority == DeliveryPriority.HIGH ? queue.pollFirst() : null;
+    }
+
+    private boolean spill(final PendingDelivery pendingDelivery) {
+        try {
+            final String token = pendingDelivery.getSettings().getBotAccessToken();
+            if (token != null) {
+                spilledTokens.putIfAbsent(BotTokens.fingerprint(token), token);
+            }
+            spillFile.append(pendingDelivery);
+            spilledCount.incrementAndGet();
+            finishTrace(pendingDelivery, OUTCOME_SPILLED);
+            return true;
+        } catch (final IOException e) {
+            logger.error("Cannot spill notification to disk.", e);
+            drop(pendingDelivery);
+            return false;
+        }
+    }
+
+    private void drop(final PendingDelivery pendingDelivery) {
+        droppedCount.incrementAndGet();
+        rateLimitedLog.warn("drop", "Delivery buffer is full, dropping notification '{}'.", LogValues.capped(pendingDelivery));
+        finishTrace(pendingDelivery, OUTCOME_DROPPED);
+    }
+
+    private void finishTrace(final PendingDelivery pendingDelivery, final String outcome) {
+        final DeliveryTrace trace = pendingDelivery.getTrace();
+        if (trace != null) {
+            pendingDelivery.setTrace(null);
+            deliveryTracer.finish(trace, outcome);
+        }
+    }
+
+    private void ensureWorkerStarted() {
+        if (started.compareAndSet(false, true)) {
+            executor = DeliveryExecutors.newExecutor(configuration.getDeliveryPlatformThreads(), "webex-teams-delivery");
+            final Thread thread = new Thread(this::drain, "webex-teams-delivery");
+            thread.setDaemon(true);
+            worker = thread;
+            thread.start();
+        }
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                refillFromDisk();
+                if (!dispatched.tryAcquire(POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    continue;
+                }
+                final PendingDelivery pendingDelivery = queue.pollFirst(POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (pendingDelivery != null) {
+                    dispatch(pendingDelivery);
+                } else {
+                    dispatched.release();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException e) {
+                logger.error("Delivery of buffered notification failed.", e);
+            }
+        }
+    }
+
+    private void refillFromDisk() {
+        final int free = queue.remainingCapacity();
+        if (free > 0 && spillFile.getPendingCount() > 0) {
+            for (final PendingDelivery pendingDelivery : spillFile.poll(free, new TokenResolver())) {
+                if (!queue.offerLast(pendingDelivery)) {
+                    spill(pendingDelivery);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves fingerprints of spilled bot tokens, configured recipients are read at most once per batch and only when needed
+     */
+    private final class TokenResolver implements Function<String, String> {
+        private Map<String, String> configuredTokens;
+
+        @Override
+        public String apply(final String fingerprint) {
+            final String spilled = spilledTokens.get(fingerprint);
+            if (spilled != null) {
+                return spilled;
+            }
+            if (configuredTokens == null) {
+                configuredTokens = new HashMap<>();
+                for (final TeamsBotNotificationSettings settings : recipientSettingsRepository.findAll()) {
+                    configuredTokens.putIfAbsent(BotTokens.fingerprint(settings.getBotAccessToken()), settings.getBotAccessToken());
+                }
+            }
+            return configuredTokens.get(fingerprint);
+        }
+    }
+
+    /**
+     * Runs the delivery after the previous delivery to the same recipient finishes
+     */
+    private void dispatch(final PendingDelivery pendingDelivery) {
+        final String recipient = recipientKey(pendingDelivery);
+        final CompletableFuture<Void> tail = recipientTails.compute(recipient, (key, previous) ->
+                (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                        .thenCompose(ignored -> runWithPermit(() -> deliverSafely(pendingDelivery))));
+        tail.whenComplete((result, failure) -> {
+            recipientTails.remove(recipient, tail);
+            dispatched.release();
+        });
+    }
+
+    /**
+     * Runs given task on the executor once in-flight permit is free, the caller is never blocked
+     *
+     * @return future completed when the task finishes
+     */
+    private CompletableFuture<Void> runWithPermit(final Runnable task) {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final Runnable start = () -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        releasePermit();
+                        done.complete(null);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                releasePermit();
+                done.completeExceptionally(e);
+            }
+        };
+        if (inFlight.tryAcquire()) {
+            start.run();
+        } else {
+            waitingForPermit.add(start);
+            startWaiting();
+        }
+        return done;
+    }
+
+    private void releasePermit() {
+        inFlight.release();
+        startWaiting();
+    }
+
+    /**
+     * Starts waiting tasks while permits are free, called whenever a task starts waiting or a permit is released, so no task waits while
+     * a permit is free
+     */
+    private void startWaiting() {
+        while (!waitingForPermit.isEmpty() && inFlight.tryAcquire()) {
+            final Runnable next = waitingForPermit.poll();
+            if (next != null) {
+                next.run();
+            } else {
+                inFlight.release();
+            }
+        }
+    }
+
+    private void deliverSafely(final PendingDelivery pendingDelivery) {
+        try {
+            deliver(pendingDelivery);
+        } catch (final RuntimeException e) {
+            logger.error("Delivery of buffered notification failed.", e);
+        }
+    }
+
+    private static String recipientKey(final PendingDelivery pendingDelivery) {
+        return pendingDelivery.getSettings().getBotAccessToken() + '\n' + pendingDelivery.getSettings().getRoomIdentifier();
+    }
+
+    private void deliver(final PendingDelivery pendingDelivery) {
+        final TeamsBotNotificationTransport transport = new TeamsBotNotificationTransport(pendingDelivery.getSettings(), teamsRoomService,
+                teamsMessageService, deliveryTracer, configuration);
+        final DeliveryTrace trace = pendingDelivery.getTrace() != null ? pendingDelivery.getTrace() : transport.startTrace();
+        trace.addSpanMicros("queued", TimeUnit.MILLISECONDS.toMicros(Math.max(0, System.currentTimeMillis() - pendingDelivery.getCreatedAt())));
+        transport.deliver(pendingDelivery.getContent(), pendingDelivery.getNotificationKey(), trace);
+    }
+}
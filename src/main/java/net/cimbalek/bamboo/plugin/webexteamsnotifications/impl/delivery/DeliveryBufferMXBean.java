@@ -0,0 +1,32 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+/**
+ * JMX view of {@link DeliveryBuffer}
+ */
+public interface DeliveryBufferMXBean {
+
+    /**
+     * @return number of notifications currently waiting in memory
+     */
+    int getQueueSize();
+
+    /**
+     * @return maximal number of notifications waiting in memory
+     */
+    int getCapacity();
+
+    /**
+     * @return number of notifications dropped because of overflow since plugin start
+     */
+    long getDroppedCount();
+
+    /**
+     * @return number of notifications written to disk because of overflow since plugin start
+     */
+    long getSpilledCount();
+
+    /**
+     * @return number of notifications currently waiting on disk
+     */
+    long getSpilledPendingCount();
+}
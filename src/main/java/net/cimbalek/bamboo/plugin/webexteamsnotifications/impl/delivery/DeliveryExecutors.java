@@ -0,0 +1,57 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executors running buffered deliveries.
+ * <p>
+ * This is the variant for runtimes without virtual threads, deliveries run on bounded pool of platform threads. The plugin JAR is
+ * multi-release, on Java 21 and newer the variant from {@code META-INF/versions/21} runs every delivery on its own virtual thread.
+ */
+public final class DeliveryExecutors {
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private DeliveryExecutors() {
+    }
+
+    /**
+     * @return true if deliveries run on virtual threads, so their number in flight is not limited by threads
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * Creates executor of deliveries
+     *
+     * @param platformThreads
+     *         maximal number of platform threads, unused with virtual threads
+     * @param name
+     *         prefix of thread names
+     * @return new executor
+     */
+    @NotNull
+    public static ExecutorService newExecutor(final int platformThreads, @NotNull final String name) {
+        requireNonNull(name, "'name' cannot be null");
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final int threads = Math.max(1, platformThreads);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,28 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Priority of buffered notification, {@link #NORMAL} ones are dropped first on overflow
+ */
+public enum DeliveryPriority {
+    NORMAL,
+    HIGH;
+
+    private static final Pattern FAILURE_PATTERN = Pattern.compile("\\bfail", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Resolves priority of notification by its content, notifications about failures are more important than the rest
+     *
+     * @param content
+     *         rendered content of notification
+     * @return priority of notification
+     */
+    @NotNull
+    public static DeliveryPriority of(@Nullable final String content) {
+        return content != null && FAILURE_PATTERN.matcher(content).find() ? HIGH : NORMAL;
+    }
+}
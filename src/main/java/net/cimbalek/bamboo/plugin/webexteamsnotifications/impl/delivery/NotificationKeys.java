@@ -0,0 +1,51 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.util.Optional;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.atlassian.bamboo.notification.Notification;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.BuildMessageRegistry;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stable identity of a notification (its event type and build result), the same for every attempt to deliver it regardless of how its
+ * message is formatted
+ */
+public final class NotificationKeys {
+
+    private NotificationKeys() {
+    }
+
+    /**
+     * @param eventType
+     *         type of event the notification is about
+     * @param planResultKey
+     *         key of build result the notification is about
+     * @return key of the notification
+     */
+    @NotNull
+    public static String of(@NotNull final String eventType, @NotNull final String planResultKey) {
+        requireNonNull(eventType, "'eventType' cannot be null");
+        requireNonNull(planResultKey, "'planResultKey' cannot be null");
+
+        return eventType + ':' + planResultKey;
+    }
+
+    /**
+     * @param notification
+     *         Bamboo notification, its type is the event type
+     * @param content
+     *         rendered content of the notification
+     * @return {@link Optional} with key of the notification or empty {@link Optional} if the content names no build result
+     */
+    @NotNull
+    public static Optional<String> of(@NotNull final Notification notification, @NotNull final String content) {
+        requireNonNull(notification, "'notification' cannot be null");
+        requireNonNull(content, "'content' cannot be null");
+
+        return BuildMessageRegistry.findBuildKey(content).map(planResultKey -> of(notification.getClass().getName(), planResultKey));
+    }
+}
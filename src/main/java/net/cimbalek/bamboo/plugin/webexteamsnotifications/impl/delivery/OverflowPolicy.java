@@ -0,0 +1,19 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+/**
+ * Policy applied by {@link DeliveryBuffer} when there is no free space for a new notification
+ */
+public enum OverflowPolicy {
+    /**
+     * Waits (with timeout) for free space, drops the new notification when the timeout elapses
+     */
+    BLOCK,
+    /**
+     * Drops the oldest waiting notification of normal priority (or the new one if nothing else can be dropped)
+     */
+    DROP_OLDEST,
+    /**
+     * Writes the new notification to disk, it is loaded back once the buffer has free space again
+     */
+    SPILL_TO_DISK
+}
@@ -0,0 +1,111 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+
+/**
+ * Notification waiting in {@link DeliveryBuffer} for delivery, already rendered so it can outlive the originating Bamboo event
+ */
+public class PendingDelivery {
+
+    private TeamsBotNotificationSettings settings;
+    private String content;
+    private String notificationKey;
+    private DeliveryPriority priority;
+    private long createdAt;
+    @JsonIgnore
+    private DeliveryTrace trace;
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final PendingDelivery that = (PendingDelivery) o;
+        return createdAt == that.createdAt &&
+                Objects.equals(settings, that.settings) &&
+                Objects.equals(content, that.content) &&
+                Objects.equals(notificationKey, that.notificationKey) &&
+                priority == that.priority;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(settings, content, notificationKey, priority, createdAt);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "PendingDelivery{", "}")
+                .add("settings=" + settings)
+                .add("notificationKey=" + notificationKey)
+                .add("priority=" + priority)
+                .add("createdAt=" + createdAt)
+                .toString();
+    }
+
+    public TeamsBotNotificationSettings getSettings() {
+        return settings;
+    }
+
+    public void setSettings(final TeamsBotNotificationSettings settings) {
+        this.settings = settings;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(final String content) {
+        this.content = content;
+    }
+
+    /**
+     * @return key of the notification ({@link NotificationKeys}), null when it is not known
+     */
+    public String getNotificationKey() {
+        return notificationKey;
+    }
+
+    public void setNotificationKey(final String notificationKey) {
+        this.notificationKey = notificationKey;
+    }
+
+    public DeliveryPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(final DeliveryPriority priority) {
+        this.priority = priority;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(final long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return trace started when the notification was buffered, null for notifications loaded from disk
+     */
+    @JsonIgnore
+    public DeliveryTrace getTrace() {
+        return trace;
+    }
+
+    @JsonIgnore
+    public void setTrace(final DeliveryTrace trace) {
+        this.trace = trace;
+    }
+}
@@ -0,0 +1,270 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only file of {@link PendingDelivery} (one JSON per line) used when {@link DeliveryBuffer} overflows.
+ * <p>
+ * Bot access tokens are not written to disk, only their fingerprints ({@link BotTokens#fingerprint(String)}) which are resolved back to
+ * tokens when the notifications are read. Read notifications are not removed from the file, the offset of the first unread one is kept
+ * next to it. The file is deleted once it is read completely and compacted when its read part grows too large.
+ */
+class SpillFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillFile.class);
+
+    private static final String SETTINGS = "settings";
+    private static final String BOT_ACCESS_TOKEN = "botAccessToken";
+    private static final String BOT_TOKEN_FINGERPRINT = "botTokenFingerprint";
+    private static final long COMPACTION_THRESHOLD_BYTES = 1024L * 1024L;
+
+    private final File file;
+    private final File offsetFile;
+    private final ObjectMapper objectMapper;
+
+    private long readOffset;
+    private long pendingCount;
+
+    SpillFile(@NotNull final File file) {
+        this.file = requireNonNull(file, "'file' cannot be null");
+        this.offsetFile = new File(file.getPath() + ".offset");
+        this.objectMapper = new ObjectMapper();
+        this.readOffset = readOffset();
+        this.pendingCount = countLines();
+    }
+
+    synchronized void append(@NotNull final PendingDelivery pendingDelivery) throws IOException {
+        requireNonNull(pendingDelivery, "'pendingDelivery' cannot be null");
+
+        final File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory()) {
+            if (!directory.mkdirs()) {
+                throw new IOException("Cannot create spill directory " + directory);
+            }
+            restrictToOwner(directory.toPath(), "rwx------");
+        }
+        final boolean created = !file.exists();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            if (created) {
+                restrictToOwner(file.toPath(), "rw-------");
+            }
+            writer.write(objectMapper.writeValueAsString(withoutToken(pendingDelivery)));
+            writer.newLine();
+        }
+        pendingCount++;
+    }
+
+    /**
+     * Removes at most given number of the oldest notifications from the file
+     *
+     * @param max
+     *         maximal number of returned notifications
+     * @param tokenResolver
+     *         resolves fingerprint of bot token back to the token, returns null for unknown fingerprint
+     * @return notifications whose bot token is known
+     */
+    @NotNull
+    synchronized List<PendingDelivery> poll(final int max, @NotNull final Function<String, String> tokenResolver) {
+        requireNonNull(tokenResolver, "'tokenResolver' cannot be null");
+
+        final List<PendingDelivery> result = new ArrayList<>();
+        if (pendingCount == 0 || max <= 0) {
+            return result;
+        }
+        long offset = readOffset;
+        int read = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.position(offset);
+            final InputStream input = new BufferedInputStream(Channels.newInputStream(channel));
+            final ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (read < max) {
+                final int length = readLine(input, line);
+                if (length < 0) {
+                    break;
+                }
+                offset += length;
+                if (line.size() > 0) {
+                    read++;
+                    readEntry(new String(line.toByteArray(), StandardCharsets.UTF_8), tokenResolver, result);
+                }
+            }
+        } catch (final IOException e) {
+            logger.error("Cannot read spilled notifications from '{}'.", file, e);
+            return result;
+        }
+        readOffset = offset;
+        pendingCount = Math.max(0, pendingCount - read);
+        afterRead();
+        return result;
+    }
+
+    synchronized long getPendingCount() {
+        return pendingCount;
+    }
+
+    private void afterRead() {
+        try {
+            if (pendingCount == 0) {
+                Files.deleteIfExists(file.toPath());
+                Files.deleteIfExists(offsetFile.toPath());
+                readOffset = 0;
+            } else if (readOffset > COMPACTION_THRESHOLD_BYTES && readOffset > file.length() / 2) {
+                compact();
+            } else {
+                writeOffset();
+            }
+        } catch (final IOException e) {
+            logger.error("Cannot update spilled notifications file '{}'.", file, e);
+        }
+    }
+
+    /**
+     * Copies unread notifications to new file, so the read part is not kept forever while the buffer keeps spilling
+     */
+    private void compact() throws IOException {
+        final Path rest = new File(file.getPath() + ".tmp").toPath();
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(rest, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            restrictToOwner(rest, "rw-------");
+            long position = readOffset;
+            final long size = source.size();
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+        }
+        // without the offset the file is read from the beginning, so a failure in between repeats notifications instead of losing them
+        Files.deleteIfExists(offsetFile.toPath());
+        Files.move(rest, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        readOffset = 0;
+        writeOffset();
+    }
+
+    private void writeOffset() throws IOException {
+        final Path temporary = new File(offsetFile.getPath() + ".tmp").toPath();
+        Files.write(temporary, Long.toString(readOffset).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private long readOffset() {
+        if (!offsetFile.isFile()) {
+            return 0;
+        }
+        try {
+            final long offset = Long.parseLong(new String(Files.readAllBytes(offsetFile.toPath()), StandardCharsets.UTF_8).trim());
+            return offset >= 0 && offset <= file.length() ? offset : 0;
+        } catch (final IOException | NumberFormatException e) {
+            logger.warn("Cannot read offset of spilled notifications from '{}', reading them from the beginning.", offsetFile, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Reads bytes up to the next line feed to given buffer
+     *
+     * @return number of bytes consumed including the line feed, -1 at the end of the file
+     */
+    private static int readLine(final InputStream input, final ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        int consumed = 0;
+        int value;
+        while ((value = input.read()) >= 0) {
+            consumed++;
+            if (value == '\n') {
+                return consumed;
+            }
+            if (value != '\r') {
+                line.write(value);
+            }
+        }
+        return consumed > 0 ? consumed : -1;
+    }
+
+    private JsonNode withoutToken(final PendingDelivery pendingDelivery) {
+        final JsonNode tree = objectMapper.valueToTree(pendingDelivery);
+        final JsonNode settings = tree.get(SETTINGS);
+        if (settings instanceof ObjectNode) {
+            final JsonNode token = ((ObjectNode) settings).remove(BOT_ACCESS_TOKEN);
+            ((ObjectNode) settings).put(BOT_TOKEN_FINGERPRINT, BotTokens.fingerprint(token == null || token.isNull() ? null : token.asText()));
+        }
+        return tree;
+    }
+
+    private void readEntry(final String line, final Function<String, String> tokenResolver, final List<PendingDelivery> result) {
+        try {
+            final JsonNode tree = objectMapper.readTree(line);
+            final JsonNode settings = tree.get(SETTINGS);
+            if (settings instanceof ObjectNode) {
+                final JsonNode fingerprint = ((ObjectNode) settings).remove(BOT_TOKEN_FINGERPRINT);
+                final String token = fingerprint == null ? null : tokenResolver.apply(fingerprint.asText());
+                if (token == null) {
+                    logger.warn("Skipping spilled notification of bot '{}' which is not configured in any notification rule.",
+                            fingerprint == null ? null : fingerprint.asText());
+                    return;
+                }
+                ((ObjectNode) settings).put(BOT_ACCESS_TOKEN, token);
+            }
+            result.add(objectMapper.treeToValue(tree, PendingDelivery.class));
+        } catch (final IOException e) {
+            logger.warn("Skipping corrupted spilled notification.", e);
+        }
+    }
+
+    private long countLines() {
+        if (!file.isFile()) {
+            return 0;
+        }
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.position(readOffset);
+            final InputStream input = new BufferedInputStream(Channels.newInputStream(channel));
+            final ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (readLine(input, line) >= 0) {
+                if (line.size() > 0) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (final IOException e) {
+            logger.warn("Cannot read spilled notifications from '{}'.", file, e);
+            return 0;
+        }
+    }
+
+    private static void restrictToOwner(final Path path, final String permissions) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(permissions));
+        } catch (final UnsupportedOperationException | IOException e) {
+            logger.debug("Cannot restrict permissions of '{}' to its owner.", path, e);
+        }
+    }
+}
@@ -3,6 +3,10 @@ package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto;
 import java.util.Objects;
 import java.util.StringJoiner;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
 /**
  * DTO transferring notification receiver data from form to transport layer
  */
@@ -10,6 +14,10 @@ public class TeamsBotNotificationSettings {
 
     private String botAccessToken;
     private String roomIdentifier;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer deliveryTimeoutSeconds;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean editInPlace;
 
     @Override
     public boolean equals(final Object o) {
@@ -21,20 +29,24 @@ public class TeamsBotNotificationSettings {
         }
         final TeamsBotNotificationSettings that = (TeamsBotNotificationSettings) o;
         return Objects.equals(botAccessToken, that.botAccessToken) &&
-                Objects.equals(roomIdentifier, that.roomIdentifier);
+                Objects.equals(roomIdentifier, that.roomIdentifier) &&
+                Objects.equals(deliveryTimeoutSeconds, that.deliveryTimeoutSeconds) &&
+                Objects.equals(editInPlace, that.editInPlace);
     }
 
     @Override
     public int hashCode() {
 
-        return Objects.hash(botAccessToken, roomIdentifier);
+        return Objects.hash(botAccessToken, roomIdentifier, deliveryTimeoutSeconds, editInPlace);
     }
 
     @Override
     public String toString() {
         return new StringJoiner(", ", "TeamsBotNotificationSettings{", "}")
-                .add("botAccessToken='" + botAccessToken + "'")
+                .add("botAccessToken=" + BotTokens.fingerprint(botAccessToken))
                 .add("roomIdentifier='" + roomIdentifier + "'")
+                .add("deliveryTimeoutSeconds=" + deliveryTimeoutSeconds)
+                .add("editInPlace=" + editInPlace)
                 .toString();
     }
 
@@ -53,4 +65,20 @@ public class TeamsBotNotificationSettings {
     public void setRoomIdentifier(final String roomIdentifier) {
         this.roomIdentifier = roomIdentifier;
     }
+
+    public Integer getDeliveryTimeoutSeconds() {
+        return deliveryTimeoutSeconds;
+    }
+
+    public void setDeliveryTimeoutSeconds(final Integer deliveryTimeoutSeconds) {
+        this.deliveryTimeoutSeconds = deliveryTimeoutSeconds;
+    }
+
+    public Boolean getEditInPlace() {
+        return editInPlace;
+    }
+
+    public void setEditInPlace(final Boolean editInPlace) {
+        this.editInPlace = editInPlace;
+    }
 }
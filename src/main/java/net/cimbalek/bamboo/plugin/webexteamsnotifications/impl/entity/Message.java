@@ -3,10 +3,14 @@ package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity;
 import java.util.Objects;
 import java.util.StringJoiner;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
- * Entity holding Webex Teams Message post request
+ * Entity holding Webex Teams Message post request and response
  */
 public class Message {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String id;
     private String roomId;
     private String text;
     private String markdown;
@@ -20,7 +24,8 @@ public class Message {
             return false;
         }
         final Message message = (Message) o;
-        return Objects.equals(roomId, message.roomId) &&
+        return Objects.equals(id, message.id) &&
+                Objects.equals(roomId, message.roomId) &&
                 Objects.equals(text, message.text) &&
                 Objects.equals(markdown, message.markdown);
     }
@@ -28,18 +33,27 @@ public class Message {
     @Override
     public int hashCode() {
 
-        return Objects.hash(roomId, text, markdown);
+        return Objects.hash(id, roomId, text, markdown);
     }
 
     @Override
     public String toString() {
         return new StringJoiner(", ", "Message{", "}")
+                .add("id='" + id + "'")
                 .add("roomId='" + roomId + "'")
                 .add("text='" + text + "'")
                 .add("markdown='" + markdown + "'")
                 .toString();
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
     public String getRoomId() {
         return roomId;
     }
@@ -0,0 +1,46 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Entity holding Webex Teams Messages listing response
+ */
+public class Messages {
+
+    private List<Message> items;
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Messages messages = (Messages) o;
+        return Objects.equals(items, messages.items);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(items);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "Messages{", "}")
+                .add("items=" + items)
+                .toString();
+    }
+
+    public List<Message> getItems() {
+        return items;
+    }
+
+    public void setItems(final List<Message> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,55 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Entity holding Webex Teams Person response
+ */
+public class Person {
+    private String id;
+    private String displayName;
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Person person = (Person) o;
+        return Objects.equals(id, person.id) &&
+                Objects.equals(displayName, person.displayName);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(id, displayName);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "Person{", "}")
+                .add("id='" + id + "'")
+                .add("displayName='" + displayName + "'")
+                .toString();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(final String displayName) {
+        this.displayName = displayName;
+    }
+}
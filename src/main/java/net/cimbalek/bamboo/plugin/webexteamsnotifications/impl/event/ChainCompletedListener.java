@@ -0,0 +1,207 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bamboo.builder.BuildState;
+import com.atlassian.bamboo.event.ChainCompletedEvent;
+import com.atlassian.bamboo.plan.PlanResultKey;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
+import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.sal.api.ApplicationProperties;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryPriority;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.NotificationKeys;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.PendingDelivery;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Delivers plan notifications straight from {@link ChainCompletedEvent} when direct delivery is enabled. The event thread only queues
+ * the event, a single background thread looks up recipients in {@link DirectRecipientIndex}, renders the notification once per event and
+ * hands it over to {@link DeliveryBuffer}, so neither Bamboo's per-event recipient instantiation nor the delivery happens on the event
+ * thread.
+ * <p>
+ * Conditions are evaluated by the plugin itself and only {@link DirectRecipientIndex#SUPPORTED_CONDITIONS} are handled. Status change is
+ * detected against the last state seen since the plugin started, so the first completion of a plan after start is reported only when
+ * it failed.
+ */
+@Component
+public class ChainCompletedListener implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainCompletedListener.class);
+
+    private static final int MAX_QUEUED_EVENTS = 1000;
+    private static final String EVENT_TYPE = ChainCompletedEvent.class.getName();
+
+    private final EventPublisher eventPublisher;
+    private final ResultsSummaryManager resultsSummaryManager;
+    private final ApplicationProperties applicationProperties;
+    private final DirectRecipientIndex directRecipientIndex;
+    private final DeliveryBuffer deliveryBuffer;
+    private final DeliveryTracer deliveryTracer;
+    private final ConcurrentMap<String, BuildState> lastStates = new ConcurrentHashMap<>();
+
+    private volatile ThreadPoolExecutor executor;
+
+    /**
+     * Constructs new instance of {@link ChainCompletedListener}
+     */
+    @Autowired
+    public ChainCompletedListener(@NotNull @ComponentImport final EventPublisher eventPublisher,
+                                  @NotNull @ComponentImport final ResultsSummaryManager resultsSummaryManager,
+                                  @NotNull @ComponentImport final ApplicationProperties applicationProperties,
+                                  @NotNull final DirectRecipientIndex directRecipientIndex,
+                                  @NotNull final DeliveryBuffer deliveryBuffer,
+                                  @NotNull final DeliveryTracer deliveryTracer) {
+        this.eventPublisher = requireNonNull(eventPublisher, "'eventPublisher' cannot be null");
+        this.resultsSummaryManager = requireNonNull(resultsSummaryManager, "'resultsSummaryManager' cannot be null");
+        this.applicationProperties = requireNonNull(applicationProperties, "'applicationProperties' cannot be null");
+        this.directRecipientIndex = requireNonNull(directRecipientIndex, "'directRecipientIndex' cannot be null");
+        this.deliveryBuffer = requireNonNull(deliveryBuffer, "'deliveryBuffer' cannot be null");
+        this.deliveryTracer = requireNonNull(deliveryTracer, "'deliveryTracer' cannot be null");
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (directRecipientIndex.isEnabled()) {
+            // single thread keeps events of a plan in order, the last seen state depends on it
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_EVENTS), runnable -> {
+                final Thread thread = new Thread(runnable, "webex-teams-direct-delivery");
+                thread.setDaemon(true);
+                return thread;
+            });
+            eventPublisher.register(this);
+            logger.info("Plan notifications of Webex Teams recipients are delivered directly from build completion events.");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        final ThreadPoolExecutor registeredExecutor = executor;
+        if (registeredExecutor != null) {
+            eventPublisher.unregister(this);
+            registeredExecutor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Queues delivery of notification of completed plan build to all directly delivered recipients of the plan whose condition is met
+     *
+     * @param event
+     *         event of completed plan build
+     */
+    @EventListener
+    public void onChainCompleted(@NotNull final ChainCompletedEvent event) {
+        final ThreadPoolExecutor registeredExecutor = executor;
+        if (registeredExecutor == null) {
+            return;
+        }
+        try {
+            registeredExecutor.execute(() -> handle(event));
+        } catch (final RejectedExecutionException e) {
+            logger.error("Notification about '{}' was dropped, {} build completions are waiting for direct delivery.", event.getPlanResultKey(),
+                    registeredExecutor.getQueue().size());
+        }
+    }
+
+    private void handle(final ChainCompletedEvent event) {
+        try {
+            final PlanResultKey planResultKey = event.getPlanResultKey();
+            final List<DirectRecipient> recipients = directRecipientIndex.findByPlan(planResultKey.getPlanKey());
+            final ResultsSummary resultsSummary = resultsSummaryManager.getResultsSummary(planResultKey);
+            final BuildState state = resultsSummary != null && resultsSummary.getBuildState() != null
+                    ? resultsSummary.getBuildState()
+                    : BuildState.UNKNOWN;
+            final BuildState previousState = lastStates.put(planResultKey.getPlanKey().getKey(), state);
+            if (recipients.isEmpty()) {
+                return;
+            }
+
+            final long renderingStart = System.nanoTime();
+            final String content = render(planResultKey, state, resultsSummary);
+            final long renderingMicros = (System.nanoTime() - renderingStart) / 1000L;
+            for (final DirectRecipient recipient : recipients) {
+                if (isConditionMet(recipient.getConditionKey(), state, previousState)) {
+                    offer(recipient, content, NotificationKeys.of(EVENT_TYPE, planResultKey.getKey()), renderingMicros);
+                }
+            }
+        } catch (final RuntimeException e) {
+            logger.error("Direct delivery of notification about '{}' failed.", event.getPlanResultKey(), e);
+        }
+    }
+
+    private void offer(final DirectRecipient recipient, final String content, final String notificationKey, final long renderingMicros) {
+        final DeliveryTrace trace = deliveryTracer.start(recipient.getSettings());
+        trace.addSpanMicros("rendering", renderingMicros);
+        final PendingDelivery pendingDelivery = new PendingDelivery();
+        pendingDelivery.setSettings(recipient.getSettings());
+        pendingDelivery.setContent(content);
+        pendingDelivery.setNotificationKey(notificationKey);
+        pendingDelivery.setPriority(DeliveryPriority.of(content));
+        pendingDelivery.setCreatedAt(System.currentTimeMillis());
+        pendingDelivery.setTrace(trace);
+        if (!deliveryBuffer.offer(pendingDelivery)) {
+            logger.error("Notification '{}' was dropped by the delivery buffer.", pendingDelivery);
+        }
+    }
+
+    private static boolean isConditionMet(final String conditionKey, final BuildState state, @Nullable final BuildState previousState) {
+        switch (conditionKey) {
+            case DirectRecipientIndex.CONDITION_ALL_BUILDS:
+                return true;
+            case DirectRecipientIndex.CONDITION_FAILED_BUILDS:
+                return state == BuildState.FAILED || state == BuildState.SUCCESS && previousState == BuildState.FAILED;
+            case DirectRecipientIndex.CONDITION_CHANGED_STATUS:
+                return previousState == null ? state == BuildState.FAILED : previousState != state && state != BuildState.UNKNOWN;
+            default:
+                return false;
+        }
+    }
+
+    private String render(final PlanResultKey planResultKey, final BuildState state, @Nullable final ResultsSummary resultsSummary) {
+        final StringBuilder content = new StringBuilder("Build ").append(planResultKey.getKey());
+        switch (state) {
+            case SUCCESS:
+                content.append(" was successful.");
+                break;
+            case FAILED:
+                content.append(" failed.");
+                break;
+            default:
+                content.append(" finished.");
+                break;
+        }
+        if (resultsSummary != null && resultsSummary.getFailedTestCaseCount() > 0) {
+            content.append(' ').append(resultsSummary.getFailedTestCaseCount()).append(" of ")
+                    .append(resultsSummary.getFailedTestCaseCount() + resultsSummary.getSuccessfulTestCaseCount()).append(" tests failed.");
+        }
+        final String baseUrl = applicationProperties.getBaseUrl();
+        if (baseUrl != null) {
+            content.append('\n').append(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl)
+                    .append("/browse/").append(planResultKey.getKey());
+        }
+        return content.toString();
+    }
+}
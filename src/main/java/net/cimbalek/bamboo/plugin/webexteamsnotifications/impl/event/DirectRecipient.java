@@ -0,0 +1,90 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.jetbrains.annotations.NotNull;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Webex Teams recipient of plan notification rule together with condition of the rule, identified by plan key and rule id
+ */
+public class DirectRecipient {
+
+    private final String planKey;
+    private final long ruleId;
+    private final TeamsBotNotificationSettings settings;
+    private final String conditionKey;
+
+    /**
+     * Constructs new instance of {@link DirectRecipient}
+     *
+     * @param planKey
+     *         key of the plan of the rule
+     * @param ruleId
+     *         id of the notification rule
+     * @param settings
+     *         settings of the recipient
+     * @param conditionKey
+     *         key of notification type (condition) of the rule
+     */
+    public DirectRecipient(@NotNull final String planKey, final long ruleId, @NotNull final TeamsBotNotificationSettings settings,
+                           @NotNull final String conditionKey) {
+        this.planKey = requireNonNull(planKey, "'planKey' cannot be null");
+        this.ruleId = ruleId;
+        this.settings = requireNonNull(settings, "'settings' cannot be null");
+        this.conditionKey = requireNonNull(conditionKey, "'conditionKey' cannot be null");
+    }
+
+    @NotNull
+    public String getPlanKey() {
+        return planKey;
+    }
+
+    public long getRuleId() {
+        return ruleId;
+    }
+
+    @NotNull
+    public TeamsBotNotificationSettings getSettings() {
+        return settings;
+    }
+
+    @NotNull
+    public String getConditionKey() {
+        return conditionKey;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final DirectRecipient that = (DirectRecipient) o;
+        return ruleId == that.ruleId &&
+                Objects.equals(planKey, that.planKey) &&
+                Objects.equals(settings, that.settings) &&
+                Objects.equals(conditionKey, that.conditionKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(planKey, ruleId, settings, conditionKey);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "DirectRecipient{", "}")
+                .add("planKey='" + planKey + "'")
+                .add("ruleId=" + ruleId)
+                .add("settings=" + settings)
+                .add("conditionKey='" + conditionKey + "'")
+                .toString();
+    }
+}
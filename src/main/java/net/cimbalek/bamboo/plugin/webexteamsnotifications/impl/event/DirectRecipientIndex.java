@@ -0,0 +1,201 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bamboo.notification.NotificationRule;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
+import com.atlassian.bamboo.plan.cache.ImmutablePlan;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-memory index of Webex Teams recipients delivered directly from build completion events, see {@link ChainCompletedListener}.
+ * <p>
+ * Only rules of plans with one of {@link #SUPPORTED_CONDITIONS} are delivered directly, recipients of other rules (e.g. deployment
+ * ones) are left to Bamboo notification dispatcher. Rules are indexed by plan key and rule id, Bamboo notifies the recipient without
+ * telling which rule it belongs to, so recipient configuration shared by a directly delivered rule and another rule of the same plan is
+ * left to Bamboo altogether. Recipients of every plan are re-read from notification rules after configured refresh interval.
+ */
+@Component
+public class DirectRecipientIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectRecipientIndex.class);
+
+    private static final String CONDITION_PREFIX = "com.atlassian.bamboo.plugin.system.notifications:";
+    public static final String CONDITION_ALL_BUILDS = CONDITION_PREFIX + "chainCompleted.allBuilds";
+    public static final String CONDITION_FAILED_BUILDS = CONDITION_PREFIX + "chainCompleted.failedChains";
+    public static final String CONDITION_CHANGED_STATUS = CONDITION_PREFIX + "chainCompleted.changedChainStatus";
+    public static final Set<String> SUPPORTED_CONDITIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            CONDITION_ALL_BUILDS, CONDITION_FAILED_BUILDS, CONDITION_CHANGED_STATUS)));
+
+    private final CachedPlanManager cachedPlanManager;
+    private final TeamsNotificationsConfiguration configuration;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentMap<String, Entry<PlanRecipients>> recipientsByPlan = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs new instance of {@link DirectRecipientIndex}
+     */
+    @Autowired
+    public DirectRecipientIndex(@NotNull @ComponentImport final CachedPlanManager cachedPlanManager,
+                                @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.cachedPlanManager = requireNonNull(cachedPlanManager, "'cachedPlanManager' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    /**
+     * @return true if direct delivery is enabled
+     */
+    public boolean isEnabled() {
+        return configuration.isDirectDeliveryEnabled();
+    }
+
+    /**
+     * Decides whether recipient instantiated by Bamboo notification dispatcher for notification of given plan should stay silent because
+     * its notifications are delivered directly
+     *
+     * @param planKey
+     *         key of the plan the notification is dispatched for, null when it is not a plan notification (e.g. deployment one)
+     * @param recipientConfig
+     *         configuration of the recipient as stored in notification rule
+     * @return true if notifications of the recipient are delivered directly
+     */
+    public boolean isDeliveredDirectly(@Nullable final PlanKey planKey, @Nullable final String recipientConfig) {
+        if (planKey == null || recipientConfig == null || !isEnabled()) {
+            return false;
+        }
+        return findPlanRecipients(planKey).directConfigs.contains(recipientConfig);
+    }
+
+    /**
+     * @return recipients of given plan delivered directly, empty list if the plan does not exist
+     */
+    @NotNull
+    public List<DirectRecipient> findByPlan(@NotNull final PlanKey planKey) {
+        requireNonNull(planKey, "'planKey' cannot be null");
+
+        return findPlanRecipients(planKey).recipients;
+    }
+
+    /**
+     * Forgets all indexed recipients, they are read from notification rules again with the next lookup
+     */
+    public void invalidate() {
+        recipientsByPlan.clear();
+    }
+
+    private PlanRecipients findPlanRecipients(final PlanKey planKey) {
+        final Entry<PlanRecipients> entry = recipientsByPlan.get(planKey.getKey());
+        if (entry != null && !entry.isExpired(getRefreshMillis())) {
+            return entry.value;
+        }
+        final Entry<PlanRecipients> loaded = new Entry<>(loadPlanRecipients(planKey));
+        recipientsByPlan.put(planKey.getKey(), loaded);
+        return loaded.value;
+    }
+
+    private PlanRecipients loadPlanRecipients(final PlanKey planKey) {
+        final ImmutablePlan plan = cachedPlanManager.getPlanByKey(planKey);
+        if (plan == null || plan.getNotificationSettings() == null) {
+            return PlanRecipients.NONE;
+        }
+        final Map<Long, NotificationRule> directRules = new TreeMap<>();
+        final Set<String> otherConfigs = new HashSet<>();
+        for (final NotificationRule notificationRule : plan.getNotificationSettings().getNotificationRules()) {
+            if (!isTeamsRule(notificationRule)) {
+                continue;
+            }
+            if (SUPPORTED_CONDITIONS.contains(notificationRule.getConditionKey())) {
+                directRules.put(notificationRule.getId(), notificationRule);
+            } else {
+                otherConfigs.add(notificationRule.getRecipient());
+            }
+        }
+        final List<DirectRecipient> recipients = new ArrayList<>();
+        final Set<String> directConfigs = new HashSet<>();
+        for (final NotificationRule notificationRule : directRules.values()) {
+            if (otherConfigs.contains(notificationRule.getRecipient())) {
+                logger.debug("Rule {} of plan '{}' shares its Webex Teams recipient with a rule delivered by Bamboo, leaving it to Bamboo.",
+                        notificationRule.getId(), planKey.getKey());
+            } else if (readSettings(planKey, notificationRule, recipients)) {
+                directConfigs.add(notificationRule.getRecipient());
+            }
+        }
+        logger.debug("Plan '{}' has {} Webex Teams recipients delivered directly.", planKey.getKey(), recipients.size());
+        return new PlanRecipients(Collections.unmodifiableList(recipients), Collections.unmodifiableSet(directConfigs));
+    }
+
+    private boolean readSettings(final PlanKey planKey, final NotificationRule notificationRule, final List<DirectRecipient> result) {
+        try {
+            final TeamsBotNotificationSettings settings = objectMapper.readValue(notificationRule.getRecipient(), TeamsBotNotificationSettings.class);
+            if (settings.getBotAccessToken() != null && settings.getRoomIdentifier() != null) {
+                result.add(new DirectRecipient(planKey.getKey(), notificationRule.getId(), settings, notificationRule.getConditionKey()));
+                return true;
+            }
+        } catch (final IOException e) {
+            logger.warn("Cannot read settings of notification rule {}.", notificationRule.getId(), e);
+        }
+        return false;
+    }
+
+    private static boolean isTeamsRule(final NotificationRule notificationRule) {
+        return RecipientSettingsRepository.RECIPIENT_TYPE.equals(notificationRule.getRecipientType())
+                && notificationRule.getRecipient() != null;
+    }
+
+    private long getRefreshMillis() {
+        return TimeUnit.SECONDS.toMillis(configuration.getDirectDeliveryIndexRefreshSeconds());
+    }
+
+    private static final class PlanRecipients {
+
+        private static final PlanRecipients NONE = new PlanRecipients(Collections.emptyList(), Collections.emptySet());
+
+        private final List<DirectRecipient> recipients;
+        private final Set<String> directConfigs;
+
+        private PlanRecipients(final List<DirectRecipient> recipients, final Set<String> directConfigs) {
+            this.recipients = recipients;
+            this.directConfigs = directConfigs;
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final T value;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Entry(final T value) {
+            this.value = value;
+        }
+
+        private boolean isExpired(final long refreshMillis) {
+            return System.currentTimeMillis() - loadedAt >= refreshMillis;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.format;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Turns plain text IM content rendered by Bamboo into concise Webex Teams markdown - status in the first line is bold, build result keys
+ * and Bamboo browse URLs are turned into links and long lists (e.g. failing tests) are collapsed
+ * <p>
+ * Patterns are compiled once and the content is scanned by index, so formatting allocates little more than the builder of the result.
+ */
+public final class ImContentMarkdownFormatter {
+
+    private static final int MAX_LISTED_ITEMS = 5;
+
+    private static final Pattern URL = Pattern.compile("https?://[^\\s<>()\\[\\]]+");
+    private static final Pattern BROWSE_KEY = Pattern.compile("[A-Z][A-Z0-9]*-[A-Z][A-Z0-9]*(?:-[A-Z][A-Z0-9]*)?(?:-\\d+)?(?=$|[/?#])");
+    private static final Pattern RESULT_KEY = Pattern.compile("[A-Z][A-Z0-9]*-[A-Z][A-Z0-9]*(?:-[A-Z][A-Z0-9]*)?-\\d+\\b");
+    private static final Pattern STATUS = Pattern.compile("(?:failed|successful|succeeded|fixed|broken|cancelled|canceled|stopped|not built)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final String STATUS_INITIALS = "fsbcnFSBCN";
+    private static final String BROWSE_PATH = "/browse/";
+    private static final String TRAILING_PUNCTUATION = ".,;:!?'\"";
+
+    private ImContentMarkdownFormatter() {
+    }
+
+    /**
+     * Formats IM content as markdown
+     *
+     * @param content
+     *         plain text IM content
+     * @return markdown of the content
+     */
+    @NotNull
+    public static String format(@NotNull final String content) {
+        requireNonNull(content, "'content' cannot be null");
+
+        return new Formatting(content).format();
+    }
+
+    private static final class Formatting {
+
+        private final String content;
+        private final Matcher url;
+        private final Matcher browseKey;
+        private final Matcher resultKey;
+        private final Matcher status;
+        private final StringBuilder builder;
+
+        private String baseUrl;
+        private boolean pendingBlankLine;
+        private int listedItems;
+        private int hiddenItems;
+
+        private Formatting(final String content) {
+            this.content = content;
+            this.url = URL.matcher(content);
+            this.browseKey = BROWSE_KEY.matcher(content);
+            this.resultKey = RESULT_KEY.matcher(content).useTransparentBounds(true);
+            this.status = STATUS.matcher(content).useTransparentBounds(true);
+            this.builder = new StringBuilder(content.length() + content.length() / 4);
+        }
+
+        private String format() {
+            baseUrl = findBaseUrl();
+
+            boolean titlePending = true;
+            int lineStart = 0;
+            while (lineStart <= content.length()) {
+                final int newLine = content.indexOf('\n', lineStart);
+                final int lineEnd = newLine < 0 ? content.length() : newLine;
+                final int start = skipWhitespace(lineStart, lineEnd);
+                final int end = trimWhitespace(start, lineEnd);
+                lineStart = lineEnd + 1;
+
+                if (start == end) {
+                    flushList();
+                    pendingBlankLine = builder.length() > 0;
+                } else if (isBullet(start, end)) {
+                    appendListItem(skipWhitespace(start + 1, end), end);
+                } else if (isQualifiedName(start, end)) {
+                    appendListItem(start, end);
+                } else {
+                    flushList();
+                    beginLine();
+                    appendInline(start, end, titlePending);
+                    titlePending = false;
+                }
+            }
+            flushList();
+            return builder.toString();
+        }
+
+        private String findBaseUrl() {
+            int browsePath = content.indexOf(BROWSE_PATH);
+            while (browsePath >= 0) {
+                int start = browsePath;
+                while (start > 0 && !Character.isWhitespace(content.charAt(start - 1))) {
+                    start--;
+                }
+                if (content.startsWith("http", start) && isBrowseUrl(start, trimPunctuation(start, skipNonWhitespace(browsePath)))) {
+                    return content.substring(start, browsePath);
+                }
+                browsePath = content.indexOf(BROWSE_PATH, browsePath + BROWSE_PATH.length());
+            }
+            return null;
+        }
+
+        /**
+         * @return true if given URL points to plan or build result in Bamboo, the key is then matched by {@link #browseKey}
+         */
+        private boolean isBrowseUrl(final int start, final int end) {
+            final int browsePath = content.indexOf(BROWSE_PATH, start);
+            return browsePath >= 0 && browsePath < end && browseKey.region(browsePath + BROWSE_PATH.length(), end).lookingAt();
+        }
+
+        private void appendListItem(final int start, final int end) {
+            if (listedItems >= MAX_LISTED_ITEMS) {
+                hiddenItems++;
+                return;
+            }
+            beginLine();
+            builder.append("- ");
+            appendInline(start, end, false);
+            listedItems++;
+        }
+
+        private void flushList() {
+            if (hiddenItems > 0) {
+                beginLine();
+                builder.append("- _and ").append(hiddenItems).append(" more_");
+            }
+            listedItems = 0;
+            hiddenItems = 0;
+        }
+
+        private void beginLine() {
+            if (builder.length() > 0) {
+                builder.append('\n');
+                if (pendingBlankLine) {
+                    builder.append('\n');
+                }
+            }
+            pendingBlankLine = false;
+        }
+
+        private void appendInline(final int start, final int end, final boolean emphasizeStatus) {
+            boolean statusPending = emphasizeStatus;
+            int position = start;
+            int index = start;
+            while (index < end) {
+                final char character = content.charAt(index);
+                if (!isWordStart(index, start)) {
+                    index++;
+                } else if (character == 'h' && content.startsWith("http", index) && url.region(index, end).lookingAt()) {
+                    final int urlEnd = trimPunctuation(index, url.end());
+                    builder.append(content, position, index);
+                    appendUrl(index, urlEnd);
+                    position = index = urlEnd;
+                } else if (character >= 'A' && character <= 'Z' && resultKey.region(index, end).lookingAt()) {
+                    builder.append(content, position, index);
+                    appendKey(index, resultKey.end());
+                    position = index = resultKey.end();
+                } else if (statusPending && STATUS_INITIALS.indexOf(character) >= 0 && status.region(index, end).lookingAt()) {
+                    builder.append(content, position, index).append("**").append(content, index, status.end()).append("**");
+                    position = index = status.end();
+                    statusPending = false;
+                } else {
+                    index++;
+                }
+            }
+            builder.append(content, position, end);
+        }
+
+        private void appendUrl(final int start, final int end) {
+            if (isBrowseUrl(start, end)) {
+                builder.append('[').append(content, browseKey.start(), browseKey.end()).append("](")
+                        .append(content, start, end).append(')');
+            } else {
+                builder.append(content, start, end);
+            }
+        }
+
+        private void appendKey(final int start, final int end) {
+            if (baseUrl == null) {
+                builder.append(content, start, end);
+            } else {
+                builder.append('[').append(content, start, end).append("](").append(baseUrl).append(BROWSE_PATH)
+                        .append(content, start, end).append(')');
+            }
+        }
+
+        private boolean isWordStart(final int index, final int lineStart) {
+            return index == lineStart || !isWordCharacter(content.charAt(index - 1));
+        }
+
+        private boolean isBullet(final int start, final int end) {
+            final char character = content.charAt(start);
+            return (character == '-' || character == '*' || character == '\u2022')
+                    && start + 1 < end && Character.isWhitespace(content.charAt(start + 1));
+        }
+
+        /**
+         * @return true if the line is single qualified name (e.g. test method) like {@code com.example.FooTest.testBar}
+         */
+        private boolean isQualifiedName(final int start, final int end) {
+            final int nameEnd = content.startsWith("()", end - 2) ? end - 2 : end;
+            if (nameEnd <= start || !isWordCharacter(content.charAt(start)) || !isWordCharacter(content.charAt(nameEnd - 1))) {
+                return false;
+            }
+            boolean separated = false;
+            for (int index = start + 1; index < nameEnd - 1; index++) {
+                final char character = content.charAt(index);
+                if (character == '.' || character == '#' || character == ':') {
+                    separated = true;
+                } else if (!isWordCharacter(character)) {
+                    return false;
+                }
+            }
+            return separated;
+        }
+
+        private static boolean isWordCharacter(final char character) {
+            return Character.isLetterOrDigit(character) || character == '_' || character == '$';
+        }
+
+        private int skipWhitespace(final int start, final int end) {
+            int position = start;
+            while (position < end && Character.isWhitespace(content.charAt(position))) {
+                position++;
+            }
+            return position;
+        }
+
+        private int skipNonWhitespace(final int start) {
+            int position = start;
+            while (position < content.length() && !Character.isWhitespace(content.charAt(position))) {
+                position++;
+            }
+            return position;
+        }
+
+        private int trimWhitespace(final int start, final int end) {
+            int position = end;
+            while (position > start && Character.isWhitespace(content.charAt(position - 1))) {
+                position--;
+            }
+            return position;
+        }
+
+        private int trimPunctuation(final int start, final int end) {
+            int position = end;
+            while (position > start && TRAILING_PUNCTUATION.indexOf(content.charAt(position - 1)) >= 0) {
+                position--;
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+/**
+ * Safe arguments of parameterized log events.
+ * <p>
+ * Returned values are rendered only when the event is really logged, so passing them to disabled levels costs one small allocation.
+ * Tokens are logged only as fingerprints and bodies (messages, API responses) are capped to {@value #MAX_LOGGED_CHARS} characters.
+ */
+public final class LogValues {
+
+    public static final int MAX_LOGGED_CHARS = 500;
+
+    private LogValues() {
+    }
+
+    /**
+     * @return lazily rendered fingerprint of the bot token, see {@link BotTokens#fingerprint(String)}
+     */
+    @NotNull
+    public static Object token(@Nullable final String botToken) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return BotTokens.fingerprint(botToken);
+            }
+        };
+    }
+
+    /**
+     * @return lazily rendered value cut to {@value #MAX_LOGGED_CHARS} characters
+     */
+    @NotNull
+    public static Object capped(@Nullable final Object value) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return cap(String.valueOf(value), MAX_LOGGED_CHARS);
+            }
+        };
+    }
+
+    /**
+     * @return given text cut to maximal length, the number of omitted characters is appended
+     */
+    @NotNull
+    public static String cap(@NotNull final String text, final int maxLength) {
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "...(" + (text.length() - maxLength) + " more characters)";
+    }
+}
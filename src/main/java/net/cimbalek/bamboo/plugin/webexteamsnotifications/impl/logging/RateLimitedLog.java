@@ -0,0 +1,143 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Logs repeating warnings and errors (e.g. the same unreachable room on every build) at most once per interval and key, the number of
+ * suppressed ones is appended to the next logged message of the key. At most {@value #MAX_KEYS} keys are remembered, the least recently
+ * used ones are forgotten first.
+ */
+public class RateLimitedLog {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int MAX_KEYS = 1000;
+    private static final String SUPPRESSED_SUFFIX = " ({} similar messages suppressed)";
+
+    private final Logger logger;
+    private final long intervalMillis;
+    private final Map<String, Window> windows = new LinkedHashMap<String, Window>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Window> eldest) {
+            return size() > MAX_KEYS;
+        }
+    };
+
+    /**
+     * Constructs new instance of {@link RateLimitedLog} logging every key once per {@link #DEFAULT_INTERVAL_MILLIS}
+     *
+     * @param logger
+     *         logger of the warnings
+     */
+    public RateLimitedLog(@NotNull final Logger logger) {
+        this(logger, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructs new instance of {@link RateLimitedLog}
+     *
+     * @param logger
+     *         logger of the warnings
+     * @param intervalMillis
+     *         minimal time between two warnings of the same key
+     */
+    public RateLimitedLog(@NotNull final Logger logger, final long intervalMillis) {
+        this.logger = requireNonNull(logger, "'logger' cannot be null");
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Logs warning unless warning of the same key was logged within the interval
+     *
+     * @param key
+     *         identity of repeating warning, e.g. room and bot token fingerprint
+     * @param format
+     *         SLF4J message format
+     * @param arguments
+     *         arguments of the message, rendered only when the warning is logged
+     */
+    public void warn(@NotNull final String key, @NotNull final String format, final Object... arguments) {
+        if (logger.isWarnEnabled()) {
+            final long suppressed = acquire(key);
+            if (suppressed == 0) {
+                logger.warn(format, arguments);
+            } else if (suppressed > 0) {
+                logger.warn(format + SUPPRESSED_SUFFIX, append(arguments, suppressed));
+            }
+        }
+    }
+
+    /**
+     * Logs error unless error of the same key was logged within the interval
+     *
+     * @param key
+     *         identity of repeating error, e.g. room and bot token fingerprint
+     * @param format
+     *         SLF4J message format
+     * @param arguments
+     *         arguments of the message, rendered only when the error is logged
+     */
+    public void error(@NotNull final String key, @NotNull final String format, final Object... arguments) {
+        if (logger.isErrorEnabled()) {
+            final long suppressed = acquire(key);
+            if (suppressed == 0) {
+                logger.error(format, arguments);
+            } else if (suppressed > 0) {
+                logger.error(format + SUPPRESSED_SUFFIX, append(arguments, suppressed));
+            }
+        }
+    }
+
+    /**
+     * @return number of warnings suppressed since the last logged one of the key, negative if this one is to be suppressed too
+     */
+    private long acquire(final String key) {
+        final long now = System.currentTimeMillis();
+        synchronized (windows) {
+            final Window window = windows.get(key);
+            if (window == null) {
+                windows.put(key, new Window(now));
+                return 0;
+            }
+            if (now - window.loggedAt >= intervalMillis) {
+                final long suppressed = window.suppressed;
+                window.loggedAt = now;
+                window.suppressed = 0;
+                return suppressed;
+            }
+            window.suppressed++;
+            return -1;
+        }
+    }
+
+    private static Object[] append(final Object[] arguments, final Object argument) {
+        final Object[] result = new Object[arguments.length + 1];
+        final int throwableIndex = arguments.length > 0 && arguments[arguments.length - 1] instanceof Throwable ? arguments.length - 1 : -1;
+        if (throwableIndex < 0) {
+            System.arraycopy(arguments, 0, result, 0, arguments.length);
+            result[arguments.length] = argument;
+        } else {
+            System.arraycopy(arguments, 0, result, 0, throwableIndex);
+            result[throwableIndex] = argument;
+            result[arguments.length] = arguments[throwableIndex];
+        }
+        return result;
+    }
+
+    private static final class Window {
+
+        private long loggedAt;
+        private long suppressed;
+
+        private Window(final long loggedAt) {
+            this.loggedAt = loggedAt;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Watchdog of notifications and requests to Webex Teams API in progress (see {@link InFlightCalls}).
+ * <p>
+ * Calls in progress for longer than the stall threshold are logged once with their context and compact stack of the thread, so a hanging
+ * API is visible before builds look stuck. At most {@value #MAX_REPORTS_PER_CHECK} calls are reported per check, the rest in later
+ * checks. The watchdog runs on its own thread, threads delivering notifications only record start times of their calls.
+ */
+@Component
+public class DeliveryWatchdog implements DeliveryWatchdogMXBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryWatchdog.class);
+
+    private static final String MBEAN_TYPE = "DeliveryWatchdog";
+    private static final int MAX_REPORTS_PER_CHECK = 10;
+
+    private final long stallThresholdNanos;
+    private final int maxStackFrames;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong reportedCount = new AtomicLong();
+
+    private volatile int inFlightCount;
+    private volatile int stalledCount;
+    private volatile long longestInFlightMillis;
+
+    /**
+     * Constructs new instance of {@link DeliveryWatchdog}, calls are tracked and checked periodically when the watchdog is enabled
+     */
+    @Autowired
+    public DeliveryWatchdog(@NotNull final TeamsNotificationsConfiguration configuration) {
+        requireNonNull(configuration, "'configuration' cannot be null");
+
+        this.stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, configuration.getWatchdogStallThresholdMillis()));
+        this.maxStackFrames = Math.max(1, configuration.getWatchdogMaxStackFrames());
+        if (configuration.isWatchdogEnabled()) {
+            final long checkIntervalMillis = Math.max(100, configuration.getWatchdogCheckIntervalMillis());
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "webex-teams-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            InFlightCalls.setEnabled(true);
+            scheduler.scheduleWithFixedDelay(this::checkSafely, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+        JmxSupport.register(MBEAN_TYPE, this);
+    }
+
+    /**
+     * Checks calls in progress and reports the stalled ones which were not reported yet
+     *
+     * @return number of stalled calls
+     */
+    public synchronized int check() {
+        final Check check = new Check(System.nanoTime());
+        InFlightCalls.forEach(check);
+        if (check.unreported > 0) {
+            logger.warn("{} more calls stalled for longer than {} ms were not reported yet.", check.unreported,
+                    TimeUnit.NANOSECONDS.toMillis(stallThresholdNanos));
+        }
+        inFlightCount = check.inFlight;
+        stalledCount = check.stalled;
+        longestInFlightMillis = TimeUnit.NANOSECONDS.toMillis(check.longest);
+        return check.stalled;
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return inFlightCount;
+    }
+
+    @Override
+    public int getStalledCount() {
+        return stalledCount;
+    }
+
+    @Override
+    public long getLongestInFlightMillis() {
+        return longestInFlightMillis;
+    }
+
+    @Override
+    public long getReportedCount() {
+        return reportedCount.get();
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            InFlightCalls.setEnabled(false);
+            scheduler.shutdownNow();
+        }
+        JmxSupport.unregister(MBEAN_TYPE);
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (final RuntimeException e) {
+            logger.error("Check of stalled deliveries failed.", e);
+        }
+    }
+
+    private void report(final InFlightCalls.Call call, final long durationNanos) {
+        reportedCount.incrementAndGet();
+        final long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        final Thread thread = call.getThread();
+        final String stack = compactStack(thread.getStackTrace());
+        if (call.getKind() == InFlightCalls.Kind.NOTIFICATION) {
+            logger.warn("{} for room '{}' of bot '{}' in progress for {} ms on thread '{}' ({}):{}", call.getKind().getLabel(),
+                    call.getContext(1), LogValues.token(call.getContext(0)), durationMillis, thread.getName(), thread.getState(), stack);
+        } else {
+            logger.warn("{} {} '{}' of bot '{}' in progress for {} ms on thread '{}' ({}):{}", call.getKind().getLabel(), call.getContext(1),
+                    call.getContext(2), LogValues.token(call.getContext(0)), durationMillis, thread.getName(), thread.getState(), stack);
+        }
+    }
+
+    private String compactStack(final StackTraceElement[] frames) {
+        final StringBuilder result = new StringBuilder();
+        final int logged = Math.min(frames.length, maxStackFrames);
+        for (int i = 0; i < logged; i++) {
+            result.append("\n\tat ").append(frames[i]);
+        }
+        if (frames.length > logged) {
+            result.append("\n\t... ").append(frames.length - logged).append(" more");
+        }
+        return result.toString();
+    }
+
+    private final class Check implements Consumer<InFlightCalls.Call> {
+        private final long now;
+        private int inFlight;
+        private int stalled;
+        private int reported;
+        private int unreported;
+        private long longest;
+
+        private Check(final long now) {
+            this.now = now;
+        }
+
+        @Override
+        public void accept(final InFlightCalls.Call call) {
+            final long duration = now - call.getStart();
+            inFlight++;
+            longest = Math.max(longest, duration);
+            if (duration < stallThresholdNanos) {
+                return;
+            }
+            stalled++;
+            if (call.isReported()) {
+                return;
+            }
+            if (reported >= MAX_REPORTS_PER_CHECK) {
+                unreported++;
+            } else {
+                call.markReported();
+                reported++;
+                report(call, duration);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring;
+
+/**
+ * JMX view of {@link DeliveryWatchdog}, values are those of the last check
+ */
+public interface DeliveryWatchdogMXBean {
+
+    /**
+     * @return number of notifications and requests to Webex Teams API in progress
+     */
+    int getInFlightCount();
+
+    /**
+     * @return number of notifications and requests in progress for longer than the stall threshold
+     */
+    int getStalledCount();
+
+    /**
+     * @return how long the oldest notification or request has been in progress, in milliseconds
+     */
+    long getLongestInFlightMillis();
+
+    /**
+     * @return number of stalled calls reported to the log since plugin start
+     */
+    long getReportedCount();
+}
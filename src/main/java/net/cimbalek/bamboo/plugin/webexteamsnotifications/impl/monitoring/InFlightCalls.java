@@ -0,0 +1,250 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Start times of notifications and HTTP requests currently in progress on each thread, watched by {@link DeliveryWatchdog}.
+ * <p>
+ * Every thread writes to its own slot, so starting and finishing a call is a thread local lookup, a few plain writes of the context and
+ * one volatile write of the start time - no locks and no allocation. The slot is registered once per thread. Values kept in the thread
+ * local are JDK classes only, so threads of Bamboo outliving the plugin do not hold its class loader.
+ */
+public final class InFlightCalls {
+
+    /**
+     * Kind of tracked call
+     */
+    enum Kind {
+        NOTIFICATION("Notification"),
+        REQUEST("Request");
+
+        private final String label;
+
+        Kind(final String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return name of the kind used in log messages
+         */
+        @NotNull
+        String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Start time of thread not being in a call
+     */
+    public static final long IDLE = 0;
+
+    private static final int STARTS = 0;
+    private static final int CONTEXT = 1;
+    private static final int CONTEXT_SIZE = 3;
+    private static final Kind[] KINDS = Kind.values();
+
+    private static final Queue<Slot> slots = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Object[]> currentSlot = ThreadLocal.withInitial(InFlightCalls::register);
+
+    private static volatile boolean enabled;
+
+    private InFlightCalls() {
+    }
+
+    /**
+     * Starts or stops tracking, calls left unfinished by the previous tracking are forgotten when it starts
+     */
+    static void setEnabled(final boolean enabled) {
+        if (enabled) {
+            for (final Slot slot : slots) {
+                for (final Kind kind : KINDS) {
+                    slot.starts.set(kind.ordinal(), IDLE);
+                }
+            }
+        }
+        InFlightCalls.enabled = enabled;
+    }
+
+    /**
+     * Marks start of notification delivery on the current thread
+     *
+     * @param botAccessToken
+     *         access token of bot delivering the notification
+     * @param roomIdentifier
+     *         room identifier or title of the recipient
+     * @return start of the enclosing notification on this thread to be passed to {@link #finishNotification(long)}
+     */
+    public static long startNotification(@Nullable final String botAccessToken, @Nullable final String roomIdentifier) {
+        return start(Kind.NOTIFICATION, botAccessToken, roomIdentifier, null);
+    }
+
+    /**
+     * Marks end of notification delivery on the current thread
+     *
+     * @param previousStart
+     *         value returned by the matching {@link #startNotification(String, String)}
+     */
+    public static void finishNotification(final long previousStart) {
+        finish(Kind.NOTIFICATION, previousStart);
+    }
+
+    /**
+     * Marks start of HTTP request to Webex Teams API on the current thread
+     *
+     * @param botAccessToken
+     *         access token of the request
+     * @param method
+     *         HTTP method
+     * @param url
+     *         URL of the resource
+     * @return start of the enclosing request on this thread to be passed to {@link #finishRequest(long)}
+     */
+    public static long startRequest(@Nullable final String botAccessToken, @Nullable final String method, @Nullable final String url) {
+        return start(Kind.REQUEST, botAccessToken, method, url);
+    }
+
+    /**
+     * Marks end of HTTP request on the current thread
+     *
+     * @param previousStart
+     *         value returned by the matching {@link #startRequest(String, String, String)}
+     */
+    public static void finishRequest(final long previousStart) {
+        finish(Kind.REQUEST, previousStart);
+    }
+
+    /**
+     * Passes calls currently in progress to given consumer, slots of finished threads are forgotten
+     *
+     * @param consumer
+     *         consumer of the calls, the passed instance is reused
+     */
+    static void forEach(@NotNull final Consumer<Call> consumer) {
+        final Call call = new Call();
+        final Iterator<Slot> iterator = slots.iterator();
+        while (iterator.hasNext()) {
+            final Slot slot = iterator.next();
+            final Thread thread = slot.thread.get();
+            if (thread == null || !thread.isAlive()) {
+                iterator.remove();
+                continue;
+            }
+            for (final Kind kind : KINDS) {
+                if (call.read(slot, thread, kind)) {
+                    consumer.accept(call);
+                }
+            }
+        }
+    }
+
+    private static long start(final Kind kind, final String first, final String second, final String third) {
+        if (!enabled) {
+            return IDLE;
+        }
+        final Object[] slot = currentSlot.get();
+        final AtomicLongArray starts = (AtomicLongArray) slot[STARTS];
+        final String[] context = (String[]) slot[CONTEXT];
+        final int offset = kind.ordinal() * CONTEXT_SIZE;
+        context[offset] = first;
+        context[offset + 1] = second;
+        context[offset + 2] = third;
+        final long now = System.nanoTime();
+        final long previous = starts.get(kind.ordinal());
+        // the volatile write publishes the context written above
+        starts.set(kind.ordinal(), now == IDLE ? 1 : now);
+        return previous;
+    }
+
+    private static void finish(final Kind kind, final long previousStart) {
+        if (!enabled) {
+            return;
+        }
+        ((AtomicLongArray) currentSlot.get()[STARTS]).set(kind.ordinal(), previousStart);
+    }
+
+    private static Object[] register() {
+        final Object[] slot = {new AtomicLongArray(KINDS.length), new String[KINDS.length * CONTEXT_SIZE]};
+        slots.add(new Slot(Thread.currentThread(), slot));
+        return slot;
+    }
+
+    private static final class Slot {
+        private final WeakReference<Thread> thread;
+        private final AtomicLongArray starts;
+        private final String[] context;
+        private final long[] reportedStarts = new long[KINDS.length];
+
+        private Slot(final Thread thread, final Object[] slot) {
+            this.thread = new WeakReference<>(thread);
+            this.starts = (AtomicLongArray) slot[STARTS];
+            this.context = (String[]) slot[CONTEXT];
+        }
+    }
+
+    /**
+     * Call in progress on some thread, valid only within {@link #forEach(Consumer)}
+     */
+    static final class Call {
+        private Slot slot;
+        private Thread thread;
+        private Kind kind;
+        private long start;
+        private final String[] context = new String[CONTEXT_SIZE];
+
+        private boolean read(final Slot slot, final Thread thread, final Kind kind) {
+            final int index = kind.ordinal();
+            final long start = slot.starts.get(index);
+            if (start == IDLE) {
+                return false;
+            }
+            System.arraycopy(slot.context, index * CONTEXT_SIZE, context, 0, CONTEXT_SIZE);
+            // the thread has moved to another call while the context was read, it is not stalled
+            if (slot.starts.get(index) != start) {
+                return false;
+            }
+            this.slot = slot;
+            this.thread = thread;
+            this.kind = kind;
+            this.start = start;
+            return true;
+        }
+
+        Thread getThread() {
+            return thread;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return {@link System#nanoTime()} when the call started
+         */
+        long getStart() {
+            return start;
+        }
+
+        String getContext(final int index) {
+            return context[index];
+        }
+
+        /**
+         * @return true if this call was already reported by the watchdog
+         */
+        boolean isReported() {
+            return slot.reportedStarts[kind.ordinal()] == start;
+        }
+
+        void markReported() {
+            slot.reportedStarts[kind.ordinal()] = start;
+        }
+    }
+}
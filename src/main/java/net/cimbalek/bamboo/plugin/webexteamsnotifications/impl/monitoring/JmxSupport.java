@@ -0,0 +1,74 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Registration of plugin metrics in the platform MBean server
+ */
+public final class JmxSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(JmxSupport.class);
+
+    private static final String DOMAIN = "net.cimbalek.bamboo.plugin.webexteamsnotifications";
+
+    private JmxSupport() {
+    }
+
+    /**
+     * Registers given MXBean under given type, replacing the one left behind by previous instance of the plugin
+     *
+     * @param type
+     *         value of 'type' key of the object name
+     * @param mxBean
+     *         bean to register
+     */
+    public static void register(@NotNull final String type, @NotNull final Object mxBean) {
+        requireNonNull(type, "'type' cannot be null");
+        requireNonNull(mxBean, "'mxBean' cannot be null");
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = objectName(type);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mxBean, name);
+        } catch (final JMException e) {
+            logger.warn("Cannot register MBean '{}'.", type, e);
+        }
+    }
+
+    /**
+     * Unregisters MXBean of given type if present
+     *
+     * @param type
+     *         value of 'type' key of the object name
+     */
+    public static void unregister(@NotNull final String type) {
+        requireNonNull(type, "'type' cannot be null");
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = objectName(type);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (final JMException e) {
+            logger.warn("Cannot unregister MBean '{}'.", type, e);
+        }
+    }
+
+    private static ObjectName objectName(final String type) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type);
+    }
+}
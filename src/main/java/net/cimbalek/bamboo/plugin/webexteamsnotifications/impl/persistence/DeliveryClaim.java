@@ -0,0 +1,46 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Result of {@link DeliveryClaims#claim}, only the delivery holding the claim can release it
+ */
+public final class DeliveryClaim {
+
+    /**
+     * Message delivered without claim stored in the database (claims are disabled or the database cannot be used)
+     */
+    public static final DeliveryClaim UNCLAIMED = new DeliveryClaim(null, null, true);
+
+    /**
+     * Message already claimed by another delivery
+     */
+    public static final DeliveryClaim CLAIMED_ELSEWHERE = new DeliveryClaim(null, null, false);
+
+    private final String fingerprint;
+    private final String owner;
+    private final boolean granted;
+
+    DeliveryClaim(@Nullable final String fingerprint, @Nullable final String owner, final boolean granted) {
+        this.fingerprint = fingerprint;
+        this.owner = owner;
+        this.granted = granted;
+    }
+
+    /**
+     * @return true if this delivery should deliver the message
+     */
+    public boolean isGranted() {
+        return granted;
+    }
+
+    @Nullable
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Nullable
+    String getOwner() {
+        return owner;
+    }
+}
@@ -0,0 +1,34 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import net.java.ao.Entity;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.StringLength;
+import net.java.ao.schema.Table;
+import net.java.ao.schema.Unique;
+
+/**
+ * Active Objects entity of message claimed for delivery by one of Bamboo nodes, the claim is valid until its lease
+ * expires and only its owner (the delivery which inserted it) releases it
+ */
+@Table("DELIVERY_CLAIM")
+public interface DeliveryClaimEntity extends Entity {
+
+    @NotNull
+    @Unique
+    @Indexed
+    @StringLength(64)
+    String getFingerprint();
+
+    void setFingerprint(String fingerprint);
+
+    @StringLength(36)
+    String getOwner();
+
+    void setOwner(String owner);
+
+    @Indexed
+    long getExpiresAt();
+
+    void setExpiresAt(long expiresAt);
+}
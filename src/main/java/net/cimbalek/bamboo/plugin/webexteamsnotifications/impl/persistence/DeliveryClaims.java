@@ -0,0 +1,171 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Claims of messages for delivery shared by all Bamboo nodes, so a notification retried or failed over to another node is posted only once.
+ * <p>
+ * The claim is a single insert into table with unique index on fingerprint of the notification's recipient (bot and room) and its key
+ * ({@code NotificationKeys}, event type and build result), the node whose insert succeeds delivers the message. Content of the message is
+ * not part of the fingerprint, so identical messages of different builds are both delivered while the same notification formatted again
+ * is not. The claim is held until its lease expires, so the same notification is not posted again within the lease; claim of message which could not be delivered is released for a retry by the delivery holding it, never by a delivery whose
+ * lease expired and was taken over. When the database cannot be used the message is delivered anyway - duplicate message is better
+ * than lost one.
+ */
+@Component
+public class DeliveryClaims {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryClaims.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ActiveObjects activeObjects;
+    private final TeamsNotificationsConfiguration configuration;
+    private final AtomicLong nextPurgeAt = new AtomicLong();
+
+    /**
+     * Constructs new instance of {@link DeliveryClaims}
+     */
+    @Autowired
+    public DeliveryClaims(@ComponentImport @NotNull final ActiveObjects activeObjects,
+                          @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.activeObjects = requireNonNull(activeObjects, "'activeObjects' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    /**
+     * Claims message of the notification for delivery by this node
+     *
+     * @param botAccessToken
+     *         access token of bot sending the message
+     * @param roomId
+     *         identifier of room the message is sent to
+     * @param notificationKey
+     *         key of the notification, message of unknown notification is not claimed
+     * @return claim of the message, not granted if the notification is already claimed by another delivery
+     */
+    @NotNull
+    public DeliveryClaim claim(@NotNull final String botAccessToken, @NotNull final String roomId, @Nullable final String notificationKey) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomId, "'roomId' cannot be null");
+
+        if (!configuration.isDeliveryClaimsEnabled() || notificationKey == null) {
+            return DeliveryClaim.UNCLAIMED;
+        }
+        final String fingerprint = fingerprint(botAccessToken, roomId, notificationKey);
+        final String owner = UUID.randomUUID().toString();
+        final long now = System.currentTimeMillis();
+        if (insert(fingerprint, owner, now)) {
+            purgeExpired(now);
+            return new DeliveryClaim(fingerprint, owner, true);
+        }
+        try {
+            if (activeObjects.count(DeliveryClaimEntity.class, Query.select().where("FINGERPRINT = ?", fingerprint)) == 0) {
+                // the insert failed for another reason than existing claim
+                return DeliveryClaim.UNCLAIMED;
+            }
+            // lease of the claim expired, it can be taken over
+            if (activeObjects.deleteWithSQL(DeliveryClaimEntity.class, "FINGERPRINT = ? AND EXPIRES_AT < ?", fingerprint, now) > 0
+                    && insert(fingerprint, owner, now)) {
+                return new DeliveryClaim(fingerprint, owner, true);
+            }
+        } catch (final RuntimeException e) {
+            rateLimitedLog.warn("claim", "Cannot check claim of message for room '{}' of bot '{}', delivering it: {}", roomId,
+                    BotTokens.fingerprint(botAccessToken), e.getMessage());
+            return DeliveryClaim.UNCLAIMED;
+        }
+        logger.debug("Notification '{}' for room '{}' of bot '{}' is already claimed by another delivery.", notificationKey, roomId,
+                BotTokens.fingerprint(botAccessToken));
+        return DeliveryClaim.CLAIMED_ELSEWHERE;
+    }
+
+    /**
+     * Releases claim of the message which could not be delivered, so it can be delivered by a retry. Claim taken over by another
+     * delivery after its lease expired is kept.
+     *
+     * @param claim
+     *         claim returned by {@link #claim(String, String, String)}
+     */
+    public void release(@NotNull final DeliveryClaim claim) {
+        requireNonNull(claim, "'claim' cannot be null");
+
+        if (claim.getFingerprint() == null) {
+            return;
+        }
+        try {
+            activeObjects.deleteWithSQL(DeliveryClaimEntity.class, "FINGERPRINT = ? AND OWNER = ?", claim.getFingerprint(), claim.getOwner());
+        } catch (final RuntimeException e) {
+            rateLimitedLog.warn("release", "Cannot release claim '{}': {}", claim.getFingerprint(), e.getMessage());
+        }
+    }
+
+    private boolean insert(final String fingerprint, final String owner, final long now) {
+        try {
+            activeObjects.create(DeliveryClaimEntity.class,
+                    new DBParam("FINGERPRINT", fingerprint),
+                    new DBParam("OWNER", owner),
+                    new DBParam("EXPIRES_AT", now + TimeUnit.SECONDS.toMillis(configuration.getDeliveryClaimsLeaseSeconds())));
+            return true;
+        } catch (final RuntimeException e) {
+            logger.debug("Claim '{}' was not inserted: {}", fingerprint, e.getMessage());
+            return false;
+        }
+    }
+
+    private void purgeExpired(final long now) {
+        final long purgeAt = nextPurgeAt.get();
+        final long leaseMillis = TimeUnit.SECONDS.toMillis(configuration.getDeliveryClaimsLeaseSeconds());
+        if (now < purgeAt || !nextPurgeAt.compareAndSet(purgeAt, now + leaseMillis)) {
+            return;
+        }
+        try {
+            final int purged = activeObjects.deleteWithSQL(DeliveryClaimEntity.class, "EXPIRES_AT < ?", now);
+            logger.debug("Purged {} expired delivery claims.", purged);
+        } catch (final RuntimeException e) {
+            rateLimitedLog.warn("purge", "Cannot purge expired delivery claims: {}", e.getMessage());
+        }
+    }
+
+    private static String fingerprint(final String botAccessToken, final String roomId, final String notificationKey) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (final String part : new String[]{BotTokens.fingerprint(botAccessToken), roomId, notificationKey}) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            final byte[] hash = digest.digest();
+            final char[] result = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                result[i * 2] = HEX[(hash[i] >> 4) & 0x0f];
+                result[i * 2 + 1] = HEX[hash[i] & 0x0f];
+            }
+            return new String(result);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import net.java.ao.Entity;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.StringLength;
+import net.java.ao.schema.Table;
+
+/**
+ * Active Objects entity of room resolved from room identifier or title configured in recipient, shared by all Bamboo nodes.
+ * <p>
+ * The bot is stored as {@link net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens#fingerprint(String)
+ * fingerprint} of its token, never the token itself.
+ */
+@Table("ROOM_RESOLUTION")
+public interface RoomResolutionEntity extends Entity {
+
+    @NotNull
+    @Indexed
+    String getTokenFingerprint();
+
+    void setTokenFingerprint(String tokenFingerprint);
+
+    @NotNull
+    @Indexed
+    String getIdentifier();
+
+    void setIdentifier(String identifier);
+
+    @NotNull
+    String getRoomId();
+
+    void setRoomId(String roomId);
+
+    @StringLength(StringLength.UNLIMITED)
+    String getTitle();
+
+    void setTitle(String title);
+
+    long getVerifiedAt();
+
+    void setVerifiedAt(long verifiedAt);
+}
@@ -0,0 +1,246 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rooms resolved from room identifier or title of recipients, persisted in Active Objects so all Bamboo nodes share them and start warm
+ * after restart.
+ * <p>
+ * Reads go through bounded (LRU) in-memory cache of the node first, resolutions read from the database are kept in it for a short time,
+ * so a resolution forgotten by another node is not used for long. Resolutions older than the configured time to live are not used at all
+ * and the room is looked up in Webex Teams API again. The store is an optimization only - database failures are logged and the room is
+ * looked up as if it was not stored.
+ */
+@Component
+public class RoomResolutionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomResolutionStore.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
+
+    private static final int MAX_LOCAL_ENTRIES = 1000;
+    private static final int MAX_IDENTIFIER_LENGTH = 255;
+    private static final String BY_RECIPIENT = "TOKEN_FINGERPRINT = ? AND IDENTIFIER = ?";
+    private static final String BY_ROOM = "TOKEN_FINGERPRINT = ? AND ROOM_ID = ?";
+
+    private final ActiveObjects activeObjects;
+    private final TeamsNotificationsConfiguration configuration;
+    private final Map<String, Entry> localEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return size() > MAX_LOCAL_ENTRIES;
+        }
+    };
+
+    /**
+     * Constructs new instance of {@link RoomResolutionStore}
+     */
+    @Autowired
+    public RoomResolutionStore(@ComponentImport @NotNull final ActiveObjects activeObjects,
+                               @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.activeObjects = requireNonNull(activeObjects, "'activeObjects' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    /**
+     * Finds room resolved for the bot from given identifier or title which has not expired yet
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name) configured in recipient
+     * @return {@link Optional} with stored {@link Room} or empty {@link Optional} if the room has to be looked up in Webex Teams API
+     */
+    @NotNull
+    public Optional<Room> find(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifierOrName, "'roomIdentifierOrName' cannot be null");
+
+        if (!configuration.isRoomResolutionStoreEnabled()) {
+            return Optional.empty();
+        }
+        final String fingerprint = BotTokens.fingerprint(botAccessToken);
+        final String key = key(fingerprint, roomIdentifierOrName);
+        final long now = System.currentTimeMillis();
+        final Entry localEntry = getLocalEntry(key, now);
+        if (localEntry != null) {
+            return Optional.of(localEntry.toRoom());
+        }
+        try {
+            final Optional<Entry> stored = Arrays.stream(activeObjects.find(RoomResolutionEntity.class,
+                    Query.select().where(BY_RECIPIENT, fingerprint, roomIdentifierOrName)))
+                    .max(Comparator.comparingLong(RoomResolutionEntity::getVerifiedAt))
+                    .filter(entity -> !isExpired(entity.getVerifiedAt(), now))
+                    .map(entity -> new Entry(fingerprint, entity.getRoomId(), entity.getTitle(), entity.getVerifiedAt(), now));
+            stored.ifPresent(entry -> putLocalEntry(key, entry));
+            return stored.map(Entry::toRoom);
+        } catch (final RuntimeException e) {
+            rateLimitedLog.warn("find", "Cannot read resolution of room '{}' of bot '{}' from database: {}", roomIdentifierOrName, fingerprint,
+                    e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores room resolved for the bot from given identifier or title, verified just now
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name) configured in recipient
+     * @param room
+     *         room found in Webex Teams API
+     */
+    public void save(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName, @NotNull final Room room) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifierOrName, "'roomIdentifierOrName' cannot be null");
+        requireNonNull(room, "'room' cannot be null");
+
+        if (!configuration.isRoomResolutionStoreEnabled() || room.getId() == null || roomIdentifierOrName.length() > MAX_IDENTIFIER_LENGTH) {
+            return;
+        }
+        final String fingerprint = BotTokens.fingerprint(botAccessToken);
+        final long now = System.currentTimeMillis();
+        putLocalEntry(key(fingerprint, roomIdentifierOrName), new Entry(fingerprint, room.getId(), room.getTitle(), now, now));
+        try {
+            activeObjects.executeInTransaction(() -> {
+                final RoomResolutionEntity[] stored = activeObjects.find(RoomResolutionEntity.class,
+                        Query.select().where(BY_RECIPIENT, fingerprint, roomIdentifierOrName));
+                if (stored.length == 0) {
+                    activeObjects.create(RoomResolutionEntity.class,
+                            new DBParam("TOKEN_FINGERPRINT", fingerprint),
+                            new DBParam("IDENTIFIER", roomIdentifierOrName),
+                            new DBParam("ROOM_ID", room.getId()),
+                            new DBParam("TITLE", room.getTitle()),
+                            new DBParam("VERIFIED_AT", now));
+                    return null;
+                }
+                stored[0].setRoomId(room.getId());
+                stored[0].setTitle(room.getTitle());
+                stored[0].setVerifiedAt(now);
+                stored[0].save();
+                // rows inserted concurrently by several nodes
+                if (stored.length > 1) {
+                    activeObjects.delete(Arrays.copyOfRange(stored, 1, stored.length));
+                }
+                return null;
+            });
+        } catch (final RuntimeException e) {
+            rateLimitedLog.warn("save", "Cannot store resolution of room '{}' of bot '{}' to database: {}", roomIdentifierOrName, fingerprint,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets room resolved for the bot from given identifier or title, e.g. because the room was not found anymore
+     */
+    public void forget(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifierOrName, "'roomIdentifierOrName' cannot be null");
+
+        final String fingerprint = BotTokens.fingerprint(botAccessToken);
+        synchronized (localEntries) {
+            localEntries.remove(key(fingerprint, roomIdentifierOrName));
+        }
+        delete(BY_RECIPIENT, fingerprint, roomIdentifierOrName);
+    }
+
+    /**
+     * Forgets all resolutions of the bot to given room, e.g. because the bot cannot send messages to the room anymore
+     */
+    public void forgetRoom(@NotNull final String botAccessToken, @NotNull final String roomId) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomId, "'roomId' cannot be null");
+
+        final String fingerprint = BotTokens.fingerprint(botAccessToken);
+        synchronized (localEntries) {
+            localEntries.values().removeIf(entry -> entry.fingerprint.equals(fingerprint) && entry.roomId.equals(roomId));
+        }
+        delete(BY_ROOM, fingerprint, roomId);
+    }
+
+    private void delete(final String criteria, final String fingerprint, final String value) {
+        if (!configuration.isRoomResolutionStoreEnabled()) {
+            return;
+        }
+        try {
+            activeObjects.deleteWithSQL(RoomResolutionEntity.class, criteria, fingerprint, value);
+        } catch (final RuntimeException e) {
+            rateLimitedLog.warn("delete", "Cannot delete resolution '{}' of bot '{}' from database: {}", value, fingerprint, e.getMessage());
+        }
+    }
+
+    private Entry getLocalEntry(final String key, final long now) {
+        synchronized (localEntries) {
+            final Entry entry = localEntries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            final long localTtlMillis = TimeUnit.SECONDS.toMillis(configuration.getRoomResolutionLocalTtlSeconds());
+            if (isExpired(entry.verifiedAt, now) || now - entry.cachedAt > localTtlMillis) {
+                localEntries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void putLocalEntry(final String key, final Entry entry) {
+        synchronized (localEntries) {
+            localEntries.put(key, entry);
+        }
+    }
+
+    private boolean isExpired(final long verifiedAt, final long now) {
+        return now - verifiedAt > TimeUnit.HOURS.toMillis(configuration.getRoomResolutionTtlHours());
+    }
+
+    private static String key(final String fingerprint, final String roomIdentifierOrName) {
+        return fingerprint + '\n' + roomIdentifierOrName;
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final String roomId;
+        private final String title;
+        private final long verifiedAt;
+        private final long cachedAt;
+
+        private Entry(final String fingerprint, final String roomId, final String title, final long verifiedAt, final long cachedAt) {
+            this.fingerprint = fingerprint;
+            this.roomId = roomId;
+            this.title = title;
+            this.verifiedAt = verifiedAt;
+            this.cachedAt = cachedAt;
+        }
+
+        private Room toRoom() {
+            final Room room = new Room();
+            room.setId(roomId);
+            room.setTitle(title);
+            return room;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.rest;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Result of background check of recipient typed into the recipient edit form
+ */
+@XmlRootElement
+public class RecipientValidation {
+
+    private boolean valid;
+    private String status;
+    private String message;
+
+    public RecipientValidation() {
+    }
+
+    public RecipientValidation(final boolean valid, final String status, final String message) {
+        this.valid = valid;
+        this.status = status;
+        this.message = message;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RecipientValidation that = (RecipientValidation) o;
+        return valid == that.valid &&
+                Objects.equals(status, that.status) &&
+                Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(valid, status, message);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "RecipientValidation{", "}")
+                .add("valid=" + valid)
+                .add("status='" + status + "'")
+                .add("message='" + message + "'")
+                .toString();
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(final boolean valid) {
+        this.valid = valid;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(final String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(final String message) {
+        this.message = message;
+    }
+}
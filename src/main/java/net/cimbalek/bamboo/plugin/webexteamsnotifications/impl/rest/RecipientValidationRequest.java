@@ -0,0 +1,60 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.rest;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+/**
+ * Request of background check of recipient typed into the recipient edit form
+ */
+@XmlRootElement
+public class RecipientValidationRequest {
+
+    private String botAccessToken;
+    private String roomIdentifier;
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RecipientValidationRequest that = (RecipientValidationRequest) o;
+        return Objects.equals(botAccessToken, that.botAccessToken) &&
+                Objects.equals(roomIdentifier, that.roomIdentifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(botAccessToken, roomIdentifier);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "RecipientValidationRequest{", "}")
+                .add("botAccessToken='" + BotTokens.fingerprint(botAccessToken) + "'")
+                .add("roomIdentifier='" + roomIdentifier + "'")
+                .toString();
+    }
+
+    public String getBotAccessToken() {
+        return botAccessToken;
+    }
+
+    public void setBotAccessToken(final String botAccessToken) {
+        this.botAccessToken = botAccessToken;
+    }
+
+    public String getRoomIdentifier() {
+        return roomIdentifier;
+    }
+
+    public void setRoomIdentifier(final String roomIdentifier) {
+        this.roomIdentifier = roomIdentifier;
+    }
+}
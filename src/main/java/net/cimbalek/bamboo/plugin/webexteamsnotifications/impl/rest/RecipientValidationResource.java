@@ -0,0 +1,62 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.rest;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.atlassian.sal.api.message.I18nResolver;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientCheckStatus;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientValidationCache;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * REST resource checking recipient in background while user fills the recipient edit form, the result is cached by
+ * {@link RecipientValidationCache} and reused when the form is saved
+ */
+@Path("/recipients")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class RecipientValidationResource {
+
+    private static final String STATUS_MESSAGE_KEY_PREFIX = "webexTeamsNotifications.admin.healthCheck.status.";
+
+    private final RecipientValidationCache recipientValidationCache;
+    private final I18nResolver i18nResolver;
+
+    /**
+     * Constructs new instance of {@link RecipientValidationResource}
+     */
+    @Autowired
+    public RecipientValidationResource(@NotNull final RecipientValidationCache recipientValidationCache,
+                                       @NotNull final I18nResolver i18nResolver) {
+        this.recipientValidationCache = requireNonNull(recipientValidationCache, "'recipientValidationCache' cannot be null");
+        this.i18nResolver = requireNonNull(i18nResolver, "'i18nResolver' cannot be null");
+    }
+
+    /**
+     * Checks that the room can be reached with the bot token
+     *
+     * @param request
+     *         bot token and room identifier or name
+     * @return {@link RecipientValidation}, {@code 400} if the token or the room is missing
+     */
+    @POST
+    @Path("/validation")
+    public Response validate(final RecipientValidationRequest request) {
+        if (request == null || StringUtils.isBlank(request.getBotAccessToken()) || StringUtils.isBlank(request.getRoomIdentifier())) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        final RecipientCheckStatus status = recipientValidationCache.check(request.getBotAccessToken(), request.getRoomIdentifier());
+        return Response.ok(new RecipientValidation(status == RecipientCheckStatus.OK, status.name(),
+                i18nResolver.getText(STATUS_MESSAGE_KEY_PREFIX + status.name()))).build();
+    }
+}
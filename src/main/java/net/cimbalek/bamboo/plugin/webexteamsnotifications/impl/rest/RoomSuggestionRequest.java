@@ -0,0 +1,60 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.rest;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+/**
+ * Request of room suggestions for text typed into room field of the recipient edit form
+ */
+@XmlRootElement
+public class RoomSuggestionRequest {
+
+    private String botAccessToken;
+    private String query;
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RoomSuggestionRequest that = (RoomSuggestionRequest) o;
+        return Objects.equals(botAccessToken, that.botAccessToken) &&
+                Objects.equals(query, that.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(botAccessToken, query);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "RoomSuggestionRequest{", "}")
+                .add("botAccessToken='" + BotTokens.fingerprint(botAccessToken) + "'")
+                .add("query='" + query + "'")
+                .toString();
+    }
+
+    public String getBotAccessToken() {
+        return botAccessToken;
+    }
+
+    public void setBotAccessToken(final String botAccessToken) {
+        this.botAccessToken = botAccessToken;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(final String query) {
+        this.query = query;
+    }
+}
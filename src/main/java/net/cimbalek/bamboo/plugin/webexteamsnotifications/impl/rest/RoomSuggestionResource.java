@@ -0,0 +1,72 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.rest;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RoomSuggestionIndex;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * REST resource suggesting rooms of a bot while user types into room field of the recipient edit form.
+ * <p>
+ * The bot token is sent in body of POST request, so it does not end up in access logs.
+ */
+@Path("/rooms")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class RoomSuggestionResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomSuggestionResource.class);
+
+    private final RoomSuggestionIndex roomSuggestionIndex;
+
+    /**
+     * Constructs new instance of {@link RoomSuggestionResource}
+     */
+    @Autowired
+    public RoomSuggestionResource(@NotNull final RoomSuggestionIndex roomSuggestionIndex) {
+        this.roomSuggestionIndex = requireNonNull(roomSuggestionIndex, "'roomSuggestionIndex' cannot be null");
+    }
+
+    /**
+     * Suggests rooms of the bot matching typed text
+     *
+     * @param request
+     *         bot token and typed text
+     * @return {@link RoomSuggestions}, {@code 400} if the token is missing or refused by Webex Teams API, {@code 503} if rooms cannot be
+     * listed
+     */
+    @POST
+    @Path("/suggestions")
+    public Response suggest(final RoomSuggestionRequest request) {
+        if (request == null || request.getBotAccessToken() == null || request.getBotAccessToken().trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        final String botAccessToken = request.getBotAccessToken().trim();
+        final String query = request.getQuery() == null ? "" : request.getQuery();
+        try {
+            return Response.ok(new RoomSuggestions(roomSuggestionIndex.suggest(botAccessToken, query))).build();
+        } catch (final HttpClientErrorException e) {
+            logger.debug("Cannot suggest rooms of bot '{}', status {}.", BotTokens.fingerprint(botAccessToken), e.getStatusCode());
+            return Response.status(RecipientHealthRegistry.isBrokenStatus(e.getStatusCode())
+                    ? Response.Status.BAD_REQUEST : Response.Status.SERVICE_UNAVAILABLE).build();
+        } catch (final RestClientException e) {
+            logger.debug("Cannot suggest rooms of bot '{}'.", BotTokens.fingerprint(botAccessToken), e);
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.rest;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+
+/**
+ * Rooms suggested for text typed into room field of the recipient edit form
+ */
+@XmlRootElement
+public class RoomSuggestions {
+
+    private List<Room> rooms;
+
+    public RoomSuggestions() {
+    }
+
+    public RoomSuggestions(final List<Room> rooms) {
+        this.rooms = rooms;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RoomSuggestions that = (RoomSuggestions) o;
+        return Objects.equals(rooms, that.rooms);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rooms);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "RoomSuggestions{", "}")
+                .add("rooms=" + rooms)
+                .toString();
+    }
+
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    public void setRooms(final List<Room> rooms) {
+        this.rooms = rooms;
+    }
+}
@@ -0,0 +1,68 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.StringJoiner;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable state of recipient (bot token and room) which Webex Teams API refused with 401, 403 or 404
+ */
+public final class BrokenRecipient {
+
+    private final String tokenFingerprint;
+    private final String roomIdentifier;
+    private final int status;
+    private final int failures;
+    private final long brokenSince;
+    private final long nextCheckAt;
+
+    BrokenRecipient(final String tokenFingerprint, final String roomIdentifier, final int status, final int failures, final long brokenSince,
+                    final long nextCheckAt) {
+        this.tokenFingerprint = tokenFingerprint;
+        this.roomIdentifier = roomIdentifier;
+        this.status = status;
+        this.failures = failures;
+        this.brokenSince = brokenSince;
+        this.nextCheckAt = nextCheckAt;
+    }
+
+    public String getTokenFingerprint() {
+        return tokenFingerprint;
+    }
+
+    /**
+     * @return room identifier or null when the whole bot token is broken
+     */
+    @Nullable
+    public String getRoomIdentifier() {
+        return roomIdentifier;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public long getBrokenSince() {
+        return brokenSince;
+    }
+
+    public long getNextCheckAt() {
+        return nextCheckAt;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "BrokenRecipient{", "}")
+                .add("tokenFingerprint='" + tokenFingerprint + "'")
+                .add("roomIdentifier='" + roomIdentifier + "'")
+                .add("status=" + status)
+                .add("failures=" + failures)
+                .add("brokenSince=" + brokenSince)
+                .add("nextCheckAt=" + nextCheckAt)
+                .toString();
+    }
+}
@@ -0,0 +1,110 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded (LRU) and expiring registry of status messages already posted for a build into a room, used to edit the message in place
+ */
+@Component
+public class BuildMessageRegistry {
+
+    /**
+     * Bamboo build result key (e.g. {@code PROJ-PLAN-123} or {@code PROJ-PLAN-JOB1-123}) as it appears in notification content
+     */
+    private static final Pattern BUILD_RESULT_KEY = Pattern.compile("\\b[A-Z][A-Z0-9]*-[A-Z][A-Z0-9]*(?:-[A-Z][A-Z0-9]*)?-\\d+\\b");
+
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+
+    /**
+     * Constructs new instance of {@link BuildMessageRegistry}
+     *
+     * @param configuration
+     *         global configuration of the plugin
+     */
+    @Autowired
+    public BuildMessageRegistry(@NotNull final TeamsNotificationsConfiguration configuration) {
+        requireNonNull(configuration, "'configuration' cannot be null");
+
+        final int maxEntries = Math.max(1, configuration.getEditInPlaceMaxBuilds());
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(configuration.getEditInPlaceTtlMinutes());
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return build result key found in given notification content
+     */
+    @NotNull
+    public static Optional<String> findBuildKey(@NotNull final String content) {
+        requireNonNull(content, "'content' cannot be null");
+
+        final Matcher matcher = BUILD_RESULT_KEY.matcher(content);
+        return matcher.find() ? Optional.of(matcher.group()) : Optional.empty();
+    }
+
+    /**
+     * @return identifier of message posted for given build into given room if it has not expired yet
+     */
+    @NotNull
+    public synchronized Optional<String> findMessageId(@NotNull final String roomId, @NotNull final String buildKey) {
+        final String key = key(roomId, buildKey);
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.currentTimeMillis() - entry.registeredAt > ttlMillis) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.messageId);
+    }
+
+    /**
+     * Stores identifier of message posted for given build into given room
+     */
+    public synchronized void register(@NotNull final String roomId, @NotNull final String buildKey, @NotNull final String messageId) {
+        requireNonNull(messageId, "'messageId' cannot be null");
+        entries.put(key(roomId, buildKey), new Entry(messageId, System.currentTimeMillis()));
+    }
+
+    /**
+     * Forgets message of given build in given room, e.g. because it cannot be edited anymore
+     */
+    public synchronized void remove(@NotNull final String roomId, @NotNull final String buildKey) {
+        entries.remove(key(roomId, buildKey));
+    }
+
+    private static String key(final String roomId, final String buildKey) {
+        requireNonNull(roomId, "'roomId' cannot be null");
+        requireNonNull(buildKey, "'buildKey' cannot be null");
+        return roomId + '\n' + buildKey;
+    }
+
+    private static final class Entry {
+        private final String messageId;
+        private final long registeredAt;
+
+        private Entry(final String messageId, final long registeredAt) {
+            this.messageId = messageId;
+            this.registeredAt = registeredAt;
+        }
+    }
+}
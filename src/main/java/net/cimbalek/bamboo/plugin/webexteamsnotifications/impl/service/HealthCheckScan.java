@@ -0,0 +1,96 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Progress and results of one bulk health check of all configured recipients, results are added as soon as particular checks finish
+ */
+public class HealthCheckScan {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final int recipientCount;
+    private final int ruleCount;
+    private final List<RecipientCheckResult> results = new CopyOnWriteArrayList<>();
+
+    private volatile long finishedAt;
+
+    /**
+     * Constructs new instance of {@link HealthCheckScan}
+     *
+     * @param recipientCount
+     *         number of distinct recipients (bot token and room) to check
+     * @param ruleCount
+     *         number of notification rules using the recipients
+     */
+    public HealthCheckScan(final int recipientCount, final int ruleCount) {
+        this.recipientCount = recipientCount;
+        this.ruleCount = ruleCount;
+        if (recipientCount == 0) {
+            finishedAt = startedAt;
+        }
+    }
+
+    /**
+     * Adds result of the check of one recipient, the scan is finished with the last one
+     */
+    public void addResult(@NotNull final RecipientCheckResult result) {
+        results.add(requireNonNull(result, "'result' cannot be null"));
+        if (results.size() >= recipientCount) {
+            finishedAt = System.currentTimeMillis();
+        }
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != 0;
+    }
+
+    public int getRecipientCount() {
+        return recipientCount;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    public int getCheckedCount() {
+        return results.size();
+    }
+
+    /**
+     * @return number of checked recipients which are not reachable
+     */
+    public int getFailedCount() {
+        int failed = 0;
+        for (final RecipientCheckResult result : results) {
+            if (result.getStatus() != RecipientCheckStatus.OK) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return results checked so far, unreachable recipients first
+     */
+    @NotNull
+    public List<RecipientCheckResult> getResults() {
+        final List<RecipientCheckResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparing(RecipientCheckResult::getStatus));
+        return sorted;
+    }
+}
@@ -0,0 +1,150 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Messages;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reconciliation of messages whose posting failed ambiguously, i.e. timed out or was answered with {@code 5xx} after Webex Teams might
+ * have accepted it.
+ * <p>
+ * Every posted message carries a short correlation marker as the last line of its text and markdown. The marker is plain visible text,
+ * Webex Teams keeps it in both the markdown and its plain text rendering (hidden markers, e.g. HTML comments, are not guaranteed to survive
+ * its markdown processing). After an ambiguous failure recent messages of the room are read (bypassing cache and hedging) and searched for
+ * the marker, the message is posted again only when it is not there.
+ * When the room's messages cannot be listed (e.g. bots may list only messages mentioning them in group rooms), the message is not posted
+ * again - a lost notification is reported, a duplicate one is not.
+ */
+@Component
+public class MessageReconciler {
+
+    private static final String URL_RECENT_MESSAGES_PATTERN = "messages?roomId=%s&max=%d";
+    private static final String MARKER_SEPARATOR = "\n\n";
+    private static final String MARKER_PREFIX = "ref ";
+    private static final int MARKER_ID_LENGTH = 12;
+    private static final Pattern MARKER = Pattern.compile(MARKER_SEPARATOR + "(" + MARKER_PREFIX + "[0-9a-f]{" + MARKER_ID_LENGTH + "})$");
+
+    private final TeamsRestHttpClient teamsRestHttpClient;
+    private final TeamsNotificationsConfiguration configuration;
+
+    /**
+     * Constructs new instance of {@link MessageReconciler}
+     */
+    @Autowired
+    public MessageReconciler(@NotNull final TeamsRestHttpClient teamsRestHttpClient,
+                             @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.teamsRestHttpClient = requireNonNull(teamsRestHttpClient, "'teamsRestHttpClient' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    /**
+     * Marks message for reconciliation, the given message is not changed
+     *
+     * @param message
+     *         message to post
+     * @return copy of the message with correlation marker or the given message when it cannot be marked (it has no text nor markdown)
+     */
+    @NotNull
+    public Message mark(@NotNull final Message message) {
+        requireNonNull(message, "'message' cannot be null");
+
+        if (!configuration.isReconciliationEnabled() || message.getRoomId() == null
+                || message.getText() == null && message.getMarkdown() == null) {
+            return message;
+        }
+        final String marker = MARKER_PREFIX + UUID.randomUUID().toString().replace("-", "").substring(0, MARKER_ID_LENGTH);
+        final Message marked = new Message();
+        marked.setRoomId(message.getRoomId());
+        marked.setText(withMarker(message.getText(), marker));
+        marked.setMarkdown(withMarker(message.getMarkdown(), marker));
+        return marked;
+    }
+
+    /**
+     * @param message
+     *         message returned by {@link #mark(Message)}
+     * @param failure
+     *         failure of posting the message
+     * @return true if the message might have been posted despite the failure and it can be found by its marker
+     */
+    public boolean canReconcile(@NotNull final Message message, @NotNull final RestClientException failure) {
+        requireNonNull(message, "'message' cannot be null");
+        requireNonNull(failure, "'failure' cannot be null");
+
+        return marker(message) != null && (failure instanceof ResourceAccessException || failure instanceof HttpServerErrorException);
+    }
+
+    /**
+     * Searches recent messages of the message's room for its marker
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param message
+     *         message returned by {@link #mark(Message)}
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @return {@link Optional} with the posted message or empty {@link Optional} if the message was not posted
+     * @throws RestClientException
+     *         when recent messages cannot be listed, so it is not known whether the message was posted
+     */
+    @NotNull
+    public Optional<Message> findPosted(@NotNull final String botAccessToken, @NotNull final Message message, @NotNull final Deadline deadline) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(message, "'message' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
+        final String marker = marker(message);
+        if (marker == null) {
+            throw new IllegalArgumentException("Message is not marked for reconciliation");
+        }
+        final Messages recent = teamsRestHttpClient.sendUncachedGetRequest(
+                String.format(URL_RECENT_MESSAGES_PATTERN, message.getRoomId(), Math.max(1, configuration.getReconciliationLookbackMessages())),
+                botAccessToken, Messages.class, deadline).getBody();
+        if (recent == null || recent.getItems() == null) {
+            throw new RestClientException("Recent messages of room '" + message.getRoomId() + "' were not returned");
+        }
+        return recent.getItems().stream()
+                .filter(item -> contains(item.getMarkdown(), marker) || contains(item.getText(), marker))
+                .findFirst();
+    }
+
+    /**
+     * @return maximal number of times the message is posted again after ambiguous failure
+     */
+    public int getMaxRetries() {
+        return configuration.isReconciliationEnabled() ? Math.max(0, configuration.getReconciliationMaxRetries()) : 0;
+    }
+
+    private static String withMarker(final String content, final String marker) {
+        return content == null ? null : content + MARKER_SEPARATOR + marker;
+    }
+
+    private static String marker(final Message message) {
+        final String content = message.getMarkdown() != null ? message.getMarkdown() : message.getText();
+        if (content == null) {
+            return null;
+        }
+        final Matcher matcher = MARKER.matcher(content);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static boolean contains(final String content, final String marker) {
+        return content != null && content.contains(marker);
+    }
+}
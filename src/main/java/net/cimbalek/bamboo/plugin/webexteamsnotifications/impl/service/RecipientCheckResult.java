@@ -0,0 +1,98 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Result of reachability check of one distinct recipient (bot token and room) used by one or more notification rules
+ */
+public class RecipientCheckResult {
+
+    private final String tokenFingerprint;
+    private final String roomIdentifier;
+    private final int ruleCount;
+    private final RecipientCheckStatus status;
+    private final long durationMillis;
+
+    /**
+     * Constructs new instance of {@link RecipientCheckResult}
+     *
+     * @param tokenFingerprint
+     *         fingerprint of bot access token
+     * @param roomIdentifier
+     *         room identifier or title (name)
+     * @param ruleCount
+     *         number of notification rules using the recipient
+     * @param status
+     *         result of the check
+     * @param durationMillis
+     *         how long the check took
+     */
+    public RecipientCheckResult(@NotNull final String tokenFingerprint, @NotNull final String roomIdentifier, final int ruleCount,
+                                @NotNull final RecipientCheckStatus status, final long durationMillis) {
+        this.tokenFingerprint = requireNonNull(tokenFingerprint, "'tokenFingerprint' cannot be null");
+        this.roomIdentifier = requireNonNull(roomIdentifier, "'roomIdentifier' cannot be null");
+        this.ruleCount = ruleCount;
+        this.status = requireNonNull(status, "'status' cannot be null");
+        this.durationMillis = durationMillis;
+    }
+
+    @NotNull
+    public String getTokenFingerprint() {
+        return tokenFingerprint;
+    }
+
+    @NotNull
+    public String getRoomIdentifier() {
+        return roomIdentifier;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    @NotNull
+    public RecipientCheckStatus getStatus() {
+        return status;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RecipientCheckResult that = (RecipientCheckResult) o;
+        return ruleCount == that.ruleCount &&
+                durationMillis == that.durationMillis &&
+                Objects.equals(tokenFingerprint, that.tokenFingerprint) &&
+                Objects.equals(roomIdentifier, that.roomIdentifier) &&
+                status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tokenFingerprint, roomIdentifier, ruleCount, status, durationMillis);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "RecipientCheckResult{", "}")
+                .add("tokenFingerprint='" + tokenFingerprint + "'")
+                .add("roomIdentifier='" + roomIdentifier + "'")
+                .add("ruleCount=" + ruleCount)
+                .add("status=" + status)
+                .add("durationMillis=" + durationMillis)
+                .toString();
+    }
+}
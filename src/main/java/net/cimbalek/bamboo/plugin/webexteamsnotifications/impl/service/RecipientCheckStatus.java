@@ -0,0 +1,36 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Result of reachability check of single recipient (bot token and room)
+ */
+public enum RecipientCheckStatus {
+    TOKEN_REFUSED,
+    ACCESS_DENIED,
+    ROOM_NOT_FOUND,
+    THROTTLED,
+    UNREACHABLE,
+    TIMED_OUT,
+    OK;
+
+    /**
+     * @return check status corresponding to client error returned by Webex Teams API
+     */
+    @NotNull
+    public static RecipientCheckStatus of(@NotNull final HttpStatus status) {
+        switch (status) {
+            case UNAUTHORIZED:
+                return TOKEN_REFUSED;
+            case FORBIDDEN:
+                return ACCESS_DENIED;
+            case NOT_FOUND:
+                return ROOM_NOT_FOUND;
+            case TOO_MANY_REQUESTS:
+                return THROTTLED;
+            default:
+                return UNREACHABLE;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Person;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.DeadlineExceededException;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Checks reachability of all configured recipients in parallel.
+ * <p>
+ * Recipients of all notification rules are de-duplicated by bot token and room. Every token is verified once ({@code GET people/me})
+ * and rooms are looked up only for accepted tokens, all with bounded parallelism. When Webex Teams API throttles requests ({@code 429})
+ * the whole check pauses for the time requested by the API and the request is retried.
+ */
+@Component
+public class RecipientHealthCheck implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipientHealthCheck.class);
+
+    private static final String URL_PEOPLE_ME = "people/me";
+    private static final int MAX_THROTTLED_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 5_000L;
+    private static final long MAX_RETRY_AFTER_MILLIS = 60_000L;
+    private static final long IDLE_WORKER_SECONDS = 10L;
+
+    private final RecipientSettingsRepository recipientSettingsRepository;
+    private final TeamsRoomService teamsRoomService;
+    private final TeamsRestHttpClient teamsRestHttpClient;
+    private final RecipientHealthRegistry recipientHealthRegistry;
+    private final TeamsNotificationsConfiguration configuration;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong pausedUntil = new AtomicLong();
+
+    private volatile HealthCheckScan lastScan;
+
+    /**
+     * Constructs new instance of {@link RecipientHealthCheck}
+     */
+    @Autowired
+    public RecipientHealthCheck(@NotNull final RecipientSettingsRepository recipientSettingsRepository,
+                                @NotNull final TeamsRoomService teamsRoomService,
+                                @NotNull final TeamsRestHttpClient teamsRestHttpClient,
+                                @NotNull final RecipientHealthRegistry recipientHealthRegistry,
+                                @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.recipientSettingsRepository = requireNonNull(recipientSettingsRepository, "'recipientSettingsRepository' cannot be null");
+        this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
+        this.teamsRestHttpClient = requireNonNull(teamsRestHttpClient, "'teamsRestHttpClient' cannot be null");
+        this.recipientHealthRegistry = requireNonNull(recipientHealthRegistry, "'recipientHealthRegistry' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+        final int parallelism = Math.max(1, configuration.getHealthCheckParallelism());
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, IDLE_WORKER_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "webex-teams-health-check");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts check of all configured recipients in background, results are added to the returned scan as they come
+     *
+     * @return started scan, or the previous one if it is still running
+     */
+    @NotNull
+    public synchronized HealthCheckScan start() {
+        final HealthCheckScan runningScan = lastScan;
+        if (runningScan != null && !runningScan.isFinished()) {
+            return runningScan;
+        }
+        final Map<String, Map<String, Integer>> recipients = new LinkedHashMap<>();
+        int ruleCount = 0;
+        for (final TeamsBotNotificationSettings settings : recipientSettingsRepository.findAll()) {
+            recipients.computeIfAbsent(settings.getBotAccessToken(), token -> new LinkedHashMap<>())
+                    .merge(settings.getRoomIdentifier(), 1, Integer::sum);
+            ruleCount++;
+        }
+        final int recipientCount = recipients.values().stream().mapToInt(Map::size).sum();
+        final HealthCheckScan scan = new HealthCheckScan(recipientCount, ruleCount);
+        final Deadline deadline = Deadline.after(TimeUnit.SECONDS.toMillis(configuration.getHealthCheckTimeoutSeconds()));
+        logger.info("Checking {} Webex Teams recipients of {} bots used by {} notification rules.", recipientCount, recipients.size(), ruleCount);
+        lastScan = scan;
+        for (final Map.Entry<String, Map<String, Integer>> entry : recipients.entrySet()) {
+            submit(() -> checkToken(scan, entry.getKey(), entry.getValue(), deadline), scan, entry.getKey(), entry.getValue());
+        }
+        return scan;
+    }
+
+    /**
+     * @return the last started scan, empty if there was none since the plugin started
+     */
+    @NotNull
+    public Optional<HealthCheckScan> getLastScan() {
+        return Optional.ofNullable(lastScan);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void checkToken(final HealthCheckScan scan, final String botToken, final Map<String, Integer> rooms, final Deadline deadline) {
+        final long start = System.nanoTime();
+        final RecipientCheckStatus tokenStatus = withBackOff(deadline, () -> verifyToken(botToken, deadline));
+        if (tokenStatus != RecipientCheckStatus.OK) {
+            addResults(scan, botToken, rooms, tokenStatus, start);
+            return;
+        }
+        for (final Map.Entry<String, Integer> room : rooms.entrySet()) {
+            submit(() -> checkRoom(scan, botToken, room.getKey(), room.getValue(), deadline),
+                    scan, botToken, Collections.singletonMap(room.getKey(), room.getValue()));
+        }
+    }
+
+    private void checkRoom(final HealthCheckScan scan, final String botToken, final String room, final int ruleCount, final Deadline deadline) {
+        final long start = System.nanoTime();
+        final RecipientCheckStatus status = withBackOff(deadline, () -> teamsRoomService.verifyByIdentifierOrName(botToken, room, deadline));
+        scan.addResult(new RecipientCheckResult(BotTokens.fingerprint(botToken), room, ruleCount, status, millisSince(start)));
+    }
+
+    private RecipientCheckStatus verifyToken(final String botToken, final Deadline deadline) {
+        try {
+            teamsRestHttpClient.sendGetRequest(URL_PEOPLE_ME, botToken, Person.class, deadline);
+            return RecipientCheckStatus.OK;
+        } catch (final HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                throw e;
+            }
+            if (e.getStatusCode() == HttpStatus.UNAUTHORIZED || e.getStatusCode() == HttpStatus.FORBIDDEN) {
+                recipientHealthRegistry.recordFailure(botToken, null, HttpStatus.UNAUTHORIZED);
+                return RecipientCheckStatus.TOKEN_REFUSED;
+            }
+            return RecipientCheckStatus.UNREACHABLE;
+        } catch (final DeadlineExceededException e) {
+            return RecipientCheckStatus.TIMED_OUT;
+        } catch (final RestClientException e) {
+            logger.debug("Cannot verify bot '{}'", BotTokens.fingerprint(botToken), e);
+            return RecipientCheckStatus.UNREACHABLE;
+        }
+    }
+
+    private RecipientCheckStatus withBackOff(final Deadline deadline, final Supplier<RecipientCheckStatus> check) {
+        for (int attempt = 1; ; attempt++) {
+            if (!awaitPause(deadline)) {
+                return RecipientCheckStatus.TIMED_OUT;
+            }
+            try {
+                return check.get();
+            } catch (final HttpClientErrorException e) {
+                if (e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS) {
+                    throw e;
+                }
+                final long retryAfterMillis = retryAfterMillis(e);
+                pausedUntil.accumulateAndGet(System.currentTimeMillis() + retryAfterMillis, Math::max);
+                logger.info("Health check throttled by Webex Teams API, pausing for {} ms.", retryAfterMillis);
+                if (attempt >= MAX_THROTTLED_ATTEMPTS) {
+                    return RecipientCheckStatus.THROTTLED;
+                }
+            }
+        }
+    }
+
+    private boolean awaitPause(final Deadline deadline) {
+        long pause = pausedUntil.get() - System.currentTimeMillis();
+        while (pause > 0) {
+            if (pause >= deadline.remainingMillis()) {
+                return false;
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            pause = pausedUntil.get() - System.currentTimeMillis();
+        }
+        return !deadline.isExpired();
+    }
+
+    private void submit(final Runnable check, final HealthCheckScan scan, final String botToken, final Map<String, Integer> rooms) {
+        final long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    check.run();
+                } catch (final RuntimeException e) {
+                    logger.error("Health check of bot '{}' failed.", BotTokens.fingerprint(botToken), e);
+                    addResults(scan, botToken, rooms, RecipientCheckStatus.UNREACHABLE, start);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            addResults(scan, botToken, rooms, RecipientCheckStatus.TIMED_OUT, start);
+        }
+    }
+
+    private static void addResults(final HealthCheckScan scan, final String botToken, final Map<String, Integer> rooms,
+                                   final RecipientCheckStatus status, final long start) {
+        final String tokenFingerprint = BotTokens.fingerprint(botToken);
+        for (final Map.Entry<String, Integer> room : rooms.entrySet()) {
+            scan.addResult(new RecipientCheckResult(tokenFingerprint, room.getKey(), room.getValue(), status, millisSince(start)));
+        }
+    }
+
+    private static long retryAfterMillis(final HttpClientErrorException e) {
+        final String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null;
+        if (retryAfter != null) {
+            try {
+                return Math.min(MAX_RETRY_AFTER_MILLIS, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+            } catch (final NumberFormatException ignored) {
+                // HTTP date is not used by Webex Teams API
+            }
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+
+    private static long millisSince(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
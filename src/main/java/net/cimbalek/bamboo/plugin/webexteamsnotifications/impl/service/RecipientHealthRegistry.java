@@ -0,0 +1,163 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Negative cache of recipients refused by Webex Teams API.
+ * <p>
+ * Recipient refused several times in a row is broken, it is not contacted until its re-check time and the re-check interval doubles with
+ * every further failure. Invalid token ({@code 401}) breaks all rooms of the bot. Messages are refused by the resolved room identifier,
+ * lookups by the configured room identifier or title. At most {@value #MAX_RECIPIENTS} recipients are remembered, the least recently used
+ * ones are forgotten and simply contacted again.
+ */
+@Component
+public class RecipientHealthRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipientHealthRegistry.class);
+
+    private static final String ANY_ROOM = "";
+    private static final int MAX_RECIPIENTS = 1000;
+
+    private final TeamsNotificationsConfiguration configuration;
+    private final int failureThreshold;
+    private final Map<String, BrokenRecipient> refusedRecipients = new LinkedHashMap<String, BrokenRecipient>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, BrokenRecipient> eldest) {
+            return size() > MAX_RECIPIENTS;
+        }
+    };
+
+    /**
+     * Constructs new instance of {@link RecipientHealthRegistry}
+     */
+    @Autowired
+    public RecipientHealthRegistry(@NotNull final TeamsNotificationsConfiguration configuration) {
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+        this.failureThreshold = Math.max(1, configuration.getNegativeCacheFailureThreshold());
+    }
+
+    /**
+     * @return true if API response with given status means broken recipient configuration
+     */
+    public static boolean isBrokenStatus(@NotNull final HttpStatus status) {
+        return status == HttpStatus.UNAUTHORIZED || status == HttpStatus.FORBIDDEN || status == HttpStatus.NOT_FOUND;
+    }
+
+    /**
+     * @return true if recipient (or its whole token) is broken and its re-check time has not come yet
+     */
+    public synchronized boolean isSuppressed(@NotNull final String botAccessToken, @NotNull final String roomIdentifier) {
+        final long now = System.currentTimeMillis();
+        return isSuppressed(broken(key(botAccessToken, ANY_ROOM)), now) || isSuppressed(broken(key(botAccessToken, roomIdentifier)), now);
+    }
+
+    /**
+     * @return state of broken recipient (or its whole token), empty if recipient is considered healthy
+     */
+    @NotNull
+    public synchronized Optional<BrokenRecipient> getBrokenRecipient(@NotNull final String botAccessToken, @NotNull final String roomIdentifier) {
+        final BrokenRecipient tokenState = broken(key(botAccessToken, ANY_ROOM));
+        return Optional.ofNullable(tokenState != null ? tokenState : broken(key(botAccessToken, roomIdentifier)));
+    }
+
+    /**
+     * @return all currently broken recipients
+     */
+    @NotNull
+    public synchronized Collection<BrokenRecipient> getBrokenRecipients() {
+        return refusedRecipients.values().stream()
+                .filter(this::isBroken)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Records refused request, {@code 401} is recorded for the whole token. The recipient is broken when it is refused as many times in a
+     * row as the configured threshold.
+     *
+     * @param botAccessToken
+     *         token used for the request
+     * @param roomIdentifier
+     *         room the request was related to, null if the request was not related to a room
+     * @param status
+     *         status returned by API
+     */
+    public void recordFailure(@NotNull final String botAccessToken, @Nullable final String roomIdentifier, @NotNull final HttpStatus status) {
+        requireNonNull(status, "'status' cannot be null");
+
+        final String room = status == HttpStatus.UNAUTHORIZED || roomIdentifier == null ? ANY_ROOM : roomIdentifier;
+        final long now = System.currentTimeMillis();
+        final String key = key(botAccessToken, room);
+        final BrokenRecipient brokenRecipient;
+        synchronized (this) {
+            final BrokenRecipient previous = refusedRecipients.get(key);
+            final int failures = previous == null ? 1 : previous.getFailures() + 1;
+            final long brokenSince = previous == null ? now : previous.getBrokenSince();
+            brokenRecipient = new BrokenRecipient(BotTokens.fingerprint(botAccessToken), room.isEmpty() ? null : room, status.value(), failures,
+                    brokenSince, now + recheckInterval(failures));
+            refusedRecipients.put(key, brokenRecipient);
+        }
+        if (brokenRecipient.getFailures() == failureThreshold) {
+            logger.warn("Recipient '{}' was refused by Webex Teams API with status {}, it will be re-checked at {}.", brokenRecipient,
+                    status.value(), new Date(brokenRecipient.getNextCheckAt()));
+        }
+    }
+
+    /**
+     * Records successful request, recipient (and its token) is considered healthy again
+     */
+    public void recordSuccess(@NotNull final String botAccessToken, @NotNull final String roomIdentifier) {
+        final BrokenRecipient tokenState;
+        final BrokenRecipient roomState;
+        synchronized (this) {
+            tokenState = refusedRecipients.remove(key(botAccessToken, ANY_ROOM));
+            roomState = refusedRecipients.remove(key(botAccessToken, roomIdentifier));
+        }
+        if (tokenState != null && isBroken(tokenState) || roomState != null && isBroken(roomState)) {
+            logger.info("Recipient '{}' of bot '{}' is reachable again.", roomIdentifier, BotTokens.fingerprint(botAccessToken));
+        }
+    }
+
+    private BrokenRecipient broken(final String key) {
+        final BrokenRecipient refused = refusedRecipients.get(key);
+        return refused != null && isBroken(refused) ? refused : null;
+    }
+
+    private boolean isBroken(final BrokenRecipient refused) {
+        return refused.getFailures() >= failureThreshold;
+    }
+
+    private boolean isSuppressed(final BrokenRecipient brokenRecipient, final long now) {
+        return brokenRecipient != null && now < brokenRecipient.getNextCheckAt();
+    }
+
+    private long recheckInterval(final int failures) {
+        final long initial = configuration.getNegativeCacheInitialRecheckMillis();
+        final long max = configuration.getNegativeCacheMaxRecheckMillis();
+        final int exponent = Math.max(0, Math.min(failures - failureThreshold, 30));
+        return Math.min(max, initial << exponent);
+    }
+
+    private String key(final String botAccessToken, final String roomIdentifier) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifier, "'roomIdentifier' cannot be null");
+        return BotTokens.fingerprint(botAccessToken) + ' ' + roomIdentifier;
+    }
+}
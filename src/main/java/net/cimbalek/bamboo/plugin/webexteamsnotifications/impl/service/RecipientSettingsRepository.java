@@ -0,0 +1,71 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bamboo.notification.NotificationManager;
+import com.atlassian.bamboo.notification.NotificationRule;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Read-only access to settings of all Webex Teams recipients configured in Bamboo notification rules
+ */
+@Component
+public class RecipientSettingsRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipientSettingsRepository.class);
+
+    /**
+     * Complete key of the recipient module, see atlassian-plugin.xml
+     */
+    public static final String RECIPIENT_TYPE = "net.cimbalek.bamboo.plugin.WebexTeamsNotifications:recipient.teams";
+
+    private final NotificationManager notificationManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructs new instance of {@link RecipientSettingsRepository}
+     */
+    @Autowired
+    public RecipientSettingsRepository(@NotNull @ComponentImport final NotificationManager notificationManager) {
+        this.notificationManager = requireNonNull(notificationManager, "'notificationManager' cannot be null");
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * @return settings of all configured Webex Teams recipients with both bot token and room filled
+     */
+    @NotNull
+    public List<TeamsBotNotificationSettings> findAll() {
+        final List<TeamsBotNotificationSettings> result = new ArrayList<>();
+        for (final NotificationRule notificationRule : notificationManager.getAllNotificationRules()) {
+            if (RECIPIENT_TYPE.equals(notificationRule.getRecipientType()) && notificationRule.getRecipient() != null) {
+                readSettings(notificationRule, result);
+            }
+        }
+        return result;
+    }
+
+    private void readSettings(final NotificationRule notificationRule, final List<TeamsBotNotificationSettings> result) {
+        try {
+            final TeamsBotNotificationSettings settings = objectMapper.readValue(notificationRule.getRecipient(), TeamsBotNotificationSettings.class);
+            if (settings.getBotAccessToken() != null && settings.getRoomIdentifier() != null) {
+                result.add(settings);
+            }
+        } catch (final IOException e) {
+            logger.warn("Cannot read settings of notification rule {}.", notificationRule.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Short-lived cache of room checks of the recipient edit form.
+ * <p>
+ * The form checks the recipient in background while user types, saving the form then reuses the fresh result instead of calling
+ * Webex Teams API again inside the submit request. Concurrent checks of the same recipient share single round trip. Transient
+ * failures (throttling, unreachable API, timeout) are not cached. Results are not recorded in {@link RecipientHealthRegistry}, half typed
+ * values must not suppress delivery to configured recipients.
+ */
+@Component
+public class RecipientValidationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipientValidationCache.class);
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final Set<RecipientCheckStatus> TRANSIENT_STATUSES = EnumSet.of(RecipientCheckStatus.THROTTLED,
+            RecipientCheckStatus.UNREACHABLE, RecipientCheckStatus.TIMED_OUT);
+
+    private final TeamsRoomService teamsRoomService;
+    private final TeamsNotificationsConfiguration configuration;
+    private final ConcurrentMap<String, Entry> checks = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs new instance of {@link RecipientValidationCache}
+     */
+    @Autowired
+    public RecipientValidationCache(@NotNull final TeamsRoomService teamsRoomService,
+                                    @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    /**
+     * Checks that the room can be reached with bot access token, fresh result of previous check is reused
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name)
+     * @return status of the check
+     */
+    @NotNull
+    public RecipientCheckStatus check(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifierOrName, "'roomIdentifierOrName' cannot be null");
+
+        final String key = botAccessToken + '\n' + roomIdentifierOrName;
+        while (true) {
+            final long now = System.currentTimeMillis();
+            final Entry entry = checks.get(key);
+            if (entry != null && !entry.isExpired(now)) {
+                return await(entry);
+            }
+            final Entry checking = new Entry(now + TimeUnit.SECONDS.toMillis(configuration.getValidationCacheTtlSeconds()));
+            if (entry == null ? checks.putIfAbsent(key, checking) == null : checks.replace(key, entry, checking)) {
+                evictOverflow(now);
+                run(key, botAccessToken, roomIdentifierOrName, checking);
+                return await(checking);
+            }
+        }
+    }
+
+    private void run(final String key, final String botAccessToken, final String roomIdentifierOrName, final Entry entry) {
+        RecipientCheckStatus status;
+        try {
+            status = teamsRoomService.validateByIdentifierOrName(botAccessToken, roomIdentifierOrName,
+                    Deadline.after(configuration.getHttpSocketTimeoutMillis()));
+        } catch (final HttpClientErrorException e) {
+            status = RecipientCheckStatus.of(e.getStatusCode());
+        } catch (final RuntimeException e) {
+            logger.debug("Check of room '{}' of bot '{}' failed.", roomIdentifierOrName, BotTokens.fingerprint(botAccessToken), e);
+            status = RecipientCheckStatus.UNREACHABLE;
+        }
+        if (TRANSIENT_STATUSES.contains(status)) {
+            checks.remove(key, entry);
+        }
+        entry.status.complete(status);
+    }
+
+    private RecipientCheckStatus await(final Entry entry) {
+        try {
+            return entry.status.get(configuration.getHttpSocketTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (final ExecutionException e) {
+            return RecipientCheckStatus.UNREACHABLE;
+        } catch (final TimeoutException e) {
+            return RecipientCheckStatus.TIMED_OUT;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RecipientCheckStatus.TIMED_OUT;
+        }
+    }
+
+    private void evictOverflow(final long now) {
+        if (checks.size() <= MAX_ENTRIES) {
+            return;
+        }
+        checks.values().removeIf(entry -> entry.isExpired(now));
+        while (checks.size() > MAX_ENTRIES) {
+            checks.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                    .ifPresent(eldest -> checks.remove(eldest.getKey(), eldest.getValue()));
+        }
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<RecipientCheckStatus> status = new CompletableFuture<>();
+        private final long expiresAt;
+
+        private Entry(final long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= expiresAt;
+        }
+    }
+}
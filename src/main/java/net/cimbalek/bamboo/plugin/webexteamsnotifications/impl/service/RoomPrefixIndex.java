@@ -0,0 +1,154 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.jetbrains.annotations.NotNull;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable index of rooms of one bot answering prefix queries from memory.
+ * <p>
+ * Every word of a room title is indexed, so query {@code "rel"} finds both "Release team" and "Bamboo releases". The keys (lower case
+ * title suffixes starting at a word) are kept in one sorted array and a query is a binary search followed by scan of the matching range.
+ * Rooms whose title starts with the query come first.
+ */
+public final class RoomPrefixIndex {
+
+    private static final Comparator<Room> BY_TITLE = Comparator.comparing(RoomPrefixIndex::normalizedTitle);
+
+    private final Room[] rooms;
+    private final String[] keys;
+    private final int[] keyRooms;
+    private final boolean[] keyTitleStarts;
+
+    /**
+     * Constructs new index of given rooms
+     *
+     * @param rooms
+     *         rooms of the bot, rooms without title are ignored
+     */
+    public RoomPrefixIndex(@NotNull final Collection<Room> rooms) {
+        requireNonNull(rooms, "'rooms' cannot be null");
+
+        this.rooms = rooms.stream()
+                .filter(room -> room != null && room.getId() != null && room.getTitle() != null)
+                .sorted(BY_TITLE)
+                .toArray(Room[]::new);
+
+        final List<Key> keyList = new ArrayList<>();
+        for (int room = 0; room < this.rooms.length; room++) {
+            final String title = normalizedTitle(this.rooms[room]);
+            for (int position = 0; position < title.length(); position++) {
+                if (isWordStart(title, position)) {
+                    keyList.add(new Key(title.substring(position), room, position == 0));
+                }
+            }
+        }
+        keyList.sort(Comparator.comparing((Key key) -> key.value).thenComparingInt(key -> key.room));
+
+        keys = new String[keyList.size()];
+        keyRooms = new int[keyList.size()];
+        keyTitleStarts = new boolean[keyList.size()];
+        for (int index = 0; index < keys.length; index++) {
+            final Key key = keyList.get(index);
+            keys[index] = key.value;
+            keyRooms[index] = key.room;
+            keyTitleStarts[index] = key.titleStart;
+        }
+    }
+
+    /**
+     * Finds rooms having a word of title starting with the query, case insensitive
+     *
+     * @param query
+     *         typed beginning of room title or of any of its words, blank query matches all rooms
+     * @param limit
+     *         maximal number of returned rooms
+     * @return matching rooms, the ones whose title starts with the query first, otherwise sorted by title
+     */
+    @NotNull
+    public List<Room> find(@NotNull final String query, final int limit) {
+        requireNonNull(query, "'query' cannot be null");
+
+        final String prefix = query.trim().toLowerCase(Locale.ROOT);
+        final List<Room> result = new ArrayList<>(Math.min(Math.max(limit, 0), rooms.length));
+        if (prefix.isEmpty()) {
+            for (int room = 0; room < rooms.length && result.size() < limit; room++) {
+                result.add(rooms[room]);
+            }
+            return result;
+        }
+
+        final int from = lowerBound(prefix);
+        int to = from;
+        while (to < keys.length && keys[to].startsWith(prefix)) {
+            to++;
+        }
+        final boolean[] added = new boolean[rooms.length];
+        for (int index = from; index < to && result.size() < limit; index++) {
+            if (keyTitleStarts[index]) {
+                added[keyRooms[index]] = true;
+                result.add(rooms[keyRooms[index]]);
+            }
+        }
+        final int titleStartMatches = result.size();
+        for (int index = from; index < to && result.size() < limit; index++) {
+            if (!added[keyRooms[index]]) {
+                added[keyRooms[index]] = true;
+                result.add(rooms[keyRooms[index]]);
+            }
+        }
+        result.subList(titleStartMatches, result.size()).sort(BY_TITLE);
+        return result;
+    }
+
+    /**
+     * @return number of indexed rooms
+     */
+    public int size() {
+        return rooms.length;
+    }
+
+    private int lowerBound(final String prefix) {
+        final int index = Arrays.binarySearch(keys, prefix);
+        return index >= 0 ? firstOf(index) : -index - 1;
+    }
+
+    private int firstOf(final int index) {
+        int first = index;
+        while (first > 0 && keys[first - 1].equals(keys[index])) {
+            first--;
+        }
+        return first;
+    }
+
+    private static boolean isWordStart(final String title, final int position) {
+        return position == 0
+                || Character.isLetterOrDigit(title.charAt(position)) && !Character.isLetterOrDigit(title.charAt(position - 1));
+    }
+
+    private static String normalizedTitle(final Room room) {
+        return room.getTitle().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Key {
+
+        private final String value;
+        private final int room;
+        private final boolean titleStart;
+
+        private Key(final String value, final int room, final boolean titleStart) {
+            this.value = value;
+            this.room = room;
+            this.titleStart = titleStart;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.DeadlineExceededException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Room suggestions of the recipient edit form served from per-token {@link RoomPrefixIndex}.
+ * <p>
+ * Rooms of a bot are listed from Webex Teams API once per configured time to live, so typing into the room field does not call the API
+ * on every keystroke. Concurrent requests of the same token wait for single listing, failed listings are not cached.
+ */
+@Component
+public class RoomSuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomSuggestionIndex.class);
+
+    private final TeamsRoomService teamsRoomService;
+    private final TeamsNotificationsConfiguration configuration;
+    private final ConcurrentMap<String, Entry> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs new instance of {@link RoomSuggestionIndex}
+     */
+    @Autowired
+    public RoomSuggestionIndex(@NotNull final TeamsRoomService teamsRoomService, @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.teamsRoomService = requireNonNull(teamsRoomService, "'teamsRoomService' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    /**
+     * Suggests rooms of the bot matching typed text, see {@link RoomPrefixIndex#find(String, int)}
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param query
+     *         typed beginning of room title or of any of its words
+     * @return matching rooms, at most {@link TeamsNotificationsConfiguration#getRoomSuggestionsMaxResults()}
+     * @throws RestClientException
+     *         when rooms of the bot cannot be listed
+     */
+    @NotNull
+    public List<Room> suggest(@NotNull final String botAccessToken, @NotNull final String query) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(query, "'query' cannot be null");
+
+        return getIndex(botAccessToken).find(query, configuration.getRoomSuggestionsMaxResults());
+    }
+
+    /**
+     * Forgets rooms of all bots, they are listed again with the next suggestion
+     */
+    public void invalidate() {
+        indexes.clear();
+    }
+
+    private RoomPrefixIndex getIndex(final String botAccessToken) {
+        while (true) {
+            final long now = System.currentTimeMillis();
+            final Entry entry = indexes.get(botAccessToken);
+            if (entry != null && !entry.isExpired(now)) {
+                return await(botAccessToken, entry);
+            }
+            final Entry loading = new Entry(now + TimeUnit.SECONDS.toMillis(configuration.getRoomSuggestionsTtlSeconds()));
+            if (entry == null ? indexes.putIfAbsent(botAccessToken, loading) == null : indexes.replace(botAccessToken, entry, loading)) {
+                evictOverflow();
+                load(botAccessToken, loading);
+                return await(botAccessToken, loading);
+            }
+        }
+    }
+
+    private void load(final String botAccessToken, final Entry entry) {
+        try {
+            final RoomPrefixIndex index = new RoomPrefixIndex(teamsRoomService.listRooms(botAccessToken,
+                    Deadline.after(configuration.getHttpSocketTimeoutMillis())));
+            logger.debug("Indexed {} rooms of bot '{}' for suggestions.", index.size(), BotTokens.fingerprint(botAccessToken));
+            entry.index.complete(index);
+        } catch (final RuntimeException e) {
+            indexes.remove(botAccessToken, entry);
+            entry.index.completeExceptionally(e);
+        }
+    }
+
+    private RoomPrefixIndex await(final String botAccessToken, final Entry entry) {
+        try {
+            return entry.index.get(configuration.getHttpSocketTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RestClientException) {
+                throw (RestClientException) e.getCause();
+            }
+            throw new RestClientException("Cannot list rooms of bot '" + BotTokens.fingerprint(botAccessToken) + "'", e.getCause());
+        } catch (final TimeoutException e) {
+            throw new DeadlineExceededException("Deadline exceeded while waiting for rooms of bot '"
+                    + BotTokens.fingerprint(botAccessToken) + "'");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while listing rooms of bot '" + BotTokens.fingerprint(botAccessToken) + "'", e);
+        }
+    }
+
+    private void evictOverflow() {
+        final int maxTokens = Math.max(1, configuration.getRoomSuggestionsMaxTokens());
+        while (indexes.size() > maxTokens) {
+            indexes.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                    .ifPresent(eldest -> indexes.remove(eldest.getKey(), eldest.getValue()));
+        }
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<RoomPrefixIndex> index = new CompletableFuture<>();
+        private final long expiresAt;
+
+        private Entry(final long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= expiresAt;
+        }
+    }
+}
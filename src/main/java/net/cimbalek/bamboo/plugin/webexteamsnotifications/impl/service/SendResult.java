@@ -0,0 +1,13 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+/**
+ * Result of sending message to the Webex Teams API
+ */
+public enum SendResult {
+    SENT,
+    /**
+     * the same message is delivered by another delivery (node or retry), it was not sent by this one
+     */
+    CLAIMED_ELSEWHERE,
+    FAILED
+}
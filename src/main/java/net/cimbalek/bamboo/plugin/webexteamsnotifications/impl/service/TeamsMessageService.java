@@ -1,13 +1,25 @@
 package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
 
+import java.util.Optional;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaim;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaims;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionStore;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
 
 import static java.util.Objects.requireNonNull;
@@ -18,41 +30,205 @@ import static java.util.Objects.requireNonNull;
 @Service
 public class TeamsMessageService {
 
-    private static final Logger logger = LoggerFactory.getLogger(TeamsRoomService.class);
+    private static final Logger logger = LoggerFactory.getLogger(TeamsMessageService.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
 
     private static final String URL_MESSAGES = "messages";
+    private static final String URL_MESSAGE_PATTERN = URL_MESSAGES + "/%s";
 
     private final TeamsRestHttpClient teamsRestHttpClient;
+    private final RecipientHealthRegistry recipientHealthRegistry;
+    private final BuildMessageRegistry buildMessageRegistry;
+    private final RoomResolutionStore roomResolutionStore;
+    private final DeliveryClaims deliveryClaims;
+    private final MessageReconciler messageReconciler;
 
     /**
      * Constructs new instance of the service {@link TeamsMessageService}
      */
     @Autowired
-    public TeamsMessageService(@NotNull final TeamsRestHttpClient teamsRestHttpClient) {
+    public TeamsMessageService(@NotNull final TeamsRestHttpClient teamsRestHttpClient,
+                               @NotNull final RecipientHealthRegistry recipientHealthRegistry,
+                               @NotNull final BuildMessageRegistry buildMessageRegistry,
+                               @NotNull final RoomResolutionStore roomResolutionStore,
+                               @NotNull final DeliveryClaims deliveryClaims,
+                               @NotNull final MessageReconciler messageReconciler) {
         this.teamsRestHttpClient = requireNonNull(teamsRestHttpClient, "'teamsRestHttpClient' cannot be null");
+        this.recipientHealthRegistry = requireNonNull(recipientHealthRegistry, "'recipientHealthRegistry' cannot be null");
+        this.buildMessageRegistry = requireNonNull(buildMessageRegistry, "'buildMessageRegistry' cannot be null");
+        this.roomResolutionStore = requireNonNull(roomResolutionStore, "'roomResolutionStore' cannot be null");
+        this.deliveryClaims = requireNonNull(deliveryClaims, "'deliveryClaims' cannot be null");
+        this.messageReconciler = requireNonNull(messageReconciler, "'messageReconciler' cannot be null");
+    }
+
+    /**
+     * Send given message to the Webex Teams API, messages for rooms known to be broken are not sent until their re-check time
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param message
+     *         message to send
+     * @return result of the sending
+     */
+    @NotNull
+    public SendResult sendMessage(@NotNull final String botAccessToken, @NotNull final Message message) {
+        return sendMessage(botAccessToken, message, null, Deadline.none());
     }
 
     /**
-     * Send given message to the Webex Teams API
+     * Send given message to the Webex Teams API giving up when the deadline is exceeded, messages for rooms known to be broken are not sent
+     * until their re-check time, messages claimed by another delivery ({@link DeliveryClaims}) are not sent again. Message whose sending
+     * failed ambiguously is sent again only when it is not found in the room ({@link MessageReconciler}).
      *
      * @param botAccessToken
      *         access token for Webex Teams API
      * @param message
      *         message to send
-     * @return true if message was successfully sent
+     * @param notificationKey
+     *         key of the notification the message belongs to, the message is claimed only when it is given
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @return result of the sending, {@link SendResult#CLAIMED_ELSEWHERE} if the message is delivered by another delivery
      */
-    public boolean sendMessage(@NotNull final String botAccessToken, @NotNull final Message message) {
+    @NotNull
+    public SendResult sendMessage(@NotNull final String botAccessToken, @NotNull final Message message, @Nullable final String notificationKey,
+                                  @NotNull final Deadline deadline) {
         requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
         requireNonNull(message, "'message' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
+        return postMessage(botAccessToken, message, notificationKey, deadline, null);
+    }
 
-        boolean result;
+    /**
+     * Edits status message already posted for given build into the message's room, if there is none (or it cannot be edited anymore) new
+     * message is posted and remembered for the following notifications of the build
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param message
+     *         message to send
+     * @param buildKey
+     *         key of the build the message belongs to
+     * @param notificationKey
+     *         key of the notification the message belongs to, new message is claimed only when it is given
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @return result of the editing or sending
+     */
+    @NotNull
+    public SendResult sendOrEditMessage(@NotNull final String botAccessToken, @NotNull final Message message, @NotNull final String buildKey,
+                                        @Nullable final String notificationKey, @NotNull final Deadline deadline) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(message, "'message' cannot be null");
+        requireNonNull(buildKey, "'buildKey' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
+        final String roomId = message.getRoomId() != null ? message.getRoomId() : "";
+        final Optional<String> messageId = buildMessageRegistry.findMessageId(roomId, buildKey);
+        if (messageId.isPresent() && editMessage(botAccessToken, messageId.get(), message, buildKey, deadline)) {
+            return SendResult.SENT;
+        }
+        return postMessage(botAccessToken, message, notificationKey, deadline, buildKey);
+    }
+
+    /**
+     * Posts new message, its id is remembered for the following notifications of the build when build key is given
+     */
+    private SendResult postMessage(final String botAccessToken, final Message message, @Nullable final String notificationKey,
+                                   final Deadline deadline, @Nullable final String buildKey) {
+        final String roomId = message.getRoomId() != null ? message.getRoomId() : "";
+        if (recipientHealthRegistry.isSuppressed(botAccessToken, roomId)) {
+            logger.debug("Skipping message for room '{}' of bot '{}', recipient is broken.", roomId, LogValues.token(botAccessToken));
+            return SendResult.FAILED;
+        }
+        final DeliveryClaim claim = deliveryClaims.claim(botAccessToken, roomId, notificationKey);
+        if (!claim.isGranted()) {
+            logger.debug("Skipping message for room '{}' of bot '{}', it is delivered by another node.", roomId,
+                    LogValues.token(botAccessToken));
+            return SendResult.CLAIMED_ELSEWHERE;
+        }
+        final Message outgoing = messageReconciler.mark(message);
+        Optional<Message> result;
+        try {
+            result = Optional.of(post(botAccessToken, outgoing, deadline));
+            recipientHealthRegistry.recordSuccess(botAccessToken, roomId);
+        } catch (final HttpClientErrorException e) {
+            if (RecipientHealthRegistry.isBrokenStatus(e.getStatusCode())) {
+                recipientHealthRegistry.recordFailure(botAccessToken, roomId, e.getStatusCode());
+                roomResolutionStore.forgetRoom(botAccessToken, roomId);
+            }
+            rateLimitedLog.warn(recipientKey(botAccessToken, roomId), "Cannot send message to room '{}' of bot '{}', status {}", roomId,
+                    LogValues.token(botAccessToken), e.getStatusCode());
+            deliveryClaims.release(claim);
+            result = Optional.empty();
+        } catch (final RestClientException e) {
+            result = reconcile(botAccessToken, outgoing, deadline, e);
+            if (result.isPresent()) {
+                recipientHealthRegistry.recordSuccess(botAccessToken, roomId);
+            } else {
+                rateLimitedLog.warn(recipientKey(botAccessToken, roomId), "Cannot send message to room '{}' of bot '{}': {}", roomId,
+                        LogValues.token(botAccessToken), e.getMessage());
+                logger.debug("Sending of message failed.", e);
+                deliveryClaims.release(claim);
+            }
+        }
+        if (buildKey != null) {
+            result.map(Message::getId).ifPresent(id -> buildMessageRegistry.register(roomId, buildKey, id));
+        }
+        return result.isPresent() ? SendResult.SENT : SendResult.FAILED;
+    }
+
+    private Message post(final String botAccessToken, final Message message, final Deadline deadline) {
+        final ResponseEntity<Message> response = teamsRestHttpClient.sendPostRequest(URL_MESSAGES, botAccessToken, Message.class, message,
+                deadline);
+        return response.getBody() != null ? response.getBody() : message;
+    }
+
+    /**
+     * Finds out whether message whose sending failed was posted anyway and sends it again if it was not
+     *
+     * @return {@link Optional} with the posted message or empty {@link Optional} if it was not posted or it is not known
+     */
+    private Optional<Message> reconcile(final String botAccessToken, final Message message, final Deadline deadline,
+                                        final RestClientException failure) {
+        RestClientException lastFailure = failure;
+        for (int retry = 0; retry < messageReconciler.getMaxRetries() && messageReconciler.canReconcile(message, lastFailure)
+                && !deadline.isExpired(); retry++) {
+            try {
+                final Optional<Message> posted = messageReconciler.findPosted(botAccessToken, message, deadline);
+                if (posted.isPresent()) {
+                    logger.debug("Message for room '{}' of bot '{}' was posted despite failure: {}", message.getRoomId(),
+                            LogValues.token(botAccessToken), lastFailure.getMessage());
+                    return posted;
+                }
+                logger.debug("Message for room '{}' of bot '{}' was not posted, sending it again.", message.getRoomId(),
+                        LogValues.token(botAccessToken));
+                return Optional.of(post(botAccessToken, message, deadline));
+            } catch (final RestClientException e) {
+                lastFailure = e;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean editMessage(final String botAccessToken, final String messageId, final Message message, final String buildKey,
+                                final Deadline deadline) {
         try {
-            teamsRestHttpClient.sendPostRequest(URL_MESSAGES, botAccessToken, String.class, message);
-            result = true;
+            teamsRestHttpClient.sendPutRequest(String.format(URL_MESSAGE_PATTERN, messageId), botAccessToken, Message.class, message, deadline);
+            return true;
+        } catch (final HttpClientErrorException e) {
+            // deleted message, message of another bot or too many edits, the build continues in new message
+            logger.debug("Cannot edit message '{}', status {}, posting new one.", messageId, e.getStatusCode());
+            buildMessageRegistry.remove(message.getRoomId(), buildKey);
+            return false;
         } catch (final RestClientException e) {
-            logger.warn("Cannot send message", e);
-            result = false;
+            logger.debug("Cannot edit message '{}', posting new one: {}", messageId, e.getMessage());
+            return false;
         }
-        return result;
+    }
+
+    private static String recipientKey(final String botAccessToken, final String roomId) {
+        return BotTokens.fingerprint(botAccessToken) + ':' + roomId;
     }
 }
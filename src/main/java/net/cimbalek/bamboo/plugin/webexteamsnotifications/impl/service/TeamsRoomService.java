@@ -1,44 +1,63 @@
 package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Rooms;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionStore;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.DeadlineExceededException;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * Service taking care of loading Webex Teams Rooms
+ * Service taking care of loading Webex Teams Rooms, rooms found for recipients are kept in {@link RoomResolutionStore}
  */
 @Service
 public class TeamsRoomService {
 
     private static final Logger logger = LoggerFactory.getLogger(TeamsRoomService.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
 
     private static final String URL_ROOMS = "rooms";
     private static final String URL_ROOM_PATTERN = URL_ROOMS + "/%s";
+    private static final String URL_ALL_ROOMS = URL_ROOMS + "?max=1000";
 
     private final TeamsRestHttpClient teamsRestHttpClient;
+    private final RecipientHealthRegistry recipientHealthRegistry;
+    private final RoomResolutionStore roomResolutionStore;
 
     /**
      * Constructs new instance of the service {@link TeamsRoomService}
      */
     @Autowired
-    public TeamsRoomService(@NotNull final TeamsRestHttpClient teamsRestHttpClient) {
+    public TeamsRoomService(@NotNull final TeamsRestHttpClient teamsRestHttpClient,
+                            @NotNull final RecipientHealthRegistry recipientHealthRegistry,
+                            @NotNull final RoomResolutionStore roomResolutionStore) {
         this.teamsRestHttpClient = requireNonNull(teamsRestHttpClient, "'teamsRestHttpClient' cannot be null");
+        this.recipientHealthRegistry = requireNonNull(recipientHealthRegistry, "'recipientHealthRegistry' cannot be null");
+        this.roomResolutionStore = requireNonNull(roomResolutionStore, "'roomResolutionStore' cannot be null");
     }
 
     /**
-     * Finds Room with bot access token by room identifier or title (name)
+     * Finds Room with bot access token by room identifier or title (name), recipients known to be broken are not looked up until their
+     * re-check time
      *
      * @param botAccessToken
      *         access token for Webex Teams API
@@ -48,46 +67,238 @@ public class TeamsRoomService {
      */
     @NotNull
     public Optional<Room> findByIdentifierOrName(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName) {
+        return findByIdentifierOrName(botAccessToken, roomIdentifierOrName, Deadline.none());
+    }
+
+    /**
+     * Finds Room with bot access token by room identifier or title (name) giving up when the deadline is exceeded, recipients known to be
+     * broken are not looked up until their re-check time, rooms found recently are taken from {@link RoomResolutionStore}. Rooms refused
+     * when messages are posted are recorded by their resolved identifier, so the resolved room is checked as well.
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name)
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @return {@link Optional} with found {@link Room} or empty {@link Optional} if room was not found in time
+     */
+    @NotNull
+    public Optional<Room> findByIdentifierOrName(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName,
+                                                 @NotNull final Deadline deadline) {
         requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
         requireNonNull(roomIdentifierOrName, "'roomIdentifier' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
 
-        logger.debug("Finding room by indentifier or name '{}' for bot access token '{}'.", roomIdentifierOrName, botAccessToken);
-        Optional<Room> result = findByIdentifier(botAccessToken, roomIdentifierOrName);
-        if (!result.isPresent()) {
-            result = findByName(botAccessToken, roomIdentifierOrName);
+        if (recipientHealthRegistry.isSuppressed(botAccessToken, roomIdentifierOrName)) {
+            logger.debug("Skipping lookup of room '{}' for bot '{}', recipient is broken.", roomIdentifierOrName,
+                    LogValues.token(botAccessToken));
+            return Optional.empty();
         }
-        logEmptyResult(botAccessToken, roomIdentifierOrName, result);
-        return result;
+        final Optional<Room> stored = roomResolutionStore.find(botAccessToken, roomIdentifierOrName);
+        if (stored.isPresent()) {
+            logger.debug("Room '{}' of bot '{}' resolved from store.", roomIdentifierOrName, LogValues.token(botAccessToken));
+            return unlessSuppressed(botAccessToken, roomIdentifierOrName, stored);
+        }
+        return unlessSuppressed(botAccessToken, roomIdentifierOrName, checkByIdentifierOrName(botAccessToken, roomIdentifierOrName, deadline));
+    }
+
+    private Optional<Room> unlessSuppressed(final String botAccessToken, final String roomIdentifierOrName, final Optional<Room> room) {
+        if (room.isPresent() && room.get().getId() != null && !roomIdentifierOrName.equals(room.get().getId())
+                && recipientHealthRegistry.isSuppressed(botAccessToken, room.get().getId())) {
+            logger.debug("Skipping room '{}' ('{}') for bot '{}', recipient is broken.", roomIdentifierOrName, room.get().getId(),
+                    LogValues.token(botAccessToken));
+            return Optional.empty();
+        }
+        return room;
+    }
+
+    /**
+     * Finds Room with bot access token by room identifier or title (name) even if the recipient is known to be broken, refreshing its state
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name)
+     * @return {@link Optional} with found {@link Room} or empty {@link Optional} if room was not found
+     */
+    @NotNull
+    public Optional<Room> checkByIdentifierOrName(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName) {
+        return checkByIdentifierOrName(botAccessToken, roomIdentifierOrName, Deadline.none());
     }
 
-    private Optional<Room> findByIdentifier(final String botAccessToken, final String roomIdentifier) {
+    private Optional<Room> checkByIdentifierOrName(final String botAccessToken, final String roomIdentifierOrName, final Deadline deadline) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifierOrName, "'roomIdentifier' cannot be null");
+
+        logger.debug("Finding room by indentifier or name '{}' for bot '{}'.", roomIdentifierOrName, LogValues.token(botAccessToken));
         Optional<Room> result;
         try {
-            final ResponseEntity<Room> roomResponseEntity = teamsRestHttpClient.sendGetRequest(
-                    String.format(URL_ROOM_PATTERN, roomIdentifier),
-                    botAccessToken,
-                    Room.class);
-            result = Optional.of(roomResponseEntity.getBody());
-        } catch (final RestClientException e) {
+            result = findByIdentifier(botAccessToken, roomIdentifierOrName, deadline);
+            if (!result.isPresent()) {
+                result = findByName(botAccessToken, roomIdentifierOrName, deadline);
+            }
+            if (result.isPresent()) {
+                recordFound(botAccessToken, roomIdentifierOrName, result.get());
+            } else {
+                recordNotFound(botAccessToken, roomIdentifierOrName);
+            }
+        } catch (final HttpClientErrorException e) {
             result = Optional.empty();
-            logger.debug("Cannot find room by identifier", e);
+            recordClientError(botAccessToken, roomIdentifierOrName, e);
+        } catch (final DeadlineExceededException e) {
+            rateLimitedLog.warn(recipientKey(botAccessToken, roomIdentifierOrName), "Lookup of room '{}' for bot '{}' abandoned, {}.",
+                    roomIdentifierOrName, LogValues.token(botAccessToken), e.getMessage());
+            return Optional.empty();
+        } catch (final RestClientException e) {
+            // transient failure (5xx, I/O, rejected request) says nothing about the recipient, nothing is recorded
+            rateLimitedLog.warn(recipientKey(botAccessToken, roomIdentifierOrName), "Lookup of room '{}' for bot '{}' failed: {}",
+                    roomIdentifierOrName, LogValues.token(botAccessToken), e.getMessage());
+            return Optional.empty();
         }
+        logEmptyResult(botAccessToken, roomIdentifierOrName, result);
         return result;
     }
 
-    private Optional<Room> findByName(final String botAccessToken, final String roomName) {
-        Optional<Room> result;
+    /**
+     * Checks that the room can be reached with bot access token, result is recorded in {@link RecipientHealthRegistry}
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name)
+     * @param deadline
+     *         time budget of the check
+     * @return status of the check
+     * @throws HttpClientErrorException
+     *         when Webex Teams API throttles requests ({@code 429}), so the caller can back off and retry
+     */
+    @NotNull
+    public RecipientCheckStatus verifyByIdentifierOrName(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName,
+                                                         @NotNull final Deadline deadline) {
+        return check(botAccessToken, roomIdentifierOrName, deadline, true);
+    }
+
+    /**
+     * Checks that the room can be reached with bot access token without recording the result, so values checked while they are typed in
+     * the recipient form never change state of delivered recipients
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param roomIdentifierOrName
+     *         room identifier or title (name)
+     * @param deadline
+     *         time budget of the check
+     * @return status of the check
+     * @throws HttpClientErrorException
+     *         when Webex Teams API throttles requests ({@code 429})
+     */
+    @NotNull
+    public RecipientCheckStatus validateByIdentifierOrName(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName,
+                                                           @NotNull final Deadline deadline) {
+        return check(botAccessToken, roomIdentifierOrName, deadline, false);
+    }
+
+    private RecipientCheckStatus check(final String botAccessToken, final String roomIdentifierOrName, final Deadline deadline,
+                                       final boolean record) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(roomIdentifierOrName, "'roomIdentifier' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
         try {
-            final ResponseEntity<Rooms> roomsResponseEntity = teamsRestHttpClient.sendGetRequest(
-                    URL_ROOMS,
-                    botAccessToken,
-                    Rooms.class);
-            result = findOneRoomByName(roomName, roomsResponseEntity.getBody());
+            Optional<Room> result = findByIdentifier(botAccessToken, roomIdentifierOrName, deadline);
+            if (!result.isPresent()) {
+                result = findByName(botAccessToken, roomIdentifierOrName, deadline);
+            }
+            if (result.isPresent()) {
+                if (record) {
+                    recordFound(botAccessToken, roomIdentifierOrName, result.get());
+                }
+                return RecipientCheckStatus.OK;
+            }
+            if (record) {
+                recordNotFound(botAccessToken, roomIdentifierOrName);
+            }
+            return RecipientCheckStatus.ROOM_NOT_FOUND;
+        } catch (final HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                throw e;
+            }
+            if (record) {
+                recordClientError(botAccessToken, roomIdentifierOrName, e);
+            }
+            return RecipientCheckStatus.of(e.getStatusCode());
+        } catch (final DeadlineExceededException e) {
+            return RecipientCheckStatus.TIMED_OUT;
         } catch (final RestClientException e) {
-            result = Optional.empty();
-            logger.debug("Cannot find room by name", e);
+            // 5xx, I/O error or rejected request, nothing is recorded; requests still running at the deadline are aborted with I/O error
+            logger.debug("Cannot check room '{}' of bot '{}': {}", roomIdentifierOrName, LogValues.token(botAccessToken), e.getMessage());
+            return deadline.isExpired() ? RecipientCheckStatus.TIMED_OUT : RecipientCheckStatus.UNREACHABLE;
         }
-        return result;
+    }
+
+    /**
+     * Lists all rooms the bot is member of
+     *
+     * @param botAccessToken
+     *         access token for Webex Teams API
+     * @param deadline
+     *         time budget of the listing
+     * @return rooms of the bot
+     * @throws RestClientException
+     *         when the rooms cannot be listed (e.g. the token is refused)
+     */
+    @NotNull
+    public List<Room> listRooms(@NotNull final String botAccessToken, @NotNull final Deadline deadline) {
+        requireNonNull(botAccessToken, "'botAccessToken' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
+        logger.debug("Listing rooms of bot '{}'.", LogValues.token(botAccessToken));
+        final Rooms rooms = teamsRestHttpClient.sendGetRequest(URL_ALL_ROOMS, botAccessToken, Rooms.class, deadline).getBody();
+        return rooms == null || rooms.getItems() == null ? Collections.emptyList() : rooms.getItems();
+    }
+
+    /**
+     * @return true if given recipient or the room it was resolved to is known to be refused by Webex Teams API
+     */
+    public boolean isBroken(@NotNull final String botAccessToken, @NotNull final String roomIdentifierOrName) {
+        if (recipientHealthRegistry.getBrokenRecipient(botAccessToken, roomIdentifierOrName).isPresent()) {
+            return true;
+        }
+        final Optional<Room> stored = roomResolutionStore.find(botAccessToken, roomIdentifierOrName);
+        return stored.isPresent() && recipientHealthRegistry.getBrokenRecipient(botAccessToken, stored.get().getId()).isPresent();
+    }
+
+    /**
+     * @return {@link Optional} with the room or empty {@link Optional} if there is no room with such identifier (e.g. it is title)
+     * @throws RestClientException
+     *         for any other failure, which must not be taken for missing room
+     */
+    private Optional<Room> findByIdentifier(final String botAccessToken, final String roomIdentifier, final Deadline deadline) {
+        try {
+            final ResponseEntity<Room> roomResponseEntity = teamsRestHttpClient.sendGetRequest(
+                    String.format(URL_ROOM_PATTERN, roomIdentifier),
+                    botAccessToken,
+                    Room.class,
+                    deadline);
+            return Optional.ofNullable(roomResponseEntity.getBody());
+        } catch (final HttpClientErrorException e) {
+            // title is not valid identifier, the API answers 404 or 400 for it
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND && e.getStatusCode() != HttpStatus.BAD_REQUEST) {
+                throw e;
+            }
+            logger.debug("Cannot find room by identifier, status {}", e.getStatusCode());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Room> findByName(final String botAccessToken, final String roomName, final Deadline deadline) {
+        final ResponseEntity<Rooms> roomsResponseEntity = teamsRestHttpClient.sendGetRequest(
+                URL_ROOMS,
+                botAccessToken,
+                Rooms.class,
+                deadline);
+        return findOneRoomByName(roomName, roomsResponseEntity.getBody());
     }
 
     private Optional<Room> findOneRoomByName(final String roomName, final Rooms rooms) {
@@ -96,9 +307,33 @@ public class TeamsRoomService {
                 .findAny();
     }
 
+    private void recordFound(final String botAccessToken, final String roomIdentifierOrName, final Room room) {
+        recipientHealthRegistry.recordSuccess(botAccessToken, roomIdentifierOrName);
+        roomResolutionStore.save(botAccessToken, roomIdentifierOrName, room);
+    }
+
+    private void recordNotFound(final String botAccessToken, final String roomIdentifierOrName) {
+        recipientHealthRegistry.recordFailure(botAccessToken, roomIdentifierOrName, HttpStatus.NOT_FOUND);
+        roomResolutionStore.forget(botAccessToken, roomIdentifierOrName);
+    }
+
+    private void recordClientError(final String botAccessToken, final String roomIdentifierOrName, final HttpClientErrorException e) {
+        if (RecipientHealthRegistry.isBrokenStatus(e.getStatusCode())) {
+            recipientHealthRegistry.recordFailure(botAccessToken, roomIdentifierOrName, e.getStatusCode());
+            roomResolutionStore.forget(botAccessToken, roomIdentifierOrName);
+        } else {
+            logger.debug("Cannot find room by name, status {}", e.getStatusCode());
+        }
+    }
+
     private void logEmptyResult(final String botAccessToken, final String roomIdentifierOrName, final Optional<Room> result) {
         if (!result.isPresent()) {
-            logger.warn("Room by identifier or name '{}' for bot access token '{}' was not found.", roomIdentifierOrName, botAccessToken);
+            rateLimitedLog.warn(recipientKey(botAccessToken, roomIdentifierOrName), "Room by identifier or name '{}' for bot '{}' was not found.",
+                    roomIdentifierOrName, LogValues.token(botAccessToken));
         }
     }
+
+    private static String recipientKey(final String botAccessToken, final String roomIdentifierOrName) {
+        return BotTokens.fingerprint(botAccessToken) + ':' + roomIdentifierOrName;
+    }
 }
@@ -0,0 +1,53 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Handle allowing another thread to abort HTTP request executed by the thread the handle is attached to
+ */
+final class AbortHandle {
+
+    private static final ThreadLocal<AbortHandle> CURRENT = new ThreadLocal<>();
+
+    private HttpUriRequest request;
+    private boolean aborted;
+
+    static AbortHandle current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return true if the handle attached to the current thread was aborted, i.e. failure of the request is caused by the abort
+     */
+    static boolean isCurrentAborted() {
+        final AbortHandle handle = CURRENT.get();
+        return handle != null && handle.isAborted();
+    }
+
+    void attach() {
+        CURRENT.set(this);
+    }
+
+    static void detach() {
+        CURRENT.remove();
+    }
+
+    synchronized void register(@NotNull final HttpUriRequest request) {
+        this.request = request;
+        if (aborted) {
+            request.abort();
+        }
+    }
+
+    synchronized void abort() {
+        aborted = true;
+        if (request != null) {
+            request.abort();
+        }
+    }
+
+    synchronized boolean isAborted() {
+        return aborted;
+    }
+}
@@ -0,0 +1,90 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Request factory registering created requests to {@link AbortHandle} of the current thread, so they can be aborted from another thread,
+ * and shortening their timeouts to the {@link Deadline} the current thread works under. Timeouts limit single connect or read only, so a
+ * response trickling in slowly is aborted when the deadline passes.
+ */
+class AbortableRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private static final ThreadLocal<Deadline> CURRENT_DEADLINE = new ThreadLocal<>();
+
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+
+    AbortableRequestFactory(final int connectTimeoutMillis, final int socketTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    /**
+     * Executes given call with requests limited by given deadline, requests still running when the deadline passes are aborted by given
+     * scheduler
+     */
+    static <T> T withDeadline(final Deadline deadline, @Nullable final ScheduledExecutorService scheduler, final Supplier<T> call) {
+        deadline.check("sending request");
+        final AbortHandle current = AbortHandle.current();
+        final AbortHandle handle = current != null ? current : new AbortHandle();
+        final ScheduledFuture<?> abort = scheduleAbort(deadline, scheduler, handle);
+        if (current == null && abort != null) {
+            handle.attach();
+        }
+        CURRENT_DEADLINE.set(deadline);
+        try {
+            return call.get();
+        } finally {
+            CURRENT_DEADLINE.remove();
+            if (abort != null) {
+                abort.cancel(false);
+                if (current == null) {
+                    AbortHandle.detach();
+                }
+            }
+        }
+    }
+
+    private static ScheduledFuture<?> scheduleAbort(final Deadline deadline, final ScheduledExecutorService scheduler,
+                                                    final AbortHandle handle) {
+        if (deadline.isNone() || scheduler == null) {
+            return null;
+        }
+        try {
+            return scheduler.schedule(handle::abort, deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            // client is being destroyed, the timeouts still apply
+            return null;
+        }
+    }
+
+    @Override
+    protected HttpUriRequest createHttpUriRequest(final HttpMethod httpMethod, final URI uri) {
+        final HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+        final Deadline deadline = CURRENT_DEADLINE.get();
+        if (deadline != null && !deadline.isNone() && request instanceof HttpRequestBase) {
+            ((HttpRequestBase) request).setConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(deadline.cap(connectTimeoutMillis))
+                    .setConnectTimeout(deadline.cap(connectTimeoutMillis))
+                    .setSocketTimeout(deadline.cap(socketTimeoutMillis))
+                    .build());
+        }
+        final AbortHandle handle = AbortHandle.current();
+        if (handle != null) {
+            handle.register(request);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,169 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * AIMD limiter of requests in flight to Webex Teams API.
+ * <p>
+ * The limit grows additively (by one per fully used limit worth of fast responses) and shrinks multiplicatively when the API answers
+ * with {@code 429}/{@code 5xx}, the request fails on I/O or its latency exceeds twice the no-load latency. The no-load latency is the
+ * lowest observed one, slowly drifting up so a permanently slower network is eventually accepted as normal.
+ */
+public class AdaptiveConcurrencyLimiter implements ConcurrencyLimiterMXBean {
+
+    private static final double OVERLOAD_BACKOFF = 0.9;
+    private static final double SLOW_BACKOFF = 0.95;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double NO_LOAD_DRIFT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final AtomicLong overloadCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile double noLoadLatencyNanos;
+
+    /**
+     * Constructs new instance of {@link AdaptiveConcurrencyLimiter}
+     *
+     * @param initialLimit
+     *         limit used until the first samples arrive
+     * @param minLimit
+     *         the limit never drops below this value
+     * @param maxLimit
+     *         the limit never grows above this value
+     */
+    public AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Executes given call when the number of requests in flight is below the limit and adjusts the limit according to its outcome
+     *
+     * @param call
+     *         the request
+     * @param timeoutMillis
+     *         how long to wait for free slot
+     * @param <T>
+     *         type of result
+     * @return result of the call
+     * @throws BulkheadFullException
+     *         when no slot was freed in time
+     */
+    public <T> T execute(@NotNull final Supplier<T> call, final long timeoutMillis) {
+        requireNonNull(call, "'call' cannot be null");
+
+        final int inFlightAtStart = acquire(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        final long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            return call.get();
+        } catch (final HttpStatusCodeException e) {
+            overloaded = isOverload(e.getStatusCode());
+            throw e;
+        } catch (final ResourceAccessException e) {
+            // request aborted because its hedge won says nothing about the API
+            overloaded = !AbortHandle.isCurrentAborted();
+            throw e;
+        } finally {
+            release(System.nanoTime() - start, overloaded, inFlightAtStart);
+        }
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public double getNoLoadLatencyMillis() {
+        return noLoadLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getOverloadCount() {
+        return overloadCount.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private int acquire(final long deadline) {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejectedCount.incrementAndGet();
+                    throw new BulkheadFullException("Concurrency limit " + (int) limit + " of Webex Teams API requests reached");
+                }
+                released.awaitNanos(remaining);
+            }
+            return ++inFlight;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCount.incrementAndGet();
+            throw new BulkheadFullException("Interrupted while waiting for concurrency limit");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(final long latencyNanos, final boolean overloaded, final int inFlightAtStart) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloaded) {
+                overloadCount.incrementAndGet();
+                limit = Math.max(minLimit, limit * OVERLOAD_BACKOFF);
+            } else {
+                adjustToLatency(latencyNanos, inFlightAtStart);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjustToLatency(final long latencyNanos, final int inFlightAtStart) {
+        if (noLoadLatencyNanos == 0 || latencyNanos < noLoadLatencyNanos) {
+            noLoadLatencyNanos = latencyNanos;
+        } else {
+            noLoadLatencyNanos += (latencyNanos - noLoadLatencyNanos) * NO_LOAD_DRIFT;
+        }
+        if (latencyNanos > noLoadLatencyNanos * LATENCY_TOLERANCE) {
+            limit = Math.max(minLimit, limit * SLOW_BACKOFF);
+        } else if (inFlightAtStart >= limit / 2) {
+            // the limit grows only while it is really used, otherwise it would grow without bounds on a quiet day
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private static boolean isOverload(final HttpStatus status) {
+        return status == HttpStatus.TOO_MANY_REQUESTS || status.is5xxServerError();
+    }
+}
@@ -0,0 +1,299 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Base URLs of Webex Teams API (e.g. {@code api.ciscospark.com} and {@code webexapis.com}) with passive tracking of their latency and
+ * failures.
+ * <p>
+ * New requests go to the preferred endpoint, which is the healthy one with the lowest smoothed latency. Another endpoint takes over only
+ * when it is clearly faster, so requests do not flap between endpoints of similar latency. Latency of endpoint is learned when requests
+ * fail over to it and by probes of endpoints not used for longer than the probe interval, so e.g. the first endpoint recovered from slow
+ * period takes over again. An endpoint failing on I/O or answering with {@code 5xx} several times in a row is ejected and probed
+ * periodically, it is used again once the probe reaches it. When all endpoints are ejected, requests go to the one ejected first.
+ */
+public class ApiEndpoints implements ApiEndpointsMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiEndpoints.class);
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double SWITCH_RATIO = 1.5;
+
+    private final List<Endpoint> endpoints;
+    private final int failureThreshold;
+    private final long probeIntervalNanos;
+    private final AtomicLong switchCount = new AtomicLong();
+    private final AtomicLong failoverCount = new AtomicLong();
+
+    private volatile Endpoint preferred;
+
+    /**
+     * Constructs new instance of {@link ApiEndpoints}
+     *
+     * @param baseUrls
+     *         base URLs of the API ending with slash, the first one is preferred until latencies are known
+     * @param failureThreshold
+     *         number of failures in a row after which endpoint is ejected
+     * @param probeIntervalMillis
+     *         how often ejected endpoint is probed
+     */
+    public ApiEndpoints(@NotNull final List<String> baseUrls, final int failureThreshold, final long probeIntervalMillis) {
+        requireNonNull(baseUrls, "'baseUrls' cannot be null");
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one base URL of Webex Teams API is required");
+        }
+        final List<Endpoint> result = new ArrayList<>(baseUrls.size());
+        for (final String baseUrl : baseUrls) {
+            result.add(new Endpoint(baseUrl));
+        }
+        this.endpoints = Collections.unmodifiableList(result);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, probeIntervalMillis));
+        this.preferred = endpoints.get(0);
+    }
+
+    /**
+     * @return all endpoints in configured order
+     */
+    @NotNull
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return endpoint new request should be sent to
+     */
+    @NotNull
+    public Endpoint select() {
+        return preferred;
+    }
+
+    /**
+     * Finds another endpoint the failed request can be retried on. Request which might have reached the API is retried only when it is
+     * idempotent, e.g. POST is retried only when the connection could not be established.
+     *
+     * @param failed
+     *         endpoint the request failed on
+     * @param method
+     *         HTTP method of the request
+     * @param failure
+     *         failure of the request
+     * @return healthy endpoint to retry the request on or null if the request should not be retried
+     */
+    @Nullable
+    public Endpoint failoverTarget(@NotNull final Endpoint failed, @NotNull final HttpMethod method, @NotNull final RestClientException failure) {
+        requireNonNull(failed, "'failed' cannot be null");
+        requireNonNull(method, "'method' cannot be null");
+        requireNonNull(failure, "'failure' cannot be null");
+
+        if (!canRetry(method, failure)) {
+            return null;
+        }
+        Endpoint result = null;
+        for (final Endpoint endpoint : endpoints) {
+            if (endpoint != failed && !endpoint.ejected && (result == null || endpoint.isFasterThan(result))) {
+                result = endpoint;
+            }
+        }
+        if (result != null) {
+            failoverCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Records request which got response from the endpoint, successful or rejected by the API
+     *
+     * @param endpoint
+     *         endpoint of the request
+     * @param latencyNanos
+     *         time until the response was received
+     */
+    public void recordResponse(@NotNull final Endpoint endpoint, final long latencyNanos) {
+        requireNonNull(endpoint, "'endpoint' cannot be null");
+
+        endpoint.consecutiveFailures.set(0);
+        final long now = System.nanoTime();
+        // latency older than the probe interval says nothing about the endpoint anymore, e.g. it recovered meanwhile
+        final boolean stale = endpoint.latencyNanos == 0 || now - endpoint.sampledAt >= probeIntervalNanos;
+        endpoint.sampledAt = now;
+        endpoint.latencyNanos = stale
+                ? latencyNanos
+                : endpoint.latencyNanos + (latencyNanos - endpoint.latencyNanos) * LATENCY_SMOOTHING;
+        if (endpoint.ejected) {
+            endpoint.ejected = false;
+            logger.info("Webex Teams API endpoint '{}' recovered.", endpoint.baseUrl);
+        }
+        if (endpoints.size() > 1) {
+            reselect();
+        }
+    }
+
+    /**
+     * Records request which failed on I/O or was answered with {@code 5xx}, the endpoint is ejected when it fails too many times in a row
+     *
+     * @param endpoint
+     *         endpoint of the request
+     */
+    public void recordFailure(@NotNull final Endpoint endpoint) {
+        requireNonNull(endpoint, "'endpoint' cannot be null");
+
+        if (endpoints.size() == 1 || endpoint.consecutiveFailures.incrementAndGet() < failureThreshold) {
+            return;
+        }
+        synchronized (this) {
+            if (endpoint.ejected) {
+                return;
+            }
+            endpoint.ejected = true;
+            endpoint.ejectedAt = System.nanoTime();
+            endpoint.nextProbeAt = endpoint.ejectedAt + probeIntervalNanos;
+        }
+        logger.warn("Webex Teams API endpoint '{}' failed {} times in a row, it is not used until it responds again.", endpoint.baseUrl,
+                endpoint.consecutiveFailures.get());
+        reselect();
+    }
+
+    /**
+     * @return ejected endpoints and endpoints without response within the probe interval (i.e. not preferred ones) whose probe is due,
+     *         their next probe is scheduled after the probe interval
+     */
+    @NotNull
+    public synchronized List<Endpoint> dueForProbe() {
+        final long now = System.nanoTime();
+        final List<Endpoint> result = new ArrayList<>();
+        for (final Endpoint endpoint : endpoints) {
+            final boolean stale = endpoint.latencyNanos == 0 || now - endpoint.sampledAt >= probeIntervalNanos;
+            if ((endpoint.ejected || (endpoint != preferred && stale)) && now - endpoint.nextProbeAt >= 0) {
+                endpoint.nextProbeAt = now + probeIntervalNanos;
+                result.add(endpoint);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String getPreferredBaseUrl() {
+        return preferred.baseUrl;
+    }
+
+    @Override
+    public String[] getEndpointStates() {
+        return endpoints.stream().map(Endpoint::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public long getSwitchCount() {
+        return switchCount.get();
+    }
+
+    @Override
+    public long getFailoverCount() {
+        return failoverCount.get();
+    }
+
+    private synchronized void reselect() {
+        final Endpoint current = preferred;
+        Endpoint best = null;
+        for (final Endpoint endpoint : endpoints) {
+            if (!endpoint.ejected && (best == null || endpoint.isFasterThan(best))) {
+                best = endpoint;
+            }
+        }
+        if (best == null) {
+            // all endpoints are ejected, the one ejected first is the most likely to recover
+            for (final Endpoint endpoint : endpoints) {
+                if (best == null || endpoint.ejectedAt - best.ejectedAt < 0) {
+                    best = endpoint;
+                }
+            }
+        }
+        if (best == current || (!current.ejected && best.latencyNanos * SWITCH_RATIO >= current.latencyNanos)) {
+            return;
+        }
+        preferred = best;
+        switchCount.incrementAndGet();
+        logger.info("Requests to Webex Teams API moved from '{}' to '{}'.", current.baseUrl, best.baseUrl);
+    }
+
+    private static boolean canRetry(final HttpMethod method, final RestClientException failure) {
+        if (failure instanceof HttpServerErrorException) {
+            return isIdempotent(method);
+        }
+        if (!(failure instanceof ResourceAccessException)) {
+            return false;
+        }
+        final Throwable cause = failure.getCause();
+        final boolean notConnected = cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+                || cause instanceof UnknownHostException || cause instanceof NoRouteToHostException;
+        return notConnected || isIdempotent(method);
+    }
+
+    private static boolean isIdempotent(final HttpMethod method) {
+        return method == HttpMethod.GET || method == HttpMethod.PUT || method == HttpMethod.DELETE || method == HttpMethod.HEAD;
+    }
+
+    /**
+     * Single base URL of Webex Teams API
+     */
+    public static final class Endpoint {
+        private final String baseUrl;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private volatile double latencyNanos;
+        private volatile long sampledAt;
+        private volatile boolean ejected;
+        private volatile long ejectedAt;
+        private volatile long nextProbeAt;
+
+        private Endpoint(final String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * @return base URL of the API ending with slash
+         */
+        @NotNull
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        private boolean isFasterThan(final Endpoint other) {
+            // latency of endpoint not used yet is not known
+            return latencyNanos != 0 && (other.latencyNanos == 0 || latencyNanos < other.latencyNanos);
+        }
+
+        /**
+         * @return true if the endpoint is not used because of failures
+         */
+        public boolean isEjected() {
+            return ejected;
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl + " latency=" + TimeUnit.NANOSECONDS.toMillis((long) latencyNanos) + "ms failuresInRow=" + consecutiveFailures.get()
+                    + (ejected ? " ejected" : "");
+        }
+    }
+}
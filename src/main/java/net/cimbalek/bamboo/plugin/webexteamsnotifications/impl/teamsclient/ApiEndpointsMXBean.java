@@ -0,0 +1,27 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+/**
+ * JMX view of {@link ApiEndpoints}
+ */
+public interface ApiEndpointsMXBean {
+
+    /**
+     * @return base URL new requests are sent to
+     */
+    String getPreferredBaseUrl();
+
+    /**
+     * @return state of every endpoint - base URL, smoothed latency, failures in a row and whether it is ejected
+     */
+    String[] getEndpointStates();
+
+    /**
+     * @return number of times requests moved to another endpoint since plugin start
+     */
+    long getSwitchCount();
+
+    /**
+     * @return number of requests retried on another endpoint since plugin start
+     */
+    long getFailoverCount();
+}
@@ -0,0 +1,45 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpHeaders;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cache of immutable request headers (authorization and content type) of each bot token, so they are not formatted for every request
+ */
+public class BotRequestHeaders {
+
+    private static final int MAX_TOKENS = 256;
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final ConcurrentMap<String, HttpHeaders> headersByToken = new ConcurrentHashMap<>();
+
+    /**
+     * @return read-only headers of given bot token
+     */
+    @NotNull
+    public HttpHeaders forToken(@NotNull final String botToken) {
+        requireNonNull(botToken, "'botToken' cannot be null");
+
+        final HttpHeaders cached = headersByToken.get(botToken);
+        if (cached != null) {
+            return cached;
+        }
+        if (headersByToken.size() >= MAX_TOKENS) {
+            // tokens of removed recipients are not tracked, simply start over when there are suspiciously many of them
+            headersByToken.clear();
+        }
+        return headersByToken.computeIfAbsent(botToken, BotRequestHeaders::build);
+    }
+
+    private static HttpHeaders build(final String botToken) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.AUTHORIZATION, "Bearer " + botToken);
+        headers.add(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE);
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+}
@@ -0,0 +1,63 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Helpers for bot access tokens which must never be stored or logged verbatim
+ */
+public final class BotTokens {
+
+    private static final int FINGERPRINT_LENGTH = 12;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_CACHED_FINGERPRINTS = 1000;
+    private static final ConcurrentMap<String, String> FINGERPRINTS = new ConcurrentHashMap<>();
+
+    private BotTokens() {
+    }
+
+    /**
+     * Computes stable, non-reversible fingerprint of the token (prefix of its SHA-256 hash), fingerprints of recently used tokens are
+     * cached, so logging them does not hash the token again
+     *
+     * @param botToken
+     *         token to fingerprint
+     * @return fingerprint of the token, "none" for null token
+     */
+    @NotNull
+    public static String fingerprint(@Nullable final String botToken) {
+        if (botToken == null) {
+            return "none";
+        }
+        final String cached = FINGERPRINTS.get(botToken);
+        if (cached != null) {
+            return cached;
+        }
+        if (FINGERPRINTS.size() >= MAX_CACHED_FINGERPRINTS) {
+            FINGERPRINTS.clear();
+        }
+        final String fingerprint = computeFingerprint(botToken);
+        FINGERPRINTS.put(botToken, fingerprint);
+        return fingerprint;
+    }
+
+    private static String computeFingerprint(final String botToken) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(botToken.getBytes(StandardCharsets.UTF_8));
+            final char[] result = new char[FINGERPRINT_LENGTH];
+            for (int i = 0; i < FINGERPRINT_LENGTH; i++) {
+                final int value = digest[i / 2] >> (i % 2 == 0 ? 4 : 0);
+                result[i] = HEX[value & 0x0f];
+            }
+            return new String(result);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when request to Webex Teams API is rejected because the bulkhead of its bot token (or the global one) is full
+ */
+public class BulkheadFullException extends RestClientException {
+
+    /**
+     * Constructs new instance of {@link BulkheadFullException}
+     *
+     * @param message
+     *         detail message
+     */
+    public BulkheadFullException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+/**
+ * JMX view of {@link AdaptiveConcurrencyLimiter}
+ */
+public interface ConcurrencyLimiterMXBean {
+
+    /**
+     * @return currently permitted number of requests in flight
+     */
+    int getLimit();
+
+    /**
+     * @return number of requests currently in flight
+     */
+    int getInFlight();
+
+    /**
+     * @return latency of requests when Webex Teams API is not loaded, in milliseconds
+     */
+    double getNoLoadLatencyMillis();
+
+    /**
+     * @return number of requests answered with 429, 5xx or failed on I/O since plugin start
+     */
+    long getOverloadCount();
+
+    /**
+     * @return number of requests rejected because the limit was reached for too long since plugin start
+     */
+    long getRejectedCount();
+}
@@ -0,0 +1,88 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded (LRU) store of validators ({@code ETag}, {@code Last-Modified}) and bodies of GET responses keyed by URL and bot token
+ */
+public class ConditionalGetCache {
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructs new instance of {@link ConditionalGetCache}
+     *
+     * @param maxEntries
+     *         maximal number of stored responses, the least recently used one is evicted first
+     */
+    public ConditionalGetCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return stored response for given URL and token or null if there is none
+     */
+    @Nullable
+    public synchronized Entry get(@NotNull final String url, @NotNull final String botToken) {
+        return entries.get(key(url, botToken));
+    }
+
+    /**
+     * Stores response for given URL and token, responses without any validator are not stored
+     */
+    public synchronized void put(@NotNull final String url, @NotNull final String botToken, @Nullable final String eTag,
+                                 @Nullable final String lastModified, @Nullable final Object body) {
+        if ((eTag == null && lastModified == null) || body == null) {
+            entries.remove(key(url, botToken));
+        } else {
+            entries.put(key(url, botToken), new Entry(eTag, lastModified, body));
+        }
+    }
+
+    private String key(final String url, final String botToken) {
+        requireNonNull(url, "'url' cannot be null");
+        requireNonNull(botToken, "'botToken' cannot be null");
+        return BotTokens.fingerprint(botToken) + ' ' + url;
+    }
+
+    /**
+     * Stored response
+     */
+    public static final class Entry {
+        private final String eTag;
+        private final String lastModified;
+        private final Object body;
+
+        private Entry(final String eTag, final String lastModified, final Object body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        @Nullable
+        public String getETag() {
+            return eTag;
+        }
+
+        @Nullable
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        @NotNull
+        public Object getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Point in time by which the delivery of a notification has to be done, every step of the delivery gets only the remaining time
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long deadlineNanos;
+
+    private Deadline(final long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return deadline expiring given number of milliseconds from now
+     */
+    @NotNull
+    public static Deadline after(final long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    }
+
+    /**
+     * @return deadline which never expires
+     */
+    @NotNull
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * @return true if this deadline never expires
+     */
+    public boolean isNone() {
+        return this == NONE;
+    }
+
+    /**
+     * @return milliseconds remaining until the deadline, {@link Long#MAX_VALUE} if it never expires
+     */
+    public long remainingMillis() {
+        if (isNone()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * @return true if no time remains
+     */
+    public boolean isExpired() {
+        return !isNone() && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return the lower of given timeout and the remaining time, at least one millisecond (zero would mean infinite timeout)
+     */
+    public int cap(final long timeoutMillis) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.min(timeoutMillis, remainingMillis())));
+    }
+
+    /**
+     * @throws DeadlineExceededException
+     *         when no time remains for given step
+     */
+    public void check(@NotNull final String step) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded before " + step);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isNone() ? "Deadline{none}" : "Deadline{remainingMillis=" + remainingMillis() + "}";
+    }
+}
@@ -0,0 +1,19 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when request to Webex Teams API is not sent because the time budget of the notification is already spent
+ */
+public class DeadlineExceededException extends RestClientException {
+
+    /**
+     * Constructs new instance of {@link DeadlineExceededException}
+     *
+     * @param message
+     *         detail message
+     */
+    public DeadlineExceededException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,230 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hedging of idempotent requests.
+ * <p>
+ * The request runs on the calling thread. When it does not complete within given percentile of recent latencies, second identical request
+ * is sent from the hedging executor. The first successful response wins and the other request is aborted. Number of hedges is limited by
+ * a budget refilled by given percentage of requests, hedge rejected by the executor is not sent at all.
+ */
+public class HedgedRequests {
+    private static final Logger logger = LoggerFactory.getLogger(HedgedRequests.class);
+
+    private static final int SAMPLE_SIZE = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_BUDGET = 10;
+
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final double percentile;
+    private final double budgetPerRequest;
+    private final long minDelayNanos;
+    private final long[] latencies = new long[SAMPLE_SIZE];
+    private final AtomicLong hedgedCount = new AtomicLong();
+
+    private int sampleCount;
+    private int sampleCursor;
+    private double budget;
+
+    /**
+     * Constructs new instance of {@link HedgedRequests}
+     *
+     * @param executor
+     *         executor running the hedges, it should be bounded and skip hedges it rejects
+     * @param scheduler
+     *         scheduler sending the hedge when the request is late
+     * @param percentile
+     *         percentile of recent latencies after which the hedge is sent
+     * @param budgetPercent
+     *         maximal number of hedges in percents of all requests
+     * @param minDelayMillis
+     *         the hedge is never sent sooner than this
+     */
+    public HedgedRequests(@NotNull final Executor executor, @NotNull final ScheduledExecutorService scheduler, final double percentile,
+                          final double budgetPercent, final long minDelayMillis) {
+        this.executor = requireNonNull(executor, "'executor' cannot be null");
+        this.scheduler = requireNonNull(scheduler, "'scheduler' cannot be null");
+        this.percentile = Math.min(100, Math.max(1, percentile));
+        this.budgetPerRequest = Math.max(0, budgetPercent) / 100;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minDelayMillis));
+    }
+
+    /**
+     * Executes given idempotent call on the calling thread, possibly twice
+     *
+     * @param call
+     *         the request
+     * @param <T>
+     *         type of result
+     * @return result of the first successful call
+     */
+    public <T> T execute(@NotNull final Supplier<T> call) {
+        requireNonNull(call, "'call' cannot be null");
+
+        final long delayNanos = hedgeDelayNanos();
+        if (delayNanos < 0) {
+            return timed(call);
+        }
+        final Hedge<T> hedge = new Hedge<>(call, DeliveryTrace.current(), delayNanos);
+        final AbortHandle previousAbort = AbortHandle.current();
+        hedge.primaryAbort.attach();
+        final ScheduledFuture<?> scheduledHedge = schedule(hedge, delayNanos);
+        try {
+            return timed(call);
+        } catch (final RuntimeException e) {
+            // the request failed or was aborted because the hedge succeeded
+            return hedge.awaitIfStarted(e);
+        } finally {
+            hedge.finish();
+            if (scheduledHedge != null) {
+                scheduledHedge.cancel(false);
+            }
+            if (previousAbort != null) {
+                previousAbort.attach();
+            } else {
+                AbortHandle.detach();
+            }
+        }
+    }
+
+    /**
+     * @return number of hedged requests sent since start
+     */
+    public long getHedgedCount() {
+        return hedgedCount.get();
+    }
+
+    private ScheduledFuture<?> schedule(final Hedge<?> hedge, final long delayNanos) {
+        try {
+            return scheduler.schedule(hedge::send, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException e) {
+            logger.debug("Scheduler is shut down, request is not hedged.");
+            return null;
+        }
+    }
+
+    private <T> T timed(final Supplier<T> call) {
+        final long start = System.nanoTime();
+        final T result = call.get();
+        recordLatency(System.nanoTime() - start);
+        return result;
+    }
+
+    private synchronized void recordLatency(final long nanos) {
+        latencies[sampleCursor] = nanos;
+        sampleCursor = (sampleCursor + 1) % SAMPLE_SIZE;
+        sampleCount = Math.min(SAMPLE_SIZE, sampleCount + 1);
+    }
+
+    private synchronized long hedgeDelayNanos() {
+        budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+        if (sampleCount < MIN_SAMPLES) {
+            return -1;
+        }
+        final long[] sorted = Arrays.copyOf(latencies, sampleCount);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+    }
+
+    private synchronized boolean tryConsumeBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    /**
+     * Second attempt of single request, sent by the scheduler when the request is late
+     */
+    private final class Hedge<T> {
+        private final Supplier<T> call;
+        private final DeliveryTrace trace;
+        private final long delayNanos;
+        private final AbortHandle primaryAbort = new AbortHandle();
+        private final AbortHandle hedgeAbort = new AbortHandle();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile boolean started;
+        private volatile boolean finished;
+
+        private Hedge(final Supplier<T> call, final DeliveryTrace trace, final long delayNanos) {
+            this.call = call;
+            this.trace = trace;
+            this.delayNanos = delayNanos;
+        }
+
+        private void send() {
+            if (!finished && tryConsumeBudget()) {
+                executor.execute(this::run);
+            }
+        }
+
+        private void run() {
+            started = true;
+            if (finished) {
+                return;
+            }
+            hedgedCount.incrementAndGet();
+            logger.debug("Request not completed in {} ms, sending hedged one.", TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            if (trace != null) {
+                trace.addSpanMicros("hedge sent", TimeUnit.NANOSECONDS.toMicros(delayNanos));
+                trace.attach();
+            }
+            hedgeAbort.attach();
+            try {
+                result.complete(timed(call));
+                primaryAbort.abort();
+            } catch (final RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                AbortHandle.detach();
+                DeliveryTrace.detach();
+            }
+        }
+
+        /**
+         * @return result of the hedge if it was sent and succeeded
+         * @throws RuntimeException
+         *         given failure of the request when the hedge was not sent or failed too
+         */
+        private T awaitIfStarted(final RuntimeException failure) {
+            if (!started) {
+                throw failure;
+            }
+            try {
+                return result.get();
+            } catch (final ExecutionException e) {
+                throw failure;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestClientException("Interrupted while waiting for response", e);
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            hedgeAbort.abort();
+        }
+    }
+}
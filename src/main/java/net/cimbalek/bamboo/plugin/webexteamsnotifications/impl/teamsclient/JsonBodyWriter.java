@@ -0,0 +1,75 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serializes request bodies to JSON bytes with pre-built {@link ObjectWriter}s into buffers reused from a small pool, so mostly only the
+ * resulting array is allocated per request. The pool belongs to the instance, so no buffer outlives the plugin.
+ */
+public class JsonBodyWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private final BlockingQueue<ReusableBuffer> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter messageWriter = objectMapper.writerFor(Message.class);
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * @return given value serialized to JSON
+     * @throws HttpMessageNotWritableException
+     *         when the value cannot be serialized
+     */
+    @NotNull
+    public byte[] write(@NotNull final Object value) {
+        requireNonNull(value, "'value' cannot be null");
+
+        final ObjectWriter writer = value instanceof Message
+                ? messageWriter
+                : writers.computeIfAbsent(value.getClass(), objectMapper::writerFor);
+        final ReusableBuffer polled = buffers.poll();
+        final ReusableBuffer buffer = polled != null ? polled : new ReusableBuffer();
+        try {
+            writer.writeValue(buffer, value);
+            return buffer.toByteArray();
+        } catch (final IOException e) {
+            throw new HttpMessageNotWritableException("Cannot serialize request body", e);
+        } finally {
+            if (buffer.recycle()) {
+                buffers.offer(buffer);
+            }
+        }
+    }
+
+    private static final class ReusableBuffer extends ByteArrayOutputStream {
+
+        private ReusableBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        /**
+         * @return false if the buffer grew too large to be kept in the pool
+         */
+        private boolean recycle() {
+            reset();
+            return buf.length <= MAX_RETAINED_BUFFER_SIZE;
+        }
+    }
+}
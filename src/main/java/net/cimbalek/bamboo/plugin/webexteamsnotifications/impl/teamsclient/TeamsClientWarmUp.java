@@ -0,0 +1,135 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import com.atlassian.sal.api.lifecycle.LifecycleAware;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Person;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Warms up DNS, connection pool, TLS sessions and JSON mapping of {@link TeamsRestHttpClient} when the plugin starts, so the first real
+ * notification does not pay for it.
+ * <p>
+ * Every configured bot token sends one lightweight authenticated request ({@code GET people/me}) in background, the whole warm-up is
+ * limited by configured time budget.
+ */
+@Component
+@ExportAsService(LifecycleAware.class)
+public class TeamsClientWarmUp implements LifecycleAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamsClientWarmUp.class);
+
+    private static final String URL_PEOPLE_ME = "people/me";
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    private final TeamsRestHttpClient teamsRestHttpClient;
+    private final RecipientSettingsRepository recipientSettingsRepository;
+    private final TeamsNotificationsConfiguration configuration;
+
+    /**
+     * Constructs new instance of {@link TeamsClientWarmUp}
+     */
+    @Autowired
+    public TeamsClientWarmUp(@NotNull final TeamsRestHttpClient teamsRestHttpClient,
+                             @NotNull final RecipientSettingsRepository recipientSettingsRepository,
+                             @NotNull final TeamsNotificationsConfiguration configuration) {
+        this.teamsRestHttpClient = requireNonNull(teamsRestHttpClient, "'teamsRestHttpClient' cannot be null");
+        this.recipientSettingsRepository = requireNonNull(recipientSettingsRepository, "'recipientSettingsRepository' cannot be null");
+        this.configuration = requireNonNull(configuration, "'configuration' cannot be null");
+    }
+
+    @Override
+    public void onStart() {
+        if (!configuration.isWarmUpEnabled()) {
+            logger.debug("Warm-up of Webex Teams API connections is disabled.");
+            return;
+        }
+        final Thread thread = new Thread(this::warmUp, "webex-teams-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Warms up connections for all configured bot tokens, blocks until finished or until the time budget is spent
+     */
+    public void warmUp() {
+        final long start = System.nanoTime();
+        final Set<String> botTokens = new LinkedHashSet<>();
+        try {
+            for (final TeamsBotNotificationSettings settings : recipientSettingsRepository.findAll()) {
+                botTokens.add(settings.getBotAccessToken());
+            }
+        } catch (final RuntimeException e) {
+            logger.warn("Cannot load configured Webex Teams recipients, skipping warm-up.", e);
+            return;
+        }
+        if (botTokens.isEmpty()) {
+            logger.debug("No Webex Teams recipients are configured, skipping warm-up.");
+            return;
+        }
+
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (final String botToken : botTokens) {
+            tasks.add(() -> warmUp(botToken));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_PARALLEL_REQUESTS, tasks.size()), runnable -> {
+            final Thread thread = new Thread(runnable, "webex-teams-warm-up-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int succeeded = 0;
+        try {
+            for (final Future<Boolean> future : executor.invokeAll(tasks, configuration.getWarmUpTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                if (isSuccessful(future)) {
+                    succeeded++;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Warm-up of Webex Teams API connections for {} of {} bot tokens finished in {} ms.", succeeded, tasks.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private boolean warmUp(final String botToken) {
+        try {
+            teamsRestHttpClient.sendGetRequest(URL_PEOPLE_ME, botToken, Person.class);
+            return true;
+        } catch (final RuntimeException e) {
+            logger.debug("Warm-up request of bot '{}' failed.", BotTokens.fingerprint(botToken), e);
+            return false;
+        }
+    }
+
+    private boolean isSuccessful(final Future<Boolean> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (final CancellationException | ExecutionException e) {
+            return false;
+        }
+    }
+}
@@ -1,46 +1,129 @@
 package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.InFlightCalls;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.JmxSupport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+
 import static java.util.Objects.requireNonNull;
 
 /**
- * HTTP client taking care of requests to Webex Teams API
+ * HTTP client taking care of requests to Webex Teams API.
+ * <p>
+ * The underlying HTTP stack, its scheduler, threads of enabled hedging and MBeans are started lazily on the first request, so enabling the
+ * plugin does not pay for them. Requests of each bot token are isolated by {@link TokenBulkheads}, so a throttled or broken bot cannot
+ * exhaust connections needed by the other ones. The number of requests in flight of all bots together is driven by
+ * {@link AdaptiveConcurrencyLimiter}, the global bulkhead is its upper bound. GET requests may be hedged by {@link HedgedRequests}. Waiting
+ * for permits as well as connect and socket timeouts are capped by the {@link Deadline} of the notification and request still running when
+ * the deadline passes is aborted. Requests go to the healthiest of configured base URLs of the API, see {@link ApiEndpoints}, request
+ * failed on one of them is retried on another one when it is safe.
  */
 @Service
-public class TeamsRestHttpClient {
+public class TeamsRestHttpClient implements DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(TeamsRestHttpClient.class);
 
-    private static final String API_URL = "https://api.ciscospark.com/v1/";
+    private static final int CONDITIONAL_GET_CACHE_SIZE = 500;
+    private static final int MAX_HEDGING_THREADS = 4;
+    private static final long HEDGING_THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final String MBEAN_TYPE = "ConcurrencyLimiter";
+    private static final String ENDPOINTS_MBEAN_TYPE = "ApiEndpoints";
+    private static final String PROBE_PATH = "people/me";
+    private static final long PROBE_CHECK_MILLIS = 1000;
+    private static final String CACHEABLE_ROOMS = "rooms";
+    private static final String CACHEABLE_ROOM_PREFIX = "rooms/";
+
+    private final ConditionalGetCache conditionalGetCache = new ConditionalGetCache(CONDITIONAL_GET_CACHE_SIZE);
+    private final BotRequestHeaders botRequestHeaders = new BotRequestHeaders();
+    private final JsonBodyWriter jsonBodyWriter = new JsonBodyWriter();
+    private final ApiEndpoints apiEndpoints;
+    private final TokenBulkheads bulkheads;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final int maxConnections;
+    private final long acquireTimeoutMillis;
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final boolean adaptiveConcurrencyEnabled;
+    private final boolean hedgingEnabled;
+    private final int hedgingPercentile;
+    private final int hedgingBudgetPercent;
+    private final long hedgingMinDelayMillis;
 
-    private final RestTemplate restTemplate;
+    private volatile RestTemplate restTemplate;
+    private volatile HedgedRequests hedgedRequests;
+    private CloseableHttpClient httpClient;
+    private ExecutorService hedgingExecutor;
+    private volatile ScheduledExecutorService scheduler;
 
     /**
-     * Constructs new instance of {@link TeamsRestHttpClient} with initialized rest template
+     * Constructs new instance of {@link TeamsRestHttpClient}, the rest template is initialized with the first request
+     *
+     * @param configuration
+     *         global configuration of the plugin
      */
-    public TeamsRestHttpClient() {
-        final CloseableHttpClient httpClient = HttpClients.custom()
-                .setSSLHostnameVerifier(new NoopHostnameVerifier())
-                .build();
-        final HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-        requestFactory.setHttpClient(httpClient);
-        restTemplate = new RestTemplate(requestFactory);
+    @Autowired
+    public TeamsRestHttpClient(@NotNull final TeamsNotificationsConfiguration configuration) {
+        requireNonNull(configuration, "'configuration' cannot be null");
+
+        this.apiEndpoints = new ApiEndpoints(configuration.getApiBaseUrls(), configuration.getApiFailureThreshold(),
+                configuration.getApiProbeIntervalMillis());
+        this.maxConnections = Math.max(1, configuration.getBulkheadMaxConcurrentGlobal());
+        this.bulkheads = new TokenBulkheads(maxConnections, configuration.getBulkheadMaxConcurrentPerToken(),
+                configuration.getBulkheadMaxQueuedPerToken(), configuration.getBulkheadAcquireTimeoutMillis());
+        this.adaptiveConcurrencyEnabled = configuration.isAdaptiveConcurrencyEnabled();
+        this.concurrencyLimiter = adaptiveConcurrencyEnabled
+                ? new AdaptiveConcurrencyLimiter(configuration.getAdaptiveConcurrencyInitialLimit(),
+                configuration.getAdaptiveConcurrencyMinLimit(), maxConnections)
+                : new AdaptiveConcurrencyLimiter(maxConnections, maxConnections, maxConnections);
+        this.acquireTimeoutMillis = configuration.getBulkheadAcquireTimeoutMillis();
+        this.connectTimeoutMillis = configuration.getHttpConnectTimeoutMillis();
+        this.socketTimeoutMillis = configuration.getHttpSocketTimeoutMillis();
+        this.hedgingEnabled = configuration.isHedgingEnabled();
+        this.hedgingPercentile = configuration.getHedgingPercentile();
+        this.hedgingBudgetPercent = configuration.getHedgingBudgetPercent();
+        this.hedgingMinDelayMillis = configuration.getHedgingMinDelayMillis();
     }
 
     /**
-     * Sends GET request to API and waits for response
+     * Sends GET request to API and waits for response. Requests of rooms ({@code rooms} and {@code rooms/{id}}) are conditional, when API
+     * responds with {@code 304 Not Modified} the previously received body is returned. When hedging is enabled and the response is late,
+     * second identical request is sent.
      *
      * @param url
      *         resource URL
@@ -51,18 +134,87 @@ public class TeamsRestHttpClient {
      * @param <T>
      *         type of response
      * @return new instance of wrapped response entity
+     * @throws BulkheadFullException
+     *         when the bot has too many requests in progress
      */
     @NotNull
     public <T> ResponseEntity<T> sendGetRequest(@NotNull final String url, @NotNull final String botToken, @NotNull final Class<T> responseClass) {
+        return sendGetRequest(url, botToken, responseClass, Deadline.none());
+    }
+
+    /**
+     * Sends conditional GET request to API and waits for response at most until given deadline
+     *
+     * @param url
+     *         resource URL
+     * @param botToken
+     *         authentication token
+     * @param responseClass
+     *         class of response
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @param <T>
+     *         type of response
+     * @return new instance of wrapped response entity
+     * @throws DeadlineExceededException
+     *         when the deadline is exceeded before the request is sent
+     */
+    @NotNull
+    public <T> ResponseEntity<T> sendGetRequest(@NotNull final String url, @NotNull final String botToken, @NotNull final Class<T> responseClass,
+                                                @NotNull final Deadline deadline) {
         requireNonNull(url, "'url' cannot be null");
         requireNonNull(botToken, "'botToken' cannot be null");
         requireNonNull(responseClass, "'responseClass' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
 
-        logger.debug("Sending GET request to URL '{}', with bot token '{}' expecting class '{}'.", url, botToken, responseClass);
-        final HttpEntity<String> requestHttpEntity = new HttpEntity<>(null, buildHttpHeaders(botToken));
-        final ResponseEntity<T> result = restTemplate.exchange(API_URL + url, HttpMethod.GET, requestHttpEntity, responseClass);
-        logger.debug("Received GET response '{}'", result);
-        return result;
+        logger.debug("Sending GET request to URL '{}', with bot '{}' expecting class '{}'.", url, LogValues.token(botToken), responseClass);
+        markRequestStart();
+        if (!isCacheable(url)) {
+            return sendGet(url, botToken, responseClass, deadline, null, true);
+        }
+        final ConditionalGetCache.Entry cached = conditionalGetCache.get(url, botToken);
+        final ResponseEntity<T> result = sendGet(url, botToken, responseClass, deadline, cached, true);
+        if (result.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            if (cached != null && responseClass.isInstance(cached.getBody())) {
+                logger.debug("Resource '{}' was not modified, reusing cached body.", url);
+                return new ResponseEntity<>(responseClass.cast(cached.getBody()), result.getHeaders(), HttpStatus.OK);
+            }
+            logger.debug("Resource '{}' was not modified but its body is not cached, requesting it again.", url);
+            return cache(url, botToken, sendGet(url, botToken, responseClass, deadline, null, true));
+        }
+        return cache(url, botToken, result);
+    }
+
+    /**
+     * Sends GET request to API which is neither conditional nor hedged, for reads which must see the current state of the resource (e.g.
+     * whether a message was posted)
+     *
+     * @param url
+     *         resource URL
+     * @param botToken
+     *         authentication token
+     * @param responseClass
+     *         class of response
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @param <T>
+     *         type of response
+     * @return new instance of wrapped response entity
+     * @throws DeadlineExceededException
+     *         when the deadline is exceeded before the request is sent
+     */
+    @NotNull
+    public <T> ResponseEntity<T> sendUncachedGetRequest(@NotNull final String url, @NotNull final String botToken,
+                                                        @NotNull final Class<T> responseClass, @NotNull final Deadline deadline) {
+        requireNonNull(url, "'url' cannot be null");
+        requireNonNull(botToken, "'botToken' cannot be null");
+        requireNonNull(responseClass, "'responseClass' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
+        logger.debug("Sending uncached GET request to URL '{}', with bot '{}' expecting class '{}'.", url, LogValues.token(botToken),
+                responseClass);
+        markRequestStart();
+        return sendGet(url, botToken, responseClass, deadline, null, false);
     }
 
     /**
@@ -79,26 +231,335 @@ public class TeamsRestHttpClient {
      * @param request
      *         body of the request
      * @return new instance of wrapped response entity
+     * @throws BulkheadFullException
+     *         when the bot has too many requests in progress
      */
     @NotNull
     public <T, U> ResponseEntity<T> sendPostRequest(@NotNull final String url, @NotNull final String botToken, @NotNull final Class<T> responseClass,
                                                     final U request) {
+        return sendPostRequest(url, botToken, responseClass, request, Deadline.none());
+    }
+
+    /**
+     * Sends POST request to API and waits for response at most until given deadline
+     *
+     * @param url
+     *         resource URL
+     * @param botToken
+     *         authentication token
+     * @param responseClass
+     *         class of response
+     * @param request
+     *         body of the request
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @param <T>
+     *         type of response
+     * @return new instance of wrapped response entity
+     * @throws DeadlineExceededException
+     *         when the deadline is exceeded before the request is sent
+     */
+    @NotNull
+    public <T, U> ResponseEntity<T> sendPostRequest(@NotNull final String url, @NotNull final String botToken, @NotNull final Class<T> responseClass,
+                                                    final U request, @NotNull final Deadline deadline) {
+        requireNonNull(url, "'url' cannot be null");
+        requireNonNull(botToken, "'botToken' cannot be null");
+        requireNonNull(responseClass, "'responseClass' cannot be null");
+        requireNonNull(request, "'request' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
+
+        logger.debug("Sending POST body '{}' to URL '{}', with bot '{}' expecting class '{}'.", LogValues.capped(request), url,
+                LogValues.token(botToken),
+                responseClass);
+        markRequestStart();
+        final HttpEntity<byte[]> requestEntity = new HttpEntity<>(jsonBodyWriter.write(request), botRequestHeaders.forToken(botToken));
+        final ResponseEntity<T> result = exchange(botToken, HttpMethod.POST, url, requestEntity, responseClass, deadline);
+        logger.debug("Received POST response '{}'", LogValues.capped(result));
+        return result;
+    }
+
+    /**
+     * Sends PUT request to API and waits for response at most until given deadline
+     *
+     * @param url
+     *         resource URL
+     * @param botToken
+     *         authentication token
+     * @param responseClass
+     *         class of response
+     * @param request
+     *         body of the request
+     * @param deadline
+     *         deadline of the whole notification delivery
+     * @param <T>
+     *         type of response
+     * @return new instance of wrapped response entity
+     * @throws DeadlineExceededException
+     *         when the deadline is exceeded before the request is sent
+     */
+    @NotNull
+    public <T, U> ResponseEntity<T> sendPutRequest(@NotNull final String url, @NotNull final String botToken, @NotNull final Class<T> responseClass,
+                                                   final U request, @NotNull final Deadline deadline) {
         requireNonNull(url, "'url' cannot be null");
         requireNonNull(botToken, "'botToken' cannot be null");
         requireNonNull(responseClass, "'responseClass' cannot be null");
         requireNonNull(request, "'request' cannot be null");
+        requireNonNull(deadline, "'deadline' cannot be null");
 
-        logger.debug("Sending POST body '{}' to URL '{}', with bot token '{}' expecting class '{}'.", request, url, botToken, responseClass);
-        final HttpEntity<U> requestEntity = new HttpEntity<>(request, buildHttpHeaders(botToken));
-        final ResponseEntity<T> result = restTemplate.exchange(API_URL + url, HttpMethod.POST, requestEntity, responseClass);
-        logger.debug("Received POST response '{}'", result);
+        logger.debug("Sending PUT body '{}' to URL '{}', with bot '{}' expecting class '{}'.", LogValues.capped(request), url,
+                LogValues.token(botToken),
+                responseClass);
+        markRequestStart();
+        final HttpEntity<byte[]> requestEntity = new HttpEntity<>(jsonBodyWriter.write(request), botRequestHeaders.forToken(botToken));
+        final ResponseEntity<T> result = exchange(botToken, HttpMethod.PUT, url, requestEntity, responseClass, deadline);
+        logger.debug("Received PUT response '{}'", LogValues.capped(result));
         return result;
     }
 
-    private HttpHeaders buildHttpHeaders(final String botToken) {
+    /**
+     * @return number of requests rejected by bulkheads since start
+     */
+    public long getRejectedRequestCount() {
+        return bulkheads.getRejectedCount();
+    }
+
+    /**
+     * @return current state of the adaptive concurrency limit
+     */
+    @NotNull
+    public ConcurrencyLimiterMXBean getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * @return current state of base URLs of the API
+     */
+    @NotNull
+    public ApiEndpointsMXBean getApiEndpoints() {
+        return apiEndpoints;
+    }
+
+    /**
+     * @return number of hedged GET requests sent since start
+     */
+    public long getHedgedRequestCount() {
+        final HedgedRequests hedgedRequests = this.hedgedRequests;
+        return hedgedRequests == null ? 0 : hedgedRequests.getHedgedCount();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        synchronized (this) {
+            if (hedgingExecutor != null) {
+                hedgingExecutor.shutdownNow();
+                hedgingExecutor = null;
+                hedgedRequests = null;
+            }
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+            if (httpClient != null) {
+                JmxSupport.unregister(MBEAN_TYPE);
+                JmxSupport.unregister(ENDPOINTS_MBEAN_TYPE);
+                httpClient.close();
+                httpClient = null;
+                restTemplate = null;
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> exchange(final String botToken, final HttpMethod method, final String url, final HttpEntity<?> requestEntity,
+                                           final Class<T> responseClass, final Deadline deadline) {
+        deadline.check(method + " " + url);
+        // the scheduler aborting requests at their deadline starts together with the HTTP stack
+        restTemplate();
+        final long previousStart = InFlightCalls.startRequest(botToken, method.name(), url);
+        try {
+            final ApiEndpoints.Endpoint endpoint = apiEndpoints.select();
+            try {
+                return exchange(endpoint, botToken, method, url, requestEntity, responseClass, deadline);
+            } catch (final ResourceAccessException | HttpServerErrorException e) {
+                final ApiEndpoints.Endpoint alternative = AbortHandle.isCurrentAborted() || deadline.isExpired()
+                        ? null
+                        : apiEndpoints.failoverTarget(endpoint, method, e);
+                if (alternative == null) {
+                    throw e;
+                }
+                logger.debug("{} request to '{}' failed on '{}', retrying on '{}': {}", method, url, endpoint.getBaseUrl(),
+                        alternative.getBaseUrl(), e.getMessage());
+                return exchange(alternative, botToken, method, url, requestEntity, responseClass, deadline);
+            }
+        } finally {
+            InFlightCalls.finishRequest(previousStart);
+        }
+    }
+
+    private <T> ResponseEntity<T> exchange(final ApiEndpoints.Endpoint endpoint, final String botToken, final HttpMethod method,
+                                           final String url, final HttpEntity<?> requestEntity, final Class<T> responseClass,
+                                           final Deadline deadline) {
+        return bulkheads.execute(botToken, deadline.remainingMillis(), () -> concurrencyLimiter.execute(
+                () -> AbortableRequestFactory.withDeadline(deadline, scheduler,
+                        () -> send(endpoint, method, url, requestEntity, responseClass)),
+                Math.min(acquireTimeoutMillis, deadline.remainingMillis())));
+    }
+
+    private <T> ResponseEntity<T> send(final ApiEndpoints.Endpoint endpoint, final HttpMethod method, final String url,
+                                       final HttpEntity<?> requestEntity, final Class<T> responseClass) {
+        final long start = System.nanoTime();
+        try {
+            final ResponseEntity<T> result = restTemplate().exchange(endpoint.getBaseUrl() + url, method, requestEntity, responseClass);
+            apiEndpoints.recordResponse(endpoint, System.nanoTime() - start);
+            return result;
+        } catch (final HttpServerErrorException e) {
+            apiEndpoints.recordFailure(endpoint);
+            throw e;
+        } catch (final HttpStatusCodeException e) {
+            apiEndpoints.recordResponse(endpoint, System.nanoTime() - start);
+            throw e;
+        } catch (final ResourceAccessException e) {
+            // request aborted because its hedge won says nothing about the endpoint
+            if (!AbortHandle.isCurrentAborted()) {
+                apiEndpoints.recordFailure(endpoint);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends unauthenticated request to ejected endpoints and to endpoints not used recently, any response except {@code 5xx} means the
+     * endpoint is reachable again and refreshes its latency
+     */
+    private void probeEjectedEndpoints() {
+        for (final ApiEndpoints.Endpoint endpoint : apiEndpoints.dueForProbe()) {
+            final long start = System.nanoTime();
+            try {
+                restTemplate().exchange(endpoint.getBaseUrl() + PROBE_PATH, HttpMethod.GET, HttpEntity.EMPTY, byte[].class);
+                apiEndpoints.recordResponse(endpoint, System.nanoTime() - start);
+            } catch (final HttpServerErrorException e) {
+                logger.debug("Probe of Webex Teams API endpoint '{}' failed: {}", endpoint.getBaseUrl(), e.getMessage());
+            } catch (final HttpStatusCodeException e) {
+                apiEndpoints.recordResponse(endpoint, System.nanoTime() - start);
+            } catch (final RuntimeException e) {
+                logger.debug("Probe of Webex Teams API endpoint '{}' failed: {}", endpoint.getBaseUrl(), e.getMessage());
+            }
+        }
+    }
+
+    private RestTemplate restTemplate() {
+        RestTemplate result = restTemplate;
+        if (result == null) {
+            synchronized (this) {
+                result = restTemplate;
+                if (result == null) {
+                    result = buildRestTemplate();
+                    start();
+                    restTemplate = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private RestTemplate buildRestTemplate() {
+        final long start = System.nanoTime();
+        httpClient = HttpClients.custom()
+                .setSSLHostnameVerifier(new NoopHostnameVerifier())
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(connectTimeoutMillis)
+                        .setConnectTimeout(connectTimeoutMillis)
+                        .setSocketTimeout(socketTimeoutMillis)
+                        .build())
+                .build();
+        final AbortableRequestFactory requestFactory = new AbortableRequestFactory(connectTimeoutMillis, socketTimeoutMillis);
+        requestFactory.setHttpClient(httpClient);
+        final List<HttpMessageConverter<?>> messageConverters = new ArrayList<>();
+        messageConverters.add(new ByteArrayHttpMessageConverter());
+        messageConverters.add(new StringHttpMessageConverter(StandardCharsets.UTF_8));
+        messageConverters.add(new MappingJackson2HttpMessageConverter());
+        final RestTemplate result = new RestTemplate(messageConverters);
+        result.setRequestFactory(requestFactory);
+        result.setInterceptors(Collections.singletonList(new TracingInterceptor()));
+        logger.debug("HTTP client for Webex Teams API initialized in {} ms.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Starts threads and MBeans of enabled features together with the HTTP stack, the scheduler aborts requests exceeding their deadline,
+     * sends hedges of late requests and probes ejected endpoints
+     */
+    private void start() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "webex-teams-api-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // aborts of requests which completed in time are cancelled, they must not pile up until their deadline
+        executor.setRemoveOnCancelPolicy(true);
+        if (apiEndpoints.getEndpoints().size() > 1) {
+            executor.scheduleWithFixedDelay(this::probeEjectedEndpoints, PROBE_CHECK_MILLIS, PROBE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            JmxSupport.register(ENDPOINTS_MBEAN_TYPE, apiEndpoints);
+        }
+        scheduler = executor;
+        if (hedgingEnabled) {
+            // requests run on the calling threads, the pool runs hedges only and skips them when all its threads are busy
+            hedgingExecutor = new ThreadPoolExecutor(0, MAX_HEDGING_THREADS, HEDGING_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                final Thread thread = new Thread(runnable, "webex-teams-hedging");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, pool) -> logger.debug("All {} hedging threads are busy, hedge is skipped.", MAX_HEDGING_THREADS));
+            hedgedRequests = new HedgedRequests(hedgingExecutor, executor, hedgingPercentile, hedgingBudgetPercent, hedgingMinDelayMillis);
+        }
+        if (adaptiveConcurrencyEnabled) {
+            JmxSupport.register(MBEAN_TYPE, concurrencyLimiter);
+        }
+    }
+
+    private void markRequestStart() {
+        final DeliveryTrace trace = DeliveryTrace.current();
+        if (trace != null) {
+            trace.markRequestStart();
+        }
+    }
+
+    /**
+     * Sends GET request, conditional one when validators of cached response are given
+     */
+    private <T> ResponseEntity<T> sendGet(final String url, final String botToken, final Class<T> responseClass, final Deadline deadline,
+                                          final ConditionalGetCache.Entry cached, final boolean hedged) {
         final HttpHeaders headers = new HttpHeaders();
-        headers.add("Authorization", String.format("Bearer %s", botToken));
-        headers.add("Content-type", "application/json; charset=utf-8");
-        return headers;
+        headers.putAll(botRequestHeaders.forToken(botToken));
+        if (cached != null && cached.getETag() != null) {
+            headers.setIfNoneMatch(cached.getETag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+        final HttpEntity<String> requestHttpEntity = new HttpEntity<>(null, headers);
+        // hedging starts together with the HTTP stack
+        restTemplate();
+        final HedgedRequests hedgedRequests = this.hedgedRequests;
+        final ResponseEntity<T> result = hedgedRequests == null || !hedged
+                ? exchange(botToken, HttpMethod.GET, url, requestHttpEntity, responseClass, deadline)
+                : hedgedRequests.execute(() -> exchange(botToken, HttpMethod.GET, url, requestHttpEntity, responseClass, deadline));
+        logger.debug("Received GET response '{}'", LogValues.capped(result));
+        return result;
+    }
+
+    private <T> ResponseEntity<T> cache(final String url, final String botToken, final ResponseEntity<T> response) {
+        final HttpHeaders responseHeaders = response.getHeaders();
+        conditionalGetCache.put(url, botToken, responseHeaders.getETag(), responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED), response.getBody());
+        return response;
+    }
+
+    /**
+     * @return true for list of rooms and single room, other resources (e.g. messages) change too often or are listed with parameters
+     */
+    private static boolean isCacheable(final String url) {
+        return url.equals(CACHEABLE_ROOMS)
+                || url.startsWith(CACHEABLE_ROOM_PREFIX) && url.indexOf('?') < 0 && url.indexOf('/', CACHEABLE_ROOM_PREFIX.length()) < 0;
     }
 }
@@ -0,0 +1,157 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bulkheads isolating requests of different bot tokens.
+ * <p>
+ * Each token may run only limited number of concurrent requests and only limited number of further requests may wait for it. All
+ * requests together are capped by the global limit. A token is admitted to its own bulkhead before it competes for the global one, so
+ * requests of throttled or broken bot wait (and get rejected) without holding permits needed by other bots.
+ */
+public class TokenBulkheads {
+    private static final Logger logger = LoggerFactory.getLogger(TokenBulkheads.class);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger);
+
+    private final Semaphore global;
+    private final int maxConcurrentPerToken;
+    private final int maxQueuedPerToken;
+    private final long acquireTimeoutMillis;
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Constructs new instance of {@link TokenBulkheads}
+     *
+     * @param maxConcurrentGlobal
+     *         maximal number of concurrent requests of all tokens
+     * @param maxConcurrentPerToken
+     *         maximal number of concurrent requests of single token
+     * @param maxQueuedPerToken
+     *         maximal number of requests of single token waiting for a permit
+     * @param acquireTimeoutMillis
+     *         how long a request may wait for permits
+     */
+    public TokenBulkheads(final int maxConcurrentGlobal, final int maxConcurrentPerToken, final int maxQueuedPerToken,
+                          final long acquireTimeoutMillis) {
+        this.global = new Semaphore(Math.max(1, maxConcurrentGlobal), true);
+        this.maxConcurrentPerToken = Math.max(1, maxConcurrentPerToken);
+        this.maxQueuedPerToken = Math.max(0, maxQueuedPerToken);
+        this.acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+    }
+
+    /**
+     * Executes given call inside bulkhead of given token
+     *
+     * @param botToken
+     *         token the call is made with
+     * @param call
+     *         the call itself
+     * @param <T>
+     *         type of result
+     * @return result of the call
+     * @throws BulkheadFullException
+     *         when no permit was obtained
+     */
+    public <T> T execute(@NotNull final String botToken, @NotNull final Supplier<T> call) {
+        return execute(botToken, acquireTimeoutMillis, call);
+    }
+
+    /**
+     * Executes given call inside bulkhead of given token waiting for permits at most given time
+     *
+     * @param botToken
+     *         token the call is made with
+     * @param timeoutMillis
+     *         how long to wait for permits, never longer than the configured acquire timeout
+     * @param call
+     *         the call itself
+     * @param <T>
+     *         type of result
+     * @return result of the call
+     * @throws BulkheadFullException
+     *         when no permit was obtained
+     */
+    public <T> T execute(@NotNull final String botToken, final long timeoutMillis, @NotNull final Supplier<T> call) {
+        requireNonNull(botToken, "'botToken' cannot be null");
+        requireNonNull(call, "'call' cannot be null");
+
+        final String fingerprint = BotTokens.fingerprint(botToken);
+        final Bulkhead bulkhead = bulkheads.computeIfAbsent(fingerprint, key -> new Bulkhead());
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(timeoutMillis, acquireTimeoutMillis)));
+        if (!bulkhead.acquire(deadline)) {
+            throw reject("Bulkhead of bot '" + fingerprint + "' is full");
+        }
+        try {
+            if (!tryAcquire(global, deadline)) {
+                throw reject("Global bulkhead is full, request of bot '" + fingerprint + "' rejected");
+            }
+            try {
+                return call.get();
+            } finally {
+                global.release();
+            }
+        } finally {
+            bulkhead.permits.release();
+        }
+    }
+
+    /**
+     * @return number of requests rejected since start
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private BulkheadFullException reject(final String message) {
+        rejectedCount.incrementAndGet();
+        rateLimitedLog.warn(message, "{}.", message);
+        return new BulkheadFullException(message);
+    }
+
+    private static boolean tryAcquire(final Semaphore semaphore, final long deadline) {
+        if (semaphore.tryAcquire()) {
+            return true;
+        }
+        try {
+            return semaphore.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private final class Bulkhead {
+        private final Semaphore permits = new Semaphore(maxConcurrentPerToken, true);
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private boolean acquire(final long deadline) {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            if (waiting.incrementAndGet() > maxQueuedPerToken) {
+                waiting.decrementAndGet();
+                return false;
+            }
+            try {
+                return tryAcquire(permits, deadline);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+
+/**
+ * Propagates identifier of current {@link DeliveryTrace} as Webex {@code TrackingID} header and records serialization and HTTP spans
+ */
+class TracingInterceptor implements ClientHttpRequestInterceptor {
+
+    static final String TRACKING_ID_HEADER = "TrackingID";
+
+    @Override
+    public ClientHttpResponse intercept(final HttpRequest request, final byte[] body, final ClientHttpRequestExecution execution)
+            throws IOException {
+        final DeliveryTrace trace = DeliveryTrace.current();
+        if (trace == null) {
+            return execution.execute(request, body);
+        }
+        request.getHeaders().set(TRACKING_ID_HEADER, trace.getTraceId());
+        if (body.length > 0 && trace.getRequestStartedNanos() != 0) {
+            trace.addSpan("serialization", trace.getRequestStartedNanos());
+        }
+        final long start = System.nanoTime();
+        String status = "failed";
+        try {
+            final ClientHttpResponse response = execution.execute(request, body);
+            status = String.valueOf(response.getRawStatusCode());
+            return response;
+        } finally {
+            trace.addSpan("http " + request.getMethod() + " " + request.getURI().getPath() + " " + status, start);
+        }
+    }
+}
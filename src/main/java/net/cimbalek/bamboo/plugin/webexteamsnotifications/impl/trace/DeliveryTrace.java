@@ -0,0 +1,190 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Trace of single notification delivery, its identifier is sent to Webex Teams API as {@code TrackingID} header.
+ * <p>
+ * Trace is attached to the thread currently working on the delivery, so lower layers can record their spans without passing it around.
+ */
+public class DeliveryTrace {
+
+    private static final ThreadLocal<DeliveryTrace> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final String tokenFingerprint;
+    private final String roomIdentifier;
+    private final long startedAt;
+    private final long startedNanos;
+    private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile String outcome;
+    private volatile long durationMicros = -1;
+    private volatile long requestStartedNanos;
+
+    DeliveryTrace(@NotNull final String traceId, @NotNull final String tokenFingerprint, @Nullable final String roomIdentifier) {
+        this.traceId = requireNonNull(traceId, "'traceId' cannot be null");
+        this.tokenFingerprint = requireNonNull(tokenFingerprint, "'tokenFingerprint' cannot be null");
+        this.roomIdentifier = roomIdentifier;
+        this.startedAt = System.currentTimeMillis();
+        this.startedNanos = System.nanoTime();
+    }
+
+    /**
+     * @return trace attached to the current thread or null if there is none
+     */
+    @Nullable
+    public static DeliveryTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Records span ending now to the trace attached to the current thread (if any)
+     *
+     * @param name
+     *         name of the span
+     * @param startNanos
+     *         {@link System#nanoTime()} when the span started
+     */
+    public static void recordSpan(@NotNull final String name, final long startNanos) {
+        final DeliveryTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.addSpan(name, startNanos);
+        }
+    }
+
+    /**
+     * Attaches this trace to the current thread
+     */
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Detaches any trace from the current thread
+     */
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Records span ending now
+     *
+     * @param name
+     *         name of the span
+     * @param startNanos
+     *         {@link System#nanoTime()} when the span started
+     */
+    public void addSpan(@NotNull final String name, final long startNanos) {
+        spans.add(new Span(name, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos)));
+    }
+
+    /**
+     * Records span of already known duration
+     */
+    public void addSpanMicros(@NotNull final String name, final long micros) {
+        spans.add(new Span(name, micros));
+    }
+
+    void finish(@NotNull final String outcome) {
+        this.outcome = requireNonNull(outcome, "'outcome' cannot be null");
+        this.durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Marks start of HTTP request, the time until it is written to the wire is recorded as serialization span
+     */
+    public void markRequestStart() {
+        requestStartedNanos = System.nanoTime();
+    }
+
+    public long getRequestStartedNanos() {
+        return requestStartedNanos;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getTokenFingerprint() {
+        return tokenFingerprint;
+    }
+
+    @Nullable
+    public String getRoomIdentifier() {
+        return roomIdentifier;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return outcome of the delivery or null while it is in progress
+     */
+    @Nullable
+    public String getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return total duration in microseconds or -1 while the delivery is in progress
+     */
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    @NotNull
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "DeliveryTrace{", "}")
+                .add("traceId='" + traceId + "'")
+                .add("tokenFingerprint='" + tokenFingerprint + "'")
+                .add("roomIdentifier='" + roomIdentifier + "'")
+                .add("outcome='" + outcome + "'")
+                .add("durationMicros=" + durationMicros)
+                .add("spans=" + getSpans())
+                .toString();
+    }
+
+    /**
+     * Named and timed part of the delivery
+     */
+    public static final class Span {
+        private final String name;
+        private final long durationMicros;
+
+        Span(final String name, final long durationMicros) {
+            this.name = name;
+            this.durationMicros = durationMicros;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + durationMicros + "us";
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates {@link DeliveryTrace}s and keeps the last finished ones in lock-free ring buffer
+ */
+@Component
+public class DeliveryTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryTracer.class);
+
+    private static final String TRACE_ID_PREFIX = "WTN_";
+
+    private final AtomicReferenceArray<DeliveryTrace> history;
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * Constructs new instance of {@link DeliveryTracer}
+     */
+    @Autowired
+    public DeliveryTracer(@NotNull final TeamsNotificationsConfiguration configuration) {
+        requireNonNull(configuration, "'configuration' cannot be null");
+        this.history = new AtomicReferenceArray<>(Math.max(1, configuration.getTraceHistorySize()));
+    }
+
+    /**
+     * Starts trace of notification delivery for given recipient
+     *
+     * @param settings
+     *         settings of notification recipient
+     * @return new trace
+     */
+    @NotNull
+    public DeliveryTrace start(@NotNull final TeamsBotNotificationSettings settings) {
+        requireNonNull(settings, "'settings' cannot be null");
+
+        return new DeliveryTrace(TRACE_ID_PREFIX + UUID.randomUUID(), BotTokens.fingerprint(settings.getBotAccessToken()),
+                settings.getRoomIdentifier());
+    }
+
+    /**
+     * Finishes given trace, detaches it from the current thread and stores it in the history
+     *
+     * @param trace
+     *         trace to finish
+     * @param outcome
+     *         outcome of the delivery
+     */
+    public void finish(@NotNull final DeliveryTrace trace, @NotNull final String outcome) {
+        requireNonNull(trace, "'trace' cannot be null");
+
+        trace.finish(outcome);
+        if (DeliveryTrace.current() == trace) {
+            DeliveryTrace.detach();
+        }
+        history.set((int) (cursor.getAndIncrement() % history.length()), trace);
+        logger.debug("Delivery finished '{}'.", trace);
+    }
+
+    /**
+     * @return finished traces, the most recent first
+     */
+    @NotNull
+    public List<DeliveryTrace> getRecentTraces() {
+        final long end = cursor.get();
+        final int size = history.length();
+        final List<DeliveryTrace> result = new ArrayList<>(size);
+        for (long i = end - 1; i >= 0 && i >= end - size; i--) {
+            final DeliveryTrace trace = history.get((int) (i % size));
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executors running buffered deliveries.
+ * <p>
+ * This is the Java 21 variant of the multi-release plugin JAR, every delivery runs on its own virtual thread, so blocking calls of Webex
+ * Teams API do not hold platform threads.
+ */
+public final class DeliveryExecutors {
+
+    private DeliveryExecutors() {
+    }
+
+    /**
+     * @return true if deliveries run on virtual threads, so their number in flight is not limited by threads
+     */
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * Creates executor of deliveries
+     *
+     * @param platformThreads
+     *         maximal number of platform threads, unused with virtual threads
+     * @param name
+     *         prefix of thread names
+     * @return new executor
+     */
+    @NotNull
+    public static ExecutorService newExecutor(final int platformThreads, @NotNull final String name) {
+        requireNonNull(name, "'name' cannot be null");
+
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
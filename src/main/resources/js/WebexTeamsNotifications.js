@@ -0,0 +1,159 @@
+/**
+ * Suggests rooms of the bot while user types into room field of the Webex Teams recipient form and checks the recipient in background,
+ * so saving the form reuses the fresh result. The form is inserted dynamically when the recipient type is selected, so events are
+ * delegated from the document.
+ */
+(function ($) {
+    var ROOM_FIELD = 'input[name="roomIdentifier"]';
+    var TOKEN_FIELD = 'input[name="botAccessToken"]';
+    var DEBOUNCE_MILLIS = 150;
+    var VALIDATION_DEBOUNCE_MILLIS = 500;
+    var timer = null;
+    var pending = null;
+    var validationTimer = null;
+    var pendingValidation = null;
+
+    function suggestionsUrl() {
+        return AJS.contextPath() + '/rest/webexteams/1.0/rooms/suggestions';
+    }
+
+    function listOf($field) {
+        var $list = $field.siblings('.webex-teams-room-suggestions');
+        if (!$list.length) {
+            $list = $('<ul class="webex-teams-room-suggestions"></ul>').hide().insertAfter($field);
+        }
+        return $list;
+    }
+
+    function hide($field) {
+        listOf($field).empty().hide();
+    }
+
+    function render($field, rooms) {
+        var $list = listOf($field).empty();
+        $.each(rooms || [], function (index, room) {
+            $('<li></li>').text(room.title).attr('title', room.id).data('room', room).appendTo($list);
+        });
+        $list.toggle($list.children().length > 0);
+    }
+
+    function suggest($field) {
+        var token = $.trim($field.closest('form').find(TOKEN_FIELD).val() || '');
+        if (!token) {
+            hide($field);
+            return;
+        }
+        if (pending) {
+            pending.abort();
+        }
+        pending = $.ajax({
+            url: suggestionsUrl(),
+            type: 'POST',
+            contentType: 'application/json',
+            dataType: 'json',
+            data: JSON.stringify({botAccessToken: token, query: $field.val()})
+        }).done(function (response) {
+            render($field, response.rooms);
+        }).fail(function () {
+            hide($field);
+        }).always(function () {
+            pending = null;
+        });
+    }
+
+    function select($field, $item) {
+        $field.val($item.data('room').title);
+        hide($field);
+        scheduleValidation($field);
+    }
+
+    function validationOf($field) {
+        var $validation = $field.siblings('.webex-teams-recipient-validation');
+        if (!$validation.length) {
+            $validation = $('<div class="webex-teams-recipient-validation"></div>').insertAfter($field);
+        }
+        return $validation;
+    }
+
+    function validate($roomField) {
+        var token = $roomField.closest('form').find(TOKEN_FIELD).val() || '';
+        var room = $roomField.val() || '';
+        var $validation = validationOf($roomField).removeClass('valid invalid').text('');
+        if (pendingValidation) {
+            pendingValidation.abort();
+        }
+        if (!$.trim(token) || !$.trim(room)) {
+            return;
+        }
+        pendingValidation = $.ajax({
+            url: AJS.contextPath() + '/rest/webexteams/1.0/recipients/validation',
+            type: 'POST',
+            contentType: 'application/json',
+            dataType: 'json',
+            data: JSON.stringify({botAccessToken: token, roomIdentifier: room})
+        }).done(function (response) {
+            $validation.addClass(response.valid ? 'valid' : 'invalid').text(response.message);
+        }).always(function () {
+            pendingValidation = null;
+        });
+    }
+
+    function scheduleValidation($roomField) {
+        clearTimeout(validationTimer);
+        validationTimer = setTimeout(function () {
+            validate($roomField);
+        }, VALIDATION_DEBOUNCE_MILLIS);
+    }
+
+    function move($field, step) {
+        var $items = listOf($field).children();
+        var index = $items.index($items.filter('.active')) + step;
+        $items.removeClass('active');
+        if ($items.length) {
+            $items.eq((index + $items.length) % $items.length).addClass('active');
+        }
+    }
+
+    $(document).on('input focus', ROOM_FIELD, function () {
+        var $field = $(this);
+        clearTimeout(timer);
+        timer = setTimeout(function () {
+            suggest($field);
+        }, DEBOUNCE_MILLIS);
+    });
+
+    $(document).on('input', ROOM_FIELD, function () {
+        scheduleValidation($(this));
+    });
+
+    $(document).on('input', TOKEN_FIELD, function () {
+        scheduleValidation($(this).closest('form').find(ROOM_FIELD));
+    });
+
+    $(document).on('keydown', ROOM_FIELD, function (event) {
+        var $field = $(this);
+        var $active = listOf($field).children('.active');
+        if (event.which === 40 || event.which === 38) {
+            move($field, event.which === 40 ? 1 : -1);
+            event.preventDefault();
+        } else if (event.which === 13 && $active.length) {
+            select($field, $active);
+            event.preventDefault();
+        } else if (event.which === 27) {
+            hide($field);
+        }
+    });
+
+    $(document).on('blur', ROOM_FIELD, function () {
+        var $field = $(this);
+        setTimeout(function () {
+            hide($field);
+        }, DEBOUNCE_MILLIS);
+    });
+
+    $(document).on('mousedown', '.webex-teams-room-suggestions li', function (event) {
+        var $item = $(this);
+        select($item.parent().siblings(ROOM_FIELD), $item);
+        event.preventDefault();
+    });
+})(AJS.$);
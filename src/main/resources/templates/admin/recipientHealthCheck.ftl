@@ -0,0 +1,54 @@
+<html>
+<head>
+    <title>[@s.text name='webexTeamsNotifications.admin.healthCheck.title'/]</title>
+    <meta name="decorator" content="adminpage">
+    [#if action.scan?? && !action.scan.finished]
+    <meta http-equiv="refresh" content="2">
+    [/#if]
+</head>
+<body>
+<h1>[@s.text name='webexTeamsNotifications.admin.healthCheck.title'/]</h1>
+<p>[@s.text name='webexTeamsNotifications.admin.healthCheck.description'/]</p>
+
+[@ww.form action='startRecipientHealthCheck' namespace='/admin/webexteams' submitLabelKey='webexTeamsNotifications.admin.healthCheck.start']
+[/@ww.form]
+
+[#if action.scan??]
+[#assign scan = action.scan/]
+<table class="aui">
+    <tbody>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.column.started'/]</th><td>${action.formatTime(scan.startedAt)}</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.healthCheck.progress'/]</th>
+        <td>${scan.checkedCount} / ${scan.recipientCount} ([@s.text name='webexTeamsNotifications.admin.healthCheck.rules'/] ${scan.ruleCount})
+            [#if scan.finished] - ${((scan.finishedAt - scan.startedAt) / 1000)?string("0.0")} s[/#if]</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.healthCheck.failed'/]</th><td>${scan.failedCount}</td></tr>
+    </tbody>
+</table>
+
+[#if scan.results?has_content]
+<table class="aui">
+    <thead>
+    <tr>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.token'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.room'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.healthCheck.rules'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.status'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.duration'/]</th>
+    </tr>
+    </thead>
+    <tbody>
+    [#list scan.results as result]
+    <tr>
+        <td><code>${result.tokenFingerprint}</code></td>
+        <td>${result.roomIdentifier?html}</td>
+        <td>${result.ruleCount}</td>
+        <td><span class="aui-lozenge [#if result.status.name() == 'OK']aui-lozenge-success[#else]aui-lozenge-error[/#if]">[@s.text name='webexTeamsNotifications.admin.healthCheck.status.${result.status.name()}'/]</span></td>
+        <td>${result.durationMillis} ms</td>
+    </tr>
+    [/#list]
+    </tbody>
+</table>
+[/#if]
+[/#if]
+</body>
+</html>
@@ -0,0 +1,93 @@
+<html>
+<head>
+    <title>[@s.text name='webexTeamsNotifications.admin.traces.title'/]</title>
+    <meta name="decorator" content="adminpage">
+</head>
+<body>
+<h1>[@s.text name='webexTeamsNotifications.admin.traces.title'/]</h1>
+
+<h2>[@s.text name='webexTeamsNotifications.admin.buffer.title'/]</h2>
+<table class="aui">
+    <tbody>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.buffer.queued'/]</th><td>${action.deliveryBuffer.queueSize} / ${action.deliveryBuffer.capacity}</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.buffer.dropped'/]</th><td>${action.deliveryBuffer.droppedCount}</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.buffer.spilled'/]</th><td>${action.deliveryBuffer.spilledCount} (${action.deliveryBuffer.spilledPendingCount})</td></tr>
+    </tbody>
+</table>
+
+<h2>[@s.text name='webexTeamsNotifications.admin.concurrency.title'/]</h2>
+<table class="aui">
+    <tbody>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.concurrency.limit'/]</th><td>${action.concurrencyLimiter.inFlight} / ${action.concurrencyLimiter.limit}</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.concurrency.noLoadLatency'/]</th><td>${action.concurrencyLimiter.noLoadLatencyMillis?string("0.0")} ms</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.concurrency.overloaded'/]</th><td>${action.concurrencyLimiter.overloadCount}</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.concurrency.rejected'/]</th><td>${action.concurrencyLimiter.rejectedCount + action.bulkheadRejectedCount}</td></tr>
+    <tr><th>[@s.text name='webexTeamsNotifications.admin.concurrency.hedged'/]</th><td>${action.hedgedRequestCount}</td></tr>
+    </tbody>
+</table>
+
+<h2>[@s.text name='webexTeamsNotifications.admin.broken.title'/]</h2>
+[#if action.brokenRecipients?has_content]
+<table class="aui">
+    <thead>
+    <tr>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.token'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.room'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.status'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.brokenSince'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.nextCheck'/]</th>
+    </tr>
+    </thead>
+    <tbody>
+    [#list action.brokenRecipients as brokenRecipient]
+    <tr>
+        <td><code>${brokenRecipient.tokenFingerprint}</code></td>
+        <td>${(brokenRecipient.roomIdentifier!'*')?html}</td>
+        <td>${brokenRecipient.status}</td>
+        <td>${action.formatTime(brokenRecipient.brokenSince)}</td>
+        <td>${action.formatTime(brokenRecipient.nextCheckAt)}</td>
+    </tr>
+    [/#list]
+    </tbody>
+</table>
+[#else]
+<p>[@s.text name='webexTeamsNotifications.admin.broken.none'/]</p>
+[/#if]
+
+<h2>[@s.text name='webexTeamsNotifications.admin.traces.recent'/]</h2>
+[#if action.recentTraces?has_content]
+<table class="aui">
+    <thead>
+    <tr>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.started'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.trackingId'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.token'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.room'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.outcome'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.duration'/]</th>
+        <th>[@s.text name='webexTeamsNotifications.admin.column.spans'/]</th>
+    </tr>
+    </thead>
+    <tbody>
+    [#list action.recentTraces as trace]
+    <tr>
+        <td>${action.formatTime(trace.startedAt)}</td>
+        <td><code>${trace.traceId}</code></td>
+        <td><code>${trace.tokenFingerprint}</code></td>
+        <td>${(trace.roomIdentifier!'')?html}</td>
+        <td>${trace.outcome!''}</td>
+        <td>${action.formatMicros(trace.durationMicros)}</td>
+        <td>
+            [#list trace.spans as span]
+            ${span.name?html}: ${action.formatMicros(span.durationMicros)}[#if span_has_next]<br>[/#if]
+            [/#list]
+        </td>
+    </tr>
+    [/#list]
+    </tbody>
+</table>
+[#else]
+<p>[@s.text name='webexTeamsNotifications.admin.traces.none'/]</p>
+[/#if]
+</body>
+</html>
@@ -1,3 +1,4 @@
+${webResourceManager.requireResourcesForContext("WebexTeamsNotifications")}
 [#if botAccessToken?has_content]
     [@s.textfield key='nofification.recipient.webexTeamsNotifications.accessToken.label' value='${botAccessToken?html}' name='botAccessToken' /]
 [#else]
@@ -7,4 +8,6 @@
     [@s.textfield key='nofification.recipient.webexTeamsNotifications.roomIdentifier.label' value='${roomIdentifier?html}' name='roomIdentifier' descriptionKey='nofification.recipient.webexTeamsNotifications.roomIdentifier.description'/]
 [#else]
     [@ww.textfield labelKey='nofification.recipient.webexTeamsNotifications.roomIdentifier.label'  name='roomIdentifier' descriptionKey='nofification.recipient.webexTeamsNotifications.roomIdentifier.description' /]
-[/#if]
\ No newline at end of file
+[/#if]
+[@ww.textfield labelKey='nofification.recipient.webexTeamsNotifications.deliveryTimeout.label' name='deliveryTimeoutSeconds' value='${(deliveryTimeoutSeconds?c)!""}' descriptionKey='nofification.recipient.webexTeamsNotifications.deliveryTimeout.description' /]
+[@ww.checkbox labelKey='nofification.recipient.webexTeamsNotifications.editInPlace.label' name='editInPlace' value=(editInPlace!false)?c descriptionKey='nofification.recipient.webexTeamsNotifications.editInPlace.description' /]
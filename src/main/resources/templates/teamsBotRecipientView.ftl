@@ -2,5 +2,8 @@
     ${roomIdentifier}
 [#else]
     [@s.text name='nofification.recipient.webexTeamsNotifications.roomIdentifier.error.noSpecified'/]
+[/#if]
+[#if recipientBroken?? && recipientBroken]
+    <span class="aui-lozenge aui-lozenge-error" title="[@s.text name='nofification.recipient.webexTeamsNotifications.recipient.broken.description'/]">[@s.text name='nofification.recipient.webexTeamsNotifications.recipient.broken'/]</span>
 [/#if]
  <span class='notificationRecipientType'> ([@s.text name='nofification.recipient.webexTeamsNotifications.type.name'/])</span>
\ No newline at end of file
@@ -0,0 +1,121 @@
+package it.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.activeobjects.test.TestActiveObjects;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaim;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaimEntity;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaims;
+import net.java.ao.EntityManager;
+import net.java.ao.Query;
+import net.java.ao.test.jdbc.Data;
+import net.java.ao.test.jdbc.DatabaseUpdater;
+import net.java.ao.test.jdbc.H2Memory;
+import net.java.ao.test.jdbc.Jdbc;
+import net.java.ao.test.junit.ActiveObjectsJUnitRunner;
+
+@RunWith(ActiveObjectsJUnitRunner.class)
+@Data(DeliveryClaimsTest.Schema.class)
+@Jdbc(H2Memory.class)
+public class DeliveryClaimsTest {
+
+    private EntityManager entityManager;
+    private ActiveObjects activeObjects;
+    private Properties properties;
+
+    @Before
+    public void setup() {
+        activeObjects = new TestActiveObjects(entityManager);
+        properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "deliveryClaims.enabled", "true");
+    }
+
+    @Test
+    public void givenClaim_whenMessageIsClaimedByAnotherNode_thenItIsNotClaimedAgain() {
+        final DeliveryClaims node1 = claims(properties);
+        final DeliveryClaims node2 = claims(properties);
+
+        Assert.assertTrue(node1.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertFalse(node2.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertTrue(node2.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-2").isGranted());
+        Assert.assertTrue(node2.claim("token", "anotherRoomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertTrue(node2.claim("anotherToken", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertTrue(node2.claim("token", "roomId", "BuildStarted:PROJ-PLAN-1").isGranted());
+    }
+
+    @Test
+    public void givenClaim_whenNotificationKeyIsNotKnown_thenNothingIsStored() {
+        final DeliveryClaims node = claims(properties);
+
+        Assert.assertTrue(node.claim("token", "roomId", null).isGranted());
+        Assert.assertTrue(node.claim("token", "roomId", null).isGranted());
+        Assert.assertEquals(0, activeObjects.find(DeliveryClaimEntity.class, Query.select()).length);
+    }
+
+    @Test
+    public void givenClaim_whenClaimIsReleased_thenMessageCanBeClaimedAgain() {
+        final DeliveryClaims node1 = claims(properties);
+        final DeliveryClaims node2 = claims(properties);
+
+        node1.release(node1.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1"));
+
+        Assert.assertTrue(node2.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+    }
+
+    @Test
+    public void givenClaim_whenLeaseExpired_thenClaimIsTakenOver() throws InterruptedException {
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "deliveryClaims.leaseSeconds", "0");
+        final DeliveryClaims node1 = claims(properties);
+        final DeliveryClaims node2 = claims(properties);
+
+        Assert.assertTrue(node1.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Thread.sleep(5);
+
+        Assert.assertTrue(node2.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertEquals(1, activeObjects.find(DeliveryClaimEntity.class, Query.select()).length);
+    }
+
+    @Test
+    public void givenRelease_whenExpiredClaimWasTakenOver_thenClaimOfTheNewOwnerIsKept() throws InterruptedException {
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "deliveryClaims.leaseSeconds", "0");
+        final DeliveryClaims node1 = claims(properties);
+        final DeliveryClaims node2 = claims(properties);
+
+        final DeliveryClaim expired = node1.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1");
+        Thread.sleep(5);
+        Assert.assertTrue(node2.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        node1.release(expired);
+
+        Assert.assertEquals(1, activeObjects.find(DeliveryClaimEntity.class, Query.select()).length);
+    }
+
+    @Test
+    public void givenClaim_whenClaimsAreDisabled_thenNothingIsStored() {
+        final DeliveryClaims node = claims(new Properties());
+
+        Assert.assertTrue(node.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertTrue(node.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1").isGranted());
+        Assert.assertEquals(0, activeObjects.find(DeliveryClaimEntity.class, Query.select()).length);
+    }
+
+    private DeliveryClaims claims(final Properties properties) {
+        return new DeliveryClaims(activeObjects, new TeamsNotificationsConfiguration(properties));
+    }
+
+    public static final class Schema implements DatabaseUpdater {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void update(final EntityManager entityManager) throws Exception {
+            entityManager.migrate(DeliveryClaimEntity.class);
+        }
+    }
+}
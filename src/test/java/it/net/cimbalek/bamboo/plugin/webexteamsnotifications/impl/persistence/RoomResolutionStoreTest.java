@@ -0,0 +1,104 @@
+package it.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.activeobjects.test.TestActiveObjects;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionEntity;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionStore;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.java.ao.DBParam;
+import net.java.ao.EntityManager;
+import net.java.ao.Query;
+import net.java.ao.test.jdbc.Data;
+import net.java.ao.test.jdbc.DatabaseUpdater;
+import net.java.ao.test.jdbc.H2Memory;
+import net.java.ao.test.jdbc.Jdbc;
+import net.java.ao.test.junit.ActiveObjectsJUnitRunner;
+
+@RunWith(ActiveObjectsJUnitRunner.class)
+@Data(RoomResolutionStoreTest.Schema.class)
+@Jdbc(H2Memory.class)
+public class RoomResolutionStoreTest {
+
+    private EntityManager entityManager;
+    private ActiveObjects activeObjects;
+    private RoomResolutionStore node1;
+    private RoomResolutionStore node2;
+
+    @Before
+    public void setup() {
+        activeObjects = new TestActiveObjects(entityManager);
+        node1 = new RoomResolutionStore(activeObjects, new TeamsNotificationsConfiguration(new Properties()));
+        node2 = new RoomResolutionStore(activeObjects, new TeamsNotificationsConfiguration(new Properties()));
+    }
+
+    @Test
+    public void givenSave_whenAnotherNodeFindsTheRecipient_thenStoredRoomIsReturned() {
+        node1.save("token", "Release team", room("roomId", "Release team"));
+
+        Assert.assertEquals(Optional.of(room("roomId", "Release team")), node2.find("token", "Release team"));
+        Assert.assertFalse(node2.find("anotherToken", "Release team").isPresent());
+        Assert.assertFalse(node2.find("token", "Another room").isPresent());
+    }
+
+    @Test
+    public void givenSave_whenRecipientIsSavedAgain_thenSingleRowWithFingerprintIsKept() {
+        node1.save("token", "Release team", room("roomId", "Release team"));
+        node2.save("token", "Release team", room("newRoomId", "Release team"));
+
+        final RoomResolutionEntity[] stored = activeObjects.find(RoomResolutionEntity.class, Query.select());
+        Assert.assertEquals(1, stored.length);
+        Assert.assertEquals("newRoomId", stored[0].getRoomId());
+        Assert.assertEquals(BotTokens.fingerprint("token"), stored[0].getTokenFingerprint());
+    }
+
+    @Test
+    public void givenFind_whenStoredRoomIsOlderThanTimeToLive_thenItIsNotReturned() {
+        activeObjects.create(RoomResolutionEntity.class,
+                new DBParam("TOKEN_FINGERPRINT", BotTokens.fingerprint("token")),
+                new DBParam("IDENTIFIER", "Release team"),
+                new DBParam("ROOM_ID", "roomId"),
+                new DBParam("TITLE", "Release team"),
+                new DBParam("VERIFIED_AT", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25)));
+
+        Assert.assertFalse(node1.find("token", "Release team").isPresent());
+    }
+
+    @Test
+    public void givenForgetRoom_whenAnotherNodeFindsTheRecipient_thenRoomIsNotReturned() {
+        node1.save("token", "Release team", room("roomId", "Release team"));
+        node1.save("token", "roomId", room("roomId", "Release team"));
+        node1.forgetRoom("token", "roomId");
+
+        Assert.assertFalse(node1.find("token", "Release team").isPresent());
+        Assert.assertFalse(node2.find("token", "Release team").isPresent());
+        Assert.assertFalse(node2.find("token", "roomId").isPresent());
+    }
+
+    private static Room room(final String id, final String title) {
+        final Room room = new Room();
+        room.setId(id);
+        room.setTitle(title);
+        return room;
+    }
+
+    public static final class Schema implements DatabaseUpdater {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void update(final EntityManager entityManager) throws Exception {
+            entityManager.migrate(RoomResolutionEntity.class);
+        }
+    }
+}
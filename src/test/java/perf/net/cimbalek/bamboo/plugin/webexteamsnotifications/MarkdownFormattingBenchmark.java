@@ -0,0 +1,81 @@
+package perf.net.cimbalek.bamboo.plugin.webexteamsnotifications;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.format.ImContentMarkdownFormatter;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.JsonBodyWriter;
+
+/**
+ * Measures CPU time and allocations {@link ImContentMarkdownFormatter} adds to preparation of single message, the baseline is
+ * serialization of the message with unformatted content.
+ * <p>
+ * Run by {@code atlas-mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownFormattingBenchmark {
+
+    private final JsonBodyWriter jsonBodyWriter = new JsonBodyWriter();
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder builder = new StringBuilder("Webex Teams Notifications > Build and Test > PROJ-PLAN-42 failed. ")
+                .append("Changes by John Doe, Jane Roe.\n")
+                .append("12 of 1250 tests failed:\n");
+        for (int i = 0; i < 12; i++) {
+            builder.append("net.cimbalek.bamboo.plugin.webexteamsnotifications.SomeTest.testSomething").append(i).append('\n');
+        }
+        content = builder.append("https://bamboo.example.com/browse/PROJ-PLAN-42").toString();
+    }
+
+    @Benchmark
+    public byte[] plainContent() {
+        return jsonBodyWriter.write(buildMessage(content));
+    }
+
+    @Benchmark
+    public byte[] formattedContent() {
+        return jsonBodyWriter.write(buildMessage(ImContentMarkdownFormatter.format(content)));
+    }
+
+    @Benchmark
+    public String formattingOnly() {
+        return ImContentMarkdownFormatter.format(content);
+    }
+
+    private static Message buildMessage(final String markdown) {
+        final Message message = new Message();
+        message.setRoomId("Y2lzY29zcGFyazovL3VzL1JPT00vYmJjZWIxYWQtNDNmMS0zYjU4LTkxNDctZjE0YmIwYzRkMTU0");
+        message.setMarkdown(markdown);
+        return message;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MarkdownFormattingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
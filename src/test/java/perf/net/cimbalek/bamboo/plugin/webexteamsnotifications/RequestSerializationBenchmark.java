@@ -0,0 +1,107 @@
+package perf.net.cimbalek.bamboo.plugin.webexteamsnotifications;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotRequestHeaders;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.JsonBodyWriter;
+
+/**
+ * Compares allocations and CPU time of preparing single message request with freshly built headers and the message
+ * written by {@link MappingJackson2HttpMessageConverter} (the former way) against {@link BotRequestHeaders} and
+ * {@link JsonBodyWriter}.
+ * <p>
+ * Run by {@code atlas-mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>}, see
+ * {@code gc.alloc.rate.norm} (bytes per operation) in the output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestSerializationBenchmark {
+
+    private static final String BOT_TOKEN = "NmE4ZDdiZjUtYjkxYi00ZjM1LWFmNDEtNzNkMmRlZmY5YzE3YjQ3ZjM2YjgtMGM0";
+
+    private final MappingJackson2HttpMessageConverter messageConverter = new MappingJackson2HttpMessageConverter();
+    private final BotRequestHeaders botRequestHeaders = new BotRequestHeaders();
+    private final JsonBodyWriter jsonBodyWriter = new JsonBodyWriter();
+
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        message = new Message();
+        message.setRoomId("Y2lzY29zcGFyazovL3VzL1JPT00vYmJjZWIxYWQtNDNmMS0zYjU4LTkxNDctZjE0YmIwYzRkMTU0");
+        message.setMarkdown("**Build [PROJ-PLAN-42](https://bamboo.example.com/browse/PROJ-PLAN-42) failed.** "
+                + "3 of 1250 tests failed, changes by John Doe.");
+    }
+
+    @Benchmark
+    public void freshHeadersAndMessageConverter(final Blackhole blackhole) throws IOException {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.add("Authorization", String.format("Bearer %s", BOT_TOKEN));
+        headers.add("Content-type", "application/json; charset=utf-8");
+        final HttpEntity<Message> entity = new HttpEntity<>(message, headers);
+
+        final InMemoryOutputMessage outputMessage = new InMemoryOutputMessage();
+        messageConverter.write(entity.getBody(), MediaType.APPLICATION_JSON_UTF8, outputMessage);
+        blackhole.consume(entity.getHeaders());
+        blackhole.consume(outputMessage.body.toByteArray());
+    }
+
+    @Benchmark
+    public void cachedHeadersAndJsonBodyWriter(final Blackhole blackhole) {
+        final HttpEntity<byte[]> entity = new HttpEntity<>(jsonBodyWriter.write(message), botRequestHeaders.forToken(BOT_TOKEN));
+        blackhole.consume(entity.getHeaders());
+        blackhole.consume(entity.getBody());
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RequestSerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private static class InMemoryOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
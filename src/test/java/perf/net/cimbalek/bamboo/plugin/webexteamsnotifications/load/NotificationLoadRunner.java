@@ -0,0 +1,367 @@
+package perf.net.cimbalek.bamboo.plugin.webexteamsnotifications.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.bamboo.notification.Notification;
+import com.atlassian.bamboo.notification.NotificationManager;
+import com.atlassian.bamboo.notification.NotificationTransport;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
+import com.atlassian.bamboo.template.TemplateRenderer;
+import com.atlassian.sal.api.message.I18nResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipientValidator;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event.DirectRecipientIndex;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaims;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionStore;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.BuildMessageRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.MessageReconciler;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientValidationCache;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+/**
+ * Soak and load test of notification delivery against local {@link WebexApiStub}.
+ * <p>
+ * Build events are generated at configured rate and handed over to a pool of "Bamboo" threads which do what Bamboo does for every
+ * notification - create recipient, {@link TeamsBotNotificationRecipient#init(String) init} it with recipient configuration, get its
+ * {@link TeamsBotNotificationRecipient#getTransports() transports} and {@link NotificationTransport#sendNotification(Notification) send}
+ * the notification. Tokens and rooms of recipients follow Zipf distribution, so a few rooms get most notifications. Every report
+ * interval the throughput, percentiles of the time Bamboo thread spends in the plugin and of the time until the message reaches the
+ * stub, backlog of Bamboo threads, thread count and heap usage are printed.
+ * <p>
+ * Run by {@code atlas-mvn test-compile exec:java -Pload-test -Dload.durationMinutes=240}, parameters are system properties:
+ * <ul>
+ * <li>{@code load.durationMinutes} (10), {@code load.reportSeconds} (60)</li>
+ * <li>{@code load.eventsPerMinute} (6000), {@code load.bambooThreads} (4)</li>
+ * <li>{@code load.tokens} (5), {@code load.rooms} (200), {@code load.zipfExponent} (1.0), {@code load.roomsByTitlePercent} (20)</li>
+ * <li>{@code load.stub.latencyMillis} (100), {@code load.stub.throttlePercent} (0), {@code load.stub.threads} (64)</li>
+ * </ul>
+ * and any {@code webexteams.*} property of the plugin. Active Objects are not available, so the shared room store and delivery claims
+ * are disabled unless enabled explicitly.
+ */
+public final class NotificationLoadRunner {
+
+    private static final Pattern SEQUENCE = Pattern.compile("LOAD-PLAN-(\\d+)");
+    private static final long LOST_AFTER_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final ConcurrentMap<Long, Long> submittedAt = new ConcurrentHashMap<>();
+    private final LatencyRecorder callLatencies = new LatencyRecorder();
+    private final LatencyRecorder deliveryLatencies = new LatencyRecorder();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong called = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+
+    private NotificationLoadRunner() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new NotificationLoadRunner().run();
+    }
+
+    private void run() throws Exception {
+        final long durationMillis = TimeUnit.MINUTES.toMillis(Long.getLong("load.durationMinutes", 10L));
+        final long reportMillis = TimeUnit.SECONDS.toMillis(Long.getLong("load.reportSeconds", 60L));
+        final double eventsPerMillis = Long.getLong("load.eventsPerMinute", 6000L) / 60_000.0;
+        final int bambooThreads = Integer.getInteger("load.bambooThreads", 4);
+        final int tokens = Integer.getInteger("load.tokens", 5);
+        final int rooms = Integer.getInteger("load.rooms", 200);
+        final double zipfExponent = Double.parseDouble(System.getProperty("load.zipfExponent", "1.0"));
+        final int roomsByTitlePercent = Integer.getInteger("load.roomsByTitlePercent", 20);
+
+        try (WebexApiStub stub = new WebexApiStub(rooms, Long.getLong("load.stub.latencyMillis", 100L),
+                Integer.getInteger("load.stub.throttlePercent", 0), Integer.getInteger("load.stub.threads", 64), this::onDelivered)) {
+            final Plugin plugin = new Plugin(configuration(stub.getBaseUrl()));
+            final String[] recipientConfigs = recipientConfigs(tokens, rooms, roomsByTitlePercent);
+            final ZipfSampler tokenSampler = new ZipfSampler(tokens, zipfExponent);
+            final ZipfSampler roomSampler = new ZipfSampler(rooms, zipfExponent);
+            final ThreadPoolExecutor bamboo = new ThreadPoolExecutor(bambooThreads, bambooThreads, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), daemonThreads("bamboo-notification"));
+            final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("load-generator"));
+
+            final long start = System.currentTimeMillis();
+            scheduler.scheduleAtFixedRate(() -> {
+                final long due = (long) ((System.currentTimeMillis() - start) * eventsPerMillis);
+                while (submitted.get() < due) {
+                    final long sequence = submitted.incrementAndGet();
+                    final String recipientConfig = recipientConfigs[tokenSampler.next() * rooms + roomSampler.next()];
+                    submittedAt.put(sequence, System.nanoTime());
+                    bamboo.execute(() -> sendNotification(plugin, recipientConfig, sequence));
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+
+            System.out.printf(Locale.ROOT, "Load test against %s for %d minutes%n", stub.getBaseUrl(),
+                    TimeUnit.MILLISECONDS.toMinutes(durationMillis));
+            System.out.println("elapsed_s,submitted,delivered,lost,delivered_per_min,bamboo_backlog,buffer_queue,buffer_dropped,"
+                    + "call_p50_ms,call_p95_ms,call_p99_ms,call_max_ms,delivery_p50_ms,delivery_p95_ms,delivery_p99_ms,delivery_max_ms,"
+                    + "stub_requests,stub_throttled,failed_calls,threads,peak_threads,heap_used_mb,heap_committed_mb");
+            long lastReport = start;
+            long lastDelivered = 0;
+            while (System.currentTimeMillis() - start < durationMillis) {
+                Thread.sleep(Math.min(reportMillis, durationMillis - (System.currentTimeMillis() - start)));
+                final long now = System.currentTimeMillis();
+                final long deliveredNow = delivered.get();
+                report(now - start, (deliveredNow - lastDelivered) * 60_000.0 / Math.max(1, now - lastReport), bamboo, plugin, stub);
+                lastReport = now;
+                lastDelivered = deliveredNow;
+            }
+            scheduler.shutdownNow();
+            bamboo.shutdownNow();
+            System.out.printf(Locale.ROOT, "Submitted %d, passed to plugin %d, delivered %d, lost %d, %d not delivered yet.%n",
+                    submitted.get(), called.get(), delivered.get(), lost.get(), submittedAt.size());
+            plugin.destroy();
+        }
+    }
+
+    private void sendNotification(final Plugin plugin, final String recipientConfig, final long sequence) {
+        final long start = System.nanoTime();
+        try {
+            final TeamsBotNotificationRecipient recipient = plugin.newRecipient();
+            recipient.init(recipientConfig);
+            for (final NotificationTransport transport : recipient.getTransports()) {
+                transport.sendNotification(notification(sequence));
+            }
+            called.incrementAndGet();
+        } catch (final RuntimeException e) {
+            failedCalls.incrementAndGet();
+        } finally {
+            callLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    private void onDelivered(final Message message) {
+        final Matcher matcher = SEQUENCE.matcher(String.valueOf(message.getMarkdown()) + message.getText());
+        if (matcher.find()) {
+            final Long submitted = submittedAt.remove(Long.parseLong(matcher.group(1)));
+            if (submitted != null) {
+                deliveryLatencies.record(System.nanoTime() - submitted);
+                delivered.incrementAndGet();
+            }
+        }
+    }
+
+    private void report(final long elapsedMillis, final double deliveredPerMinute, final ThreadPoolExecutor bamboo, final Plugin plugin,
+                        final WebexApiStub stub) {
+        final long now = System.nanoTime();
+        // dropped or failed notifications, they are never delivered
+        for (final Iterator<Long> iterator = submittedAt.values().iterator(); iterator.hasNext(); ) {
+            if (now - iterator.next() > LOST_AFTER_NANOS) {
+                iterator.remove();
+                lost.incrementAndGet();
+            }
+        }
+        final long[] call = callLatencies.snapshotAndReset();
+        final long[] delivery = deliveryLatencies.snapshotAndReset();
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.printf(Locale.ROOT, "%d,%d,%d,%d,%.0f,%d,%d,%d,%s,%s,%d,%d,%d,%d,%d,%d,%d%n",
+                TimeUnit.MILLISECONDS.toSeconds(elapsedMillis), submitted.get(), delivered.get(), lost.get(),
+                deliveredPerMinute,
+                bamboo.getQueue().size(), plugin.deliveryBuffer.getQueueSize(), plugin.deliveryBuffer.getDroppedCount(),
+                percentiles(call), percentiles(delivery), stub.getRequestCount(), stub.getThrottledCount(), failedCalls.get(),
+                threads.getThreadCount(), threads.getPeakThreadCount(), heap.getUsed() >> 20, heap.getCommitted() >> 20);
+    }
+
+    private static String percentiles(final long[] sortedNanos) {
+        return String.format(Locale.ROOT, "%.1f,%.1f,%.1f,%.1f", percentile(sortedNanos, 50), percentile(sortedNanos, 95),
+                percentile(sortedNanos, 99), percentile(sortedNanos, 100));
+    }
+
+    private static double percentile(final long[] sortedNanos, final int percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        final int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static Notification notification(final long sequence) {
+        final String content = "Build LOAD-PLAN-" + sequence + " failed. Responsible: load test. 3 of 1250 tests failed.";
+        return stub(Notification.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getIMContent":
+                    return content;
+                case "getDescription":
+                    return "Load test notification " + sequence;
+                case "toString":
+                    return "LoadNotification{" + sequence + "}";
+                default:
+                    return method.getReturnType() == Set.class ? Collections.emptySet() : null;
+            }
+        });
+    }
+
+    private static String[] recipientConfigs(final int tokens, final int rooms, final int roomsByTitlePercent) throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final String[] result = new String[tokens * rooms];
+        for (int token = 0; token < tokens; token++) {
+            for (int room = 0; room < rooms; room++) {
+                final TeamsBotNotificationSettings settings = new TeamsBotNotificationSettings();
+                settings.setBotAccessToken("load-token-" + token);
+                settings.setRoomIdentifier(ThreadLocalRandom.current().nextInt(100) < roomsByTitlePercent
+                        ? WebexApiStub.roomTitle(room) : WebexApiStub.roomId(room));
+                result[token * rooms + room] = objectMapper.writeValueAsString(settings);
+            }
+        }
+        return result;
+    }
+
+    private static TeamsNotificationsConfiguration configuration(final String apiBaseUrl) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "roomResolution.enabled", "false");
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "deliveryClaims.enabled", "false");
+        properties.putAll(System.getProperties());
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "api.baseUrl", apiBaseUrl);
+        return new TeamsNotificationsConfiguration(properties);
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        final AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<T> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(NotificationLoadRunner.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static <T> T nothing(final Class<T> type) {
+        return stub(type, (proxy, method, args) -> "toString".equals(method.getName()) ? type.getSimpleName() + "Stub" : null);
+    }
+
+    /**
+     * Components of the plugin wired the way Spring wires them in Bamboo, Bamboo services are empty stubs
+     */
+    private static final class Plugin {
+
+        private final TeamsNotificationsConfiguration configuration;
+        private final TeamsRestHttpClient teamsRestHttpClient;
+        private final TeamsRoomService teamsRoomService;
+        private final TeamsMessageService teamsMessageService;
+        private final DeliveryTracer deliveryTracer;
+        private final DeliveryBuffer deliveryBuffer;
+        private final TeamsBotNotificationRecipientValidator validator;
+        private final DirectRecipientIndex directRecipientIndex;
+        private final TemplateRenderer templateRenderer = nothing(TemplateRenderer.class);
+        private final I18nResolver i18nResolver = nothing(I18nResolver.class);
+
+        private Plugin(final TeamsNotificationsConfiguration configuration) {
+            this.configuration = configuration;
+            final ActiveObjects activeObjects = nothing(ActiveObjects.class);
+            final RecipientHealthRegistry recipientHealthRegistry = new RecipientHealthRegistry(configuration);
+            teamsRestHttpClient = new TeamsRestHttpClient(configuration);
+            teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry,
+                    new RoomResolutionStore(activeObjects, configuration));
+            teamsMessageService = new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry,
+                    new BuildMessageRegistry(configuration), new RoomResolutionStore(activeObjects, configuration),
+                    new DeliveryClaims(activeObjects, configuration), new MessageReconciler(teamsRestHttpClient, configuration));
+            deliveryTracer = new DeliveryTracer(configuration);
+            deliveryBuffer = new DeliveryBuffer(teamsRoomService, teamsMessageService, configuration, deliveryTracer,
+                    new RecipientSettingsRepository(stub(NotificationManager.class, (proxy, method, args) ->
+                            "getAllNotificationRules".equals(method.getName()) ? Collections.emptyList() : null)));
+            validator = new TeamsBotNotificationRecipientValidator(new RecipientValidationCache(teamsRoomService, configuration),
+                    i18nResolver);
+            directRecipientIndex = new DirectRecipientIndex(nothing(CachedPlanManager.class),
+                    configuration);
+        }
+
+        private TeamsBotNotificationRecipient newRecipient() {
+            return new TeamsBotNotificationRecipient(templateRenderer, i18nResolver, teamsMessageService, teamsRoomService, validator,
+                    deliveryBuffer, deliveryTracer, configuration, directRecipientIndex);
+        }
+
+        private void destroy() throws Exception {
+            deliveryBuffer.destroy();
+            teamsRestHttpClient.destroy();
+        }
+    }
+
+    /**
+     * Samples {@code 0 .. n-1} with probability of {@code k} proportional to {@code 1 / (k + 1)^exponent}
+     */
+    private static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        private ZipfSampler(final int n, final double exponent) {
+            cumulative = new double[Math.max(1, n)];
+            double sum = 0;
+            for (int k = 0; k < cumulative.length; k++) {
+                sum += 1 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < cumulative.length; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        private int next() {
+            final int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Latencies of one report interval
+     */
+    private static final class LatencyRecorder {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        private synchronized void record(final long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        private synchronized long[] snapshotAndReset() {
+            final long[] result = Arrays.copyOf(values, size);
+            size = 0;
+            if (values.length > 1 << 20) {
+                values = new long[1024];
+            }
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
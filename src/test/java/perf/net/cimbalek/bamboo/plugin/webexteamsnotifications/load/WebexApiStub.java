@@ -0,0 +1,200 @@
+package perf.net.cimbalek.bamboo.plugin.webexteamsnotifications.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Rooms;
+
+/**
+ * Local stub of Webex Teams API serving rooms {@code room-0} .. {@code room-N} titled {@code Load room 0} .. {@code Load room N} to any
+ * token, accepting all messages. Every response is delayed by configured latency (with jitter) and configured share of requests is
+ * throttled with {@code 429 Too Many Requests}.
+ */
+class WebexApiStub implements AutoCloseable {
+
+    private static final String CONTEXT = "/v1/";
+    private static final String ROOM_ID_PREFIX = "room-";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final AtomicLong messageIds = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final int roomCount;
+    private final long latencyMillis;
+    private final int throttlePercent;
+    private final Consumer<Message> messageListener;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    /**
+     * @param roomCount
+     *         number of rooms
+     * @param latencyMillis
+     *         mean latency of responses, the actual one is +-50 %
+     * @param throttlePercent
+     *         percents of requests responded with {@code 429}
+     * @param threads
+     *         number of threads serving requests
+     * @param messageListener
+     *         called with every accepted message
+     */
+    WebexApiStub(final int roomCount, final long latencyMillis, final int throttlePercent, final int threads,
+                 final Consumer<Message> messageListener) throws IOException {
+        this.roomCount = roomCount;
+        this.latencyMillis = latencyMillis;
+        this.throttlePercent = throttlePercent;
+        this.messageListener = messageListener;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "webex-api-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1000);
+        server.createContext(CONTEXT, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static String roomId(final int room) {
+        return ROOM_ID_PREFIX + room;
+    }
+
+    static String roomTitle(final int room) {
+        return "Load room " + room;
+    }
+
+    /**
+     * @return base URL of the stub to be used as {@code webexteams.api.baseUrl}
+     */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    long getThrottledCount() {
+        return throttled.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            final byte[] requestBody = readBody(exchange.getRequestBody());
+            simulateLatency();
+            if (throttlePercent > 0 && ThreadLocalRandom.current().nextInt(100) < throttlePercent) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, null);
+                return;
+            }
+            final String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+            final String method = exchange.getRequestMethod();
+            if ("GET".equals(method) && "rooms".equals(path)) {
+                respond(exchange, 200, allRooms());
+            } else if ("GET".equals(method) && path.startsWith("rooms/")) {
+                final Room room = room(path.substring("rooms/".length()));
+                respond(exchange, room == null ? 404 : 200, room);
+            } else if ("POST".equals(method) && "messages".equals(path)) {
+                final Message message = objectMapper.readValue(requestBody, Message.class);
+                message.setId("message-" + messageIds.incrementAndGet());
+                messageListener.accept(message);
+                respond(exchange, 200, message);
+            } else if ("PUT".equals(method) && path.startsWith("messages/")) {
+                final Message message = objectMapper.readValue(requestBody, Message.class);
+                message.setId(path.substring("messages/".length()));
+                messageListener.accept(message);
+                respond(exchange, 200, message);
+            } else {
+                respond(exchange, 404, null);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Rooms allRooms() {
+        final List<Room> items = new ArrayList<>(roomCount);
+        for (int room = 0; room < roomCount; room++) {
+            items.add(room(roomId(room)));
+        }
+        final Rooms rooms = new Rooms();
+        rooms.setItems(items);
+        return rooms;
+    }
+
+    private Room room(final String roomId) {
+        if (!roomId.startsWith(ROOM_ID_PREFIX)) {
+            return null;
+        }
+        final int index;
+        try {
+            index = Integer.parseInt(roomId.substring(ROOM_ID_PREFIX.length()));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+        if (index < 0 || index >= roomCount) {
+            return null;
+        }
+        final Room room = new Room();
+        room.setId(roomId);
+        room.setTitle(roomTitle(index));
+        return room;
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis / 2 + ThreadLocalRandom.current().nextLong(latencyMillis + 1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(final HttpExchange exchange, final int status, final Object body) throws IOException {
+        final byte[] bytes = body == null ? new byte[0] : objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        }
+    }
+
+    private static byte[] readBody(final InputStream input) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+}
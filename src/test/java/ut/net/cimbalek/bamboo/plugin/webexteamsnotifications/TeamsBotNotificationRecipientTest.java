@@ -5,12 +5,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.PlanResultKey;
 import com.atlassian.bamboo.plugin.descriptor.NotificationRecipientModuleDescriptor;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
 import com.atlassian.bamboo.template.TemplateRenderer;
 import com.atlassian.bamboo.utils.error.ErrorCollection;
 import com.atlassian.bamboo.utils.error.SimpleErrorCollection;
@@ -21,10 +25,15 @@ import junit.framework.Assert;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipientValidator;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationTransport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.BufferedNotificationTransport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event.DirectRecipientIndex;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
 
 import static net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient.ERROR_MESSAGE_CANNOT_OBTAIN_ROOM;
 
@@ -36,6 +45,10 @@ public class TeamsBotNotificationRecipientTest {
     private TeamsRoomService teamsRoomService;
     private TeamsBotNotificationRecipientValidator teamsBotNotificationRecipientValidator;
     private NotificationRecipientModuleDescriptor notificationRecipientModuleDescriptor;
+    private DeliveryBuffer deliveryBuffer;
+    private DeliveryTracer deliveryTracer;
+    private TeamsNotificationsConfiguration configuration;
+    private DirectRecipientIndex directRecipientIndex;
 
     private static final String DEFAULT_BOT_TOKEN = "token";
     private static final String DEFAULT_ROOM_ID = "roomId";
@@ -48,6 +61,10 @@ public class TeamsBotNotificationRecipientTest {
         teamsRoomService = Mockito.mock(TeamsRoomService.class);
         teamsBotNotificationRecipientValidator = Mockito.mock(TeamsBotNotificationRecipientValidator.class);
         notificationRecipientModuleDescriptor = Mockito.mock(NotificationRecipientModuleDescriptor.class);
+        deliveryBuffer = Mockito.mock(DeliveryBuffer.class);
+        deliveryTracer = Mockito.mock(DeliveryTracer.class);
+        configuration = new TeamsNotificationsConfiguration(new Properties());
+        directRecipientIndex = Mockito.mock(DirectRecipientIndex.class);
     }
 
     @Test
@@ -94,11 +111,37 @@ public class TeamsBotNotificationRecipientTest {
         final TeamsBotNotificationRecipient teamsBotNotificationRecipient = buildTeamsBotNotificationRecipient();
         teamsBotNotificationRecipient.init(buildDefaultJsonConfigurationData());
         final List<TeamsBotNotificationTransport> teamsBotNotificationTransports = Collections.singletonList(new TeamsBotNotificationTransport
-                (buildDefaultTeamsBotNotificationSettings(), teamsRoomService, teamsMessageService));
+                (buildDefaultTeamsBotNotificationSettings(), teamsRoomService, teamsMessageService, deliveryTracer, configuration));
 
         Assert.assertEquals(teamsBotNotificationTransports, teamsBotNotificationRecipient.getTransports());
     }
 
+    @Test
+    public void givenGetTransports_whenDeliveryBufferIsEnabled_thenBufferedTransportListIsReturned() {
+        final TeamsBotNotificationRecipient teamsBotNotificationRecipient = buildTeamsBotNotificationRecipient();
+        teamsBotNotificationRecipient.init(buildDefaultJsonConfigurationData());
+        Mockito.when(deliveryBuffer.isEnabled()).thenReturn(true);
+        final List<BufferedNotificationTransport> bufferedNotificationTransports = Collections.singletonList(new BufferedNotificationTransport(
+                new TeamsBotNotificationTransport(buildDefaultTeamsBotNotificationSettings(), teamsRoomService, teamsMessageService, deliveryTracer, configuration), deliveryBuffer));
+
+        Assert.assertEquals(bufferedNotificationTransports, teamsBotNotificationRecipient.getTransports());
+    }
+
+    @Test
+    public void givenGetTransports_whenRecipientIsDeliveredDirectly_thenEmptyTransportListIsReturned() {
+        final TeamsBotNotificationRecipient teamsBotNotificationRecipient = buildTeamsBotNotificationRecipient();
+        teamsBotNotificationRecipient.init(buildDefaultJsonConfigurationData());
+        final PlanKey planKey = Mockito.mock(PlanKey.class);
+        final PlanResultKey planResultKey = Mockito.mock(PlanResultKey.class);
+        Mockito.when(planResultKey.getPlanKey()).thenReturn(planKey);
+        final ResultsSummary resultsSummary = Mockito.mock(ResultsSummary.class);
+        Mockito.when(resultsSummary.getPlanResultKey()).thenReturn(planResultKey);
+        teamsBotNotificationRecipient.setResultSummary(resultsSummary);
+        Mockito.when(directRecipientIndex.isDeliveredDirectly(planKey, buildDefaultJsonConfigurationData())).thenReturn(true);
+
+        Assert.assertEquals(Collections.emptyList(), teamsBotNotificationRecipient.getTransports());
+    }
+
     @Test
     public void givenGetDescription_thenLocalizedDescriptionIsProvided() {
         final TeamsBotNotificationRecipient teamsBotNotificationRecipient = buildTeamsBotNotificationRecipient();
@@ -314,7 +357,7 @@ public class TeamsBotNotificationRecipientTest {
 
     private TeamsBotNotificationRecipient buildTeamsBotNotificationRecipient() {
         return new TeamsBotNotificationRecipient(templateRenderer, i18nResolver, teamsMessageService, teamsRoomService,
-                teamsBotNotificationRecipientValidator);
+                teamsBotNotificationRecipientValidator, deliveryBuffer, deliveryTracer, configuration, directRecipientIndex);
     }
 
     private TeamsBotNotificationSettings buildDefaultTeamsBotNotificationSettings() {
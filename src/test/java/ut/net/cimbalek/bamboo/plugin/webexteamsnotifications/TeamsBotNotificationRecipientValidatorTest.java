@@ -1,6 +1,6 @@
 package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications;
 
-import java.util.Optional;
+import java.util.Properties;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -10,78 +10,159 @@ import org.mockito.Mockito;
 import com.atlassian.bamboo.utils.error.ErrorCollection;
 import com.atlassian.sal.api.message.I18nResolver;
 
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipient;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationRecipientValidator;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientCheckStatus;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientValidationCache;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
 
 public class TeamsBotNotificationRecipientValidatorTest {
 
     private TeamsRoomService teamsRoomService;
     private I18nResolver i18nResolver;
+    private RecipientValidationCache recipientValidationCache;
 
     @Before
     public void setupMocks() {
         teamsRoomService = Mockito.mock(TeamsRoomService.class);
         i18nResolver = Mockito.mock(I18nResolver.class);
+        recipientValidationCache = new RecipientValidationCache(teamsRoomService, new TeamsNotificationsConfiguration(new Properties()));
     }
 
     @Test
     public void givenValidate_whenFilledValidNotificationSettingsProvided_thenReturnEmptyErrors() {
-        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(teamsRoomService, i18nResolver);
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
         final String roomId = "roomId";
         final String botToken = "botToken";
-        final Room room = new Room();
-        room.setId(roomId);
-        Mockito.when(teamsRoomService.findByIdentifierOrName(botToken, roomId)).thenReturn(Optional.of(room));
+        Mockito.when(teamsRoomService.validateByIdentifierOrName(Mockito.eq(botToken), Mockito.eq(roomId), Mockito.any(Deadline.class)))
+                .thenReturn(RecipientCheckStatus.OK);
         final ErrorCollection errors = validator.validate(buildSettings(roomId, botToken));
         Assert.assertFalse(errors.hasAnyErrors());
     }
 
     @Test
     public void givenValidate_whenFilledInvalidRoomName_thenReturnError() {
-        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(teamsRoomService, i18nResolver);
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
         final String roomId = "roomId";
         final String botToken = "botToken";
-        final Room room = new Room();
-        room.setId(roomId);
-        Mockito.when(teamsRoomService.findByIdentifierOrName(botToken, roomId)).thenReturn(Optional.empty());
+        Mockito.when(teamsRoomService.validateByIdentifierOrName(Mockito.eq(botToken), Mockito.eq(roomId), Mockito.any(Deadline.class)))
+                .thenReturn(RecipientCheckStatus.ROOM_NOT_FOUND);
         final ErrorCollection errors = validator.validate(buildSettings(roomId, botToken));
         Assert.assertTrue(errors.hasAnyErrors());
         Assert.assertEquals(errors.getErrors().size(), 1);
     }
 
+    @Test
+    public void givenValidate_whenTokenIsRefused_thenReturnTokenError() {
+        assertRoomError(RecipientCheckStatus.TOKEN_REFUSED, "tokenRefused");
+    }
+
+    @Test
+    public void givenValidate_whenAccessToRoomIsDenied_thenReturnAccessError() {
+        assertRoomError(RecipientCheckStatus.ACCESS_DENIED, "accessDenied");
+    }
+
+    @Test
+    public void givenValidate_whenApiThrottles_thenReturnTryAgainError() {
+        assertRoomError(RecipientCheckStatus.THROTTLED, "throttled");
+    }
+
+    @Test
+    public void givenValidate_whenApiIsUnreachable_thenReturnTryAgainError() {
+        assertRoomError(RecipientCheckStatus.UNREACHABLE, "unreachable");
+    }
+
+    @Test
+    public void givenValidate_whenCheckTimesOut_thenReturnTryAgainError() {
+        assertRoomError(RecipientCheckStatus.TIMED_OUT, "timedOut");
+    }
+
+    @Test
+    public void givenValidate_whenDeliveryTimeoutIsOutOfRange_thenReturnError() {
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
+        final String roomId = "roomId";
+        final String botToken = "botToken";
+        Mockito.when(teamsRoomService.validateByIdentifierOrName(Mockito.eq(botToken), Mockito.eq(roomId), Mockito.any(Deadline.class)))
+                .thenReturn(RecipientCheckStatus.OK);
+        final TeamsBotNotificationSettings settings = buildSettings(roomId, botToken);
+        settings.setDeliveryTimeoutSeconds(0);
+        final ErrorCollection errors = validator.validate(settings);
+        Assert.assertTrue(errors.hasAnyErrors());
+        Assert.assertEquals(errors.getErrors().size(), 1);
+    }
+
     @Test
     public void givenValidate_whenNoRoomIdProvided_thenReturnError() {
-        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(teamsRoomService, i18nResolver);
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
         final String botToken = "botToken";
         final ErrorCollection errors = validator.validate(buildSettings(null, botToken));
-        Mockito.verify(teamsRoomService, Mockito.never()).findByIdentifierOrName(botToken, "someRoomId");
+        Mockito.verify(teamsRoomService, Mockito.never()).validateByIdentifierOrName(Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(Deadline.class));
         Assert.assertTrue(errors.hasAnyErrors());
         Assert.assertEquals(errors.getErrors().size(), 1);
     }
 
     @Test
     public void givenValidate_whenNoBotTokenProvided_thenReturnEmptyErrors() {
-        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(teamsRoomService, i18nResolver);
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
         final String roomId = "roomId";
         final Room room = new Room();
         room.setId(roomId);
         final ErrorCollection errors = validator.validate(buildSettings(roomId, null));
-        Mockito.verify(teamsRoomService, Mockito.never()).findByIdentifierOrName("someBotToken", roomId);
+        Mockito.verify(teamsRoomService, Mockito.never()).validateByIdentifierOrName(Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(Deadline.class));
         Assert.assertTrue(errors.hasAnyErrors());
         Assert.assertEquals(errors.getErrors().size(), 1);
     }
 
     @Test
     public void givenValidate_whenNoBotTokenNorRoomIdProvided_thenReturnEmptyErrors() {
-        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(teamsRoomService, i18nResolver);
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
         final ErrorCollection errors = validator.validate(buildSettings(null, null));
-        Mockito.verify(teamsRoomService, Mockito.never()).findByIdentifierOrName("someBotToken", "someRoom");
+        Mockito.verify(teamsRoomService, Mockito.never()).validateByIdentifierOrName(Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(Deadline.class));
         Assert.assertTrue(errors.hasAnyErrors());
         Assert.assertEquals(errors.getErrors().size(), 2);
     }
 
+    @Test
+    public void givenValidate_whenRecipientWasCheckedRecently_thenFreshResultIsReused() {
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
+        Mockito.when(teamsRoomService.validateByIdentifierOrName(Mockito.eq("botToken"), Mockito.eq("roomId"), Mockito.any(Deadline.class)))
+                .thenReturn(RecipientCheckStatus.OK);
+        Assert.assertEquals(RecipientCheckStatus.OK, recipientValidationCache.check("botToken", "roomId"));
+
+        Assert.assertFalse(validator.validate(buildSettings("roomId", "botToken")).hasAnyErrors());
+        Mockito.verify(teamsRoomService, Mockito.times(1)).validateByIdentifierOrName(Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenValidate_whenPreviousCheckFailedTransiently_thenRecipientIsCheckedAgain() {
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
+        Mockito.when(teamsRoomService.validateByIdentifierOrName(Mockito.eq("botToken"), Mockito.eq("roomId"), Mockito.any(Deadline.class)))
+                .thenReturn(RecipientCheckStatus.UNREACHABLE)
+                .thenReturn(RecipientCheckStatus.OK);
+        Assert.assertEquals(RecipientCheckStatus.UNREACHABLE, recipientValidationCache.check("botToken", "roomId"));
+
+        Assert.assertFalse(validator.validate(buildSettings("roomId", "botToken")).hasAnyErrors());
+    }
+
+    private void assertRoomError(final RecipientCheckStatus status, final String messageKeySuffix) {
+        final String messageKey = "nofification.recipient.webexTeamsNotifications.roomIdentifier.error." + messageKeySuffix;
+        Mockito.when(i18nResolver.getText(messageKey)).thenReturn(messageKeySuffix);
+        final TeamsBotNotificationRecipientValidator validator = new TeamsBotNotificationRecipientValidator(recipientValidationCache, i18nResolver);
+        Mockito.when(teamsRoomService.validateByIdentifierOrName(Mockito.eq("botToken"), Mockito.eq("roomId"), Mockito.any(Deadline.class)))
+                .thenReturn(status);
+        final ErrorCollection errors = validator.validate(buildSettings("roomId", "botToken"));
+        Assert.assertEquals(1, errors.getErrors().size());
+        Assert.assertEquals(messageKeySuffix, errors.getErrors().get(TeamsBotNotificationRecipient.ROOM_IDENTIFIER_KEY));
+    }
+
     private TeamsBotNotificationSettings buildSettings(final String roomId, final String botToken) {
         final TeamsBotNotificationSettings teamsBotNotificationSettings = new TeamsBotNotificationSettings();
         teamsBotNotificationSettings.setRoomIdentifier(roomId);
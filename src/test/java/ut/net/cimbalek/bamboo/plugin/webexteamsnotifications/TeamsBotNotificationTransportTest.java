@@ -1,7 +1,9 @@
 package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications;
 
 import java.util.Optional;
+import java.util.Properties;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -9,55 +11,174 @@ import org.mockito.Mockito;
 import com.atlassian.bamboo.notification.Notification;
 
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.TeamsBotNotificationTransport;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.NotificationKeys;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.SendResult;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
 
 public class TeamsBotNotificationTransportTest {
 
     private Notification notification;
     private TeamsRoomService teamsRoomService;
     private TeamsMessageService teamsMessageService;
+    private DeliveryTracer deliveryTracer;
+    private TeamsNotificationsConfiguration configuration;
 
     @Before
     public void setupMocks() {
         teamsRoomService = Mockito.mock(TeamsRoomService.class);
         notification = Mockito.mock(Notification.class);
         teamsMessageService = Mockito.mock(TeamsMessageService.class);
+        configuration = new TeamsNotificationsConfiguration(new Properties());
+        deliveryTracer = new DeliveryTracer(configuration);
     }
 
     @Test
     public void givenSendNotification_whenNotificationRecipientRoomIsFound_thenMessageIsSent() {
         final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
         final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
-                teamsRoomService, teamsMessageService);
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
         final String messageContent = "messageContent";
         final Room room = buildRoom(teamsBotNotificationSettings);
         final Message message = new Message();
         message.setRoomId(room.getId());
         message.setMarkdown(messageContent);
         Mockito.when(notification.getIMContent()).thenReturn(messageContent);
-        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString())).thenReturn(Optional.of(room));
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class))).thenReturn(Optional.of(room));
         teamsBotNotificationTransport.sendNotification(notification);
-        Mockito.verify(teamsMessageService, Mockito.atLeastOnce()).sendMessage(teamsBotNotificationSettings.getBotAccessToken(), message);
+        Mockito.verify(teamsMessageService, Mockito.atLeastOnce()).sendMessage(Mockito.eq(teamsBotNotificationSettings.getBotAccessToken()), Mockito.eq(message),
+                Mockito.anyString(), Mockito.any(Deadline.class));
     }
 
     @Test
     public void givenSendNotification_whenNotificationRecipientRoomIsFound_thenMessageIsNotSent() {
         final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
         final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
-                teamsRoomService, teamsMessageService);
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
         final String messageContent = "messageContent";
         final Room room = buildRoom(teamsBotNotificationSettings);
         final Message message = new Message();
         message.setRoomId(room.getId());
         message.setMarkdown(messageContent);
         Mockito.when(notification.getIMContent()).thenReturn(messageContent);
-        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString())).thenReturn(Optional.empty());
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class))).thenReturn(Optional.empty());
         teamsBotNotificationTransport.sendNotification(notification);
-        Mockito.verify(teamsMessageService, Mockito.never()).sendMessage(teamsBotNotificationSettings.getBotAccessToken(), message);
+        Mockito.verify(teamsMessageService, Mockito.never()).sendMessage(Mockito.eq(teamsBotNotificationSettings.getBotAccessToken()), Mockito.eq(message),
+                Mockito.anyString(), Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenSendNotification_whenNotificationIsSent_thenTraceWithOutcomeIsRecorded() {
+        final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
+        final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
+        Mockito.when(notification.getIMContent()).thenReturn("messageContent");
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(Optional.of(buildRoom(teamsBotNotificationSettings)));
+        Mockito.when(teamsMessageService.sendMessage(Mockito.anyString(), Mockito.any(Message.class), Mockito.anyString(), Mockito.any(Deadline.class))).thenReturn(SendResult.SENT);
+        teamsBotNotificationTransport.sendNotification(notification);
+
+        Assert.assertEquals(1, deliveryTracer.getRecentTraces().size());
+        final DeliveryTrace trace = deliveryTracer.getRecentTraces().get(0);
+        Assert.assertEquals(TeamsBotNotificationTransport.OUTCOME_SENT, trace.getOutcome());
+        Assert.assertEquals("roomId", trace.getRoomIdentifier());
+        Assert.assertNull(DeliveryTrace.current());
+    }
+
+    @Test
+    public void givenSendNotification_whenMessageIsClaimedByAnotherDelivery_thenItIsTracedSeparately() {
+        final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
+        final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
+        Mockito.when(notification.getIMContent()).thenReturn("messageContent");
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(Optional.of(buildRoom(teamsBotNotificationSettings)));
+        Mockito.when(teamsMessageService.sendMessage(Mockito.anyString(), Mockito.any(Message.class), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(SendResult.CLAIMED_ELSEWHERE);
+        teamsBotNotificationTransport.sendNotification(notification);
+
+        Assert.assertEquals(TeamsBotNotificationTransport.OUTCOME_CLAIMED_ELSEWHERE, deliveryTracer.getRecentTraces().get(0).getOutcome());
+    }
+
+    @Test
+    public void givenSendNotification_whenContentNamesBuildResult_thenMessageIsSentWithKeyOfTheNotification() {
+        final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
+        final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
+        Mockito.when(notification.getIMContent()).thenReturn("PROJ-PLAN-42 failed");
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(Optional.of(buildRoom(teamsBotNotificationSettings)));
+        teamsBotNotificationTransport.sendNotification(notification);
+
+        Mockito.verify(teamsMessageService).sendMessage(Mockito.anyString(), Mockito.any(Message.class),
+                Mockito.eq(notification.getClass().getName() + ":PROJ-PLAN-42"), Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenSendNotification_whenDeliveryTimeoutIsSpentOnRoomLookup_thenMessageIsNotSent() {
+        final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.timeoutSeconds", "0");
+        final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
+                teamsRoomService, teamsMessageService, deliveryTracer, new TeamsNotificationsConfiguration(properties));
+        Mockito.when(notification.getIMContent()).thenReturn("messageContent");
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(Optional.empty());
+        teamsBotNotificationTransport.sendNotification(notification);
+
+        Mockito.verify(teamsMessageService, Mockito.never()).sendMessage(Mockito.anyString(), Mockito.any(Message.class),
+                Mockito.anyString(), Mockito.any(Deadline.class));
+        Assert.assertEquals(TeamsBotNotificationTransport.OUTCOME_DEADLINE_EXCEEDED, deliveryTracer.getRecentTraces().get(0).getOutcome());
+    }
+
+    @Test
+    public void givenStartTrace_whenSettingsParsingWasMeasured_thenItIsTheFirstSpanOfTrace() {
+        final TeamsBotNotificationTransport measured = new TeamsBotNotificationTransport(buildSettings(), teamsRoomService, teamsMessageService,
+                deliveryTracer, configuration, 42L);
+        final DeliveryTrace trace = measured.startTrace();
+
+        Assert.assertEquals("settingsParsing", trace.getSpans().get(0).getName());
+        Assert.assertEquals(42L, trace.getSpans().get(0).getDurationMicros());
+        Assert.assertTrue(new TeamsBotNotificationTransport(buildSettings(), teamsRoomService, teamsMessageService, deliveryTracer,
+                configuration).startTrace().getSpans().isEmpty());
+    }
+
+    @Test
+    public void givenGetDeliveryTimeoutMillis_whenRecipientHasOwnTimeout_thenItOverridesGlobalOne() {
+        final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
+        teamsBotNotificationSettings.setDeliveryTimeoutSeconds(5);
+        final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
+
+        Assert.assertEquals(5_000L, teamsBotNotificationTransport.getDeliveryTimeoutMillis());
+        Assert.assertEquals(60_000L, new TeamsBotNotificationTransport(buildSettings(), teamsRoomService, teamsMessageService, deliveryTracer,
+                configuration).getDeliveryTimeoutMillis());
+    }
+
+    @Test
+    public void givenSendNotification_whenRecipientEditsInPlace_thenMessageOfTheBuildIsEdited() {
+        final TeamsBotNotificationSettings teamsBotNotificationSettings = buildSettings();
+        teamsBotNotificationSettings.setEditInPlace(true);
+        final TeamsBotNotificationTransport teamsBotNotificationTransport = new TeamsBotNotificationTransport(teamsBotNotificationSettings,
+                teamsRoomService, teamsMessageService, deliveryTracer, configuration);
+        Mockito.when(notification.getIMContent()).thenReturn("PROJ-PLAN-42 failed");
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(Optional.of(buildRoom(teamsBotNotificationSettings)));
+        Mockito.when(teamsMessageService.sendOrEditMessage(Mockito.anyString(), Mockito.any(Message.class), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any(Deadline.class))).thenReturn(SendResult.SENT);
+        teamsBotNotificationTransport.sendNotification(notification);
+
+        Mockito.verify(teamsMessageService).sendOrEditMessage(Mockito.eq(teamsBotNotificationSettings.getBotAccessToken()),
+                Mockito.any(Message.class), Mockito.eq("PROJ-PLAN-42"), Mockito.eq(NotificationKeys.of(notification.getClass().getName(),
+                        "PROJ-PLAN-42")), Mockito.any(Deadline.class));
+        Assert.assertEquals(TeamsBotNotificationTransport.OUTCOME_SENT, deliveryTracer.getRecentTraces().get(0).getOutcome());
     }
 
     private Room buildRoom(final TeamsBotNotificationSettings teamsBotNotificationSettings) {
@@ -0,0 +1,216 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryPriority;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.OverflowPolicy;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.PendingDelivery;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+public class DeliveryBufferTest {
+
+    private TeamsRoomService teamsRoomService;
+    private TeamsMessageService teamsMessageService;
+    private RecipientSettingsRepository recipientSettingsRepository;
+    private CountDownLatch workerBusy;
+    private CountDownLatch releaseWorker;
+    private File spillDirectory;
+    private DeliveryBuffer deliveryBuffer;
+
+    @Before
+    public void setupMocks() throws Exception {
+        teamsRoomService = Mockito.mock(TeamsRoomService.class);
+        teamsMessageService = Mockito.mock(TeamsMessageService.class);
+        recipientSettingsRepository = Mockito.mock(RecipientSettingsRepository.class);
+        workerBusy = new CountDownLatch(1);
+        releaseWorker = new CountDownLatch(1);
+        spillDirectory = Files.createTempDirectory("webexteams-spill").toFile();
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.anyString(), Mockito.anyString(), Mockito.any(Deadline.class))).thenAnswer(invocation -> {
+            workerBusy.countDown();
+            releaseWorker.await(5, TimeUnit.SECONDS);
+            return Optional.<Room>empty();
+        });
+    }
+
+    @After
+    public void releaseWorker() {
+        releaseWorker.countDown();
+        if (deliveryBuffer != null) {
+            deliveryBuffer.destroy();
+        }
+    }
+
+    @Test
+    public void givenOffer_whenBufferIsFullAndPolicyIsDropOldest_thenOldestNormalNotificationIsDropped() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.DROP_OLDEST);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.HIGH)));
+
+        Assert.assertEquals(1, deliveryBuffer.getQueueSize());
+        Assert.assertEquals(1, deliveryBuffer.getDroppedCount());
+    }
+
+    @Test
+    public void givenOffer_whenBufferIsFullOfHighPriorityAndPolicyIsDropOldest_thenNewNormalNotificationIsDropped() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.DROP_OLDEST);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.HIGH)));
+        Assert.assertFalse(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+
+        Assert.assertEquals(1, deliveryBuffer.getDroppedCount());
+    }
+
+    @Test
+    public void givenOffer_whenBufferIsFullAndPolicyIsSpillToDisk_thenNotificationIsSpilled() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.SPILL_TO_DISK);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+
+        Assert.assertEquals(0, deliveryBuffer.getDroppedCount());
+        Assert.assertEquals(1, deliveryBuffer.getSpilledCount());
+        Assert.assertEquals(1, deliveryBuffer.getSpilledPendingCount());
+    }
+
+    @Test
+    public void givenOffer_whenNotificationIsSpilled_thenBotTokenIsNotWrittenToDisk() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.SPILL_TO_DISK);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+
+        final String spilled = new String(Files.readAllBytes(new File(spillDirectory, "pending-deliveries.jsonl").toPath()),
+                StandardCharsets.UTF_8);
+        Assert.assertFalse(spilled.contains("botAccessToken"));
+        Assert.assertTrue(spilled.contains(BotTokens.fingerprint("botAccessToken")));
+    }
+
+    @Test
+    public void givenStart_whenNotificationsWereSpilledBeforeRestart_thenTheyAreDeliveredToConfiguredBot() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.SPILL_TO_DISK);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        deliveryBuffer.destroy();
+        releaseWorker.countDown();
+
+        final TeamsBotNotificationSettings configured = new TeamsBotNotificationSettings();
+        configured.setBotAccessToken("botAccessToken");
+        configured.setRoomIdentifier("roomId");
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Collections.singletonList(configured));
+        final CountDownLatch delivered = new CountDownLatch(2);
+        Mockito.when(teamsRoomService.findByIdentifierOrName(Mockito.eq("botAccessToken"), Mockito.eq("roomId"), Mockito.any(Deadline.class)))
+                .thenAnswer(invocation -> {
+                    delivered.countDown();
+                    return Optional.<Room>empty();
+                });
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.SPILL_TO_DISK);
+        Assert.assertEquals(2, deliveryBuffer.getSpilledPendingCount());
+
+        deliveryBuffer.afterPropertiesSet();
+
+        Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, deliveryBuffer.getSpilledPendingCount());
+        Assert.assertFalse(new File(spillDirectory, "pending-deliveries.jsonl").exists());
+    }
+
+    @Test
+    public void givenDestroy_whenNotificationsAreBufferedAndPolicyIsNotSpillToDisk_thenTheyAreCountedAsDropped() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.DROP_OLDEST);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+
+        deliveryBuffer.destroy();
+
+        Assert.assertEquals(0, deliveryBuffer.getQueueSize());
+        Assert.assertEquals(1, deliveryBuffer.getDroppedCount());
+    }
+
+    @Test
+    public void givenOffer_whenBufferIsFullAndPolicyIsBlock_thenNotificationIsDroppedAfterTimeout() throws Exception {
+        deliveryBuffer = buildDeliveryBuffer(OverflowPolicy.BLOCK);
+        occupyWorker();
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        Assert.assertFalse(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+
+        Assert.assertEquals(1, deliveryBuffer.getDroppedCount());
+    }
+
+    @Test
+    public void givenDispatch_whenRecipientIsSlow_thenItsWaitingNotificationsDoNotBlockOtherRecipients() throws Exception {
+        final CountDownLatch otherDelivered = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            otherDelivered.countDown();
+            return Optional.<Room>empty();
+        }).when(teamsRoomService).findByIdentifierOrName(Mockito.anyString(), Mockito.eq("otherRoomId"), Mockito.any(Deadline.class));
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.buffer.capacity", "10");
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.platformThreads", "2");
+        final TeamsNotificationsConfiguration configuration = new TeamsNotificationsConfiguration(properties);
+        deliveryBuffer = new DeliveryBuffer(teamsRoomService, teamsMessageService, configuration, new DeliveryTracer(configuration),
+                recipientSettingsRepository);
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        }
+        Assert.assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+        final PendingDelivery other = buildPendingDelivery(DeliveryPriority.NORMAL);
+        other.getSettings().setRoomIdentifier("otherRoomId");
+        Assert.assertTrue(deliveryBuffer.offer(other));
+
+        Assert.assertTrue(otherDelivered.await(5, TimeUnit.SECONDS));
+    }
+
+    private void occupyWorker() throws InterruptedException {
+        Assert.assertTrue(deliveryBuffer.offer(buildPendingDelivery(DeliveryPriority.NORMAL)));
+        Assert.assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+    }
+
+    private DeliveryBuffer buildDeliveryBuffer(final OverflowPolicy overflowPolicy) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.buffer.capacity", "1");
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.buffer.overflowPolicy", overflowPolicy.name());
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.buffer.blockTimeoutMillis", "10");
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.buffer.spillDirectory", spillDirectory.getPath());
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.platformThreads", "1");
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "delivery.maxInFlight", "1");
+        final TeamsNotificationsConfiguration configuration = new TeamsNotificationsConfiguration(properties);
+        return new DeliveryBuffer(teamsRoomService, teamsMessageService, configuration, new DeliveryTracer(configuration),
+                recipientSettingsRepository);
+    }
+
+    private PendingDelivery buildPendingDelivery(final DeliveryPriority priority) {
+        final TeamsBotNotificationSettings settings = new TeamsBotNotificationSettings();
+        settings.setBotAccessToken("botAccessToken");
+        settings.setRoomIdentifier("roomId");
+        final PendingDelivery pendingDelivery = new PendingDelivery();
+        pendingDelivery.setSettings(settings);
+        pendingDelivery.setContent("content");
+        pendingDelivery.setPriority(priority);
+        pendingDelivery.setCreatedAt(System.currentTimeMillis());
+        return pendingDelivery;
+    }
+}
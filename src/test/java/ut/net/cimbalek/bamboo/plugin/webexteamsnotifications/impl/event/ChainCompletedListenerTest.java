@@ -0,0 +1,216 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.atlassian.bamboo.builder.BuildState;
+import com.atlassian.bamboo.event.ChainCompletedEvent;
+import com.atlassian.bamboo.notification.NotificationRule;
+import com.atlassian.bamboo.notification.NotificationSet;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.PlanResultKey;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
+import com.atlassian.bamboo.plan.cache.ImmutablePlan;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
+import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.sal.api.ApplicationProperties;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryBuffer;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.DeliveryPriority;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.delivery.PendingDelivery;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event.ChainCompletedListener;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event.DirectRecipient;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.event.DirectRecipientIndex;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+public class ChainCompletedListenerTest {
+
+    private static final String ALL_BUILDS_CONFIG = "{\"botAccessToken\":\"token\",\"roomIdentifier\":\"all\"}";
+    private static final String FAILED_BUILDS_CONFIG = "{\"botAccessToken\":\"token\",\"roomIdentifier\":\"failed\"}";
+    private static final String CHANGED_STATUS_CONFIG = "{\"botAccessToken\":\"token\",\"roomIdentifier\":\"changed\"}";
+    private static final String UNSUPPORTED_CONFIG = "{\"botAccessToken\":\"token\",\"roomIdentifier\":\"unsupported\"}";
+    private static final String UNSUPPORTED_CONDITION = "com.atlassian.bamboo.plugin.system.notifications:chainCompleted.commentAdded";
+
+    private EventPublisher eventPublisher;
+    private ResultsSummaryManager resultsSummaryManager;
+    private DeliveryBuffer deliveryBuffer;
+    private PlanKey planKey;
+    private CachedPlanManager cachedPlanManager;
+    private DirectRecipientIndex directRecipientIndex;
+    private ChainCompletedListener chainCompletedListener;
+
+    @Before
+    public void setupMocks() {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "directDelivery.enabled", "true");
+        final TeamsNotificationsConfiguration configuration = new TeamsNotificationsConfiguration(properties);
+
+        cachedPlanManager = Mockito.mock(CachedPlanManager.class);
+        planKey = buildPlan("PROJ-PLAN",
+                buildRule(1, DirectRecipientIndex.CONDITION_ALL_BUILDS, ALL_BUILDS_CONFIG),
+                buildRule(2, DirectRecipientIndex.CONDITION_FAILED_BUILDS, FAILED_BUILDS_CONFIG),
+                buildRule(3, DirectRecipientIndex.CONDITION_CHANGED_STATUS, CHANGED_STATUS_CONFIG),
+                buildRule(4, UNSUPPORTED_CONDITION, UNSUPPORTED_CONFIG));
+        directRecipientIndex = new DirectRecipientIndex(cachedPlanManager, configuration);
+
+        eventPublisher = Mockito.mock(EventPublisher.class);
+        resultsSummaryManager = Mockito.mock(ResultsSummaryManager.class);
+        final ApplicationProperties applicationProperties = Mockito.mock(ApplicationProperties.class);
+        Mockito.when(applicationProperties.getBaseUrl()).thenReturn("https://bamboo.example.com/");
+        deliveryBuffer = Mockito.mock(DeliveryBuffer.class);
+        Mockito.when(deliveryBuffer.offer(Mockito.any(PendingDelivery.class))).thenReturn(true);
+        chainCompletedListener = new ChainCompletedListener(eventPublisher, resultsSummaryManager, applicationProperties, directRecipientIndex,
+                deliveryBuffer, new DeliveryTracer(configuration));
+        chainCompletedListener.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        chainCompletedListener.destroy();
+    }
+
+    @Test
+    public void givenAfterPropertiesSet_whenDirectDeliveryIsEnabled_thenListenerIsRegistered() {
+        chainCompletedListener.destroy();
+
+        Mockito.verify(eventPublisher).register(chainCompletedListener);
+        Mockito.verify(eventPublisher).unregister(chainCompletedListener);
+    }
+
+    @Test
+    public void givenIsDeliveredDirectly_whenRuleConditionIsNotSupported_thenBambooDeliversIt() {
+        Assert.assertTrue(directRecipientIndex.isDeliveredDirectly(planKey, ALL_BUILDS_CONFIG));
+        Assert.assertFalse(directRecipientIndex.isDeliveredDirectly(planKey, UNSUPPORTED_CONFIG));
+        Assert.assertFalse(directRecipientIndex.isDeliveredDirectly(planKey, null));
+        Assert.assertFalse(directRecipientIndex.isDeliveredDirectly(null, ALL_BUILDS_CONFIG));
+    }
+
+    @Test
+    public void givenIsDeliveredDirectly_whenConfigIsSharedByRulesOfTwoPlans_thenOnlyPlanWithSupportedRuleIsDeliveredDirectly() {
+        final PlanKey anotherPlanKey = buildPlan("PROJ-OTHER", buildRule(5, UNSUPPORTED_CONDITION, ALL_BUILDS_CONFIG));
+
+        Assert.assertTrue(directRecipientIndex.isDeliveredDirectly(planKey, ALL_BUILDS_CONFIG));
+        Assert.assertFalse(directRecipientIndex.isDeliveredDirectly(anotherPlanKey, ALL_BUILDS_CONFIG));
+        Assert.assertTrue(directRecipientIndex.findByPlan(anotherPlanKey).isEmpty());
+    }
+
+    @Test
+    public void givenIsDeliveredDirectly_whenConfigIsSharedByTwoRulesOfPlan_thenBambooDeliversItForBothRules() {
+        final PlanKey sharedPlanKey = buildPlan("PROJ-SHARED",
+                buildRule(6, DirectRecipientIndex.CONDITION_ALL_BUILDS, ALL_BUILDS_CONFIG),
+                buildRule(7, UNSUPPORTED_CONDITION, ALL_BUILDS_CONFIG),
+                buildRule(8, DirectRecipientIndex.CONDITION_FAILED_BUILDS, FAILED_BUILDS_CONFIG));
+
+        Assert.assertFalse(directRecipientIndex.isDeliveredDirectly(sharedPlanKey, ALL_BUILDS_CONFIG));
+        Assert.assertTrue(directRecipientIndex.isDeliveredDirectly(sharedPlanKey, FAILED_BUILDS_CONFIG));
+        final List<DirectRecipient> recipients = directRecipientIndex.findByPlan(sharedPlanKey);
+        Assert.assertEquals(1, recipients.size());
+        Assert.assertEquals(8, recipients.get(0).getRuleId());
+        Assert.assertEquals("PROJ-SHARED", recipients.get(0).getPlanKey());
+    }
+
+    @Test
+    public void givenOnChainCompleted_whenFirstBuildFails_thenAllSupportedRecipientsAreNotified() {
+        final List<PendingDelivery> deliveries = complete(42, BuildState.FAILED, 3);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("all", "failed", "changed")), roomsOf(deliveries));
+        final PendingDelivery delivery = deliveries.get(0);
+        Assert.assertEquals("Build PROJ-PLAN-42 failed. 3 of 10 tests failed.\nhttps://bamboo.example.com/browse/PROJ-PLAN-42",
+                delivery.getContent());
+        Assert.assertEquals(DeliveryPriority.HIGH, delivery.getPriority());
+        Assert.assertEquals(ChainCompletedEvent.class.getName() + ":PROJ-PLAN-42", delivery.getNotificationKey());
+        Assert.assertNotNull(delivery.getTrace());
+    }
+
+    @Test
+    public void givenOnChainCompleted_whenBuildIsFixed_thenOnlyFirstSuccessfulBuildIsReportedToAllRecipients() {
+        complete(42, BuildState.FAILED, 3);
+        Mockito.reset(deliveryBuffer);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("all", "failed", "changed")), roomsOf(complete(43, BuildState.SUCCESS, 3)));
+        Mockito.reset(deliveryBuffer);
+        Assert.assertEquals(Collections.singleton("all"), roomsOf(complete(44, BuildState.SUCCESS, 1)));
+    }
+
+    @Test
+    public void givenOnChainCompleted_whenResultIsSlowToLoad_thenEventThreadDoesNotWaitForIt() throws InterruptedException {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final PlanResultKey planResultKey = Mockito.mock(PlanResultKey.class);
+        Mockito.when(planResultKey.getPlanKey()).thenReturn(planKey);
+        Mockito.when(planResultKey.getKey()).thenReturn("PROJ-PLAN-42");
+        Mockito.when(resultsSummaryManager.getResultsSummary(planResultKey)).thenAnswer(invocation -> {
+            loading.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        final ChainCompletedEvent event = Mockito.mock(ChainCompletedEvent.class);
+        Mockito.when(event.getPlanResultKey()).thenReturn(planResultKey);
+
+        chainCompletedListener.onChainCompleted(event);
+        Mockito.verifyZeroInteractions(deliveryBuffer);
+        loading.countDown();
+
+        Mockito.verify(deliveryBuffer, Mockito.timeout(5_000)).offer(Mockito.any(PendingDelivery.class));
+    }
+
+    private List<PendingDelivery> complete(final int buildNumber, final BuildState state, final int expectedDeliveries) {
+        final PlanResultKey planResultKey = Mockito.mock(PlanResultKey.class);
+        Mockito.when(planResultKey.getPlanKey()).thenReturn(planKey);
+        Mockito.when(planResultKey.getKey()).thenReturn("PROJ-PLAN-" + buildNumber);
+        final ResultsSummary resultsSummary = Mockito.mock(ResultsSummary.class);
+        Mockito.when(resultsSummary.getBuildState()).thenReturn(state);
+        Mockito.when(resultsSummary.getFailedTestCaseCount()).thenReturn(state == BuildState.FAILED ? 3 : 0);
+        Mockito.when(resultsSummary.getSuccessfulTestCaseCount()).thenReturn(7);
+        Mockito.when(resultsSummaryManager.getResultsSummary(planResultKey)).thenReturn(resultsSummary);
+
+        final ChainCompletedEvent event = Mockito.mock(ChainCompletedEvent.class);
+        Mockito.when(event.getPlanResultKey()).thenReturn(planResultKey);
+        chainCompletedListener.onChainCompleted(event);
+
+        final ArgumentCaptor<PendingDelivery> captor = ArgumentCaptor.forClass(PendingDelivery.class);
+        Mockito.verify(deliveryBuffer, Mockito.timeout(5_000).times(expectedDeliveries)).offer(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static HashSet<String> roomsOf(final List<PendingDelivery> deliveries) {
+        final HashSet<String> rooms = new HashSet<>();
+        for (final PendingDelivery delivery : deliveries) {
+            rooms.add(delivery.getSettings().getRoomIdentifier());
+        }
+        return rooms;
+    }
+
+    private PlanKey buildPlan(final String key, final NotificationRule... rules) {
+        final NotificationSet notificationSet = Mockito.mock(NotificationSet.class);
+        Mockito.when(notificationSet.getNotificationRules()).thenReturn(new HashSet<>(Arrays.asList(rules)));
+        final PlanKey result = Mockito.mock(PlanKey.class);
+        Mockito.when(result.getKey()).thenReturn(key);
+        final ImmutablePlan plan = Mockito.mock(ImmutablePlan.class);
+        Mockito.when(plan.getNotificationSettings()).thenReturn(notificationSet);
+        Mockito.when(cachedPlanManager.getPlanByKey(result)).thenReturn(plan);
+        return result;
+    }
+
+    private static NotificationRule buildRule(final long id, final String conditionKey, final String recipientConfig) {
+        final NotificationRule rule = Mockito.mock(NotificationRule.class);
+        Mockito.when(rule.getId()).thenReturn(id);
+        Mockito.when(rule.getRecipientType()).thenReturn(RecipientSettingsRepository.RECIPIENT_TYPE);
+        Mockito.when(rule.getConditionKey()).thenReturn(conditionKey);
+        Mockito.when(rule.getRecipient()).thenReturn(recipientConfig);
+        return rule;
+    }
+}
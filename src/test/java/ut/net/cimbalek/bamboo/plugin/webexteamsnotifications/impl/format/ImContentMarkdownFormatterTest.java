@@ -0,0 +1,52 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.format;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.format.ImContentMarkdownFormatter;
+
+public class ImContentMarkdownFormatterTest {
+
+    @Test
+    public void givenFormat_whenContentHasNoStructure_thenItIsNotChanged() {
+        Assert.assertEquals("messageContent", ImContentMarkdownFormatter.format("messageContent"));
+    }
+
+    @Test
+    public void givenFormat_whenContentContainsBrowseUrl_thenStatusIsBoldAndKeysAreLinked() {
+        final String content = "Project > Plan > PROJ-PLAN-42 failed. Manual run by John.\r\n"
+                + "PROJ-PLAN-41 failed too: https://bamboo.example.com/browse/PROJ-PLAN-42.";
+
+        Assert.assertEquals("Project > Plan > [PROJ-PLAN-42](https://bamboo.example.com/browse/PROJ-PLAN-42) **failed**. Manual run by John.\n"
+                        + "[PROJ-PLAN-41](https://bamboo.example.com/browse/PROJ-PLAN-41) failed too: "
+                        + "[PROJ-PLAN-42](https://bamboo.example.com/browse/PROJ-PLAN-42).",
+                ImContentMarkdownFormatter.format(content));
+    }
+
+    @Test
+    public void givenFormat_whenUrlIsNotBrowseUrl_thenItIsKeptAsIs() {
+        Assert.assertEquals("Plan was **successful**, see https://example.com/failed-builds",
+                ImContentMarkdownFormatter.format("Plan was successful, see https://example.com/failed-builds"));
+    }
+
+    @Test
+    public void givenFormat_whenListIsLong_thenItIsCollapsed() {
+        final StringBuilder content = new StringBuilder("Build failed\n\n\n3 tests failed:\n");
+        for (int i = 0; i < 8; i++) {
+            content.append("  com.example.FooTest.test").append(i).append('\n');
+        }
+        content.append("\nResponsible: John");
+
+        Assert.assertEquals("Build **failed**\n\n3 tests failed:\n"
+                        + "- com.example.FooTest.test0\n- com.example.FooTest.test1\n- com.example.FooTest.test2\n"
+                        + "- com.example.FooTest.test3\n- com.example.FooTest.test4\n- _and 3 more_\n\nResponsible: John",
+                ImContentMarkdownFormatter.format(content.toString()));
+    }
+
+    @Test
+    public void givenFormat_whenCalledRepeatedly_thenPreviousContentDoesNotLeak() {
+        ImContentMarkdownFormatter.format("PROJ-PLAN-1 failed https://bamboo.example.com/browse/PROJ-PLAN-1\n* a\n* b");
+
+        Assert.assertEquals("PROJ-PLAN-2 **fixed**", ImContentMarkdownFormatter.format("PROJ-PLAN-2 fixed"));
+    }
+}
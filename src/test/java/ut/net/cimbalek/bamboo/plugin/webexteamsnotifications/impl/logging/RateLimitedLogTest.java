@@ -0,0 +1,82 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.LogValues;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.logging.RateLimitedLog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotTokens;
+
+public class RateLimitedLogTest {
+
+    private Logger logger;
+
+    @Before
+    public void setupMocks() {
+        logger = Mockito.mock(Logger.class);
+        Mockito.when(logger.isWarnEnabled()).thenReturn(true);
+    }
+
+    @Test
+    public void givenWarn_whenSameKeyRepeatsWithinInterval_thenOnlyFirstWarningIsLogged() {
+        final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger, 60_000L);
+        rateLimitedLog.warn("room", "Room '{}' not found.", "room");
+        rateLimitedLog.warn("room", "Room '{}' not found.", "room");
+        rateLimitedLog.warn("anotherRoom", "Room '{}' not found.", "anotherRoom");
+
+        Mockito.verify(logger).warn("Room '{}' not found.", new Object[]{"room"});
+        Mockito.verify(logger).warn("Room '{}' not found.", new Object[]{"anotherRoom"});
+        Mockito.verifyNoMoreInteractions(Mockito.ignoreStubs(logger));
+    }
+
+    @Test
+    public void givenWarn_whenIntervalPassed_thenNumberOfSuppressedWarningsIsAppended() throws InterruptedException {
+        final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger, 50L);
+        rateLimitedLog.warn("room", "Room '{}' not found.", "room");
+        rateLimitedLog.warn("room", "Room '{}' not found.", "room");
+        rateLimitedLog.warn("room", "Room '{}' not found.", "room");
+        Thread.sleep(60L);
+        rateLimitedLog.warn("room", "Room '{}' not found.", "room");
+
+        Mockito.verify(logger).warn("Room '{}' not found.", new Object[]{"room"});
+        Mockito.verify(logger).warn("Room '{}' not found. ({} similar messages suppressed)", new Object[]{"room", 2L});
+    }
+
+    @Test
+    public void givenWarn_whenTooManyKeysAreLogged_thenOnlyTheLeastRecentlyUsedOnesAreForgotten() {
+        final RateLimitedLog rateLimitedLog = new RateLimitedLog(logger, 60_000L);
+        rateLimitedLog.warn("room0", "Room '{}' not found.", "room0");
+        for (int i = 1; i <= 1000; i++) {
+            rateLimitedLog.warn("room0", "Room '{}' not found.", "room0");
+            rateLimitedLog.warn("room" + i, "Room '{}' not found.", "room" + i);
+        }
+        rateLimitedLog.warn("room0", "Room '{}' not found.", "room0");
+        rateLimitedLog.warn("room1", "Room '{}' not found.", "room1");
+
+        Mockito.verify(logger).warn("Room '{}' not found.", new Object[]{"room0"});
+        Mockito.verify(logger, Mockito.times(2)).warn("Room '{}' not found.", new Object[]{"room1"});
+    }
+
+    @Test
+    public void givenWarn_whenWarnLevelIsDisabled_thenNothingIsLogged() {
+        Mockito.when(logger.isWarnEnabled()).thenReturn(false);
+        new RateLimitedLog(logger).warn("room", "Room '{}' not found.", "room");
+
+        Mockito.verify(logger, Mockito.never()).warn(Mockito.anyString(), Mockito.any(Object[].class));
+    }
+
+    @Test
+    public void givenLogValues_whenRendered_thenTokenIsFingerprintedAndBodyIsCapped() {
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < LogValues.MAX_LOGGED_CHARS + 10; i++) {
+            body.append('x');
+        }
+
+        Assert.assertEquals(BotTokens.fingerprint("secretToken"), LogValues.token("secretToken").toString());
+        Assert.assertEquals(LogValues.MAX_LOGGED_CHARS + "...(10 more characters)".length(), LogValues.capped(body).toString().length());
+        Assert.assertEquals("short", LogValues.capped("short").toString());
+    }
+}
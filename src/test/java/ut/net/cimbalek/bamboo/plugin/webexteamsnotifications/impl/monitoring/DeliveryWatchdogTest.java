@@ -0,0 +1,91 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring;
+
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.DeliveryWatchdog;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.monitoring.InFlightCalls;
+
+public class DeliveryWatchdogTest {
+
+    private DeliveryWatchdog deliveryWatchdog;
+
+    @After
+    public void tearDown() {
+        if (deliveryWatchdog != null) {
+            deliveryWatchdog.destroy();
+        }
+    }
+
+    @Test
+    public void givenNotificationInProgressLongerThanThreshold_whenCheck_thenItIsStalledAndReportedOnce() {
+        deliveryWatchdog = buildDeliveryWatchdog(true, 0);
+        final long previousStart = InFlightCalls.startNotification("botAccessToken", "roomId");
+        try {
+            Assert.assertEquals(1, deliveryWatchdog.check());
+            Assert.assertEquals(1, deliveryWatchdog.check());
+            Assert.assertEquals(1, deliveryWatchdog.getStalledCount());
+            Assert.assertEquals(1, deliveryWatchdog.getReportedCount());
+        } finally {
+            InFlightCalls.finishNotification(previousStart);
+        }
+
+        Assert.assertEquals(0, deliveryWatchdog.check());
+        Assert.assertEquals(0, deliveryWatchdog.getInFlightCount());
+    }
+
+    @Test
+    public void givenRequestWithinNotification_whenRequestFinishes_thenNotificationIsStillInFlight() {
+        deliveryWatchdog = buildDeliveryWatchdog(true, 60000);
+        final long previousNotificationStart = InFlightCalls.startNotification("botAccessToken", "roomId");
+        try {
+            final long previousRequestStart = InFlightCalls.startRequest("botAccessToken", "GET", "rooms/roomId");
+            deliveryWatchdog.check();
+            Assert.assertEquals(2, deliveryWatchdog.getInFlightCount());
+            Assert.assertEquals(0, deliveryWatchdog.getStalledCount());
+            InFlightCalls.finishRequest(previousRequestStart);
+
+            deliveryWatchdog.check();
+            Assert.assertEquals(1, deliveryWatchdog.getInFlightCount());
+        } finally {
+            InFlightCalls.finishNotification(previousNotificationStart);
+        }
+    }
+
+    @Test
+    public void givenNestedNotification_whenInnerFinishes_thenOuterIsStillInFlight() {
+        deliveryWatchdog = buildDeliveryWatchdog(true, 0);
+        final long outerStart = InFlightCalls.startNotification("botAccessToken", "roomId");
+        try {
+            InFlightCalls.finishNotification(InFlightCalls.startNotification("botAccessToken", "roomId"));
+
+            Assert.assertEquals(1, deliveryWatchdog.check());
+        } finally {
+            InFlightCalls.finishNotification(outerStart);
+        }
+    }
+
+    @Test
+    public void givenWatchdogIsDisabled_whenNotificationStarts_thenItIsNotTracked() {
+        deliveryWatchdog = buildDeliveryWatchdog(false, 0);
+        final long previousStart = InFlightCalls.startNotification("botAccessToken", "roomId");
+        try {
+            Assert.assertEquals(InFlightCalls.IDLE, previousStart);
+            Assert.assertEquals(0, deliveryWatchdog.check());
+        } finally {
+            InFlightCalls.finishNotification(previousStart);
+        }
+    }
+
+    private DeliveryWatchdog buildDeliveryWatchdog(final boolean enabled, final long stallThresholdMillis) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "watchdog.enabled", String.valueOf(enabled));
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "watchdog.stallThresholdMillis", String.valueOf(stallThresholdMillis));
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "watchdog.checkIntervalMillis", "3600000");
+        return new DeliveryWatchdog(new TeamsNotificationsConfiguration(properties));
+    }
+}
@@ -0,0 +1,48 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Optional;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.BuildMessageRegistry;
+
+public class BuildMessageRegistryTest {
+
+    @Test
+    public void givenFindBuildKey_whenContentContainsBuildResultKey_thenTheKeyIsReturned() {
+        Assert.assertEquals(Optional.of("PROJ-PLAN-123"),
+                BuildMessageRegistry.findBuildKey("[PROJ-PLAN-123](https://bamboo/browse/PROJ-PLAN-123) failed. Responsible: john"));
+        Assert.assertEquals(Optional.of("PROJ-PLAN-JOB1-7"), BuildMessageRegistry.findBuildKey("Job PROJ-PLAN-JOB1-7 started"));
+        Assert.assertFalse(BuildMessageRegistry.findBuildKey("Plan PROJ-PLAN was disabled").isPresent());
+    }
+
+    @Test
+    public void givenFindMessageId_whenMoreBuildsThanCapacityAreRegistered_thenTheOldestOneIsForgotten() {
+        final BuildMessageRegistry registry = buildRegistry("2", "10");
+        registry.register("room", "PROJ-PLAN-1", "message1");
+        registry.register("room", "PROJ-PLAN-2", "message2");
+        registry.register("room", "PROJ-PLAN-3", "message3");
+
+        Assert.assertFalse(registry.findMessageId("room", "PROJ-PLAN-1").isPresent());
+        Assert.assertEquals(Optional.of("message3"), registry.findMessageId("room", "PROJ-PLAN-3"));
+        Assert.assertFalse(registry.findMessageId("anotherRoom", "PROJ-PLAN-3").isPresent());
+    }
+
+    @Test
+    public void givenFindMessageId_whenEntryExpired_thenNothingIsReturned() {
+        final BuildMessageRegistry registry = buildRegistry("2", "-1");
+        registry.register("room", "PROJ-PLAN-1", "message1");
+
+        Assert.assertFalse(registry.findMessageId("room", "PROJ-PLAN-1").isPresent());
+    }
+
+    private BuildMessageRegistry buildRegistry(final String maxBuilds, final String ttlMinutes) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "editInPlace.maxBuilds", maxBuilds);
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "editInPlace.ttlMinutes", ttlMinutes);
+        return new BuildMessageRegistry(new TeamsNotificationsConfiguration(properties));
+    }
+}
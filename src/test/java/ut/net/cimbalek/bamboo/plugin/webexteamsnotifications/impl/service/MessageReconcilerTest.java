@@ -0,0 +1,90 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Messages;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.MessageReconciler;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+public class MessageReconcilerTest {
+
+    private TeamsRestHttpClient teamsRestHttpClient;
+    private MessageReconciler messageReconciler;
+
+    @Before
+    public void setupMocks() {
+        teamsRestHttpClient = Mockito.mock(TeamsRestHttpClient.class);
+        final Properties properties = new Properties();
+        properties.setProperty("webexteams.reconciliation.enabled", "true");
+        messageReconciler = new MessageReconciler(teamsRestHttpClient, new TeamsNotificationsConfiguration(properties));
+    }
+
+    @Test
+    public void givenMark_whenMessageHasOnlyText_thenTextIsMarked() {
+        final Message marked = messageReconciler.mark(message("Build failed", null));
+
+        Assert.assertTrue(marked.getText().matches("Build failed\n\nref [0-9a-f]{12}"));
+        Assert.assertNull(marked.getMarkdown());
+    }
+
+    @Test
+    public void givenMark_whenReconciliationIsDisabled_thenMessageIsNotChanged() {
+        final Message message = message("Build failed", "**Build** failed");
+
+        Assert.assertSame(message, new MessageReconciler(teamsRestHttpClient, new TeamsNotificationsConfiguration(new Properties()))
+                .mark(message));
+    }
+
+    @Test
+    public void givenFindPosted_whenRoomReturnsOnlyPlainTextRenderingOfMarkdown_thenMessageIsFound() {
+        final Message marked = messageReconciler.mark(message("Build failed", "**Build** failed"));
+        final Message posted = message(marked.getMarkdown().replace("**", ""), null);
+        posted.setId("messageId");
+        returnRecentMessages(posted);
+
+        Assert.assertEquals("messageId", messageReconciler.findPosted("token", marked, Deadline.none()).get().getId());
+    }
+
+    @Test
+    public void givenFindPosted_whenTextMessageIsInRoom_thenMessageIsFound() {
+        final Message marked = messageReconciler.mark(message("Build failed", null));
+        returnRecentMessages(marked);
+
+        Assert.assertTrue(messageReconciler.findPosted("token", marked, Deadline.none()).isPresent());
+    }
+
+    @Test
+    public void givenFindPosted_whenRoomHasSameContentWithAnotherMarker_thenMessageIsNotFound() {
+        final Message marked = messageReconciler.mark(message("Build failed", "**Build** failed"));
+        returnRecentMessages(messageReconciler.mark(message("Build failed", "**Build** failed")));
+
+        Assert.assertFalse(messageReconciler.findPosted("token", marked, Deadline.none()).isPresent());
+    }
+
+    private void returnRecentMessages(final Message item) {
+        final Messages messages = new Messages();
+        messages.setItems(Collections.singletonList(item));
+        Mockito.when(teamsRestHttpClient.sendUncachedGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Messages.class),
+                Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(messages, HttpStatus.OK));
+    }
+
+    private static Message message(final String text, final String markdown) {
+        final Message message = new Message();
+        message.setRoomId("roomId");
+        message.setText(text);
+        message.setMarkdown(markdown);
+        return message;
+    }
+}
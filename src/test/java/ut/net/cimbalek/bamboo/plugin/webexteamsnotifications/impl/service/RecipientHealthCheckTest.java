@@ -0,0 +1,123 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Person;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.HealthCheckScan;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientCheckResult;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientCheckStatus;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthCheck;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+public class RecipientHealthCheckTest {
+
+    private RecipientSettingsRepository recipientSettingsRepository;
+    private TeamsRoomService teamsRoomService;
+    private TeamsRestHttpClient teamsRestHttpClient;
+    private RecipientHealthRegistry recipientHealthRegistry;
+    private RecipientHealthCheck recipientHealthCheck;
+
+    @Before
+    public void setupMocks() {
+        recipientSettingsRepository = Mockito.mock(RecipientSettingsRepository.class);
+        teamsRoomService = Mockito.mock(TeamsRoomService.class);
+        teamsRestHttpClient = Mockito.mock(TeamsRestHttpClient.class);
+        final Properties properties = new Properties();
+        properties.setProperty("webexteams.negativeCache.failureThreshold", "1");
+        final TeamsNotificationsConfiguration configuration = new TeamsNotificationsConfiguration(properties);
+        recipientHealthRegistry = new RecipientHealthRegistry(configuration);
+        recipientHealthCheck = new RecipientHealthCheck(recipientSettingsRepository, teamsRoomService, teamsRestHttpClient,
+                recipientHealthRegistry, configuration);
+    }
+
+    @After
+    public void tearDown() {
+        recipientHealthCheck.destroy();
+    }
+
+    @Test
+    public void givenStart_whenRecipientIsUsedByMoreRules_thenItIsCheckedOnce() throws InterruptedException {
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Arrays.asList(buildSettings("token", "room1"),
+                buildSettings("token", "room1"), buildSettings("token", "room2")));
+        Mockito.when(teamsRoomService.verifyByIdentifierOrName(Mockito.eq("token"), Mockito.anyString(), Mockito.any(Deadline.class)))
+                .thenReturn(RecipientCheckStatus.OK);
+        final HealthCheckScan scan = awaitFinished(recipientHealthCheck.start());
+
+        Assert.assertEquals(2, scan.getRecipientCount());
+        Assert.assertEquals(3, scan.getRuleCount());
+        Assert.assertEquals(0, scan.getFailedCount());
+        Mockito.verify(teamsRestHttpClient).sendGetRequest(Mockito.eq("people/me"), Mockito.eq("token"), Mockito.eq(Person.class),
+                Mockito.any(Deadline.class));
+        Mockito.verify(teamsRoomService).verifyByIdentifierOrName(Mockito.eq("token"), Mockito.eq("room1"), Mockito.any(Deadline.class));
+        Assert.assertEquals(2, scan.getResults().stream().filter(result -> "room1".equals(result.getRoomIdentifier())).findAny()
+                .map(RecipientCheckResult::getRuleCount).orElse(0).intValue());
+    }
+
+    @Test
+    public void givenStart_whenTokenIsRefused_thenItsRoomsAreNotLookedUp() throws InterruptedException {
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Arrays.asList(buildSettings("token", "room1"),
+                buildSettings("token", "room2")));
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Person.class),
+                Mockito.any(Deadline.class))).thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        final HealthCheckScan scan = awaitFinished(recipientHealthCheck.start());
+
+        Assert.assertEquals(2, scan.getFailedCount());
+        Assert.assertEquals(RecipientCheckStatus.TOKEN_REFUSED, scan.getResults().get(0).getStatus());
+        Assert.assertTrue(recipientHealthRegistry.getBrokenRecipient("token", "room1").isPresent());
+        Mockito.verifyZeroInteractions(teamsRoomService);
+    }
+
+    @Test
+    public void givenStart_whenApiThrottles_thenCheckIsRetriedAfterRequestedTime() throws InterruptedException {
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Arrays.asList(buildSettings("token", "room1")));
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Retry-After", "0");
+        Mockito.when(teamsRoomService.verifyByIdentifierOrName(Mockito.eq("token"), Mockito.eq("room1"), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null))
+                .thenReturn(RecipientCheckStatus.ROOM_NOT_FOUND);
+        final HealthCheckScan scan = awaitFinished(recipientHealthCheck.start());
+
+        Assert.assertEquals(RecipientCheckStatus.ROOM_NOT_FOUND, scan.getResults().get(0).getStatus());
+        Mockito.verify(teamsRoomService, Mockito.times(2)).verifyByIdentifierOrName(Mockito.eq("token"), Mockito.eq("room1"),
+                Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenStart_whenNoRecipientIsConfigured_thenScanIsFinishedImmediately() {
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Arrays.asList());
+
+        Assert.assertTrue(recipientHealthCheck.start().isFinished());
+    }
+
+    private static HealthCheckScan awaitFinished(final HealthCheckScan scan) throws InterruptedException {
+        final long until = System.currentTimeMillis() + 5_000L;
+        while (!scan.isFinished() && System.currentTimeMillis() < until) {
+            Thread.sleep(10L);
+        }
+        Assert.assertTrue(scan.isFinished());
+        return scan;
+    }
+
+    private static TeamsBotNotificationSettings buildSettings(final String botToken, final String roomIdentifier) {
+        final TeamsBotNotificationSettings settings = new TeamsBotNotificationSettings();
+        settings.setBotAccessToken(botToken);
+        settings.setRoomIdentifier(roomIdentifier);
+        return settings;
+    }
+}
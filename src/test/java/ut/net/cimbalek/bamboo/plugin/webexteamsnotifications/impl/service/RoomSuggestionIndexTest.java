@@ -0,0 +1,105 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RoomPrefixIndex;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RoomSuggestionIndex;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+
+public class RoomSuggestionIndexTest {
+
+    private TeamsRoomService teamsRoomService;
+
+    @Before
+    public void setupMocks() {
+        teamsRoomService = Mockito.mock(TeamsRoomService.class);
+    }
+
+    @Test
+    public void givenFind_whenQueryMatchesWordsOfTitles_thenRoomsStartingWithTheQueryComeFirst() {
+        final RoomPrefixIndex index = new RoomPrefixIndex(rooms("Bamboo releases", "Release team", "Ops", "release-notes"));
+
+        Assert.assertEquals(Arrays.asList("Release team", "release-notes", "Bamboo releases"), titles(index.find(" REL", 10)));
+        Assert.assertEquals(Arrays.asList("release-notes"), titles(index.find("notes", 10)));
+        Assert.assertEquals(Arrays.asList("Release team", "release-notes"), titles(index.find("rel", 2)));
+        Assert.assertTrue(index.find("xyz", 10).isEmpty());
+    }
+
+    @Test
+    public void givenFind_whenQueryIsBlank_thenRoomsAreReturnedSortedByTitle() {
+        final RoomPrefixIndex index = new RoomPrefixIndex(rooms("b", "C", "a"));
+
+        Assert.assertEquals(Arrays.asList("a", "b"), titles(index.find("", 2)));
+        Assert.assertEquals(3, index.size());
+    }
+
+    @Test
+    public void givenSuggest_whenCalledRepeatedly_thenRoomsAreListedOnlyOnce() {
+        Mockito.when(teamsRoomService.listRooms(Mockito.eq("token"), Mockito.any(Deadline.class)))
+                .thenReturn(rooms("Release team", "Ops"));
+        final RoomSuggestionIndex suggestionIndex = buildIndex("300");
+
+        Assert.assertEquals(Arrays.asList("Release team"), titles(suggestionIndex.suggest("token", "re")));
+        Assert.assertEquals(Arrays.asList("Ops"), titles(suggestionIndex.suggest("token", "o")));
+        Mockito.verify(teamsRoomService, Mockito.times(1)).listRooms(Mockito.eq("token"), Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenSuggest_whenIndexExpired_thenRoomsAreListedAgain() {
+        Mockito.when(teamsRoomService.listRooms(Mockito.eq("token"), Mockito.any(Deadline.class)))
+                .thenReturn(rooms("Ops"));
+        final RoomSuggestionIndex suggestionIndex = buildIndex("0");
+
+        suggestionIndex.suggest("token", "o");
+        suggestionIndex.suggest("token", "o");
+        Mockito.verify(teamsRoomService, Mockito.times(2)).listRooms(Mockito.eq("token"), Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenSuggest_whenListingFails_thenFailureIsNotCached() {
+        Mockito.when(teamsRoomService.listRooms(Mockito.eq("token"), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED))
+                .thenReturn(rooms("Ops"));
+        final RoomSuggestionIndex suggestionIndex = buildIndex("300");
+
+        try {
+            suggestionIndex.suggest("token", "o");
+            Assert.fail("Refused token has to be reported");
+        } catch (final HttpClientErrorException e) {
+            Assert.assertEquals(HttpStatus.UNAUTHORIZED, e.getStatusCode());
+        }
+        Assert.assertEquals(Arrays.asList("Ops"), titles(suggestionIndex.suggest("token", "o")));
+    }
+
+    private RoomSuggestionIndex buildIndex(final String ttlSeconds) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "roomSuggestions.ttlSeconds", ttlSeconds);
+        return new RoomSuggestionIndex(teamsRoomService, new TeamsNotificationsConfiguration(properties));
+    }
+
+    private static List<Room> rooms(final String... titles) {
+        return Arrays.stream(titles).map(title -> {
+            final Room room = new Room();
+            room.setId("id-" + title);
+            room.setTitle(title);
+            return room;
+        }).collect(Collectors.toList());
+    }
+
+    private static List<String> titles(final List<Room> rooms) {
+        return rooms.stream().map(Room::getTitle).collect(Collectors.toList());
+    }
+}
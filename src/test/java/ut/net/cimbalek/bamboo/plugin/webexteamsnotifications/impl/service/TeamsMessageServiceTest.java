@@ -1,39 +1,229 @@
 package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
 
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Properties;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Messages;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaim;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.DeliveryClaims;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionStore;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.BuildMessageRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.MessageReconciler;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthRegistry;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.SendResult;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsMessageService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
 
 public class TeamsMessageServiceTest {
 
     private TeamsRestHttpClient teamsRestHttpClient;
+    private RecipientHealthRegistry recipientHealthRegistry;
+    private BuildMessageRegistry buildMessageRegistry;
+    private RoomResolutionStore roomResolutionStore;
+    private DeliveryClaims deliveryClaims;
+    private MessageReconciler messageReconciler;
 
     @Before
     public void setupMocks() {
         teamsRestHttpClient = Mockito.mock(TeamsRestHttpClient.class);
+        final Properties properties = new Properties();
+        properties.setProperty("webexteams.negativeCache.failureThreshold", "1");
+        recipientHealthRegistry = new RecipientHealthRegistry(new TeamsNotificationsConfiguration(properties));
+        buildMessageRegistry = new BuildMessageRegistry(new TeamsNotificationsConfiguration(new Properties()));
+        roomResolutionStore = Mockito.mock(RoomResolutionStore.class);
+        deliveryClaims = Mockito.mock(DeliveryClaims.class);
+        Mockito.when(deliveryClaims.claim(Mockito.anyString(), Mockito.anyString(), Mockito.anyString())).thenReturn(DeliveryClaim.UNCLAIMED);
+        final Properties reconciliationProperties = new Properties();
+        reconciliationProperties.setProperty("webexteams.reconciliation.enabled", "true");
+        messageReconciler = new MessageReconciler(teamsRestHttpClient, new TeamsNotificationsConfiguration(reconciliationProperties));
     }
 
     @Test
     public void givenSendMessage_whenMessageIsSent_thenTrueIsReturned() {
-        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject()))
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.OK));
-        final boolean result = new TeamsMessageService(teamsRestHttpClient).sendMessage("token", new Message());
-        Assert.assertTrue(result);
+        final SendResult result = new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry,
+                roomResolutionStore, deliveryClaims, messageReconciler).sendMessage("token", new Message());
+        Assert.assertEquals(SendResult.SENT, result);
     }
 
     @Test
     public void givenSendMessage_whenMessageSendingFails_thenFalseIsReturned() {
-        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject()))
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
                 .thenThrow(new RestClientException("Some exception"));
-        final boolean result = new TeamsMessageService(teamsRestHttpClient).sendMessage("token", new Message());
-        Assert.assertFalse(result);
+        final SendResult result = new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry,
+                roomResolutionStore, deliveryClaims, messageReconciler).sendMessage("token", new Message());
+        Assert.assertEquals(SendResult.FAILED, result);
+    }
+
+    @Test
+    public void givenSendMessage_whenMessageIsClaimedByAnotherDelivery_thenItIsNotSent() {
+        Mockito.when(deliveryClaims.claim("token", "roomId", "BuildCompleted:PROJ-PLAN-1")).thenReturn(DeliveryClaim.CLAIMED_ELSEWHERE);
+        final SendResult result = newTeamsMessageService().sendMessage("token", markdownMessage(), "BuildCompleted:PROJ-PLAN-1",
+                Deadline.none());
+        Assert.assertEquals(SendResult.CLAIMED_ELSEWHERE, result);
+        Mockito.verifyZeroInteractions(teamsRestHttpClient);
+    }
+
+    @Test
+    public void givenSendMessage_whenMessageSendingFails_thenClaimIsReleased() {
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new RestClientException("Some exception"));
+        final Message message = new Message();
+        new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry, roomResolutionStore, deliveryClaims,
+                messageReconciler).sendMessage("token", message);
+        Mockito.verify(deliveryClaims).release(DeliveryClaim.UNCLAIMED);
+    }
+
+    @Test
+    public void givenSendMessage_whenRoomWasRefusedByApi_thenMessageIsNotSentAgainBeforeRecheck() {
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        final TeamsMessageService teamsMessageService = new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry,
+                roomResolutionStore, deliveryClaims, messageReconciler);
+        final Message message = new Message();
+        message.setRoomId("roomId");
+        Assert.assertEquals(SendResult.FAILED, teamsMessageService.sendMessage("token", message));
+        Assert.assertEquals(SendResult.FAILED, teamsMessageService.sendMessage("token", message));
+        Mockito.verify(teamsRestHttpClient, Mockito.times(1)).sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.anyObject(), Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenSendMessage_whenTimedOutMessageIsFoundInRoom_thenItIsNotSentAgain() {
+        final ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), sent.capture(),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException()));
+        Mockito.when(teamsRestHttpClient.sendUncachedGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Messages.class),
+                Mockito.any(Deadline.class)))
+                .thenAnswer(invocation -> new ResponseEntity<>(messages(sent.getValue()), HttpStatus.OK));
+
+        Assert.assertEquals(SendResult.SENT, newTeamsMessageService().sendMessage("token", markdownMessage()));
+
+        Mockito.verify(teamsRestHttpClient, Mockito.times(1)).sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.anyObject(), Mockito.any(Deadline.class));
+        Mockito.verify(teamsRestHttpClient).sendUncachedGetRequest(Mockito.eq("messages?roomId=roomId&max=20"), Mockito.eq("token"),
+                Mockito.eq(Messages.class), Mockito.any(Deadline.class));
+        Mockito.verify(deliveryClaims, Mockito.never()).release(Mockito.any(DeliveryClaim.class));
+    }
+
+    @Test
+    public void givenSendMessage_whenTimedOutMessageIsNotFoundInRoom_thenItIsSentAgainOnce() {
+        final ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), sent.capture(),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException()))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+        Mockito.when(teamsRestHttpClient.sendUncachedGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Messages.class),
+                Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(messages(markdownMessage()), HttpStatus.OK));
+
+        Assert.assertEquals(SendResult.SENT, newTeamsMessageService().sendMessage("token", markdownMessage()));
+
+        Mockito.verify(teamsRestHttpClient, Mockito.times(2)).sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.anyObject(), Mockito.any(Deadline.class));
+        Assert.assertEquals(2, sent.getAllValues().size());
+        Assert.assertEquals(sent.getAllValues().get(0).getMarkdown(), sent.getAllValues().get(1).getMarkdown());
+        Assert.assertTrue(sent.getValue().getMarkdown().matches("\\*\\*Build\\*\\* failed\n\nref [0-9a-f]{12}"));
+        Assert.assertTrue(sent.getValue().getText().matches("Build failed\n\nref [0-9a-f]{12}"));
+    }
+
+    @Test
+    public void givenSendMessage_whenRoomMessagesCannotBeListedAfterTimeout_thenMessageIsNotSentAgain() {
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException()));
+        Mockito.when(teamsRestHttpClient.sendUncachedGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Messages.class),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.FORBIDDEN));
+        final Message message = markdownMessage();
+
+        Assert.assertEquals(SendResult.FAILED, newTeamsMessageService().sendMessage("token", message));
+
+        Mockito.verify(teamsRestHttpClient, Mockito.times(1)).sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.anyObject(), Mockito.any(Deadline.class));
+        Mockito.verify(deliveryClaims).release(DeliveryClaim.UNCLAIMED);
+    }
+
+    @Test
+    public void givenSendOrEditMessage_whenBuildAlreadyHasMessage_thenTheMessageIsEdited() {
+        final Message posted = new Message();
+        posted.setId("messageId");
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(posted, HttpStatus.OK));
+        final TeamsMessageService teamsMessageService = new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry,
+                roomResolutionStore, deliveryClaims, messageReconciler);
+        final Message message = new Message();
+        message.setRoomId("roomId");
+
+        Assert.assertEquals(SendResult.SENT, teamsMessageService.sendOrEditMessage("token", message, "PROJ-PLAN-1", "BuildCompleted:PROJ-PLAN-1", Deadline.none()));
+        Assert.assertEquals(SendResult.SENT, teamsMessageService.sendOrEditMessage("token", message, "PROJ-PLAN-1", "BuildCompleted:PROJ-PLAN-1", Deadline.none()));
+
+        Mockito.verify(teamsRestHttpClient, Mockito.times(1)).sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.anyObject(), Mockito.any(Deadline.class));
+        Mockito.verify(teamsRestHttpClient, Mockito.times(1)).sendPutRequest(Mockito.eq("messages/messageId"), Mockito.eq("token"),
+                Mockito.any(), Mockito.eq(message), Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenSendOrEditMessage_whenMessageCannotBeEdited_thenNewMessageIsPosted() {
+        final Message posted = new Message();
+        posted.setId("newMessageId");
+        Mockito.when(teamsRestHttpClient.sendPostRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(posted, HttpStatus.OK));
+        Mockito.when(teamsRestHttpClient.sendPutRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyObject(),
+                Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        buildMessageRegistry.register("roomId", "PROJ-PLAN-1", "deletedMessageId");
+        final TeamsMessageService teamsMessageService = new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry,
+                roomResolutionStore, deliveryClaims, messageReconciler);
+        final Message message = new Message();
+        message.setRoomId("roomId");
+
+        Assert.assertEquals(SendResult.SENT, teamsMessageService.sendOrEditMessage("token", message, "PROJ-PLAN-1", "BuildCompleted:PROJ-PLAN-1", Deadline.none()));
+
+        Assert.assertEquals("newMessageId", buildMessageRegistry.findMessageId("roomId", "PROJ-PLAN-1").orElse(null));
+        Assert.assertFalse(recipientHealthRegistry.isSuppressed("token", "roomId"));
+    }
+
+    private TeamsMessageService newTeamsMessageService() {
+        return new TeamsMessageService(teamsRestHttpClient, recipientHealthRegistry, buildMessageRegistry, roomResolutionStore, deliveryClaims,
+                messageReconciler);
+    }
+
+    private static Message markdownMessage() {
+        final Message message = new Message();
+        message.setRoomId("roomId");
+        message.setMarkdown("**Build** failed");
+        message.setText("Build failed");
+        return message;
+    }
+
+    private static Messages messages(final Message item) {
+        final Messages result = new Messages();
+        result.setItems(Collections.singletonList(item));
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service;
 
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Properties;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -8,34 +10,191 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Rooms;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.persistence.RoomResolutionStore;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientCheckStatus;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientHealthRegistry;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.TeamsRoomService;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
 import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
 
 public class TeamsRoomServiceTest {
 
     private TeamsRestHttpClient teamsRestHttpClient;
+    private RecipientHealthRegistry recipientHealthRegistry;
+    private RoomResolutionStore roomResolutionStore;
 
     @Before
     public void setupMocks() {
         teamsRestHttpClient = Mockito.mock(TeamsRestHttpClient.class);
+        final Properties properties = new Properties();
+        properties.setProperty("webexteams.negativeCache.failureThreshold", "1");
+        recipientHealthRegistry = new RecipientHealthRegistry(new TeamsNotificationsConfiguration(properties));
+        roomResolutionStore = Mockito.mock(RoomResolutionStore.class);
+        Mockito.when(roomResolutionStore.find(Mockito.anyString(), Mockito.anyString())).thenReturn(Optional.empty());
     }
 
     @Test
     public void givenFindByIdentifierOrName_whenRequestToApiIsSuccessful_thenResultIsReturned() {
-        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any()))
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
                 .thenReturn(new ResponseEntity<>(new Room(), HttpStatus.OK));
-        final Optional<Room> result = new TeamsRoomService(teamsRestHttpClient).findByIdentifierOrName("token", "roomId");
+        final Optional<Room> result = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore)
+                .findByIdentifierOrName("token", "roomId");
         Assert.assertTrue(result.isPresent());
     }
 
     @Test
     public void givenFindByIdentifierOrName_whenRequestToApiFails_thenEmptyResultIsReturned() {
-        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any()))
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
                 .thenThrow(new RestClientException("Some exception"));
-        final Optional<Room> result = new TeamsRoomService(teamsRestHttpClient).findByIdentifierOrName("token", "roomId");
+        final Optional<Room> result = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore)
+                .findByIdentifierOrName("token", "roomId");
         Assert.assertFalse(result.isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenFindByIdentifierOrName_whenRoomWasNotFound_thenApiIsNotCalledAgainBeforeRecheck() {
+        final Rooms rooms = new Rooms();
+        rooms.setItems(Collections.emptyList());
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Room.class), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Rooms.class), Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(rooms, HttpStatus.OK));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+        Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+
+        Assert.assertTrue(teamsRoomService.isBroken("token", "roomId"));
+        Mockito.verify(teamsRestHttpClient, Mockito.times(2)).sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.any(Deadline.class));
+    }
+
+    @Test
+    public void givenFindByIdentifierOrName_whenLookupByIdentifierFailsWithServerError_thenRecipientIsNotBroken() {
+        final Room room = new Room();
+        room.setId("anotherRoomId");
+        room.setTitle("Another room");
+        final Rooms rooms = new Rooms();
+        rooms.setItems(Collections.singletonList(room));
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Room.class), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Rooms.class), Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(rooms, HttpStatus.OK));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+
+        Assert.assertFalse(teamsRoomService.isBroken("token", "roomId"));
+        Assert.assertTrue(recipientHealthRegistry.getBrokenRecipients().isEmpty());
+        Mockito.verify(roomResolutionStore, Mockito.never()).forget(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void givenFindByIdentifierOrName_whenTokenIsRefused_thenAllRoomsOfTheTokenAreBroken() {
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+
+        Assert.assertTrue(teamsRoomService.isBroken("token", "anotherRoomId"));
+        Assert.assertFalse(teamsRoomService.isBroken("anotherToken", "roomId"));
+    }
+
+    @Test
+    public void givenFindByIdentifierOrName_whenRoomIsStored_thenApiIsNotCalled() {
+        final Room room = new Room();
+        room.setId("roomId");
+        Mockito.when(roomResolutionStore.find("token", "Room name")).thenReturn(Optional.of(room));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        Assert.assertEquals(Optional.of(room), teamsRoomService.findByIdentifierOrName("token", "Room name"));
+
+        Mockito.verifyZeroInteractions(teamsRestHttpClient);
+    }
+
+    @Test
+    public void givenFindByIdentifierOrName_whenRoomIsFoundInApi_thenItIsStored() {
+        final Room room = new Room();
+        room.setId("roomId");
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(room, HttpStatus.OK));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        Assert.assertTrue(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+
+        Mockito.verify(roomResolutionStore).save("token", "roomId", room);
+    }
+
+    @Test
+    public void givenValidateByIdentifierOrName_whenRoomOrTokenIsRefused_thenHealthOfRecipientsIsNotChanged() {
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+
+        Assert.assertEquals(RecipientCheckStatus.TOKEN_REFUSED,
+                teamsRoomService.validateByIdentifierOrName("token", "Half typed room", Deadline.none()));
+
+        Assert.assertFalse(teamsRoomService.isBroken("token", "roomId"));
+        Assert.assertTrue(recipientHealthRegistry.getBrokenRecipients().isEmpty());
+        Mockito.verify(roomResolutionStore, Mockito.never()).forget(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void givenVerifyByIdentifierOrName_whenLookupByIdentifierFailsWithServerError_thenRecipientIsUnreachableAndNotBroken() {
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.eq(Room.class), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+
+        Assert.assertEquals(RecipientCheckStatus.UNREACHABLE,
+                teamsRoomService.verifyByIdentifierOrName("token", "roomId", Deadline.none()));
+
+        Assert.assertFalse(teamsRoomService.isBroken("token", "roomId"));
+        Assert.assertTrue(recipientHealthRegistry.getBrokenRecipients().isEmpty());
+        Mockito.verify(roomResolutionStore, Mockito.never()).forget(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void givenCheckByIdentifierOrName_whenRecipientIsBroken_thenApiIsCalledAndStateIsRefreshed() {
+        recipientHealthRegistry.recordFailure("token", "roomId", HttpStatus.NOT_FOUND);
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
+                .thenReturn(new ResponseEntity<>(new Room(), HttpStatus.OK));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        Assert.assertTrue(teamsRoomService.checkByIdentifierOrName("token", "roomId").isPresent());
+
+        Assert.assertFalse(teamsRoomService.isBroken("token", "roomId"));
+    }
+
+    @Test
+    public void givenFindByIdentifierOrName_whenRoomConfiguredByNameWasRefusedByItsIdentifier_thenRoomIsNotReturned() {
+        final Room room = new Room();
+        room.setId("roomId");
+        Mockito.when(roomResolutionStore.find("token", "Room name")).thenReturn(Optional.of(room));
+        recipientHealthRegistry.recordFailure("token", "roomId", HttpStatus.FORBIDDEN);
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+
+        Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "Room name").isPresent());
+        Assert.assertTrue(teamsRoomService.isBroken("token", "Room name"));
+    }
+
+    @Test
+    public void givenFindByIdentifierOrName_whenRoomWasRefusedFewerTimesThanThreshold_thenApiIsCalledAgain() {
+        final Properties properties = new Properties();
+        properties.setProperty("webexteams.negativeCache.failureThreshold", "3");
+        recipientHealthRegistry = new RecipientHealthRegistry(new TeamsNotificationsConfiguration(properties));
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(Deadline.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.FORBIDDEN));
+        final TeamsRoomService teamsRoomService = new TeamsRoomService(teamsRestHttpClient, recipientHealthRegistry, roomResolutionStore);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertFalse(teamsRoomService.isBroken("token", "roomId"));
+            Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+        }
+        Assert.assertFalse(teamsRoomService.findByIdentifierOrName("token", "roomId").isPresent());
+
+        Assert.assertTrue(teamsRoomService.isBroken("token", "roomId"));
+        Mockito.verify(teamsRestHttpClient, Mockito.times(3)).sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any(),
+                Mockito.any(Deadline.class));
+    }
+}
@@ -0,0 +1,108 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.AdaptiveConcurrencyLimiter;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BulkheadFullException;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenExecute_whenApiThrottles_thenLimitDecreasesDownToMinimum() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20);
+
+        fail(limiter, new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS));
+        Assert.assertEquals(9, limiter.getLimit());
+        for (int i = 0; i < 50; i++) {
+            fail(limiter, new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        Assert.assertEquals(2, limiter.getLimit());
+        Assert.assertEquals(51, limiter.getOverloadCount());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void givenExecute_whenClientErrorOccurs_thenLimitIsNotDecreased() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20);
+
+        fail(limiter, new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        Assert.assertEquals(10, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getOverloadCount());
+    }
+
+    @Test
+    public void givenExecute_whenLimitIsFullyUsedByFastRequests_thenLimitIncreases() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 20);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.execute(() -> sleep(10), 1_000);
+        }
+
+        Assert.assertEquals(2, limiter.getLimit());
+        Assert.assertTrue(limiter.getNoLoadLatencyMillis() > 0);
+    }
+
+    @Test
+    public void givenExecute_whenLimitIsReached_thenRequestIsRejectedAfterTimeout() throws InterruptedException {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> limiter.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                return false;
+            }
+        }, 1_000));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            limiter.execute(() -> "result", 50);
+            Assert.fail("Request over the limit should be rejected");
+        } catch (final BulkheadFullException e) {
+            Assert.assertEquals(1, limiter.getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void fail(final AdaptiveConcurrencyLimiter limiter, final RuntimeException exception) {
+        try {
+            limiter.execute(() -> {
+                throw exception;
+            }, 1_000);
+            Assert.fail("Exception should be propagated");
+        } catch (final RuntimeException e) {
+            Assert.assertSame(exception, e);
+        }
+    }
+
+    private static Object sleep(final long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
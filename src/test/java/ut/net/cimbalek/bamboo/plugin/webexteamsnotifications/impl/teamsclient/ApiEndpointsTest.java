@@ -0,0 +1,153 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.ApiEndpoints;
+
+public class ApiEndpointsTest {
+
+    private static final String FIRST = "https://first/v1/";
+    private static final String SECOND = "https://second/v1/";
+
+    @Test
+    public void givenRecordFailure_whenEndpointFailsThresholdTimesInRow_thenItIsEjectedAndAnotherOneIsSelected() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 2, 60_000);
+        final ApiEndpoints.Endpoint first = apiEndpoints.select();
+
+        apiEndpoints.recordFailure(first);
+        Assert.assertSame(first, apiEndpoints.select());
+        apiEndpoints.recordFailure(first);
+
+        Assert.assertTrue(first.isEjected());
+        Assert.assertEquals(SECOND, apiEndpoints.getPreferredBaseUrl());
+        Assert.assertTrue(apiEndpoints.dueForProbe().isEmpty());
+    }
+
+    @Test
+    public void givenRecordFailure_whenSuccessComesInBetween_thenEndpointIsNotEjected() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 2, 60_000);
+        final ApiEndpoints.Endpoint first = apiEndpoints.select();
+
+        apiEndpoints.recordFailure(first);
+        apiEndpoints.recordResponse(first, millis(10));
+        apiEndpoints.recordFailure(first);
+
+        Assert.assertFalse(first.isEjected());
+        Assert.assertEquals(FIRST, apiEndpoints.getPreferredBaseUrl());
+    }
+
+    @Test
+    public void givenEjectedEndpoint_whenProbeIsDueAndEndpointResponds_thenItIsUsedAgain() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 1, 0);
+        final ApiEndpoints.Endpoint first = apiEndpoints.getEndpoints().get(0);
+        final ApiEndpoints.Endpoint second = apiEndpoints.getEndpoints().get(1);
+        apiEndpoints.recordResponse(first, millis(10));
+        apiEndpoints.recordResponse(second, millis(50));
+        apiEndpoints.recordFailure(first);
+        Assert.assertSame(second, apiEndpoints.select());
+
+        Assert.assertEquals(Collections.singletonList(first), apiEndpoints.dueForProbe());
+        apiEndpoints.recordResponse(first, millis(10));
+
+        Assert.assertFalse(first.isEjected());
+        Assert.assertSame(first, apiEndpoints.select());
+    }
+
+    @Test
+    public void givenRecordResponse_whenAnotherEndpointIsOnlySlightlyFaster_thenPreferredEndpointIsKept() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 3, 60_000);
+        final ApiEndpoints.Endpoint first = apiEndpoints.getEndpoints().get(0);
+        final ApiEndpoints.Endpoint second = apiEndpoints.getEndpoints().get(1);
+        apiEndpoints.recordResponse(first, millis(100));
+        apiEndpoints.recordResponse(second, millis(100));
+        Assert.assertSame(first, apiEndpoints.select());
+
+        apiEndpoints.recordResponse(second, millis(80));
+        Assert.assertSame(first, apiEndpoints.select());
+
+        for (int i = 0; i < 10; i++) {
+            apiEndpoints.recordResponse(first, millis(400));
+        }
+        Assert.assertSame(second, apiEndpoints.select());
+        Assert.assertEquals(1, apiEndpoints.getSwitchCount());
+    }
+
+    @Test
+    public void givenSlowEndpointLeftBehind_whenProbeFindsItRecovered_thenItIsPreferredAgain() throws InterruptedException {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 3, 50);
+        final ApiEndpoints.Endpoint first = apiEndpoints.getEndpoints().get(0);
+        final ApiEndpoints.Endpoint second = apiEndpoints.getEndpoints().get(1);
+        apiEndpoints.recordResponse(second, millis(100));
+        for (int i = 0; i < 10; i++) {
+            apiEndpoints.recordResponse(first, millis(1000));
+        }
+        Assert.assertSame(second, apiEndpoints.select());
+        apiEndpoints.recordResponse(second, millis(100));
+        Assert.assertTrue(apiEndpoints.dueForProbe().isEmpty());
+
+        Thread.sleep(60L);
+        apiEndpoints.recordResponse(second, millis(100));
+        Assert.assertEquals(Collections.singletonList(first), apiEndpoints.dueForProbe());
+        apiEndpoints.recordResponse(first, millis(10));
+
+        Assert.assertSame(first, apiEndpoints.select());
+    }
+
+    @Test
+    public void givenSingleEndpoint_whenItFails_thenItIsNeverEjected() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Collections.singletonList(FIRST), 1, 60_000);
+
+        apiEndpoints.recordFailure(apiEndpoints.select());
+
+        Assert.assertFalse(apiEndpoints.select().isEjected());
+    }
+
+    @Test
+    public void givenFailoverTarget_whenPostCouldNotConnect_thenAnotherEndpointIsReturned() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 3, 60_000);
+
+        final ApiEndpoints.Endpoint target = apiEndpoints.failoverTarget(apiEndpoints.select(), HttpMethod.POST,
+                new ResourceAccessException("refused", new ConnectException("Connection refused")));
+
+        Assert.assertNotNull(target);
+        Assert.assertEquals(SECOND, target.getBaseUrl());
+        Assert.assertEquals(1, apiEndpoints.getFailoverCount());
+    }
+
+    @Test
+    public void givenFailoverTarget_whenPostMightHaveReachedApi_thenItIsNotRetried() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 3, 60_000);
+
+        Assert.assertNull(apiEndpoints.failoverTarget(apiEndpoints.select(), HttpMethod.POST,
+                new ResourceAccessException("timeout", new SocketTimeoutException("Read timed out"))));
+        Assert.assertNull(apiEndpoints.failoverTarget(apiEndpoints.select(), HttpMethod.POST,
+                new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+        Assert.assertEquals(0, apiEndpoints.getFailoverCount());
+    }
+
+    @Test
+    public void givenFailoverTarget_whenGetFailsWithServerError_thenAnotherEndpointIsReturned() {
+        final ApiEndpoints apiEndpoints = new ApiEndpoints(Arrays.asList(FIRST, SECOND), 3, 60_000);
+
+        final ApiEndpoints.Endpoint target = apiEndpoints.failoverTarget(apiEndpoints.select(), HttpMethod.GET,
+                new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        Assert.assertNotNull(target);
+        Assert.assertEquals(SECOND, target.getBaseUrl());
+    }
+
+    private static long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,26 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BotRequestHeaders;
+
+public class BotRequestHeadersTest {
+
+    private final BotRequestHeaders botRequestHeaders = new BotRequestHeaders();
+
+    @Test
+    public void givenForToken_whenCalledRepeatedly_thenTheSameHeadersAreReturned() {
+        final HttpHeaders headers = botRequestHeaders.forToken("token");
+
+        Assert.assertSame(headers, botRequestHeaders.forToken("token"));
+        Assert.assertEquals("Bearer token", headers.getFirst(HttpHeaders.AUTHORIZATION));
+        Assert.assertEquals("Bearer anotherToken", botRequestHeaders.forToken("anotherToken").getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void givenForToken_whenHeadersAreModified_thenExceptionIsThrown() {
+        botRequestHeaders.forToken("token").add("X-Test", "value");
+    }
+}
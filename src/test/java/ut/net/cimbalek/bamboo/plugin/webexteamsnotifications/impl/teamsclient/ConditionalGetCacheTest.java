@@ -0,0 +1,48 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.ConditionalGetCache;
+
+public class ConditionalGetCacheTest {
+
+    @Test
+    public void givenGet_whenResponseWithETagWasStored_thenItIsReturnedForTheSameToken() {
+        final ConditionalGetCache cache = new ConditionalGetCache(10);
+        final Room room = new Room();
+        cache.put("rooms/roomId", "token", "\"etag\"", null, room);
+
+        final ConditionalGetCache.Entry entry = cache.get("rooms/roomId", "token");
+        Assert.assertNotNull(entry);
+        Assert.assertEquals("\"etag\"", entry.getETag());
+        Assert.assertSame(room, entry.getBody());
+    }
+
+    @Test
+    public void givenGet_whenResponseWasStoredForAnotherToken_thenNothingIsReturned() {
+        final ConditionalGetCache cache = new ConditionalGetCache(10);
+        cache.put("rooms/roomId", "token", "\"etag\"", null, new Room());
+
+        Assert.assertNull(cache.get("rooms/roomId", "anotherToken"));
+    }
+
+    @Test
+    public void givenPut_whenResponseHasNoValidator_thenItIsNotStored() {
+        final ConditionalGetCache cache = new ConditionalGetCache(10);
+        cache.put("rooms/roomId", "token", null, null, new Room());
+
+        Assert.assertNull(cache.get("rooms/roomId", "token"));
+    }
+
+    @Test
+    public void givenPut_whenCapacityIsExceeded_thenLeastRecentlyUsedEntryIsEvicted() {
+        final ConditionalGetCache cache = new ConditionalGetCache(1);
+        cache.put("rooms/first", "token", "\"first\"", null, new Room());
+        cache.put("rooms/second", "token", "\"second\"", null, new Room());
+
+        Assert.assertNull(cache.get("rooms/first", "token"));
+        Assert.assertNotNull(cache.get("rooms/second", "token"));
+    }
+}
@@ -0,0 +1,34 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.DeadlineExceededException;
+
+public class DeadlineTest {
+
+    @Test
+    public void givenCap_whenLessTimeRemainsThanTimeout_thenRemainingTimeIsUsed() {
+        final Deadline deadline = Deadline.after(1_000);
+
+        Assert.assertTrue(deadline.cap(30_000) <= 1_000);
+        Assert.assertEquals(10, deadline.cap(10));
+    }
+
+    @Test
+    public void givenCap_whenDeadlineIsExpired_thenOneMillisecondIsUsedInsteadOfInfiniteTimeout() {
+        Assert.assertEquals(1, Deadline.after(0).cap(30_000));
+    }
+
+    @Test
+    public void givenNone_whenTimeoutIsCapped_thenTimeoutIsUnchanged() {
+        Assert.assertFalse(Deadline.none().isExpired());
+        Assert.assertEquals(30_000, Deadline.none().cap(30_000));
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void givenCheck_whenDeadlineIsExpired_thenExceptionIsThrown() {
+        Deadline.after(0).check("test");
+    }
+}
@@ -0,0 +1,130 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.HedgedRequests;
+
+public class HedgedRequestsTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final CountDownLatch hedgeCompleted = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void givenExecute_whenFirstRequestIsSlow_thenHedgedRequestWins() {
+        final HedgedRequests hedgedRequests = new HedgedRequests(executor, scheduler, 95, 100, 10);
+        warmUp(hedgedRequests);
+        final AtomicInteger attempts = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+
+        final long start = System.nanoTime();
+        final String result = hedgedRequests.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                Assert.assertSame(caller, Thread.currentThread());
+                return abortedByHedge();
+            }
+            hedgeCompleted.countDown();
+            return "hedge";
+        });
+
+        Assert.assertEquals("hedge", result);
+        Assert.assertEquals(2, attempts.get());
+        Assert.assertEquals(1, hedgedRequests.getHedgedCount());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+    }
+
+    @Test
+    public void givenExecute_whenHedgedRequestFails_thenFirstResponseIsUsed() {
+        final HedgedRequests hedgedRequests = new HedgedRequests(executor, scheduler, 95, 100, 10);
+        warmUp(hedgedRequests);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = hedgedRequests.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(200);
+                return "primary";
+            }
+            throw new ResourceAccessException("failed");
+        });
+
+        Assert.assertEquals("primary", result);
+        Assert.assertEquals(1, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    public void givenExecute_whenBudgetIsExhausted_thenRequestIsNotHedged() {
+        final HedgedRequests hedgedRequests = new HedgedRequests(executor, scheduler, 95, 0, 10);
+        warmUp(hedgedRequests);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = hedgedRequests.execute(() -> {
+            attempts.incrementAndGet();
+            sleep(100);
+            return "primary";
+        });
+
+        Assert.assertEquals("primary", result);
+        Assert.assertEquals(1, attempts.get());
+        Assert.assertEquals(0, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    public void givenExecute_whenHedgingExecutorRejectsHedge_thenHedgeIsSkipped() {
+        final HedgedRequests hedgedRequests = new HedgedRequests(runnable -> {
+        }, scheduler, 95, 100, 10);
+        warmUp(hedgedRequests);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = hedgedRequests.execute(() -> {
+            attempts.incrementAndGet();
+            sleep(100);
+            return "primary";
+        });
+
+        Assert.assertEquals("primary", result);
+        Assert.assertEquals(1, attempts.get());
+        Assert.assertEquals(0, hedgedRequests.getHedgedCount());
+    }
+
+    private void warmUp(final HedgedRequests hedgedRequests) {
+        for (int i = 0; i < 30; i++) {
+            hedgedRequests.execute(() -> "warmUp");
+        }
+    }
+
+    /**
+     * Waits for the hedge like the HTTP request aborted when the hedge succeeds
+     */
+    private String abortedByHedge() {
+        try {
+            hedgeCompleted.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new ResourceAccessException("aborted");
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
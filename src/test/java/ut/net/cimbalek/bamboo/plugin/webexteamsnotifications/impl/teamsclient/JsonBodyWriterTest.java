@@ -0,0 +1,36 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Person;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.JsonBodyWriter;
+
+public class JsonBodyWriterTest {
+
+    private final JsonBodyWriter jsonBodyWriter = new JsonBodyWriter();
+
+    @Test
+    public void givenWrite_whenMessageIsWritten_thenJsonWithoutEmptyIdIsReturned() {
+        final Message message = new Message();
+        message.setRoomId("roomId");
+        message.setMarkdown("**Build failed**");
+
+        Assert.assertEquals("{\"roomId\":\"roomId\",\"text\":null,\"markdown\":\"**Build failed**\"}",
+                new String(jsonBodyWriter.write(message), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void givenWrite_whenShorterBodyFollowsLongerOne_thenOnlyTheShorterBodyIsReturned() {
+        final Message longMessage = new Message();
+        longMessage.setMarkdown(new String(new char[100_000]).replace('\0', 'x'));
+        jsonBodyWriter.write(longMessage);
+        final Person person = new Person();
+        person.setId("id");
+
+        Assert.assertEquals("{\"id\":\"id\",\"displayName\":null}", new String(jsonBodyWriter.write(person), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,64 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Person;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.service.RecipientSettingsRepository;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsClientWarmUp;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+public class TeamsClientWarmUpTest {
+
+    private TeamsRestHttpClient teamsRestHttpClient;
+    private RecipientSettingsRepository recipientSettingsRepository;
+
+    @Before
+    public void setupMocks() {
+        teamsRestHttpClient = Mockito.mock(TeamsRestHttpClient.class);
+        recipientSettingsRepository = Mockito.mock(RecipientSettingsRepository.class);
+    }
+
+    @Test
+    public void givenWarmUp_whenTokenIsUsedByMoreRecipients_thenSingleRequestPerTokenIsSent() {
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Arrays.asList(buildSettings("token", "room1"),
+                buildSettings("token", "room2"), buildSettings("anotherToken", "room1")));
+        buildWarmUp("10000").warmUp();
+
+        Mockito.verify(teamsRestHttpClient).sendGetRequest("people/me", "token", Person.class);
+        Mockito.verify(teamsRestHttpClient).sendGetRequest("people/me", "anotherToken", Person.class);
+    }
+
+    @Test
+    public void givenWarmUp_whenApiDoesNotRespond_thenWarmUpIsFinishedWithinTimeBudget() {
+        Mockito.when(recipientSettingsRepository.findAll()).thenReturn(Arrays.asList(buildSettings("token", "room1")));
+        Mockito.when(teamsRestHttpClient.sendGetRequest(Mockito.anyString(), Mockito.anyString(), Mockito.any())).thenAnswer(invocation -> {
+            Thread.sleep(10_000L);
+            return null;
+        });
+        final long start = System.currentTimeMillis();
+        buildWarmUp("100").warmUp();
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 5_000L);
+    }
+
+    private TeamsClientWarmUp buildWarmUp(final String timeoutMillis) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "warmUp.timeoutMillis", timeoutMillis);
+        return new TeamsClientWarmUp(teamsRestHttpClient, recipientSettingsRepository, new TeamsNotificationsConfiguration(properties));
+    }
+
+    private TeamsBotNotificationSettings buildSettings(final String botToken, final String roomIdentifier) {
+        final TeamsBotNotificationSettings settings = new TeamsBotNotificationSettings();
+        settings.setBotAccessToken(botToken);
+        settings.setRoomIdentifier(roomIdentifier);
+        return settings;
+    }
+}
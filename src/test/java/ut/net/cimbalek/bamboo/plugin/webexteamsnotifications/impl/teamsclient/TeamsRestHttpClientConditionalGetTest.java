@@ -0,0 +1,106 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Messages;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+public class TeamsRestHttpClientConditionalGetTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+    private TeamsRestHttpClient teamsRestHttpClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 50);
+        server.createContext("/v1/", this::handle);
+        server.start();
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "api.baseUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/");
+        teamsRestHttpClient = new TeamsRestHttpClient(new TeamsNotificationsConfiguration(properties));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        teamsRestHttpClient.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void givenSendGetRequest_whenRoomWasNotModified_thenCachedBodyIsReturned() {
+        teamsRestHttpClient.sendGetRequest("rooms/room", "token", Room.class);
+        final ResponseEntity<Room> response = teamsRestHttpClient.sendGetRequest("rooms/room", "token", Room.class);
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals("room", response.getBody().getId());
+        Assert.assertEquals(1, conditionalRequests.get());
+    }
+
+    @Test
+    public void givenSendGetRequest_whenNotModifiedBodyIsNotCached_thenItIsRequestedAgainWithoutValidators() {
+        teamsRestHttpClient.sendGetRequest("rooms/room", "token", Room.class);
+        final ResponseEntity<String> response = teamsRestHttpClient.sendGetRequest("rooms/room", "token", String.class);
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertTrue(response.getBody().contains("\"room\""));
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(1, conditionalRequests.get());
+    }
+
+    @Test
+    public void givenSendGetRequest_whenMessagesAreListed_thenRequestIsNotConditional() {
+        teamsRestHttpClient.sendGetRequest("messages?roomId=room", "token", Messages.class);
+        teamsRestHttpClient.sendGetRequest("messages?roomId=room", "token", Messages.class);
+
+        Assert.assertEquals(2, requests.get());
+        Assert.assertEquals(0, conditionalRequests.get());
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (exchange.getRequestHeaders().containsKey("If-None-Match")) {
+                conditionalRequests.incrementAndGet();
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.getResponseHeaders().add("ETag", ETAG);
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            final String body = exchange.getRequestURI().getPath().endsWith("/messages")
+                    ? "{\"items\":[]}"
+                    : "{\"id\":\"room\",\"title\":\"Room\"}";
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
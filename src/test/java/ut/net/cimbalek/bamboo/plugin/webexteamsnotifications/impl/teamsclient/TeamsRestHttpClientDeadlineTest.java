@@ -0,0 +1,92 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.Deadline;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+public class TeamsRestHttpClientDeadlineTest {
+
+    private static final byte[] EMPTY_BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private volatile boolean stopped;
+    private TeamsRestHttpClient teamsRestHttpClient;
+
+    @Before
+    public void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 50);
+        server.createContext("/v1/", this::trickle);
+        server.setExecutor(serverExecutor);
+        server.start();
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "api.baseUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/");
+        teamsRestHttpClient = new TeamsRestHttpClient(new TeamsNotificationsConfiguration(properties));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        stopped = true;
+        teamsRestHttpClient.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void givenSendGetRequest_whenResponseTricklesPastDeadline_thenRequestIsAborted() {
+        // builds the HTTP stack, so the deadline is spent on the response only
+        teamsRestHttpClient.sendGetRequest("people/me", "token", String.class);
+        final long start = System.nanoTime();
+        try {
+            teamsRestHttpClient.sendGetRequest("rooms/room", "token", String.class, Deadline.after(500L));
+            Assert.fail("Aborted request expected");
+        } catch (final ResourceAccessException e) {
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 3_000L);
+        }
+    }
+
+    /**
+     * Sends one byte of room body every 100 ms, so no single read exceeds the socket timeout
+     */
+    private void trickle(final HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            final OutputStream output = exchange.getResponseBody();
+            if (!exchange.getRequestURI().getPath().contains("/rooms/")) {
+                exchange.sendResponseHeaders(200, 2);
+                output.write(EMPTY_BODY);
+                return;
+            }
+            exchange.sendResponseHeaders(200, 0);
+            for (int i = 0; i < 100 && !stopped; i++) {
+                output.write(' ');
+                output.flush();
+                Thread.sleep(100L);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.client.HttpServerErrorException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Message;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.entity.Room;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TeamsRestHttpClient;
+
+public class TeamsRestHttpClientFailoverTest {
+
+    private final ApiStub first = new ApiStub();
+    private final ApiStub second = new ApiStub();
+    private TeamsRestHttpClient teamsRestHttpClient;
+
+    @After
+    public void tearDown() throws IOException {
+        if (teamsRestHttpClient != null) {
+            teamsRestHttpClient.destroy();
+        }
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    public void givenSendPostRequest_whenFirstEndpointIsUnreachable_thenMessageIsSentThroughSecondOne() {
+        teamsRestHttpClient = buildClient(first.getBaseUrl() + "," + second.getBaseUrl(), 1);
+        first.stop();
+
+        final Message sent = teamsRestHttpClient.sendPostRequest("messages", "token", Message.class, buildMessage()).getBody();
+
+        Assert.assertEquals("message", sent.getId());
+        Assert.assertEquals(1, second.requests.get());
+        Assert.assertEquals(second.getBaseUrl(), teamsRestHttpClient.getApiEndpoints().getPreferredBaseUrl());
+    }
+
+    @Test
+    public void givenSendPostRequest_whenEndpointFailsWithServerError_thenItIsNotRetried() {
+        teamsRestHttpClient = buildClient(first.getBaseUrl() + "," + second.getBaseUrl(), 3);
+        first.failing = true;
+
+        try {
+            teamsRestHttpClient.sendPostRequest("messages", "token", Message.class, buildMessage());
+            Assert.fail("Server error expected");
+        } catch (final HttpServerErrorException e) {
+            Assert.assertEquals(0, second.requests.get());
+        }
+    }
+
+    @Test
+    public void givenSendGetRequest_whenPreferredEndpointGetsSlow_thenRequestsMoveToFasterOne() {
+        teamsRestHttpClient = buildClient(first.getBaseUrl() + "," + second.getBaseUrl(), 3);
+        // single failure lets the client learn latency of the second endpoint without ejecting the first one
+        first.failing = true;
+        teamsRestHttpClient.sendGetRequest("rooms/room", "token", Room.class);
+        Assert.assertEquals(first.getBaseUrl(), teamsRestHttpClient.getApiEndpoints().getPreferredBaseUrl());
+        first.failing = false;
+        first.latencyMillis = 200;
+
+        teamsRestHttpClient.sendGetRequest("rooms/another", "token", Room.class);
+        teamsRestHttpClient.sendGetRequest("rooms/third", "token", Room.class);
+
+        Assert.assertEquals(second.getBaseUrl(), teamsRestHttpClient.getApiEndpoints().getPreferredBaseUrl());
+        Assert.assertEquals(2, second.requests.get());
+    }
+
+    @Test
+    public void givenEjectedEndpoint_whenItRespondsAgain_thenProbeBringsItBack() {
+        teamsRestHttpClient = buildClient(first.getBaseUrl() + "," + second.getBaseUrl(), 1);
+        first.failing = true;
+
+        Assert.assertEquals("room", teamsRestHttpClient.sendGetRequest("rooms/room", "token", Room.class).getBody().getId());
+        Assert.assertEquals(second.getBaseUrl(), teamsRestHttpClient.getApiEndpoints().getPreferredBaseUrl());
+        first.failing = false;
+
+        waitUntil(() -> !teamsRestHttpClient.getApiEndpoints().getEndpointStates()[0].endsWith("ejected"));
+    }
+
+    private TeamsRestHttpClient buildClient(final String baseUrls, final int failureThreshold) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "api.baseUrls", baseUrls);
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "api.failureThreshold", String.valueOf(failureThreshold));
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "api.probeIntervalMillis", "0");
+        return new TeamsRestHttpClient(new TeamsNotificationsConfiguration(properties));
+    }
+
+    private static Message buildMessage() {
+        final Message message = new Message();
+        message.setRoomId("room");
+        message.setText("text");
+        return message;
+    }
+
+    private static void waitUntil(final Condition condition) {
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.isMet()) {
+            Assert.assertTrue("Condition not met in time", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(20);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Assert.fail("Interrupted");
+            }
+        }
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Local stub of Webex Teams API answering every room and message request
+     */
+    private static final class ApiStub {
+        private final HttpServer server;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile boolean failing;
+        private volatile long latencyMillis;
+
+        private ApiStub() {
+            try {
+                server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 50);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            server.createContext("/v1/", this::handle);
+            server.start();
+        }
+
+        private String getBaseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/";
+        }
+
+        private void stop() {
+            server.stop(0);
+        }
+
+        private void handle(final HttpExchange exchange) throws IOException {
+            try {
+                requests.incrementAndGet();
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                final String path = exchange.getRequestURI().getPath();
+                if (failing) {
+                    respond(exchange, 503, "");
+                } else if (path.endsWith("/messages")) {
+                    respond(exchange, 200, "{\"id\":\"message\",\"roomId\":\"room\"}");
+                } else if (path.contains("/rooms/")) {
+                    respond(exchange, 200, "{\"id\":\"room\",\"title\":\"Room\"}");
+                } else {
+                    respond(exchange, 401, "");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(bytes);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.BulkheadFullException;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.teamsclient.TokenBulkheads;
+
+public class TokenBulkheadsTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenExecute_whenBulkheadOfTokenIsFull_thenOnlyThatTokenIsRejected() throws InterruptedException {
+        final TokenBulkheads bulkheads = new TokenBulkheads(10, 1, 0, 50);
+        occupy(bulkheads, "noisyToken");
+
+        try {
+            bulkheads.execute("noisyToken", () -> "result");
+            Assert.fail("Request of saturated token should be rejected");
+        } catch (final BulkheadFullException e) {
+            Assert.assertEquals(1, bulkheads.getRejectedCount());
+        }
+        Assert.assertEquals("result", bulkheads.execute("otherToken", () -> "result"));
+    }
+
+    @Test
+    public void givenExecute_whenGlobalBulkheadIsFull_thenRequestIsRejectedAfterTimeout() throws InterruptedException {
+        final TokenBulkheads bulkheads = new TokenBulkheads(1, 1, 0, 50);
+        occupy(bulkheads, "noisyToken");
+
+        try {
+            bulkheads.execute("otherToken", () -> "result");
+            Assert.fail("Request should be rejected when global limit is reached");
+        } catch (final BulkheadFullException e) {
+            Assert.assertEquals(1, bulkheads.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void givenExecute_whenPermitIsReleasedWhileWaiting_thenQueuedRequestIsExecuted() throws Exception {
+        final TokenBulkheads bulkheads = new TokenBulkheads(10, 1, 1, 5_000);
+        occupy(bulkheads, "token");
+
+        executor.submit(() -> {
+            TimeUnit.MILLISECONDS.sleep(50);
+            release.countDown();
+            return null;
+        });
+        Assert.assertEquals("result", bulkheads.execute("token", () -> "result"));
+        Assert.assertEquals(0, bulkheads.getRejectedCount());
+    }
+
+    private void occupy(final TokenBulkheads bulkheads, final String botToken) throws InterruptedException {
+        executor.submit(() -> bulkheads.execute(botToken, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,52 @@
+package ut.net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.config.TeamsNotificationsConfiguration;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.dto.TeamsBotNotificationSettings;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTrace;
+import net.cimbalek.bamboo.plugin.webexteamsnotifications.impl.trace.DeliveryTracer;
+
+public class DeliveryTracerTest {
+
+    @Test
+    public void givenGetRecentTraces_whenHistoryIsFull_thenOnlyTheMostRecentTracesAreReturnedNewestFirst() {
+        final DeliveryTracer deliveryTracer = buildDeliveryTracer(2);
+        final DeliveryTrace first = deliveryTracer.start(buildSettings());
+        deliveryTracer.finish(first, "first");
+        final DeliveryTrace second = deliveryTracer.start(buildSettings());
+        deliveryTracer.finish(second, "second");
+        final DeliveryTrace third = deliveryTracer.start(buildSettings());
+        deliveryTracer.finish(third, "third");
+
+        final List<DeliveryTrace> recentTraces = deliveryTracer.getRecentTraces();
+        Assert.assertEquals(2, recentTraces.size());
+        Assert.assertSame(third, recentTraces.get(0));
+        Assert.assertSame(second, recentTraces.get(1));
+    }
+
+    @Test
+    public void givenStart_whenTraceIsStarted_thenTokenIsNotPartOfIt() {
+        final DeliveryTrace trace = buildDeliveryTracer(2).start(buildSettings());
+
+        Assert.assertFalse(trace.toString().contains("botAccessToken"));
+        Assert.assertFalse("botAccessToken".equals(trace.getTokenFingerprint()));
+    }
+
+    private DeliveryTracer buildDeliveryTracer(final int historySize) {
+        final Properties properties = new Properties();
+        properties.setProperty(TeamsNotificationsConfiguration.PREFIX + "trace.historySize", String.valueOf(historySize));
+        return new DeliveryTracer(new TeamsNotificationsConfiguration(properties));
+    }
+
+    private TeamsBotNotificationSettings buildSettings() {
+        final TeamsBotNotificationSettings settings = new TeamsBotNotificationSettings();
+        settings.setBotAccessToken("botAccessToken");
+        settings.setRoomIdentifier("roomId");
+        return settings;
+    }
+}